@@ -2,11 +2,13 @@ package org.restcomm.connect.application;
 
 import static org.restcomm.connect.dao.entities.Profile.DEFAULT_PROFILE_SID;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.sql.SQLException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.media.mscontrol.MsControlException;
@@ -25,26 +27,35 @@ import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.XMLConfiguration;
 import org.apache.commons.configuration.interpol.ConfigurationInterpolator;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.PoolStats;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.sip.SipConnector;
 import org.restcomm.connect.application.config.ConfigurationStringLookup;
+import org.restcomm.connect.commons.StatisticsSource;
 import org.restcomm.connect.commons.Version;
 import org.restcomm.connect.commons.amazonS3.S3AccessTool;
+import org.restcomm.connect.commons.amazonS3.S3UploadService;
+import org.restcomm.connect.commons.cache.DiskCacheIndex;
 import org.restcomm.connect.commons.common.http.CustomHttpClientBuilder;
 import org.restcomm.connect.commons.configuration.RestcommConfiguration;
 import org.restcomm.connect.commons.dao.Sid;
 import org.restcomm.connect.commons.loader.ObjectFactory;
 import org.restcomm.connect.commons.loader.ObjectInstantiationException;
 import org.restcomm.connect.commons.util.DNSUtils;
+import org.restcomm.connect.commons.util.LatencyHistogram;
 import org.restcomm.connect.core.service.RestcommConnectServiceProvider;
 import org.restcomm.connect.dao.DaoManager;
+import org.restcomm.connect.dao.cache.CachingDaoManager;
 import org.restcomm.connect.dao.entities.InstanceId;
 import org.restcomm.connect.dao.entities.Organization;
 import org.restcomm.connect.dao.entities.Profile;
 import org.restcomm.connect.dao.entities.shiro.ShiroResources;
 import org.restcomm.connect.extension.controller.ExtensionBootstrapper;
+import org.restcomm.connect.extension.controller.ExtensionController;
+import org.restcomm.connect.http.client.DownloaderStatistics;
 import org.restcomm.connect.identity.IdentityContext;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
 import org.restcomm.connect.monitoringservice.MonitoringService;
 import org.restcomm.connect.mrb.api.StartMediaResourceBroker;
 import org.restcomm.connect.mscontrol.api.MediaServerControllerFactory;
@@ -77,6 +88,7 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
 
     private ActorSystem system;
     private ExecutionContext ec;
+    private S3UploadService s3UploadService;
 
     public Bootstrapper() {
         super();
@@ -84,6 +96,9 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
 
     @Override
     public void destroy() {
+        if (s3UploadService != null) {
+            s3UploadService.shutdown();
+        }
         CustomHttpClientBuilder.stopDefaultClient();
         system.shutdown();
         system.awaitTermination();
@@ -236,7 +251,10 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
 
     private DaoManager storage(final Configuration configuration, Configuration daoManagerConfiguration, final ClassLoader loader) throws ObjectInstantiationException {
         final String classpath = daoManagerConfiguration.getString("dao-manager[@class]");
-        final DaoManager daoManager = (DaoManager) new ObjectFactory(loader).getObjectInstance(classpath);
+        DaoManager daoManager = (DaoManager) new ObjectFactory(loader).getObjectInstance(classpath);
+        if (daoManagerConfiguration.getBoolean("dao-manager.cache[@enabled]", false)) {
+            daoManager = new CachingDaoManager(daoManager);
+        }
         daoManager.configure(configuration, daoManagerConfiguration);
         daoManager.start();
         return daoManager;
@@ -255,6 +273,70 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
 
     }
 
+    /**
+     * Latency of the requests made by the downloaders, every host together, and the state of their connection pool.
+     */
+    private StatisticsSource downloaderStatistics() {
+        return new StatisticsSource() {
+            @Override
+            public void putStatistics(Map<String, Integer> countersMap, Map<String, Double> durationMap) {
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_DOWNLOADER_REQUESTS_IN_FLIGHT, DownloaderStatistics.getInFlight());
+                final PoolStats pool = DownloaderStatistics.getPoolStats();
+                if (pool != null) {
+                    countersMap.put(MonitoringMetrics.COUNTERS_MAP_DOWNLOADER_POOL_LEASED, pool.getLeased());
+                    countersMap.put(MonitoringMetrics.COUNTERS_MAP_DOWNLOADER_POOL_PENDING, pool.getPending());
+                    countersMap.put(MonitoringMetrics.COUNTERS_MAP_DOWNLOADER_POOL_AVAILABLE, pool.getAvailable());
+                }
+                final LatencyHistogram latency = new LatencyHistogram();
+                for (final LatencyHistogram host : DownloaderStatistics.getLatencies().values()) {
+                    latency.add(host);
+                }
+                durationMap.put(MonitoringMetrics.DURATION_MAP_DOWNLOADER_AVERAGE_LATENCY_IN_MILLIS, (double) latency.getAverage());
+                durationMap.put(MonitoringMetrics.DURATION_MAP_DOWNLOADER_LATENCY_IN_MILLIS_P50, (double) latency.getPercentile(50));
+                durationMap.put(MonitoringMetrics.DURATION_MAP_DOWNLOADER_LATENCY_IN_MILLIS_P95, (double) latency.getPercentile(95));
+                durationMap.put(MonitoringMetrics.DURATION_MAP_DOWNLOADER_LATENCY_IN_MILLIS_P99, (double) latency.getPercentile(99));
+            }
+        };
+    }
+
+    /**
+     * Executions and latency of every extension executed so far, by extension name.
+     */
+    private StatisticsSource extensionStatistics() {
+        return new StatisticsSource() {
+            @Override
+            public void putStatistics(Map<String, Integer> countersMap, Map<String, Double> durationMap) {
+                for (final Map.Entry<String, LatencyHistogram> latency : ExtensionController.getInstance().getLatencies().entrySet()) {
+                    final String extension = latency.getKey();
+                    final LatencyHistogram histogram = latency.getValue();
+                    countersMap.put(MonitoringMetrics.COUNTERS_MAP_EXTENSION_EXECUTIONS + extension, MonitoringMetrics.counter(histogram.getCount()));
+                    durationMap.put(MonitoringMetrics.DURATION_MAP_EXTENSION_AVERAGE_LATENCY_IN_MILLIS + extension, (double) histogram.getAverage());
+                    durationMap.put(MonitoringMetrics.DURATION_MAP_EXTENSION_LATENCY_IN_MILLIS_P95 + extension, (double) histogram.getPercentile(95));
+                    durationMap.put(MonitoringMetrics.DURATION_MAP_EXTENSION_LATENCY_IN_MILLIS_P99 + extension, (double) histogram.getPercentile(99));
+                }
+            }
+        };
+    }
+
+    /**
+     * Counters and durations of the recording uploads to S3.
+     */
+    private StatisticsSource s3UploadStatistics(final S3UploadService service) {
+        return new StatisticsSource() {
+            @Override
+            public void putStatistics(Map<String, Integer> countersMap, Map<String, Double> durationMap) {
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_S3_UPLOADS, MonitoringMetrics.counter(service.getUploads()));
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_S3_UPLOAD_FAILURES, MonitoringMetrics.counter(service.getFailures()));
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_S3_UPLOAD_RETRIES, MonitoringMetrics.counter(service.getRetries()));
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_S3_UPLOADS_PENDING, service.getPending());
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_S3_UPLOADED_KILOBYTES, MonitoringMetrics.counter(service.getBytes() / 1024));
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_S3_UPLOAD_KILOBYTES_PER_SECOND, MonitoringMetrics.counter(service.getThroughput() / 1024));
+                durationMap.put(MonitoringMetrics.DURATION_MAP_S3_AVERAGE_UPLOAD_TIME_IN_MILLIS, (double) service.getAverageUploadTime());
+                durationMap.put(MonitoringMetrics.DURATION_MAP_S3_MAX_UPLOAD_TIME_IN_MILLIS, (double) service.getMaxUploadTime());
+            }
+        };
+    }
+
     private ActorRef sdrService(final Configuration configuration, final ClassLoader loader) throws Exception {
         final String className = configuration.subset("runtime-settings").getString("sdr-service[@class]");
         if (className != null) {
@@ -352,12 +434,30 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
                 final String bucketRegion = amazonS3Configuration.getString("bucket-region");
                 final boolean testing = amazonS3Configuration.getBoolean("testing", false);
                 final String testingUrl = amazonS3Configuration.getString("testing-url", null);
-                return new S3AccessTool(accessKey, securityKey, bucketName, folder, reducedRedundancy, minutesToRetainPublicUrl, removeOriginalFile, bucketRegion, testing, testingUrl);
+                final S3AccessTool s3AccessTool = new S3AccessTool(accessKey, securityKey, bucketName, folder, reducedRedundancy, minutesToRetainPublicUrl, removeOriginalFile, bucketRegion, testing, testingUrl);
+                // sizes in MB
+                final long multipartThreshold = amazonS3Configuration.getLong("multipart-threshold", 16);
+                final long multipartPartSize = amazonS3Configuration.getLong("multipart-part-size", 8);
+                s3AccessTool.setMultipartUpload(multipartThreshold * 1024 * 1024, multipartPartSize * 1024 * 1024);
+                return s3AccessTool;
             }
         }
         return null;
     }
 
+    private S3UploadService prepareS3UploadService(Configuration configuration, S3AccessTool s3AccessTool) {
+        Configuration amazonS3Configuration = configuration.subset("amazon-s3");
+        final int threads = amazonS3Configuration.getInt("upload-threads", 2);
+        final int queueSize = amazonS3Configuration.getInt("upload-queue-size", 100);
+        final int maxRetries = amazonS3Configuration.getInt("upload-max-retries", 5);
+        final long retryDelay = amazonS3Configuration.getLong("upload-retry-delay", 5000);
+        final String journal = amazonS3Configuration.getString("upload-journal", null);
+        final S3UploadService service = new S3UploadService(s3AccessTool, threads, queueSize, maxRetries, retryDelay,
+                journal == null || journal.isEmpty() ? null : new File(journal));
+        service.start();
+        return service;
+    }
+
     @Override
     public void servletInitialized(SipServletContextEvent event) {
         if (event.getSipServlet().getClass().equals(Bootstrapper.class)) {
@@ -414,6 +514,10 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
 
             S3AccessTool s3AccessTool = prepareS3AccessTool(xml);
             context.setAttribute(S3AccessTool.class.getName(), s3AccessTool);
+            if (s3AccessTool != null) {
+                s3UploadService = prepareS3UploadService(xml, s3AccessTool);
+                context.setAttribute(S3UploadService.class.getName(), s3UploadService);
+            }
 
             // Create the storage system.
             DaoManager storage = null;
@@ -438,6 +542,16 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
             ActorRef monitoring = monitoringService(xml, storage, loader);
             if (monitoring != null) {
                 context.setAttribute(MonitoringService.class.getName(), monitoring);
+                monitoring.tell(downloaderStatistics(), null);
+                monitoring.tell(DiskCacheIndex.getStatistics(), null);
+                monitoring.tell(extensionStatistics(), null);
+                monitoring.tell(identityContext.getCredentialsCache(), null);
+                for (final StatisticsSource source : RestcommConnectServiceProvider.getInstance().getStatisticsSources()) {
+                    monitoring.tell(source, null);
+                }
+                if (s3UploadService != null) {
+                    monitoring.tell(s3UploadStatistics(s3UploadService), null);
+                }
                 if (logger.isInfoEnabled()) {
                     logger.info("Monitoring Service created and stored in the context");
                 }
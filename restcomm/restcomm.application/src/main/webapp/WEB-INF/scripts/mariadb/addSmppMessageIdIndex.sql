@@ -0,0 +1,10 @@
+#SQL Script for MySQL/MariaDB to add the smpp_message_id index to an existing database.
+#Correlating SMPP submit responses and delivery receipts looks messages up by smpp_message_id.
+#Safe to run more than once, requires MariaDB 10.1.4 or later.
+
+#To run the script use mysql client:
+#mysql -u yourusername -p yourpassword yourdatabase < addSmppMessageIdIndex.sql
+
+#USE restcomm;
+
+CREATE INDEX IF NOT EXISTS idx_restcomm_sms_messages_smpp_message_id ON restcomm_sms_messages (smpp_message_id);
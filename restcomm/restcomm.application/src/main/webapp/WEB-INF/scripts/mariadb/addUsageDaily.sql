@@ -0,0 +1,22 @@
+#SQL Script for MySQL/MariaDB to add the daily usage rollups table to an existing database.
+#Safe to run more than once, the table is filled by the first usage rollup update, which reads
+#the records created since the last one through the date_created indexes.
+
+#To run the script use mysql client:
+#mysql -u yourusername -p yourpassword yourdatabase < addUsageDaily.sql
+
+#USE restcomm;
+
+CREATE TABLE IF NOT EXISTS restcomm_usage_daily (
+account_sid VARCHAR(34) NOT NULL,
+usage_type VARCHAR(10) NOT NULL,
+usage_date DATE NOT NULL,
+api_version VARCHAR(10) NOT NULL,
+count BIGINT NOT NULL,
+duration BIGINT NOT NULL,
+price DECIMAL(20,6),
+PRIMARY KEY (account_sid, usage_type, usage_date, api_version)
+);
+
+CREATE INDEX IF NOT EXISTS idx_cdr_date_created ON restcomm_call_detail_records (date_created);
+CREATE INDEX IF NOT EXISTS idx_restcomm_sms_messages_date_created ON restcomm_sms_messages (date_created);
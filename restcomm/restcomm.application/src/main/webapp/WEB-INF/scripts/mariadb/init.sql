@@ -452,6 +452,17 @@ date_created DATETIME NOT NULL,
 date_updated DATETIME NOT NULL
 );
 
+CREATE TABLE restcomm_usage_daily (
+account_sid VARCHAR(34) NOT NULL,
+usage_type VARCHAR(10) NOT NULL,
+usage_date DATE NOT NULL,
+api_version VARCHAR(10) NOT NULL,
+count BIGINT NOT NULL,
+duration BIGINT NOT NULL,
+price DECIMAL(20,6),
+PRIMARY KEY (account_sid, usage_type, usage_date, api_version)
+);
+
 INSERT INTO restcomm_organizations VALUES(
 "ORafbe225ad37541eba518a74248f0ac4c",
 "default.restcomm.com",
@@ -505,6 +516,12 @@ CREATE INDEX idx_cdr_conference_status ON restcomm_conference_detail_records (st
 /* Create index on restcomm_sms_messages on smpp_message_id column */
 CREATE INDEX idx_restcomm_sms_messages_smpp_message_id ON restcomm_sms_messages (smpp_message_id);
 
+/* Create index on restcomm_call_detail_records on date_created column */
+CREATE INDEX idx_cdr_date_created ON restcomm_call_detail_records (date_created);
+
+/* Create index on restcomm_sms_messages on date_created column */
+CREATE INDEX idx_restcomm_sms_messages_date_created ON restcomm_sms_messages (date_created);
+
 DELIMITER //
 DROP PROCEDURE IF EXISTS addConferenceDetailRecord;
 CREATE PROCEDURE addConferenceDetailRecord(	IN in_sid VARCHAR(34),
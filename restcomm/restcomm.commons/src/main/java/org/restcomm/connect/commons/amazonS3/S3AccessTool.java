@@ -30,11 +30,16 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.S3ClientOptions;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.StorageClass;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
@@ -42,10 +47,13 @@ import org.restcomm.connect.commons.configuration.RestcommConfiguration;
 
 import javax.activation.MimetypesFileTypeMap;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 
 /**
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
@@ -54,6 +62,8 @@ import java.util.Date;
 public class S3AccessTool {
 
     private static Logger logger = Logger.getLogger(S3AccessTool.class);
+    // S3 does not accept parts smaller than 5MB, except for the last one
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
 
     private String accessKey;
     private String securityKey;
@@ -67,6 +77,8 @@ public class S3AccessTool {
     private String testingUrl;
     private AmazonS3 s3client;
     private int maxDelay;
+    private long multipartThreshold = 16L * 1024 * 1024;
+    private long partSize = 8L * 1024 * 1024;
 
     public S3AccessTool(final String accessKey, final String securityKey, final String bucketName, final String folder,
             final boolean reducedRedundancy, final int minutesToRetainPublicUrl, final boolean removeOriginalFile,
@@ -100,53 +112,23 @@ public class S3AccessTool {
         return s3client;
     }
 
+    /**
+     * Files of at least <i>threshold</i> bytes are uploaded in parts of <i>partSize</i> bytes
+     * instead of a single PUT. A threshold of 0 disables multipart uploads.
+     */
+    public void setMultipartUpload(final long threshold, final long partSize) {
+        this.multipartThreshold = threshold;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+    }
+
     public boolean uploadFile(final String fileToUpload) {
-        if (s3client == null) {
-            s3client = getS3client();
-        }
-        if(logger.isInfoEnabled()){
-            logger.info("S3 Region: "+bucketRegion.toString());
-        }
         try {
-            URI fileUri = URI.create(fileToUpload);
-            File file = new File(fileUri);
-            String bucket = prepareBucket();
-            if (logger.isInfoEnabled()) {
-                logger.info("File to upload to S3: " + fileUri.toString());
-            }
-
-            //For statistics and logs
-            DateTime start, end;
-            double waitDuration;
-
-            if (fileExists(file)) {
-                start = DateTime.now();
-                PutObjectRequest putRequest = new PutObjectRequest(bucket, file.getName(), file);
-                ObjectMetadata metadata = new ObjectMetadata();
-                metadata.setContentType(new MimetypesFileTypeMap().getContentType(file));
-                putRequest.setMetadata(metadata);
-                if (reducedRedundancy)
-                    putRequest.setStorageClass(StorageClass.ReducedRedundancy);
-                s3client.putObject(putRequest);
-
-                if (removeOriginalFile) {
-                    removeLocalFile(file);
-                }
-                end = DateTime.now();
-                waitDuration = (end.getMillis() - start.getMillis())/1000;
-                if (waitDuration > maxDelay || testing) {
-                    if (logger.isInfoEnabled()) {
-                        String msg = String.format("File %s uploaded to S3 successfully. Upload time %,.2f sec", fileUri.toString(), waitDuration);
-                        logger.info(msg);
-                    }
-                }
-                return true;
-            } else {
-                String msg = String.format("Recording file \"%s\" doesn't exists ",file.getPath());
-                logger.error(msg);
-                return false;
-            }
-         } catch (AmazonServiceException ase) {
+            upload(fileToUpload);
+            return true;
+        } catch (FileNotFoundException exception) {
+            logger.error(exception.getMessage());
+            return false;
+        } catch (AmazonServiceException ase) {
             logger.error("Caught an AmazonServiceException");
             logger.error("Error Message:    " + ase.getMessage());
             logger.error("HTTP Status Code: " + ase.getStatusCode());
@@ -161,6 +143,94 @@ public class S3AccessTool {
         }
     }
 
+    /**
+     * Uploads the file, using a multipart upload for large files.
+     *
+     * @return the number of bytes uploaded.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws AmazonClientException if the upload failed, see {@link AmazonClientException#isRetryable()}.
+     */
+    public long upload(final String fileToUpload) throws FileNotFoundException {
+        if (s3client == null) {
+            s3client = getS3client();
+        }
+        if(logger.isInfoEnabled()){
+            logger.info("S3 Region: "+bucketRegion.toString());
+        }
+        URI fileUri = URI.create(fileToUpload);
+        File file = new File(fileUri);
+        String bucket = prepareBucket();
+        if (logger.isInfoEnabled()) {
+            logger.info("File to upload to S3: " + fileUri.toString());
+        }
+
+        //For statistics and logs
+        DateTime start, end;
+        double waitDuration;
+
+        if (!fileExists(file)) {
+            throw new FileNotFoundException(String.format("Recording file \"%s\" doesn't exists ",file.getPath()));
+        }
+        start = DateTime.now();
+        final long length = file.length();
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(new MimetypesFileTypeMap().getContentType(file));
+        if (multipartThreshold > 0 && length >= multipartThreshold) {
+            uploadParts(bucket, file, metadata);
+        } else {
+            PutObjectRequest putRequest = new PutObjectRequest(bucket, file.getName(), file);
+            putRequest.setMetadata(metadata);
+            if (reducedRedundancy)
+                putRequest.setStorageClass(StorageClass.ReducedRedundancy);
+            s3client.putObject(putRequest);
+        }
+
+        if (removeOriginalFile) {
+            removeLocalFile(file);
+        }
+        end = DateTime.now();
+        waitDuration = (end.getMillis() - start.getMillis())/1000;
+        if (waitDuration > maxDelay || testing) {
+            if (logger.isInfoEnabled()) {
+                String msg = String.format("File %s uploaded to S3 successfully. Upload time %,.2f sec", fileUri.toString(), waitDuration);
+                logger.info(msg);
+            }
+        }
+        return length;
+    }
+
+    private void uploadParts(final String bucket, final File file, final ObjectMetadata metadata) {
+        final String key = file.getName();
+        InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(bucket, key, metadata);
+        if (reducedRedundancy)
+            initRequest.setStorageClass(StorageClass.ReducedRedundancy);
+        final String uploadId = s3client.initiateMultipartUpload(initRequest).getUploadId();
+        try {
+            final long length = file.length();
+            final List<PartETag> parts = new ArrayList<PartETag>();
+            long offset = 0;
+            for (int partNumber = 1; offset < length; partNumber++) {
+                final long size = Math.min(partSize, length - offset);
+                UploadPartRequest partRequest = new UploadPartRequest().withBucketName(bucket).withKey(key)
+                        .withUploadId(uploadId).withPartNumber(partNumber).withFile(file).withFileOffset(offset)
+                        .withPartSize(size).withLastPart(offset + size >= length);
+                parts.add(s3client.uploadPart(partRequest).getPartETag());
+                offset += size;
+            }
+            s3client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, parts));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Uploaded " + key + " to S3 in " + parts.size() + " parts");
+            }
+        } catch (AmazonClientException exception) {
+            try {
+                s3client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            } catch (AmazonClientException abortException) {
+                logger.warn("Could not abort multipart upload of " + key + ": " + abortException.getMessage());
+            }
+            throw exception;
+        }
+    }
+
     private String prepareBucket () {
         StringBuffer bucket = new StringBuffer();
         bucket.append(bucketName);
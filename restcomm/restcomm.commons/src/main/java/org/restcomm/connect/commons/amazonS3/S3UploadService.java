@@ -0,0 +1,305 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.amazonS3;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Uploads recordings to S3 on a dedicated, bounded pool of threads so that long uploads do not hold
+ * the threads of the actor system.
+ * <p>
+ * Failed uploads are retried with an exponential backoff up to <i>maxRetries</i> times. Every
+ * pending upload is written to the journal directory, when one is configured, and removed from it
+ * once the upload completed or was given up, so uploads interrupted by a restart are resumed by
+ * {@link #start()}.
+ */
+@ThreadSafe
+public final class S3UploadService {
+    private static final Logger logger = Logger.getLogger(S3UploadService.class);
+    private static final String JOURNAL_SUFFIX = ".upload";
+
+    private final S3AccessTool s3AccessTool;
+    private final int maxRetries;
+    private final long retryDelay;
+    private final File journal;
+    private final ThreadPoolExecutor uploader;
+    private final ScheduledExecutorService scheduler;
+
+    // Statistics.
+    private final AtomicLong uploads;
+    private final AtomicLong failures;
+    private final AtomicLong retries;
+    private final AtomicLong bytes;
+    private final AtomicLong uploadTime;
+    private final AtomicLong maxUploadTime;
+    private final AtomicInteger pending;
+
+    /**
+     * @param threads the number of concurrent uploads.
+     * @param queueSize the number of uploads waiting for a thread, further uploads are retried later.
+     * @param maxRetries the number of times a failed upload is retried.
+     * @param retryDelay the delay in milliseconds before the first retry, doubled on every retry.
+     * @param journal the directory where pending uploads are recorded, or null to keep them in memory only.
+     */
+    public S3UploadService(final S3AccessTool s3AccessTool, final int threads, final int queueSize, final int maxRetries,
+            final long retryDelay, final File journal) {
+        super();
+        this.s3AccessTool = s3AccessTool;
+        this.maxRetries = maxRetries;
+        this.retryDelay = retryDelay;
+        this.journal = journal;
+        this.uploader = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new NamedThreadFactory("s3-upload"));
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("s3-upload-retry"));
+        this.uploads = new AtomicLong();
+        this.failures = new AtomicLong();
+        this.retries = new AtomicLong();
+        this.bytes = new AtomicLong();
+        this.uploadTime = new AtomicLong();
+        this.maxUploadTime = new AtomicLong();
+        this.pending = new AtomicInteger();
+    }
+
+    /**
+     * Resumes the uploads left in the journal by a previous run.
+     */
+    public void start() {
+        if (journal == null) {
+            return;
+        }
+        if (!journal.isDirectory() && !journal.mkdirs()) {
+            logger.error("Could not create the S3 upload journal " + journal + ", pending uploads will not survive a restart");
+            return;
+        }
+        final File[] entries = journal.listFiles();
+        if (entries == null) {
+            return;
+        }
+        int resumed = 0;
+        for (final File entry : entries) {
+            if (!entry.getName().endsWith(JOURNAL_SUFFIX)) {
+                continue;
+            }
+            try {
+                final String fileToUpload = new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8).trim();
+                pending.incrementAndGet();
+                submit(new Upload(fileToUpload, entry));
+                resumed++;
+            } catch (final IOException exception) {
+                logger.error("Could not read S3 upload journal entry " + entry, exception);
+            }
+        }
+        if (resumed > 0 && logger.isInfoEnabled()) {
+            logger.info("Resuming " + resumed + " pending S3 uploads");
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        uploader.shutdownNow();
+    }
+
+    /**
+     * Queues the upload of a file.
+     *
+     * @param fileToUpload the URI of the file, as expected by {@link S3AccessTool#uploadFile(String)}.
+     */
+    public void upload(final String fileToUpload) {
+        File entry = null;
+        if (journal != null) {
+            entry = new File(journal, new File(URI.create(fileToUpload).getPath()).getName() + JOURNAL_SUFFIX);
+            try {
+                Files.write(entry.toPath(), fileToUpload.getBytes(StandardCharsets.UTF_8));
+            } catch (final IOException exception) {
+                logger.error("Could not record pending S3 upload of " + fileToUpload, exception);
+                entry = null;
+            }
+        }
+        pending.incrementAndGet();
+        submit(new Upload(fileToUpload, entry));
+    }
+
+    private void submit(final Upload upload) {
+        try {
+            uploader.execute(upload);
+        } catch (final RejectedExecutionException exception) {
+            if (uploader.isShutdown()) {
+                return;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("S3 upload queue is full, will retry " + upload.fileToUpload + " later");
+            }
+            schedule(upload, retryDelay);
+        }
+    }
+
+    private void schedule(final Upload upload, final long delay) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submit(upload);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException exception) {
+            // Shutting down, the journal entry is kept for the next start.
+        }
+    }
+
+    private void done(final Upload upload, final boolean success) {
+        if (upload.entry != null && !upload.entry.delete() && upload.entry.exists()) {
+            logger.warn("Could not remove S3 upload journal entry " + upload.entry);
+        }
+        if (!success) {
+            failures.incrementAndGet();
+        }
+        pending.decrementAndGet();
+    }
+
+    private void record(final long size, final long duration) {
+        uploads.incrementAndGet();
+        bytes.addAndGet(size);
+        uploadTime.addAndGet(duration);
+        long max = maxUploadTime.get();
+        while (duration > max && !maxUploadTime.compareAndSet(max, duration)) {
+            max = maxUploadTime.get();
+        }
+    }
+
+    public long getUploads() {
+        return uploads.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the number of uploads queued, running or waiting for a retry.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return the average duration of a successful upload in milliseconds.
+     */
+    public long getAverageUploadTime() {
+        final long count = uploads.get();
+        return count == 0 ? 0 : uploadTime.get() / count;
+    }
+
+    public long getMaxUploadTime() {
+        return maxUploadTime.get();
+    }
+
+    /**
+     * @return the average throughput of successful uploads in bytes per second.
+     */
+    public long getThroughput() {
+        final long time = uploadTime.get();
+        return time == 0 ? 0 : bytes.get() * 1000 / time;
+    }
+
+    private final class Upload implements Runnable {
+        private final String fileToUpload;
+        private final File entry;
+        private int attempts;
+
+        private Upload(final String fileToUpload, final File entry) {
+            super();
+            this.fileToUpload = fileToUpload;
+            this.entry = entry;
+        }
+
+        @Override
+        public void run() {
+            final long start = System.currentTimeMillis();
+            try {
+                final long size = s3AccessTool.upload(fileToUpload);
+                record(size, System.currentTimeMillis() - start);
+                done(this, true);
+            } catch (final FileNotFoundException exception) {
+                logger.error(exception.getMessage());
+                done(this, false);
+            } catch (final AmazonClientException exception) {
+                if (exception.isRetryable() && attempts < maxRetries) {
+                    final long delay = retryDelay << Math.min(attempts, 16);
+                    attempts++;
+                    retries.incrementAndGet();
+                    logger.warn("S3 upload of " + fileToUpload + " failed, retry " + attempts + " in " + delay + "ms: "
+                            + exception.getMessage());
+                    schedule(this, delay);
+                } else {
+                    logger.error("S3 upload of " + fileToUpload + " failed after " + (attempts + 1) + " attempts", exception);
+                    done(this, false);
+                }
+            } catch (final RuntimeException exception) {
+                logger.error("S3 upload of " + fileToUpload + " failed", exception);
+                done(this, false);
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count;
+
+        private NamedThreadFactory(final String prefix) {
+            super();
+            this.prefix = prefix;
+            this.count = new AtomicInteger();
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -32,9 +32,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.concurrent.Callable;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -49,8 +47,10 @@ public final class DiskCache extends RestcommUntypedActor {
     // flag for cache disabling in *.wav files usage case
     private boolean wavNoCache = false;
     private FileDownloader downloader;
+    private final DiskCacheIndex index;
 
-    public DiskCache(FileDownloader downloader, String cacheDir, String cacheUri, final boolean create, final boolean wavNoCache) {
+    public DiskCache(FileDownloader downloader, String cacheDir, String cacheUri, final boolean create, final boolean wavNoCache,
+            final long maxSize) {
         super();
 
         this.wavNoCache = wavNoCache;
@@ -77,6 +77,11 @@ public final class DiskCache extends RestcommUntypedActor {
             cacheUri += "/";
         }
         this.cacheUri = cacheUri;
+        this.index = DiskCacheIndex.getInstance(cacheDir, maxSize);
+    }
+
+    public DiskCache(FileDownloader downloader, String cacheDir, String cacheUri, final boolean create, final boolean wavNoCache) {
+        this(downloader, cacheDir, cacheUri, create, wavNoCache, 0);
     }
 
     public DiskCache(FileDownloader downloader, final String cacheDir, final String cacheUri, final boolean create) {
@@ -107,9 +112,8 @@ public final class DiskCache extends RestcommUntypedActor {
         final String extension = "wav";
         final String hash = request.hash();
         final String filename = hash + "." + extension;
-        Path p = Paths.get(cacheDir + filename);
 
-        if (Files.exists(p)) {
+        if (index.contains(filename)) {
             // return URI.create(matchedFile.getAbsolutePath());
             return URI.create(this.cacheUri + filename);
         } else {
@@ -120,8 +124,9 @@ public final class DiskCache extends RestcommUntypedActor {
     private URI handleLocalFile(final DiskCacheRequest request) throws IOException {
         File origFile = new File(request.uri());
         File destFile = new File(cacheDir + origFile.getName());
-        if (!destFile.exists()) {
+        if (!index.contains(destFile.getName())) {
             FileUtils.moveFile(origFile, destFile);
+            index.add(destFile.getName(), destFile.length());
         }
         return URI.create(this.cacheUri + destFile.getName());
     }
@@ -146,20 +151,17 @@ public final class DiskCache extends RestcommUntypedActor {
         }
 
         final String extension = extension(uri).toLowerCase();
-        File path = null;
-        if (!extension.equalsIgnoreCase("wav")) {
-            path = new File(cacheDir + hash + "." + extension);
-            if (!path.exists()) {
-                downloader.download(uri, path);
-            }
-            return URI.create(this.cacheUri + hash + "." + extension);
-        } else {
-            path = new File(cacheDir + hash + ".wav" );
-            if (!path.exists()) {
-                downloader.download(uri, path);
+        final String filename = hash + "." + extension;
+        final File path = new File(cacheDir + filename);
+        final URI source = uri;
+        index.load(filename, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                downloader.download(source, path);
+                return null;
             }
-            return URI.create(this.cacheUri + hash + ".wav");
-        }
+        });
+        return URI.create(this.cacheUri + filename);
     }
 
     @Override
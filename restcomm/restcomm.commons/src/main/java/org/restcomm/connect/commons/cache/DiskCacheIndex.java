@@ -0,0 +1,295 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.util.StatisticsUtils;
+
+/**
+ * In-memory index of the files of a cache directory, shared by every {@link DiskCache} actor using
+ * that directory. It answers lookups without touching the file system, keeps the directory under a
+ * byte budget by deleting the least recently used files and makes concurrent requests for the same
+ * file wait for a single download.
+ * <p>
+ * The index is built from the directory content the first time the directory is used. Files written
+ * to the directory by other components are picked up the first time they are looked up.
+ * <p>
+ * The sizes and counters of every directory together are published by the MonitoringService.
+ */
+@ThreadSafe
+public final class DiskCacheIndex {
+    public static final String COUNTERS_MAP_DISK_CACHE_FILES = "DiskCacheFiles";
+    public static final String COUNTERS_MAP_DISK_CACHE_KILOBYTES = "DiskCacheKilobytes";
+    public static final String COUNTERS_MAP_DISK_CACHE_MAX_KILOBYTES = "DiskCacheMaxKilobytes";
+    public static final String COUNTERS_MAP_DISK_CACHE_HITS = "DiskCacheHits";
+    public static final String COUNTERS_MAP_DISK_CACHE_MISSES = "DiskCacheMisses";
+    public static final String COUNTERS_MAP_DISK_CACHE_EVICTIONS = "DiskCacheEvictions";
+    public static final String COUNTERS_MAP_DISK_CACHE_SHARED_DOWNLOADS = "DiskCacheSharedDownloads";
+
+    private static final Logger logger = Logger.getLogger(DiskCacheIndex.class);
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final ConcurrentMap<String, DiskCacheIndex> indexes = new ConcurrentHashMap<String, DiskCacheIndex>();
+    private static final StatisticsSource statistics = new StatisticsSource() {
+        @Override
+        public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+            if (indexes.isEmpty()) {
+                return;
+            }
+            long files = 0, bytes = 0, maxBytes = 0, hits = 0, misses = 0, evictions = 0, sharedDownloads = 0;
+            for (final DiskCacheIndex index : indexes.values()) {
+                files += index.size();
+                bytes += index.getBytes();
+                maxBytes += Math.max(index.getMaxBytes(), 0);
+                hits += index.getHits();
+                misses += index.getMisses();
+                evictions += index.getEvictions();
+                sharedDownloads += index.getSharedDownloads();
+            }
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_FILES, StatisticsUtils.counter(files));
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_KILOBYTES, StatisticsUtils.counter(bytes / 1024));
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_MAX_KILOBYTES, StatisticsUtils.counter(maxBytes / 1024));
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_HITS, StatisticsUtils.counter(hits));
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_MISSES, StatisticsUtils.counter(misses));
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_EVICTIONS, StatisticsUtils.counter(evictions));
+            countersMap.put(COUNTERS_MAP_DISK_CACHE_SHARED_DOWNLOADS, StatisticsUtils.counter(sharedDownloads));
+        }
+    };
+
+    private final File directory;
+    private final long maxBytes;
+    // Guarded by 'this', file name to size in access order.
+    private final LinkedHashMap<String, Long> files;
+    private long bytes;
+    private final ConcurrentMap<String, FutureTask<Void>> downloads;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final AtomicLong sharedDownloads;
+
+    DiskCacheIndex(final File directory, final long maxBytes) {
+        super();
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.files = new LinkedHashMap<String, Long>(64, 0.75f, true);
+        this.downloads = new ConcurrentHashMap<String, FutureTask<Void>>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.sharedDownloads = new AtomicLong();
+        rebuild();
+    }
+
+    /**
+     * @param maxBytes byte budget of the directory, 0 or less for no limit. Only the first caller
+     *        for a directory sets it.
+     * @return the index shared by every cache using the directory.
+     */
+    public static DiskCacheIndex getInstance(final String directory, final long maxBytes) {
+        final File file = new File(directory).getAbsoluteFile();
+        final String key = file.getPath();
+        DiskCacheIndex index = indexes.get(key);
+        if (index == null) {
+            synchronized (indexes) {
+                index = indexes.get(key);
+                if (index == null) {
+                    index = new DiskCacheIndex(file, maxBytes);
+                    indexes.put(key, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the sizes, in kilobytes, and the counters of every cache directory in use together.
+     */
+    public static StatisticsSource getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Reloads the index from the directory, oldest files first so that they are evicted first.
+     */
+    public synchronized void rebuild() {
+        files.clear();
+        bytes = 0;
+        final File[] content = directory.listFiles();
+        if (content != null) {
+            Arrays.sort(content, new Comparator<File>() {
+                @Override
+                public int compare(final File first, final File second) {
+                    return Long.compare(first.lastModified(), second.lastModified());
+                }
+            });
+            for (final File file : content) {
+                if (file.isFile() && !file.getName().endsWith(TMP_SUFFIX)) {
+                    files.put(file.getName(), file.length());
+                    bytes += file.length();
+                }
+            }
+        }
+        evict(null);
+        if (logger.isInfoEnabled()) {
+            logger.info("Indexed " + files.size() + " cached files, " + bytes + " bytes in " + directory);
+        }
+    }
+
+    /**
+     * @return true if the file is cached, marking it as recently used.
+     */
+    public boolean contains(final String name) {
+        synchronized (this) {
+            if (files.get(name) != null) {
+                hits.incrementAndGet();
+                return true;
+            }
+        }
+        final File file = new File(directory, name);
+        if (file.isFile()) {
+            add(name, file.length());
+            hits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a file that was just written to the directory and evicts older files if the budget is
+     * exceeded.
+     */
+    public synchronized void add(final String name, final long size) {
+        final Long previous = files.put(name, size);
+        if (previous != null) {
+            bytes -= previous;
+        }
+        bytes += size;
+        evict(name);
+    }
+
+    /**
+     * Runs the download of the file unless it is cached already. Concurrent callers for the same file
+     * wait for the first download instead of starting their own.
+     */
+    public void load(final String name, final Callable<Void> download) throws IOException {
+        if (contains(name)) {
+            return;
+        }
+        final FutureTask<Void> task = new FutureTask<Void>(download);
+        FutureTask<Void> running = downloads.putIfAbsent(name, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+                final File file = new File(directory, name);
+                if (file.isFile()) {
+                    add(name, file.length());
+                }
+            } finally {
+                downloads.remove(name, task);
+            }
+        } else {
+            sharedDownloads.incrementAndGet();
+        }
+        try {
+            running.get();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the download of " + name, exception);
+        } catch (final ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Could not download " + name, cause);
+        }
+    }
+
+    // Guarded by 'this'.
+    private void evict(final String keep) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        final Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            bytes -= eldest.getValue();
+            evictions.incrementAndGet();
+            final File file = new File(directory, eldest.getKey());
+            if (!file.delete() && file.exists()) {
+                logger.warn("Could not delete evicted cache file " + file);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("Evicted " + file + " from the cache");
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return requests that waited for a download started by another request.
+     */
+    public long getSharedDownloads() {
+        return sharedDownloads.get();
+    }
+}
@@ -53,6 +53,7 @@ import org.apache.http.nio.conn.NoopIOSessionStrategy;
 import org.apache.http.nio.conn.SchemeIOSessionStrategy;
 import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.SSLContexts;
 import org.restcomm.connect.commons.configuration.sets.MainConfigurationSet;
@@ -69,6 +70,7 @@ public class CustomHttpClientBuilder {
 
     private static CloseableHttpClient defaultClient = null;
     private static CloseableHttpAsyncClient closeableHttpAsyncClient = null;
+    private static PoolingNHttpClientConnectionManager asyncConnectionManager = null;
 
     public static synchronized void stopDefaultClient() {
         if (defaultClient != null) {
@@ -82,6 +84,7 @@ public class CustomHttpClientBuilder {
             } catch (IOException e) {
             }
             closeableHttpAsyncClient = null;
+            asyncConnectionManager = null;
         }
     }
 
@@ -100,6 +103,17 @@ public class CustomHttpClientBuilder {
         return closeableHttpAsyncClient;
     }
 
+    /**
+     * @return leased, pending and available connection counts of the shared async client pool,
+     *         or null when the async client was not built yet.
+     */
+    public static synchronized PoolStats getAsyncClientPoolStats() {
+        if (asyncConnectionManager == null) {
+            return null;
+        }
+        return asyncConnectionManager.getTotalStats();
+    }
+
     public static CloseableHttpClient build(MainConfigurationSet config) {
         int timeoutConnection = config.getResponseTimeout();
         return build(config, timeoutConnection);
@@ -130,35 +144,33 @@ public class CustomHttpClientBuilder {
         }
         builder.setSSLStrategy(sessionStrategy);
 
-        builder.setMaxConnPerRoute(config.getDefaultHttpMaxConnsPerRoute());
-        builder.setMaxConnTotal(config.getDefaultHttpMaxConns());
-        //builder.setConnectionTimeToLive(config.getDefaultHttpTTL(), TimeUnit.MILLISECONDS);
-        if (config.getDefaultHttpRoutes() != null
-                && config.getDefaultHttpRoutes().size() > 0) {
-            Registry<SchemeIOSessionStrategy> reg = RegistryBuilder.<SchemeIOSessionStrategy>create()
-                    .register("http", NoopIOSessionStrategy.INSTANCE)
-                    .register("https", sessionStrategy)
-                    .build();
-            try {
-                final PoolingNHttpClientConnectionManager poolingmgr = new PoolingNHttpClientConnectionManager(
-                        new DefaultConnectingIOReactor(),
-                        null,
-                        reg,
-                        null,
-                        null,
-                        config.getDefaultHttpTTL(),
-                        TimeUnit.MILLISECONDS);
-                //ensure conn configuration is set again for new conn manager
-                poolingmgr.setMaxTotal(config.getDefaultHttpMaxConns());
-                poolingmgr.setDefaultMaxPerRoute(config.getDefaultHttpMaxConnsPerRoute());
+        //the pool is always built here so that its statistics can be exposed
+        Registry<SchemeIOSessionStrategy> reg = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", sessionStrategy)
+                .build();
+        try {
+            final PoolingNHttpClientConnectionManager poolingmgr = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(),
+                    null,
+                    reg,
+                    null,
+                    null,
+                    config.getDefaultHttpTTL(),
+                    TimeUnit.MILLISECONDS);
+            poolingmgr.setMaxTotal(config.getDefaultHttpMaxConns());
+            poolingmgr.setDefaultMaxPerRoute(config.getDefaultHttpMaxConnsPerRoute());
+            if (config.getDefaultHttpRoutes() != null
+                    && config.getDefaultHttpRoutes().size() > 0) {
                 for (InetSocketAddress addr : config.getDefaultHttpRoutes().keySet()) {
                     HttpRoute r = new HttpRoute(new HttpHost(addr.getHostName(), addr.getPort()));
                     poolingmgr.setMaxPerRoute(r, config.getDefaultHttpRoutes().get(addr));
                 }
-                builder.setConnectionManager(poolingmgr);
-            } catch (IOReactorException e) {
-                throw new RuntimeException("Error creating CloseableHttpAsyncClient", e);
             }
+            builder.setConnectionManager(poolingmgr);
+            asyncConnectionManager = poolingmgr;
+        } catch (IOReactorException e) {
+            throw new RuntimeException("Error creating CloseableHttpAsyncClient", e);
         }
         return builder.build();
     }
@@ -25,12 +25,14 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.configuration.Configuration;
 import org.restcomm.connect.commons.configuration.sets.CacheConfigurationSet;
+import org.restcomm.connect.commons.configuration.sets.RcmlCacheConfigurationSet;
 import org.restcomm.connect.commons.configuration.sets.RcmlserverConfigurationSet;
 import org.restcomm.connect.commons.configuration.sets.MainConfigurationSet;
 import org.restcomm.connect.commons.configuration.sets.impl.CacheConfigurationSetImpl;
 import org.restcomm.connect.commons.configuration.sets.impl.ConfigurationSet;
 import org.restcomm.connect.commons.configuration.sets.impl.MainConfigurationSetImpl;
 import org.restcomm.connect.commons.configuration.sets.impl.MgAsrConfigurationSet;
+import org.restcomm.connect.commons.configuration.sets.impl.RcmlCacheConfigurationSetImpl;
 import org.restcomm.connect.commons.configuration.sets.impl.RcmlserverConfigurationSetImpl;
 import org.restcomm.connect.commons.configuration.sources.ApacheConfigurationSource;
 
@@ -57,6 +59,7 @@ public class RestcommConfiguration {
         addConfigurationSet("cache", new CacheConfigurationSetImpl(apacheCfgSrc));
         addConfigurationSet("rcmlserver", new RcmlserverConfigurationSetImpl(apacheCfgSrc));
         addConfigurationSet("mg-asr", new MgAsrConfigurationSet(apacheCfgSrc, apacheConf));
+        addConfigurationSet("rcml-cache", new RcmlCacheConfigurationSetImpl(apacheCfgSrc));
 
         // addConfigurationSet("identity", new IdentityConfigurationSet( new DbConfigurationSource(dbConf)));
         // ...
@@ -92,6 +95,10 @@ public class RestcommConfiguration {
         return (MgAsrConfigurationSet) sets.get("mg-asr");
     }
 
+    public RcmlCacheConfigurationSet getRcmlCache() {
+        return (RcmlCacheConfigurationSet) sets.get("rcml-cache");
+    }
+
     // singleton stuff
     private static RestcommConfiguration instance;
     public static RestcommConfiguration createOnce(Configuration apacheConf) {
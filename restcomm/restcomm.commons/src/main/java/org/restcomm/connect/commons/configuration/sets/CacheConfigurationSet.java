@@ -30,4 +30,9 @@ public interface CacheConfigurationSet {
     String getCachePath();
 
     String getCacheUri();
+
+    /**
+     * @return byte budget of the cache directory, 0 when it is unbounded.
+     */
+    long getCacheMaxSize();
 }
@@ -43,6 +43,8 @@ public interface MainConfigurationSet {
 
     Map<InetSocketAddress,Integer> getDefaultHttpRoutes();
 
+    boolean isAsyncDownloader();
+
     boolean isUseHostnameToResolveRelativeUrls();
 
     String getHostname();
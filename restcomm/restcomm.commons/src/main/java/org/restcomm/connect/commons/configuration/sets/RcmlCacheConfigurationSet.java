@@ -0,0 +1,44 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.configuration.sets;
+
+import java.util.List;
+
+/**
+ * Settings of the RCML response cache used by the Downloader.
+ */
+public interface RcmlCacheConfigurationSet {
+
+    boolean isEnabled();
+
+    int getMaxEntries();
+
+    long getMaxBytes();
+
+    /**
+     * @return seconds a response without freshness headers is served before being revalidated.
+     */
+    int getDefaultTtl();
+
+    /**
+     * @return prefixes of the RCML urls whose applications opted in to caching.
+     */
+    List<String> getUrls();
+}
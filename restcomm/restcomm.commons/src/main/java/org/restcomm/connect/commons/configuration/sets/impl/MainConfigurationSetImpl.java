@@ -51,6 +51,7 @@ public class MainConfigurationSetImpl extends ConfigurationSet implements MainCo
     private static final String HTTP_ROUTES_HOST = "http-client.routes-host";
     private static final String HTTP_ROUTES_PORT = "http-client.routes-port";
     private static final String HTTP_ROUTES_CONN = "http-client.routes-conn";
+    private static final String HTTP_ASYNC_DOWNLOADER = "http-client.async-downloader";
     private static final String CONFERENCE_TIMEOUT_KEY = "runtime-settings.conference-timeout";
     private static final String CLEAR_TEXT_PASSWORD_ALGORITHM = "cleartext";
     private static final String DEFAULT_CLIENT_PASSWORD = "MD5";
@@ -64,6 +65,7 @@ public class MainConfigurationSetImpl extends ConfigurationSet implements MainCo
     private Integer defaultHttpMaxConnsPerRoute;
     private Integer defaultHttpTTL;
     private Map<InetSocketAddress, Integer> defaultHttpRoutes = new HashMap();
+    private boolean asyncDownloader;
     private static final String USE_HOSTNAME_TO_RESOLVE_RELATIVE_URL_KEY = "http-client.use-hostname-to-resolve-relative-url";
     private static final String HOSTNAME_TO_USE_FOR_RELATIVE_URLS_KEY = "http-client.hostname";
     private static final boolean RESOLVE_RELATIVE_URL_WITH_HOSTNAME_DEFAULT = true;
@@ -133,6 +135,7 @@ public class MainConfigurationSetImpl extends ConfigurationSet implements MainCo
         } catch (Throwable e) {//to catch array index out of bounds
             throw new RuntimeException("Error initializing '" + HTTP_ROUTES_CONN + "' configuration setting", e);
         }
+        asyncDownloader = Boolean.valueOf(source.getProperty(HTTP_ASYNC_DOWNLOADER, "false"));
 
         // http-client.ssl-mode
         try {
@@ -268,6 +271,11 @@ public class MainConfigurationSetImpl extends ConfigurationSet implements MainCo
         return defaultHttpRoutes;
     }
 
+    @Override
+    public boolean isAsyncDownloader() {
+        return asyncDownloader;
+    }
+
     @Override
     public Integer getDefaultHttpConnectionRequestTimeout() {
         return connectionRequestTimeout;
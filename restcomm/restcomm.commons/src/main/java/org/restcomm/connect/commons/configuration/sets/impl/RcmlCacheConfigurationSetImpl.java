@@ -0,0 +1,102 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.configuration.sets.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.restcomm.connect.commons.annotations.concurrency.Immutable;
+import org.restcomm.connect.commons.configuration.sets.RcmlCacheConfigurationSet;
+import org.restcomm.connect.commons.configuration.sources.ConfigurationSource;
+
+/**
+ * Reads the http-client.rcml-cache settings.
+ */
+@Immutable
+public class RcmlCacheConfigurationSetImpl extends ConfigurationSet implements RcmlCacheConfigurationSet {
+    private static final String ENABLED_KEY = "http-client.rcml-cache.enabled";
+    private static final String MAX_ENTRIES_KEY = "http-client.rcml-cache.max-entries";
+    private static final String MAX_BYTES_KEY = "http-client.rcml-cache.max-bytes";
+    private static final String DEFAULT_TTL_KEY = "http-client.rcml-cache.default-ttl";
+    private static final String URLS_KEY = "http-client.rcml-cache.urls";
+    private boolean enabled;
+    private int maxEntries;
+    private long maxBytes;
+    private int defaultTtl;
+    private List<String> urls;
+
+    public RcmlCacheConfigurationSetImpl(ConfigurationSource source) {
+        super(source);
+        enabled = Boolean.valueOf(source.getProperty(ENABLED_KEY, "false"));
+        try {
+            maxEntries = Integer.parseInt(source.getProperty(MAX_ENTRIES_KEY, "1000"));
+            maxBytes = Long.parseLong(source.getProperty(MAX_BYTES_KEY, "10485760"));
+            defaultTtl = Integer.parseInt(source.getProperty(DEFAULT_TTL_KEY, "0"));
+        } catch (Exception e) {
+            throw new RuntimeException("Error initializing 'http-client.rcml-cache' configuration setting", e);
+        }
+        final List<String> prefixes = new ArrayList<String>();
+        final String value = source.getProperty(URLS_KEY);
+        if (!StringUtils.isEmpty(value)) {
+            for (final String prefix : value.split(",")) {
+                if (!prefix.trim().isEmpty()) {
+                    prefixes.add(prefix.trim());
+                }
+            }
+        }
+        urls = Collections.unmodifiableList(prefixes);
+    }
+
+    public RcmlCacheConfigurationSetImpl(boolean enabled, int maxEntries, long maxBytes, int defaultTtl, List<String> urls) {
+        super(null);
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.defaultTtl = defaultTtl;
+        this.urls = urls;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public int getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    @Override
+    public List<String> getUrls() {
+        return urls;
+    }
+}
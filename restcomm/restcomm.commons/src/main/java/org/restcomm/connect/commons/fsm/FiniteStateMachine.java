@@ -21,35 +21,47 @@ package org.restcomm.connect.commons.fsm;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 
 import org.restcomm.connect.commons.annotations.concurrency.NotThreadSafe;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
 @NotThreadSafe
 public class FiniteStateMachine {
-    private final ImmutableMap<State, Map<State, Transition>> transitions;
+    private final TransitionTable transitions;
     private State state;
+    // Index of the current state in the transition table
+    private int index;
     private TransitionEndListener transitionEndListener;
 
     public FiniteStateMachine(final State initial, final Set<Transition> transitions) {
+        this(initial, new TransitionTable(checkNotNull(transitions,
+                "A finite state machine can not be created with transitions set to null.")));
+    }
+
+    /**
+     * Creates a state machine over a transition table that may be shared with other machines. The states given
+     * to this machine, initial and targets, carry its actions.
+     */
+    public FiniteStateMachine(final State initial, final TransitionTable transitions) {
         super();
         checkNotNull(initial, "The initial state for a finite state machine can not be null.");
         checkNotNull(transitions, "A finite state machine can not be created with transitions set to null.");
         this.state = initial;
-        this.transitions = toImmutableMap(transitions);
+        this.transitions = transitions;
+        this.index = transitions.indexOf(initial);
     }
 
     public State state() {
         return state;
     }
 
+    TransitionTable transitions() {
+        return transitions;
+    }
+
     public void addTransitionEndListener(TransitionEndListener transitionEndListener) {
         this.transitionEndListener = transitionEndListener;
     }
@@ -58,13 +70,14 @@ public class FiniteStateMachine {
             TransitionNotFoundException, TransitionRollbackException {
         checkNotNull(event, "The message passed can not be null.");
         checkNotNull(target, "The target state can not be null");
-        if (transitions.get(state) == null || !transitions.get(state).containsKey(target)) {
+        final int targetIndex = transitions.indexOf(target);
+        final Transition transition = transitions.get(index, targetIndex);
+        if (transition == null) {
             final StringBuilder buffer = new StringBuilder();
             buffer.append("No transition could be found from a(n) ").append(state.getId()).append(" state to a(n) ")
                     .append(target.getId()).append(" state.");
             throw new TransitionNotFoundException(buffer.toString(), event, state, target);
         }
-        final Transition transition = transitions.get(state).get(target);
         final Guard guard = transition.getGuard();
         boolean accept = true;
         if (guard != null) {
@@ -98,6 +111,7 @@ public class FiniteStateMachine {
             // Move to a new state
             State source = state;
             state = target;
+            index = targetIndex;
 
             // Execute action after entering new state (processing)
             final Action actionOnState = target.getActionOnState();
@@ -119,17 +133,4 @@ public class FiniteStateMachine {
             throw new TransitionRollbackException(buffer.toString(), event, transition);
         }
     }
-
-    private ImmutableMap<State, Map<State, Transition>> toImmutableMap(final Set<Transition> transitions) {
-        final Map<State, Map<State, Transition>> map = new HashMap<State, Map<State, Transition>>();
-        for (final Transition transition : transitions) {
-            final State stateOnEnter = transition.getStateOnEnter();
-            if (!map.containsKey(stateOnEnter)) {
-                map.put(stateOnEnter, new HashMap<State, Transition>());
-            }
-            final State stateOnExit = transition.getStateOnExit();
-            map.get(stateOnEnter).put(stateOnExit, transition);
-        }
-        return ImmutableMap.copyOf(map);
-    }
 }
@@ -0,0 +1,111 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.fsm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.restcomm.connect.commons.annotations.concurrency.Immutable;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Transitions of a finite state machine indexed by source and target state. States are matched by id, so a table
+ * built once from template states can be shared by every machine of an actor class, each machine binding its own
+ * states and actions. Guards of a shared table are shared too and must not hold per instance state.
+ */
+@Immutable
+public final class TransitionTable {
+    private final ImmutableMap<String, Integer> indexes;
+    private final Transition[][] transitions;
+
+    public TransitionTable(final Set<Transition> transitions) {
+        super();
+        checkNotNull(transitions, "A transition table can not be created with transitions set to null.");
+        final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (final Transition transition : transitions) {
+            index(indexes, transition.getStateOnEnter());
+            index(indexes, transition.getStateOnExit());
+        }
+        this.indexes = ImmutableMap.copyOf(indexes);
+        this.transitions = new Transition[indexes.size()][indexes.size()];
+        for (final Transition transition : transitions) {
+            final int source = indexes.get(transition.getStateOnEnter().getId());
+            final int target = indexes.get(transition.getStateOnExit().getId());
+            this.transitions[source][target] = transition;
+        }
+    }
+
+    /**
+     * Builds a table that can be shared from the transitions of one machine, keeping the ids of its states but none
+     * of their actions.
+     */
+    public static TransitionTable templateOf(final Set<Transition> transitions) {
+        checkNotNull(transitions, "A transition table can not be created with transitions set to null.");
+        final Map<String, State> states = new HashMap<String, State>();
+        final Set<Transition> templates = new HashSet<Transition>();
+        for (final Transition transition : transitions) {
+            templates.add(new Transition(template(states, transition.getStateOnEnter()),
+                    template(states, transition.getStateOnExit()), transition.getGuard()));
+        }
+        return new TransitionTable(templates);
+    }
+
+    private static State template(final Map<String, State> states, final State state) {
+        State template = states.get(state.getId());
+        if (template == null) {
+            template = new State(state.getId(), null);
+            states.put(state.getId(), template);
+        }
+        return template;
+    }
+
+    private static void index(final Map<String, Integer> indexes, final State state) {
+        if (!indexes.containsKey(state.getId())) {
+            indexes.put(state.getId(), indexes.size());
+        }
+    }
+
+    /**
+     * @return the index of the state in this table, -1 if no transition leads to or from it.
+     */
+    public int indexOf(final State state) {
+        final Integer index = indexes.get(state.getId());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the transition between the states at the given indexes, null if there is none.
+     */
+    public Transition get(final int source, final int target) {
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        return transitions[source][target];
+    }
+
+    public int size() {
+        return transitions.length;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Fixed bucket histogram of request latencies in milliseconds. The last bucket counts every sample
+ * above the highest bound.
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+    private static final long[] DEFAULT_BOUNDS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final long[] bounds;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS);
+    }
+
+    /**
+     * @param bounds the upper bound in milliseconds of every bucket but the last one, in ascending order.
+     */
+    public LatencyHistogram(final long... bounds) {
+        super();
+        this.bounds = bounds.clone();
+        this.buckets = new AtomicLongArray(bounds.length + 1);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    public void record(final long millis) {
+        int index = 0;
+        while (index < bounds.length && millis > bounds[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        total.addAndGet(millis);
+        long current = max.get();
+        while (millis > current && !max.compareAndSet(current, millis)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Adds the samples of another histogram with the same bounds, to summarize several of them.
+     */
+    public void add(final LatencyHistogram other) {
+        if (!Arrays.equals(bounds, other.bounds)) {
+            throw new IllegalArgumentException("Histograms with different bounds can not be added.");
+        }
+        long samples = 0;
+        for (int index = 0; index < bounds.length + 1; index++) {
+            final long bucket = other.buckets.get(index);
+            buckets.addAndGet(index, bucket);
+            samples += bucket;
+        }
+        count.addAndGet(samples);
+        total.addAndGet(other.total.get());
+        final long otherMax = other.max.get();
+        long current = max.get();
+        while (otherMax > current && !max.compareAndSet(current, otherMax)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return the upper bound in milliseconds of every bucket but the last one.
+     */
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    public long[] getBuckets() {
+        final long[] counts = new long[buckets.length()];
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] = buckets.get(index);
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getAverage() {
+        final long samples = count.get();
+        return samples == 0 ? 0 : total.get() / samples;
+    }
+
+    /**
+     * @return the given percentile, interpolated within its bucket assuming evenly spread samples. Samples in the
+     * last bucket are spread up to the maximum.
+     */
+    public long getPercentile(final double percentile) {
+        final long[] counts = getBuckets();
+        long samples = 0;
+        for (final long bucket : counts) {
+            samples += bucket;
+        }
+        if (samples == 0) {
+            return 0;
+        }
+        final long highest = max.get();
+        final long rank = Math.max(1, (long) Math.ceil(samples * percentile / 100.0));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            if (seen + counts[index] >= rank) {
+                final long lower = index == 0 ? 0 : bounds[index - 1];
+                final long upper = Math.min(index < bounds.length ? bounds[index] : highest, highest);
+                if (upper <= lower) {
+                    return upper;
+                }
+                return lower + (upper - lower) * (rank - seen) / counts[index];
+            }
+            seen += counts[index];
+        }
+        return highest;
+    }
+}
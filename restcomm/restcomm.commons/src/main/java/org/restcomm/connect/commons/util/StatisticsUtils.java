@@ -0,0 +1,39 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.util;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Helpers of the StatisticsSource implementations.
+ */
+@ThreadSafe
+public final class StatisticsUtils {
+    private StatisticsUtils() {
+        super();
+    }
+
+    /**
+     * @return the value of a long counter for the counters map, capped at Integer.MAX_VALUE.
+     */
+    public static int counter(final long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+}
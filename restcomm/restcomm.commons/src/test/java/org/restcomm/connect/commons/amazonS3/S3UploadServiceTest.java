@@ -0,0 +1,150 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.amazonS3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Runs the upload service against a mocked S3AccessTool standing in for the S3 endpoint.
+ */
+public class S3UploadServiceTest {
+    private static final String RECORDING = "file:///tmp/recordings/RE00000000000000000000000000000001.wav";
+
+    private File journal;
+    private S3AccessTool s3AccessTool;
+    private S3UploadService service;
+
+    @Before
+    public void before() throws Exception {
+        journal = Files.createTempDirectory("s3UploadServiceTest").toFile();
+        s3AccessTool = mock(S3AccessTool.class);
+    }
+
+    @After
+    public void after() throws Exception {
+        if (service != null) {
+            service.shutdown();
+        }
+        FileUtils.deleteDirectory(journal);
+    }
+
+    private void awaitCompletion() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (service.getPending() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getPending());
+    }
+
+    @Test
+    public void testFailedUploadIsRetried() throws Exception {
+        when(s3AccessTool.upload(RECORDING)).thenThrow(new AmazonClientException("connection reset")).thenReturn(1024L);
+        service = new S3UploadService(s3AccessTool, 1, 10, 3, 10, journal);
+        service.start();
+
+        service.upload(RECORDING);
+        awaitCompletion();
+
+        verify(s3AccessTool, times(2)).upload(RECORDING);
+        assertEquals(1, service.getUploads());
+        assertEquals(1, service.getRetries());
+        assertEquals(0, service.getFailures());
+        assertEquals(1024, service.getBytes());
+        assertEquals(0, journal.list().length);
+    }
+
+    @Test
+    public void testUploadIsGivenUpAfterMaxRetries() throws Exception {
+        when(s3AccessTool.upload(RECORDING)).thenThrow(new AmazonClientException("connection reset"));
+        service = new S3UploadService(s3AccessTool, 1, 10, 2, 10, journal);
+        service.start();
+
+        service.upload(RECORDING);
+        awaitCompletion();
+
+        verify(s3AccessTool, times(3)).upload(RECORDING);
+        assertEquals(0, service.getUploads());
+        assertEquals(1, service.getFailures());
+        assertEquals(0, journal.list().length);
+    }
+
+    @Test
+    public void testMissingFileIsNotRetried() throws Exception {
+        when(s3AccessTool.upload(RECORDING)).thenThrow(new FileNotFoundException(RECORDING));
+        service = new S3UploadService(s3AccessTool, 1, 10, 3, 10, journal);
+        service.start();
+
+        service.upload(RECORDING);
+        awaitCompletion();
+
+        verify(s3AccessTool, times(1)).upload(RECORDING);
+        assertEquals(1, service.getFailures());
+        assertEquals(0, service.getRetries());
+    }
+
+    @Test
+    public void testPendingUploadsAreResumedOnStart() throws Exception {
+        final File entry = new File(journal, "RE00000000000000000000000000000001.wav.upload");
+        Files.write(entry.toPath(), RECORDING.getBytes(StandardCharsets.UTF_8));
+        when(s3AccessTool.upload(RECORDING)).thenReturn(2048L);
+        service = new S3UploadService(s3AccessTool, 1, 10, 3, 10, journal);
+
+        service.start();
+        awaitCompletion();
+
+        verify(s3AccessTool, times(1)).upload(RECORDING);
+        assertEquals(1, service.getUploads());
+        assertFalse(entry.exists());
+    }
+
+    @Test
+    public void testFullQueueDefersUploads() throws Exception {
+        when(s3AccessTool.upload(RECORDING)).thenReturn(512L);
+        service = new S3UploadService(s3AccessTool, 1, 1, 3, 10, null);
+        service.start();
+
+        for (int i = 0; i < 20; i++) {
+            service.upload(RECORDING);
+        }
+        awaitCompletion();
+
+        verify(s3AccessTool, times(20)).upload(RECORDING);
+        assertEquals(20, service.getUploads());
+        assertTrue(service.getMaxUploadTime() >= service.getAverageUploadTime());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiskCacheIndexTest {
+    private File directory;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("diskCacheIndexTest").toFile();
+    }
+
+    @After
+    public void after() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private void write(final String name, final int size) throws IOException {
+        FileUtils.writeByteArrayToFile(new File(directory, name), new byte[size]);
+    }
+
+    @Test
+    public void testIndexIsBuiltFromDirectory() throws Exception {
+        write("first.wav", 100);
+        write("second.wav", 200);
+        write("partial.wav.tmp", 300);
+        final DiskCacheIndex index = new DiskCacheIndex(directory, 0);
+        assertEquals(2, index.size());
+        assertEquals(300, index.getBytes());
+        assertTrue(index.contains("first.wav"));
+        assertFalse(index.contains("partial.wav"));
+        assertEquals(1, index.getHits());
+        assertEquals(1, index.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFilesAreEvicted() throws Exception {
+        final DiskCacheIndex index = new DiskCacheIndex(directory, 250);
+        write("first.wav", 100);
+        index.add("first.wav", 100);
+        write("second.wav", 100);
+        index.add("second.wav", 100);
+        assertTrue(index.contains("first.wav"));
+        write("third.wav", 100);
+        index.add("third.wav", 100);
+
+        assertEquals(2, index.size());
+        assertEquals(200, index.getBytes());
+        assertEquals(1, index.getEvictions());
+        assertFalse(new File(directory, "second.wav").exists());
+        assertTrue(new File(directory, "first.wav").exists());
+    }
+
+    @Test
+    public void testConcurrentLoadsShareOneDownload() throws Exception {
+        final DiskCacheIndex index = new DiskCacheIndex(directory, 0);
+        final AtomicInteger downloads = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Void> download = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                downloads.incrementAndGet();
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                write("prompt.wav", 100);
+                return null;
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Void>> results = new ArrayList<Future<Void>>();
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    index.load("prompt.wav", download);
+                    return null;
+                }
+            }));
+            started.await(10, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        index.load("prompt.wav", download);
+                        return null;
+                    }
+                }));
+            }
+            // give the followers time to find the running download
+            Thread.sleep(200);
+            release.countDown();
+            for (final Future<Void> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, downloads.get());
+        assertEquals(3, index.getSharedDownloads());
+        assertTrue(index.contains("prompt.wav"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailedDownloadIsReported() throws Exception {
+        final DiskCacheIndex index = new DiskCacheIndex(directory, 0);
+        index.load("missing.wav", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                throw new IOException("not found");
+            }
+        });
+    }
+}
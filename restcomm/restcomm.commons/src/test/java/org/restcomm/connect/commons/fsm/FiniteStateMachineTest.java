@@ -0,0 +1,140 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.fsm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FiniteStateMachineTest {
+    private static final TransitionTable TRANSITIONS;
+
+    static {
+        final State idle = new State("idle", null);
+        final State ringing = new State("ringing", null);
+        final State talking = new State("talking", null);
+        final State done = new State("done", null);
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(idle, ringing));
+        transitions.add(new Transition(ringing, talking));
+        transitions.add(new Transition(ringing, done));
+        transitions.add(new Transition(talking, done));
+        transitions.add(new Transition(done, idle));
+        TRANSITIONS = new TransitionTable(transitions);
+    }
+
+    private static final class Record implements Action {
+        private final List<String> events;
+        private final String name;
+
+        private Record(final List<String> events, final String name) {
+            this.events = events;
+            this.name = name;
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            events.add(name + ":" + message);
+        }
+    }
+
+    // States of one machine bound to its own actions, the graph comes from the shared table.
+    private static final class Machine {
+        private final List<String> events = new ArrayList<String>();
+        private final State idle = new State("idle", null);
+        private final State ringing = new State("ringing", new Record(events, "ringing"), null);
+        private final State talking = new State("talking", new Record(events, "talking"), new Record(events, "left talking"));
+        private final State done = new State("done", new Record(events, "done"), null);
+        private final FiniteStateMachine fsm;
+
+        private Machine(final TransitionTable transitions) {
+            this.fsm = new FiniteStateMachine(idle, transitions);
+        }
+    }
+
+    @Test
+    public void sharedTableRunsActionsOfEachMachine() throws Exception {
+        final Machine first = new Machine(TRANSITIONS);
+        final Machine second = new Machine(TRANSITIONS);
+        first.fsm.transition("invite", first.ringing);
+        first.fsm.transition("ok", first.talking);
+        first.fsm.transition("bye", first.done);
+        second.fsm.transition("invite", second.ringing);
+
+        Assert.assertSame(first.done, first.fsm.state());
+        Assert.assertSame(second.ringing, second.fsm.state());
+        Assert.assertEquals("[ringing:invite, talking:ok, left talking:bye, done:bye]", first.events.toString());
+        Assert.assertEquals("[ringing:invite]", second.events.toString());
+    }
+
+    @Test(expected = TransitionNotFoundException.class)
+    public void missingTransitionIsRejected() throws Exception {
+        final Machine machine = new Machine(TRANSITIONS);
+        machine.fsm.transition("ok", machine.talking);
+    }
+
+    @Test
+    public void unknownStateIsRejected() throws Exception {
+        final Machine machine = new Machine(TRANSITIONS);
+        try {
+            machine.fsm.transition("invite", new State("unknown", null));
+            Assert.fail();
+        } catch (final TransitionNotFoundException exception) {
+            Assert.assertSame(machine.idle, machine.fsm.state());
+        }
+    }
+
+    @Test
+    public void templateKeepsNoActions() throws Exception {
+        final Machine machine = new Machine(TRANSITIONS);
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(machine.idle, machine.ringing));
+        transitions.add(new Transition(machine.ringing, machine.talking));
+        final TransitionTable table = TransitionTable.templateOf(transitions);
+        Assert.assertEquals(3, table.size());
+        final Transition transition = table.get(table.indexOf(machine.ringing), table.indexOf(machine.talking));
+        Assert.assertEquals("talking", transition.getStateOnExit().getId());
+        Assert.assertNull(transition.getStateOnExit().getActionOnEnter());
+        Assert.assertNull(table.get(table.indexOf(machine.talking), table.indexOf(machine.ringing)));
+    }
+
+    @Test
+    public void machinesShareOneTable() throws Exception {
+        final Machine first = new Machine(TRANSITIONS);
+        final Machine second = new Machine(TRANSITIONS);
+        Assert.assertSame(TRANSITIONS, first.fsm.transitions());
+        Assert.assertSame(first.fsm.transitions(), second.fsm.transitions());
+        // The shared table keeps working across cycles of the same machine.
+        for (int cycle = 0; cycle < 3; cycle++) {
+            first.fsm.transition("invite", first.ringing);
+            first.fsm.transition("ok", first.talking);
+            first.fsm.transition("bye", first.done);
+            first.fsm.transition("reset", first.idle);
+        }
+        Assert.assertSame(first.idle, first.fsm.state());
+        Assert.assertEquals(12, first.events.size());
+        Assert.assertEquals("done:bye", first.events.get(11));
+        Assert.assertTrue(second.events.isEmpty());
+    }
+}
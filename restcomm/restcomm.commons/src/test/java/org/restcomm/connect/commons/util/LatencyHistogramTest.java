@@ -0,0 +1,102 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.commons.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public final class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5);
+        histogram.record(10);
+        histogram.record(11);
+        histogram.record(400);
+        histogram.record(20000);
+        final long[] buckets = histogram.getBuckets();
+        assertEquals(histogram.getBounds().length + 1, buckets.length);
+        assertEquals(2, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(1, buckets[5]);
+        assertEquals(1, buckets[buckets.length - 1]);
+        assertEquals(5, histogram.getCount());
+        assertEquals(20000, histogram.getMax());
+        assertEquals(4085, histogram.getAverage());
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(40);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(3000);
+        }
+        // Interpolated within the bucket, up to the maximum in the highest one.
+        assertEquals(38, histogram.getPercentile(50));
+        assertEquals(50, histogram.getPercentile(90));
+        assertEquals(2950, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testAdd() {
+        final LatencyHistogram first = new LatencyHistogram(10, 20);
+        final LatencyHistogram second = new LatencyHistogram(10, 20);
+        first.record(5);
+        second.record(15);
+        second.record(30);
+        final LatencyHistogram sum = new LatencyHistogram(10, 20);
+        sum.add(first);
+        sum.add(second);
+        assertEquals(3, sum.getCount());
+        assertEquals(30, sum.getMax());
+        assertEquals(16, sum.getAverage());
+        assertEquals(1, sum.getBuckets()[0]);
+        assertEquals(1, sum.getBuckets()[1]);
+        assertEquals(1, sum.getBuckets()[2]);
+        // The sources are left unchanged.
+        assertEquals(2, second.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDifferentBounds() {
+        new LatencyHistogram(10, 20).add(new LatencyHistogram(10));
+    }
+
+    @Test
+    public void testCustomBounds() {
+        final LatencyHistogram histogram = new LatencyHistogram(1, 2, 5);
+        histogram.record(0);
+        histogram.record(2);
+        histogram.record(4);
+        histogram.record(9);
+        assertEquals(4, histogram.getBuckets().length);
+        assertEquals(1, histogram.getBuckets()[0]);
+        assertEquals(1, histogram.getBuckets()[1]);
+        assertEquals(1, histogram.getBuckets()[2]);
+        assertEquals(1, histogram.getBuckets()[3]);
+        assertEquals(5, histogram.getPercentile(75));
+    }
+}
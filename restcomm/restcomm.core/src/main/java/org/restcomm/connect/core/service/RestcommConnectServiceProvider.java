@@ -18,14 +18,24 @@
  */
 package org.restcomm.connect.core.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import javax.servlet.ServletContext;
 
+import org.apache.commons.configuration.Configuration;
+
+import org.restcomm.connect.commons.StatisticsSource;
 import org.restcomm.connect.commons.amazonS3.S3AccessTool;
+import org.restcomm.connect.commons.amazonS3.S3UploadService;
 import org.restcomm.connect.core.service.api.ClientPasswordHashingService;
+import org.restcomm.connect.core.service.api.ConferenceParticipantsService;
 import org.restcomm.connect.core.service.api.NumberSelectorService;
 import org.restcomm.connect.core.service.api.ProfileService;
 import org.restcomm.connect.core.service.api.RecordingService;
 import org.restcomm.connect.core.service.client.ClientPasswordHashingServiceImpl;
+import org.restcomm.connect.core.service.conference.ConferenceParticipantsServiceImpl;
 import org.restcomm.connect.core.service.number.NumberSelectorServiceImpl;
 import org.restcomm.connect.core.service.profile.ProfileServiceImpl;
 import org.restcomm.connect.core.service.recording.RecordingsServiceImpl;
@@ -45,7 +55,9 @@ public class RestcommConnectServiceProvider {
     private ProfileService profileService;
     private ClientPasswordHashingService clientPasswordHashingService;
     private RecordingService recordingService;
+    private ConferenceParticipantsService conferenceParticipantsService;
     private UriUtils uriUtils;
+    private List<StatisticsSource> statisticsSources = Collections.emptyList();
 
     public static RestcommConnectServiceProvider getInstance() {
         if (instance == null) {
@@ -59,22 +71,33 @@ public class RestcommConnectServiceProvider {
      */
     public void startServices(ServletContext ctx) {
         DaoManager daoManager = (DaoManager) ctx.getAttribute(DaoManager.class.getName());
+        Configuration configuration = (Configuration) ctx.getAttribute(Configuration.class.getName());
         // core services initialization
         this.numberSelector = new NumberSelectorServiceImpl(daoManager.getIncomingPhoneNumbersDao());
         ctx.setAttribute(NumberSelectorService.class.getName(), numberSelector);
-        this.profileService = new ProfileServiceImpl(daoManager);
+        final ProfileServiceImpl profileService = new ProfileServiceImpl(daoManager, configuration.getLong("runtime-settings.profile-cache-ttl", 60));
+        this.profileService = profileService;
         ctx.setAttribute(ProfileService.class.getName(), profileService);
         this.clientPasswordHashingService = new ClientPasswordHashingServiceImpl(daoManager);
         ctx.setAttribute(ClientPasswordHashingService.class.getName(), clientPasswordHashingService);
 
         S3AccessTool s3AccessTool = (S3AccessTool) ctx.getAttribute(S3AccessTool.class.getName());
+        S3UploadService s3UploadService = (S3UploadService) ctx.getAttribute(S3UploadService.class.getName());
         ExecutionContext ec = (ExecutionContext) ctx.getAttribute(ExecutionContext.class.getName());
 
         this.uriUtils = new UriUtils(daoManager);
         ctx.setAttribute(UriUtils.class.getName(), uriUtils);
 
-        this.recordingService = new RecordingsServiceImpl(daoManager.getRecordingsDao(), s3AccessTool, ec, uriUtils);
+        this.recordingService = new RecordingsServiceImpl(daoManager.getRecordingsDao(), s3AccessTool, s3UploadService, ec, uriUtils);
         ctx.setAttribute(RecordingService.class.getName(), recordingService);
+
+        this.conferenceParticipantsService = new ConferenceParticipantsServiceImpl(daoManager.getCallDetailRecordsDao(),
+                configuration.getLong("runtime-settings.conference-participants-refresh", 1000));
+        ctx.setAttribute(ConferenceParticipantsService.class.getName(), conferenceParticipantsService);
+
+        final List<StatisticsSource> statisticsSources = new ArrayList<StatisticsSource>();
+        statisticsSources.add(profileService);
+        this.statisticsSources = Collections.unmodifiableList(statisticsSources);
     }
 
     /**
@@ -107,6 +130,19 @@ public class RestcommConnectServiceProvider {
      */
     public UriUtils uriUtils() { return uriUtils; }
 
+    /**
+     *
+     * @return
+     */
+    public ConferenceParticipantsService conferenceParticipantsService() { return conferenceParticipantsService; }
+
+    /**
+     * @return the statistics of the services built on start, published by the MonitoringService.
+     */
+    public List<StatisticsSource> getStatisticsSources() {
+        return statisticsSources;
+    }
+
     //Used for unit testing - not elegant way though
     public void setUriUtils(UriUtils uriUtils) {
         this.uriUtils = uriUtils;
@@ -0,0 +1,54 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.core.service.api;
+
+import org.restcomm.connect.commons.dao.Sid;
+
+/**
+ * Counts the participants of running conferences as they join and leave, so that conferences and the
+ * REST API do not need to count the running call detail records of a conference in the database.
+ */
+public interface ConferenceParticipantsService {
+
+    /**
+     * Counts a participant that joined the conference on this instance.
+     * @param conferenceSid
+     */
+    void participantJoined(Sid conferenceSid);
+
+    /**
+     * Discounts a participant that left the conference on this instance.
+     * @param conferenceSid
+     */
+    void participantLeft(Sid conferenceSid);
+
+    /**
+     * Forgets the participants of a conference that stopped on this instance.
+     * @param conferenceSid
+     */
+    void conferenceStopped(Sid conferenceSid);
+
+    /**
+     * @param conferenceSid
+     * @return the participants of the conference on every instance it runs on
+     */
+    int getParticipants(Sid conferenceSid);
+
+}
@@ -23,6 +23,8 @@ package org.restcomm.connect.core.service.api;
 import org.restcomm.connect.commons.dao.Sid;
 import org.restcomm.connect.dao.entities.Profile;
 
+import com.google.common.cache.CacheStats;
+
 public interface ProfileService {
     /**
      * @param accountSid
@@ -42,4 +44,21 @@ public interface ProfileService {
      *         organization) will return null if no profile is explicitly assigned to the target resource.
      */
     Profile retrieveExplicitlyAssociatedProfile(Sid targetSid);
+
+    /**
+     * Drops every cached effective profile, to be called when profile associations or the account
+     * hierarchy change.
+     */
+    void invalidateCachedProfiles();
+
+    /**
+     * Drops the cached effective profiles resolved to provided profile, to be called when its document changes.
+     * @param profileSid
+     */
+    void invalidateCachedProfile(String profileSid);
+
+    /**
+     * @return hits and misses of the effective profile cache.
+     */
+    CacheStats getEffectiveProfileCacheStats();
 }
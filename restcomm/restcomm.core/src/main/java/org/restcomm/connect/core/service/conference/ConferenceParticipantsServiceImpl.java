@@ -0,0 +1,119 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.core.service.conference;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.core.service.api.ConferenceParticipantsService;
+import org.restcomm.connect.dao.CallDetailRecordsDao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Participants that joined a conference on this instance are counted in memory. A conference can run
+ * on several instances when they share a media resource broker, the participants on the other
+ * instances are then taken from the running call detail records of the conference, counted at most
+ * once every refresh interval. With a refresh interval of 0 only the local participants are counted.
+ */
+@ThreadSafe
+public class ConferenceParticipantsServiceImpl implements ConferenceParticipantsService {
+    private static final Logger logger = Logger.getLogger(ConferenceParticipantsServiceImpl.class);
+    private static final int MAX_SNAPSHOTS = 10000;
+
+    private final CallDetailRecordsDao dao;
+    private final long refreshInterval;
+    private final ConcurrentMap<Sid, AtomicInteger> participants;
+    // Participants on other instances when the running calls were last counted.
+    private final Cache<Sid, Integer> remoteParticipants;
+
+    /**
+     * @param refreshInterval milliseconds the participants on other instances are cached.
+     */
+    public ConferenceParticipantsServiceImpl(final CallDetailRecordsDao dao, final long refreshInterval) {
+        this.dao = dao;
+        this.refreshInterval = refreshInterval;
+        this.participants = new ConcurrentHashMap<Sid, AtomicInteger>();
+        this.remoteParticipants = CacheBuilder.newBuilder().maximumSize(MAX_SNAPSHOTS)
+                .expireAfterWrite(Math.max(refreshInterval, 1), TimeUnit.MILLISECONDS).build();
+    }
+
+    @Override
+    public void participantJoined(final Sid conferenceSid) {
+        AtomicInteger counter = participants.get(conferenceSid);
+        if (counter == null) {
+            final AtomicInteger created = new AtomicInteger();
+            counter = participants.putIfAbsent(conferenceSid, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public void participantLeft(final Sid conferenceSid) {
+        final AtomicInteger counter = participants.get(conferenceSid);
+        if (counter == null || counter.decrementAndGet() < 0) {
+            logger.warn("Participant left conference " + conferenceSid + " without joining it on this instance");
+            if (counter != null) {
+                counter.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void conferenceStopped(final Sid conferenceSid) {
+        participants.remove(conferenceSid);
+        remoteParticipants.invalidate(conferenceSid);
+    }
+
+    @Override
+    public int getParticipants(final Sid conferenceSid) {
+        final int local = getLocalParticipants(conferenceSid);
+        if (refreshInterval <= 0) {
+            return local;
+        }
+        Integer remote = remoteParticipants.getIfPresent(conferenceSid);
+        if (remote == null) {
+            final int running = dao.getTotalRunningCallDetailRecordsByConferenceSid(conferenceSid);
+            remote = Math.max(running - local, 0);
+            remoteParticipants.put(conferenceSid, remote);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Conference " + conferenceSid + " has " + running + " running calls, " + local + " on this instance");
+            }
+        }
+        return local + remote;
+    }
+
+    /**
+     * @return the participants of the conference on this instance.
+     */
+    public int getLocalParticipants(final Sid conferenceSid) {
+        final AtomicInteger counter = participants.get(conferenceSid);
+        return counter == null ? 0 : counter.get();
+    }
+}
@@ -21,6 +21,7 @@ package org.restcomm.connect.core.service.number;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -37,9 +38,12 @@ import org.restcomm.connect.core.service.number.api.NumberSelectionResult;
 import org.restcomm.connect.core.service.number.api.ResultType;
 import org.restcomm.connect.core.service.number.api.SearchModifier;
 import org.restcomm.connect.dao.IncomingPhoneNumbersDao;
+import org.restcomm.connect.dao.cache.IndexedIncomingPhoneNumbersDao;
 import org.restcomm.connect.dao.entities.IncomingPhoneNumber;
 import org.restcomm.connect.dao.entities.IncomingPhoneNumberFilter;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 
@@ -55,15 +59,25 @@ import com.google.i18n.phonenumbers.PhoneNumberUtil;
  * details for source and destination. If protocol doesnt support Organizations
  * yet, then null values are allowed, but Regexes will not be evaluated in these
  * cases.
+ *
+ * When the DAO is an IndexedIncomingPhoneNumbersDao the same rules are
+ * evaluated against its in-memory index instead of querying the database.
  */
 public class NumberSelectorServiceImpl implements NumberSelectorService {
 
     private static Logger logger = Logger.getLogger(NumberSelectorServiceImpl.class);
 
     private IncomingPhoneNumbersDao numbersDao;
+    private IndexedIncomingPhoneNumbersDao numbersIndex;
+    //compiled regex numbers, keyed by the phone number they were compiled from
+    private static final int MAX_PATTERNS = 10000;
+    private final Cache<String, Pattern> patterns = CacheBuilder.newBuilder().maximumSize(MAX_PATTERNS).build();
 
     public NumberSelectorServiceImpl(IncomingPhoneNumbersDao numbersDao) {
         this.numbersDao = numbersDao;
+        if (numbersDao instanceof IndexedIncomingPhoneNumbersDao) {
+            this.numbersIndex = (IndexedIncomingPhoneNumbersDao) numbersDao;
+        }
     }
 
     /**
@@ -129,6 +143,9 @@ public class NumberSelectorServiceImpl implements NumberSelectorService {
      */
     private NumberSelectionResult findSingleNumber(String number,
             Sid sourceOrganizationSid, Sid destinationOrganizationSid, Set<SearchModifier> modifiers) {
+        if (numbersIndex != null) {
+            return findSingleNumberInIndex(number, sourceOrganizationSid, destinationOrganizationSid, modifiers);
+        }
         NumberSelectionResult matchedNumber = new NumberSelectionResult(null, false, null);
         IncomingPhoneNumberFilter.Builder filterBuilder = IncomingPhoneNumberFilter.Builder.builder();
         filterBuilder.byPhoneNumber(number);
@@ -173,6 +190,38 @@ public class NumberSelectorServiceImpl implements NumberSelectorService {
         return matchedNumber;
     }
 
+    /**
+     * Same rules as findSingleNumber, evaluated against the in-memory index.
+     *
+     * @param number the number to match against the index
+     * @param sourceOrganizationSid
+     * @param destinationOrganizationSid
+     * @return the matched number, null if not matched.
+     */
+    private NumberSelectionResult findSingleNumberInIndex(String number,
+            Sid sourceOrganizationSid, Sid destinationOrganizationSid, Set<SearchModifier> modifiers) {
+        NumberSelectionResult matchedNumber = new NumberSelectionResult(null, false, null);
+        List<IncomingPhoneNumber> candidates = numbersIndex.getIncomingPhoneNumbersByPhoneNumber(number);
+        if (!candidates.isEmpty()) {
+            Boolean pureSIP = null;
+            if (destinationOrganizationSid == null && modifiers != null && modifiers.contains(SearchModifier.ORG_COMPLIANT)) {
+                pureSIP = Boolean.FALSE;
+            }
+            if (sourceOrganizationSid != null
+                    && !sourceOrganizationSid.equals(destinationOrganizationSid)) {
+                pureSIP = Boolean.FALSE;
+            }
+            for (IncomingPhoneNumber candidate : candidates) {
+                if ((destinationOrganizationSid == null || destinationOrganizationSid.equals(candidate.getOrganizationSid()))
+                        && (pureSIP == null || pureSIP.equals(candidate.isPureSip()))) {
+                    return new NumberSelectionResult(candidate, Boolean.FALSE, ResultType.REGULAR);
+                }
+            }
+            matchedNumber.setOrganizationFiltered(Boolean.TRUE);
+        }
+        return matchedNumber;
+    }
+
     /**
      * Iterates over the list of given numbers, and returns the first matching.
      *
@@ -361,6 +410,14 @@ public class NumberSelectorServiceImpl implements NumberSelectorService {
     private NumberSelectionResult findByRegex(List<String> numberQueries,
             Sid sourceOrganizationSid, Sid destOrg) {
         NumberSelectionResult numberFound = new NumberSelectionResult(null, false, null);
+        if (numbersIndex != null) {
+            //index keeps regexes already ordered by length
+            List<IncomingPhoneNumber> regexList = numbersIndex.getRegexIncomingPhoneNumbers(destOrg);
+            if (!regexList.isEmpty()) {
+                numberFound = findFirstMatchingRegex(numberQueries, regexList);
+            }
+            return numberFound;
+        }
         IncomingPhoneNumberFilter.Builder filterBuilder = IncomingPhoneNumberFilter.Builder.builder();
         filterBuilder.byOrgSid(destOrg.toString());
         filterBuilder.byPureSIP(Boolean.TRUE);
@@ -388,25 +445,14 @@ public class NumberSelectorServiceImpl implements NumberSelectorService {
      * @param regexSet The set of regexes to evaluate against given numbers
      * @return the first regex matching any number in list, null if no match
      */
-    private NumberSelectionResult findFirstMatchingRegex(List<String> numberQueries, Set<IncomingPhoneNumber> regexSet
+    private NumberSelectionResult findFirstMatchingRegex(List<String> numberQueries, Collection<IncomingPhoneNumber> regexSet
     ) {
         NumberSelectionResult matchedRegex = new NumberSelectionResult(null, false, null);
         try {
             Iterator<IncomingPhoneNumber> iterator = regexSet.iterator();
             while (matchedRegex.getNumber() == null && iterator.hasNext()) {
                 IncomingPhoneNumber currentRegex = iterator.next();
-                String phoneRegexPattern = null;
-                //here we perform string replacement to allow proper regex compilation
-                if (currentRegex.getPhoneNumber().startsWith("+")) {
-                    //ensures leading + sign is interpreted as expected char
-                    phoneRegexPattern = currentRegex.getPhoneNumber().replace("+", "/+");
-                } else if (currentRegex.getPhoneNumber().startsWith("*")) {
-                    //ensures leading * sign is interpreted as expected char
-                    phoneRegexPattern = currentRegex.getPhoneNumber().replace("*", "/*");
-                } else {
-                    phoneRegexPattern = currentRegex.getPhoneNumber();
-                }
-                Pattern p = Pattern.compile(phoneRegexPattern);
+                Pattern p = compile(currentRegex.getPhoneNumber());
                 int i = 0;
                 //we evalute the current regex to the list of incoming numbers
                 //we stop as soon as a match is found
@@ -415,9 +461,9 @@ public class NumberSelectorServiceImpl implements NumberSelectorService {
                     if (m.find()) {
                         //match found, exit from loops and return
                         matchedRegex = new NumberSelectionResult(currentRegex, false, ResultType.REGEX);
-                    } else if (logger.isInfoEnabled()) {
-                        String msg = String.format("Regex \"%s\" cannot be matched for phone number \"%s\"", phoneRegexPattern, numberQueries.get(i));
-                        logger.info(msg);
+                    } else if (logger.isDebugEnabled()) {
+                        String msg = String.format("Regex \"%s\" cannot be matched for phone number \"%s\"", p.pattern(), numberQueries.get(i));
+                        logger.debug(msg);
                     }
                     i = i + 1;
                 }
@@ -435,4 +481,31 @@ public class NumberSelectorServiceImpl implements NumberSelectorService {
         return matchedRegex;
 
     }
+
+    /**
+     * Compiles the regex stored in the phone number, reusing the pattern
+     * compiled for previous calls.
+     *
+     * @param phoneNumber the regex phone number
+     * @return the compiled pattern
+     */
+    private Pattern compile(String phoneNumber) {
+        Pattern pattern = patterns.getIfPresent(phoneNumber);
+        if (pattern == null) {
+            String phoneRegexPattern = null;
+            //here we perform string replacement to allow proper regex compilation
+            if (phoneNumber.startsWith("+")) {
+                //ensures leading + sign is interpreted as expected char
+                phoneRegexPattern = phoneNumber.replace("+", "/+");
+            } else if (phoneNumber.startsWith("*")) {
+                //ensures leading * sign is interpreted as expected char
+                phoneRegexPattern = phoneNumber.replace("*", "/*");
+            } else {
+                phoneRegexPattern = phoneNumber;
+            }
+            pattern = Pattern.compile(phoneRegexPattern);
+            patterns.put(phoneNumber, pattern);
+        }
+        return pattern;
+    }
 }
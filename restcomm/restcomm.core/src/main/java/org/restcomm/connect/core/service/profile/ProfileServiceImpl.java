@@ -20,25 +20,63 @@
 package org.restcomm.connect.core.service.profile;
 
 import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.Immutable;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
 import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.commons.util.StatisticsUtils;
 import org.restcomm.connect.core.service.api.ProfileService;
 import org.restcomm.connect.dao.DaoManager;
 import org.restcomm.connect.dao.entities.Account;
 import org.restcomm.connect.dao.entities.Profile;
 import org.restcomm.connect.dao.entities.ProfileAssociation;
 
-public class ProfileServiceImpl implements ProfileService {
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Effective profiles are resolved from the database and cached by account or organization sid. Entries are dropped when profiles, profile associations or the account
+ * hierarchy change through this instance, and expire after the cache TTL so that changes made on other
+ * instances are picked up. A TTL of 0 disables the cache. The hits, misses and evictions of the cache are
+ * published by the MonitoringService.
+ */
+@ThreadSafe
+public class ProfileServiceImpl implements ProfileService, StatisticsSource {
+    public static final String COUNTERS_MAP_PROFILE_CACHE_HITS = "ProfileCacheHits";
+    public static final String COUNTERS_MAP_PROFILE_CACHE_MISSES = "ProfileCacheMisses";
+    public static final String COUNTERS_MAP_PROFILE_CACHE_EVICTIONS = "ProfileCacheEvictions";
+
     private static Logger logger = Logger.getLogger(ProfileServiceImpl.class);
 
     private static String DEFAULT_PROFILE_SID = Profile.DEFAULT_PROFILE_SID;
+    private static final long DEFAULT_CACHE_TTL = 60;
+    private static final int MAX_CACHED_PROFILES = 100000;
 
     private final DaoManager daoManager;
+    private final Cache<Sid, EffectiveProfile> effectiveProfiles;
+    // Incremented on every invalidation, a profile resolved across an invalidation is not cached.
+    private final AtomicLong generation;
 
     public ProfileServiceImpl(DaoManager daoManager) {
+        this(daoManager, DEFAULT_CACHE_TTL);
+    }
+
+    /**
+     * @param cacheTtl seconds an effective profile is cached, 0 to always read it from the database.
+     */
+    public ProfileServiceImpl(DaoManager daoManager, long cacheTtl) {
         super();
         this.daoManager = daoManager;
+        this.effectiveProfiles = cacheTtl > 0 ? CacheBuilder.newBuilder().maximumSize(MAX_CACHED_PROFILES)
+                .expireAfterWrite(cacheTtl, TimeUnit.SECONDS).recordStats().<Sid, EffectiveProfile>build() : null;
+        this.generation = new AtomicLong();
     }
 
     /**
@@ -47,6 +85,33 @@ public class ProfileServiceImpl implements ProfileService {
      */
     @Override
     public Profile retrieveEffectiveProfileByAccountSid(Sid accountSid) {
+        return effectiveProfile(accountSid, true).profile;
+    }
+
+    /**
+     * @param organizationSid
+     * @return will return associated profile of provided organization sid
+     */
+    public Profile retrieveEffectiveProfileByOrganizationSid(Sid organizationSid) {
+        return effectiveProfile(organizationSid, false).profile;
+    }
+
+    private EffectiveProfile effectiveProfile(final Sid sid, final boolean account) {
+        if (effectiveProfiles == null) {
+            return new EffectiveProfile(account ? resolveByAccountSid(sid) : resolveByOrganizationSid(sid));
+        }
+        EffectiveProfile effectiveProfile = effectiveProfiles.getIfPresent(sid);
+        if (effectiveProfile == null) {
+            final long resolvedGeneration = generation.get();
+            effectiveProfile = new EffectiveProfile(account ? resolveByAccountSid(sid) : resolveByOrganizationSid(sid));
+            if (effectiveProfile.profile != null && resolvedGeneration == generation.get()) {
+                effectiveProfiles.put(sid, effectiveProfile);
+            }
+        }
+        return effectiveProfile;
+    }
+
+    private Profile resolveByAccountSid(Sid accountSid) {
         Profile profile = null;
         Sid orginalRequestedAccount = accountSid;
         Sid currentAccount = accountSid;
@@ -87,11 +152,7 @@ public class ProfileServiceImpl implements ProfileService {
         return profile;
     }
 
-    /**
-     * @param organizationSid
-     * @return will return associated profile of provided organization sid
-     */
-    public Profile retrieveEffectiveProfileByOrganizationSid(Sid organizationSid) {
+    private Profile resolveByOrganizationSid(Sid organizationSid) {
         Profile profile = null;
         profile = retrieveExplicitlyAssociatedProfile(organizationSid);
 
@@ -130,4 +191,49 @@ public class ProfileServiceImpl implements ProfileService {
         }
         return profile;
     }
+
+    @Override
+    public void invalidateCachedProfiles() {
+        generation.incrementAndGet();
+        if (effectiveProfiles != null) {
+            effectiveProfiles.invalidateAll();
+        }
+    }
+
+    @Override
+    public void invalidateCachedProfile(String profileSid) {
+        generation.incrementAndGet();
+        if (effectiveProfiles == null) {
+            return;
+        }
+        final Iterator<EffectiveProfile> iterator = effectiveProfiles.asMap().values().iterator();
+        while (iterator.hasNext()) {
+            if (profileSid.equals(iterator.next().profile.getSid())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public CacheStats getEffectiveProfileCacheStats() {
+        return effectiveProfiles == null ? new CacheStats(0, 0, 0, 0, 0, 0) : effectiveProfiles.stats();
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        final CacheStats stats = getEffectiveProfileCacheStats();
+        countersMap.put(COUNTERS_MAP_PROFILE_CACHE_HITS, StatisticsUtils.counter(stats.hitCount()));
+        countersMap.put(COUNTERS_MAP_PROFILE_CACHE_MISSES, StatisticsUtils.counter(stats.missCount()));
+        countersMap.put(COUNTERS_MAP_PROFILE_CACHE_EVICTIONS, StatisticsUtils.counter(stats.evictionCount()));
+    }
+
+    @Immutable
+    private static final class EffectiveProfile {
+        private final Profile profile;
+
+        private EffectiveProfile(final Profile profile) {
+            super();
+            this.profile = profile;
+        }
+    }
 }
@@ -22,6 +22,7 @@ package org.restcomm.connect.core.service.recording;
 import akka.dispatch.Futures;
 import org.apache.log4j.Logger;
 import org.restcomm.connect.commons.amazonS3.S3AccessTool;
+import org.restcomm.connect.commons.amazonS3.S3UploadService;
 import org.restcomm.connect.commons.configuration.RestcommConfiguration;
 import org.restcomm.connect.commons.dao.Sid;
 import org.restcomm.connect.core.service.api.RecordingService;
@@ -43,22 +44,29 @@ public class RecordingsServiceImpl implements RecordingService {
 
     private final RecordingsDao recordingsDao;
     private final S3AccessTool s3AccessTool;
+    private final S3UploadService s3UploadService;
     private String recordingsPath;
     private final ExecutionContext ec;
     private final UriUtils uriUtils;
 
     public RecordingsServiceImpl (RecordingsDao recordingsDao, S3AccessTool s3AccessTool, ExecutionContext ec, UriUtils uriUtils) {
-        this.recordingsDao = recordingsDao;
-        this.s3AccessTool = s3AccessTool;
-        this.recordingsPath = RestcommConfiguration.getInstance().getMain().getRecordingPath();
-        this.ec = ec;
-        this.uriUtils = uriUtils;
+        this(recordingsDao, RestcommConfiguration.getInstance().getMain().getRecordingPath(), s3AccessTool, null, ec, uriUtils);
+    }
+
+    public RecordingsServiceImpl (RecordingsDao recordingsDao, S3AccessTool s3AccessTool, S3UploadService s3UploadService, ExecutionContext ec, UriUtils uriUtils) {
+        this(recordingsDao, RestcommConfiguration.getInstance().getMain().getRecordingPath(), s3AccessTool, s3UploadService, ec, uriUtils);
     }
 
     //Used for unit testing
     public RecordingsServiceImpl (RecordingsDao recordingsDao, String recordingsPath, S3AccessTool s3AccessTool,  ExecutionContext ec, UriUtils uriUtils) {
+        this(recordingsDao, recordingsPath, s3AccessTool, null, ec, uriUtils);
+    }
+
+    //Used for unit testing
+    public RecordingsServiceImpl (RecordingsDao recordingsDao, String recordingsPath, S3AccessTool s3AccessTool, S3UploadService s3UploadService, ExecutionContext ec, UriUtils uriUtils) {
         this.recordingsDao = recordingsDao;
         this.s3AccessTool = s3AccessTool;
+        this.s3UploadService = s3UploadService;
         this.recordingsPath = recordingsPath;
         this.ec = ec;
         this.uriUtils = uriUtils;
@@ -69,7 +77,10 @@ public class RecordingsServiceImpl implements RecordingService {
         URI s3Uri = null;
         final String fileExtension = mediaType.equals(MediaAttributes.MediaType.AUDIO_ONLY) ? ".wav" : ".mp4";
         Recording recording = recordingsDao.getRecording(recordingSid);
-        if (s3AccessTool != null && ec != null) {
+        if (s3AccessTool != null && s3UploadService != null) {
+            s3Uri = s3AccessTool.getS3Uri(recordingsPath+"/"+recordingSid+fileExtension);
+            s3UploadService.upload(recordingsPath+"/"+recordingSid+fileExtension);
+        } else if (s3AccessTool != null && ec != null) {
             s3Uri = s3AccessTool.getS3Uri(recordingsPath+"/"+recordingSid+fileExtension);
             Future<Boolean> f = Futures.future(new Callable<Boolean>() {
                 @Override
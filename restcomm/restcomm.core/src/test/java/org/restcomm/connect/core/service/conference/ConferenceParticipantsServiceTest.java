@@ -0,0 +1,98 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.core.service.conference;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.CallDetailRecordsDao;
+
+public class ConferenceParticipantsServiceTest {
+
+    @Test
+    public void testLocalParticipants() {
+        CallDetailRecordsDao dao = mock(CallDetailRecordsDao.class);
+        ConferenceParticipantsServiceImpl service = new ConferenceParticipantsServiceImpl(dao, 0);
+        Sid conference = Sid.generate(Sid.Type.CONFERENCE);
+        Sid other = Sid.generate(Sid.Type.CONFERENCE);
+
+        service.participantJoined(conference);
+        service.participantJoined(conference);
+        service.participantJoined(other);
+        service.participantLeft(conference);
+        Assert.assertEquals(1, service.getParticipants(conference));
+        Assert.assertEquals(1, service.getParticipants(other));
+
+        //leaving twice never counts below zero
+        service.participantLeft(conference);
+        service.participantLeft(conference);
+        Assert.assertEquals(0, service.getParticipants(conference));
+
+        service.conferenceStopped(other);
+        Assert.assertEquals(0, service.getParticipants(other));
+        verify(dao, never()).getTotalRunningCallDetailRecordsByConferenceSid(conference);
+    }
+
+    @Test
+    public void testRemoteParticipantsCached() {
+        CallDetailRecordsDao dao = mock(CallDetailRecordsDao.class);
+        Sid conference = Sid.generate(Sid.Type.CONFERENCE);
+        //2 participants here and 3 on another instance
+        when(dao.getTotalRunningCallDetailRecordsByConferenceSid(conference)).thenReturn(5);
+        ConferenceParticipantsServiceImpl service = new ConferenceParticipantsServiceImpl(dao, 60000);
+        service.participantJoined(conference);
+        service.participantJoined(conference);
+
+        Assert.assertEquals(5, service.getParticipants(conference));
+        //local changes are seen right away, the database is not queried again
+        service.participantJoined(conference);
+        Assert.assertEquals(6, service.getParticipants(conference));
+        service.participantLeft(conference);
+        service.participantLeft(conference);
+        Assert.assertEquals(4, service.getParticipants(conference));
+        Assert.assertEquals(1, service.getLocalParticipants(conference));
+        verify(dao, times(1)).getTotalRunningCallDetailRecordsByConferenceSid(conference);
+
+        //the conference stopped here, it still runs on the other instance
+        service.conferenceStopped(conference);
+        when(dao.getTotalRunningCallDetailRecordsByConferenceSid(conference)).thenReturn(3);
+        Assert.assertEquals(3, service.getParticipants(conference));
+        verify(dao, times(2)).getTotalRunningCallDetailRecordsByConferenceSid(conference);
+    }
+
+    @Test
+    public void testRemoteParticipantsRefreshed() throws InterruptedException {
+        CallDetailRecordsDao dao = mock(CallDetailRecordsDao.class);
+        Sid conference = Sid.generate(Sid.Type.CONFERENCE);
+        when(dao.getTotalRunningCallDetailRecordsByConferenceSid(conference)).thenReturn(2, 4);
+        ConferenceParticipantsServiceImpl service = new ConferenceParticipantsServiceImpl(dao, 50);
+
+        Assert.assertEquals(2, service.getParticipants(conference));
+        Thread.sleep(100);
+        Assert.assertEquals(4, service.getParticipants(conference));
+        verify(dao, times(2)).getTotalRunningCallDetailRecordsByConferenceSid(conference);
+    }
+}
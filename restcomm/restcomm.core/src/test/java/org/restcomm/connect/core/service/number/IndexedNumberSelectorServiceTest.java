@@ -0,0 +1,205 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.core.service.number;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.core.service.number.api.NumberSelectionResult;
+import org.restcomm.connect.core.service.number.api.ResultType;
+import org.restcomm.connect.dao.IncomingPhoneNumbersDao;
+import org.restcomm.connect.dao.cache.IndexedIncomingPhoneNumbersDao;
+import org.restcomm.connect.dao.entities.IncomingPhoneNumber;
+import org.restcomm.connect.dao.entities.IncomingPhoneNumberFilter;
+
+/**
+ * Number selection served by IndexedIncomingPhoneNumbersDao, must give the
+ * same answers as the database backed selection without querying it.
+ */
+public class IndexedNumberSelectorServiceTest {
+
+    private IncomingPhoneNumber number(String phone, Sid org, boolean pureSip) {
+        final IncomingPhoneNumber.Builder builder = IncomingPhoneNumber.builder();
+        builder.setSid(Sid.generate(Sid.Type.PHONE_NUMBER));
+        builder.setPhoneNumber(phone);
+        builder.setOrganizationSid(org);
+        builder.setPureSip(pureSip);
+        return builder.build();
+    }
+
+    private IncomingPhoneNumbersDao mockDao(List<IncomingPhoneNumber> numbers) {
+        IncomingPhoneNumbersDao numDao = Mockito.mock(IncomingPhoneNumbersDao.class);
+        when(numDao.getIncomingPhoneNumbersByFilter((IncomingPhoneNumberFilter) any())).
+                thenReturn(numbers);
+        return numDao;
+    }
+
+    @Test
+    public void testPerfectMatchFromIndex() {
+        Sid org = Sid.generate(Sid.Type.ORGANIZATION);
+        List<IncomingPhoneNumber> numbers = new ArrayList<IncomingPhoneNumber>();
+        numbers.add(number("+1234", org, false));
+        IncomingPhoneNumbersDao numDao = mockDao(numbers);
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(new IndexedIncomingPhoneNumbersDao(numDao));
+
+        IncomingPhoneNumber found = service.searchNumber("1234", org, org);
+
+        Assert.assertNotNull(found);
+        Assert.assertEquals("+1234", found.getPhoneNumber());
+        //only the initial load hits the DAO
+        verify(numDao, times(1)).getIncomingPhoneNumbersByFilter((IncomingPhoneNumberFilter) any());
+        verify(numDao, never()).getTotalIncomingPhoneNumbers((IncomingPhoneNumberFilter) any());
+        verify(numDao, never()).getIncomingPhoneNumbersRegex((IncomingPhoneNumberFilter) any());
+    }
+
+    @Test
+    public void testOrganizationFiltered() {
+        Sid srcOrg = Sid.generate(Sid.Type.ORGANIZATION);
+        Sid destOrg = Sid.generate(Sid.Type.ORGANIZATION);
+        List<IncomingPhoneNumber> numbers = new ArrayList<IncomingPhoneNumber>();
+        numbers.add(number("1234", Sid.generate(Sid.Type.ORGANIZATION), true));
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(new IndexedIncomingPhoneNumbersDao(mockDao(numbers)));
+
+        NumberSelectionResult result = service.searchNumberWithResult("1234", srcOrg, destOrg);
+
+        Assert.assertNull(result.getNumber());
+        Assert.assertTrue(result.getOrganizationFiltered());
+        Assert.assertTrue(service.isFailedCall(result, srcOrg, destOrg));
+    }
+
+    @Test
+    public void testLongestRegexMatch() {
+        Sid org = Sid.generate(Sid.Type.ORGANIZATION);
+        List<IncomingPhoneNumber> numbers = new ArrayList<IncomingPhoneNumber>();
+        numbers.add(number("12.*", org, true));
+        numbers.add(number("1234.*", org, true));
+        numbers.add(number("*", org, true));
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(new IndexedIncomingPhoneNumbersDao(mockDao(numbers)));
+
+        NumberSelectionResult result = service.searchNumberWithResult("123456", org, org);
+
+        Assert.assertEquals("1234.*", result.getNumber().getPhoneNumber());
+        Assert.assertEquals(ResultType.REGEX, result.getType());
+    }
+
+    @Test
+    public void testStarMatch() {
+        Sid org = Sid.generate(Sid.Type.ORGANIZATION);
+        List<IncomingPhoneNumber> numbers = new ArrayList<IncomingPhoneNumber>();
+        numbers.add(number("55.*", org, true));
+        numbers.add(number("*", org, true));
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(new IndexedIncomingPhoneNumbersDao(mockDao(numbers)));
+
+        IncomingPhoneNumber found = service.searchNumber("1234", org, org);
+
+        Assert.assertEquals("*", found.getPhoneNumber());
+    }
+
+    @Test
+    public void testIndexUpdatedOnMutation() {
+        Sid org = Sid.generate(Sid.Type.ORGANIZATION);
+        IncomingPhoneNumber added = number("5555", org, false);
+        List<IncomingPhoneNumber> addedRows = new ArrayList<IncomingPhoneNumber>();
+        addedRows.add(added);
+        IncomingPhoneNumbersDao numDao = Mockito.mock(IncomingPhoneNumbersDao.class);
+        when(numDao.getIncomingPhoneNumbersByFilter((IncomingPhoneNumberFilter) any())).
+                thenReturn(new ArrayList<IncomingPhoneNumber>(), addedRows, new ArrayList<IncomingPhoneNumber>());
+        IndexedIncomingPhoneNumbersDao index = new IndexedIncomingPhoneNumbersDao(numDao);
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(index);
+        Assert.assertNull(service.searchNumber("5555", org, org));
+
+        index.addIncomingPhoneNumber(added);
+        Assert.assertEquals(added.getSid(), service.searchNumber("5555", org, org).getSid());
+
+        index.removeIncomingPhoneNumber(added.getSid());
+        Assert.assertNull(service.searchNumber("5555", org, org));
+        verify(numDao).removeIncomingPhoneNumber(added.getSid());
+    }
+
+    @Test
+    public void testReloadPicksUpExternalChanges() {
+        Sid org = Sid.generate(Sid.Type.ORGANIZATION);
+        List<IncomingPhoneNumber> before = new ArrayList<IncomingPhoneNumber>();
+        before.add(number("1111", org, false));
+        List<IncomingPhoneNumber> after = new ArrayList<IncomingPhoneNumber>();
+        after.add(number("2222", org, false));
+        IncomingPhoneNumbersDao numDao = Mockito.mock(IncomingPhoneNumbersDao.class);
+        //another node replaced 1111 with 2222 directly in the database
+        when(numDao.getIncomingPhoneNumbersByFilter((IncomingPhoneNumberFilter) any())).
+                thenReturn(before, after);
+        IndexedIncomingPhoneNumbersDao index = new IndexedIncomingPhoneNumbersDao(numDao);
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(index);
+        Assert.assertNotNull(service.searchNumber("1111", org, org));
+
+        index.reload();
+
+        Assert.assertNull(service.searchNumber("1111", org, org));
+        Assert.assertNotNull(service.searchNumber("2222", org, org));
+    }
+
+    @Test
+    public void testPeriodicReload() {
+        IncomingPhoneNumbersDao numDao = mockDao(new ArrayList<IncomingPhoneNumber>());
+        IndexedIncomingPhoneNumbersDao index = new IndexedIncomingPhoneNumbersDao(numDao, 1);
+        try {
+            verify(numDao, timeout(3000).times(2)).getIncomingPhoneNumbersByFilter((IncomingPhoneNumberFilter) any());
+        } finally {
+            index.shutdown();
+        }
+    }
+
+    /**
+     * Lookups over 100k numbers and 1k regexes never query the DAO after the initial load.
+     */
+    @Test
+    public void testLargeIndex() {
+        Sid org = Sid.generate(Sid.Type.ORGANIZATION);
+        List<IncomingPhoneNumber> numbers = new ArrayList<IncomingPhoneNumber>(101000);
+        for (int i = 0; i < 100000; i++) {
+            numbers.add(number("+1" + (5550000000L + i), org, false));
+        }
+        for (int i = 0; i < 1000; i++) {
+            numbers.add(number("9" + i + ".*", org, true));
+        }
+        IncomingPhoneNumbersDao numDao = mockDao(numbers);
+        NumberSelectorServiceImpl service = new NumberSelectorServiceImpl(new IndexedIncomingPhoneNumbersDao(numDao));
+
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertNotNull(service.searchNumber("+1" + (5550000000L + i * 7), org, org));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNotNull(service.searchNumber("9999" + i, org, org));
+        }
+
+        verify(numDao, times(1)).getIncomingPhoneNumbersByFilter((IncomingPhoneNumberFilter) any());
+        verify(numDao, never()).getTotalIncomingPhoneNumbers((IncomingPhoneNumberFilter) any());
+    }
+}
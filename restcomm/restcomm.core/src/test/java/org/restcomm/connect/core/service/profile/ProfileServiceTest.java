@@ -2,9 +2,13 @@ package org.restcomm.connect.core.service.profile;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.servlet.ServletContext;
 
@@ -223,6 +227,87 @@ public class ProfileServiceTest {
         assertEquals(expectedChildOrganizationProfile.getSid(), resultantProfile.getSid());
 	}
 
+    /**
+     * the effective profile of an account is resolved from the database once, then served from the cache
+     * @throws SQLException
+     */
+    @Test
+    public void retrieveEffectiveProfileByAccountSidCached() throws SQLException {
+        MockingService mocks = new MockingService();
+        Profile expectedProfile = returnProfile(mocks);
+        Account account = returnValidAccountWithOnlyGrandParentAssignedProfile(new Sid(expectedProfile.getSid()), mocks);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expectedProfile.getSid(), mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getSid());
+        }
+        verify(mocks.mockedAccountsDao, times(1)).getAccount(account.getSid());
+        verify(mocks.mockedProfilesDao, times(1)).getProfile(expectedProfile.getSid());
+        assertEquals(9, mocks.profileService.getEffectiveProfileCacheStats().hitCount());
+        assertEquals(1, mocks.profileService.getEffectiveProfileCacheStats().missCount());
+        final Map<String, Integer> countersMap = new HashMap<String, Integer>();
+        mocks.profileService.putStatistics(countersMap, new HashMap<String, Double>());
+        assertEquals(Integer.valueOf(9), countersMap.get(ProfileServiceImpl.COUNTERS_MAP_PROFILE_CACHE_HITS));
+        assertEquals(Integer.valueOf(1), countersMap.get(ProfileServiceImpl.COUNTERS_MAP_PROFILE_CACHE_MISSES));
+        assertEquals(Integer.valueOf(0), countersMap.get(ProfileServiceImpl.COUNTERS_MAP_PROFILE_CACHE_EVICTIONS));
+    }
+
+    /**
+     * a new association is visible once cached profiles are invalidated
+     * @throws SQLException
+     */
+    @Test
+    public void retrieveEffectiveProfileByAccountSidAfterInvalidation() throws SQLException {
+        MockingService mocks = new MockingService();
+        Account account = returnValidAccount(mocks);
+        returnDefaultProfile(mocks);
+        assertEquals(Profile.DEFAULT_PROFILE_SID, mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getSid());
+        Profile expectedProfile = returnProfile(mocks);
+        returnProfileAssociation(new Sid(expectedProfile.getSid()), account.getSid(), mocks);
+        assertEquals(Profile.DEFAULT_PROFILE_SID, mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getSid());
+        mocks.profileService.invalidateCachedProfiles();
+        assertEquals(expectedProfile.getSid(), mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getSid());
+    }
+
+    /**
+     * an updated profile is visible once the profile is invalidated, other profiles stay cached
+     * @throws SQLException
+     */
+    @Test
+    public void retrieveEffectiveProfileAfterProfileUpdate() throws SQLException {
+        MockingService mocks = new MockingService();
+        Account account = returnValidAccount(mocks);
+        Profile profile = new Profile(Sid.generate(Sid.Type.PROFILE).toString(), "{\"featureEnablement\":{}}", null, null);
+        when(mocks.mockedProfilesDao.getProfile(profile.getSid())).thenReturn(profile);
+        returnProfileAssociation(new Sid(profile.getSid()), account.getSid(), mocks);
+        Account otherAccount = returnValidAccount(mocks);
+        returnDefaultProfile(mocks);
+
+        assertEquals(profile.getProfileDocument(), mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getProfileDocument());
+        mocks.profileService.retrieveEffectiveProfileByAccountSid(otherAccount.getSid());
+
+        when(mocks.mockedProfilesDao.getProfile(profile.getSid())).thenReturn(profile.setProfileDocument("{}"));
+        assertEquals(profile.getProfileDocument(), mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getProfileDocument());
+        mocks.profileService.invalidateCachedProfile(profile.getSid());
+        assertEquals("{}", mocks.profileService.retrieveEffectiveProfileByAccountSid(account.getSid()).getProfileDocument());
+        mocks.profileService.retrieveEffectiveProfileByAccountSid(otherAccount.getSid());
+        // resolved once, walking the hierarchy reads the account twice
+        verify(mocks.mockedAccountsDao, times(2)).getAccount(otherAccount.getSid());
+    }
+
+    /**
+     * with a TTL of 0 every call reads the database
+     * @throws SQLException
+     */
+    @Test
+    public void retrieveEffectiveProfileByAccountSidWithoutCache() throws SQLException {
+        MockingService mocks = new MockingService();
+        ProfileService profileService = new ProfileServiceImpl(mocks.mockedDaoManager, 0);
+        Account account = returnValidAccount(mocks);
+        returnDefaultProfile(mocks);
+        profileService.retrieveEffectiveProfileByAccountSid(account.getSid());
+        profileService.retrieveEffectiveProfileByAccountSid(account.getSid());
+        verify(mocks.mockedProfilesDao, times(2)).getProfile(Profile.DEFAULT_PROFILE_SID);
+    }
+
     private Account returnValidAccount(MockingService mocks ) {
     	Sid organizationSid = Sid.generate(Sid.Type.ORGANIZATION);
     	
@@ -373,7 +458,7 @@ public class ProfileServiceTest {
         AccountsDao mockedAccountsDao = Mockito.mock(AccountsDao.class);
         ProfilesDao mockedProfilesDao = Mockito.mock(ProfilesDao.class);
         ProfileAssociationsDao mockedProfileAssociationsDao = Mockito.mock(ProfileAssociationsDao.class);
-        ProfileService profileService;
+        ProfileServiceImpl profileService;
         
         public MockingService() {
             when(mockedServletContext.getAttribute(DaoManager.class.getName())).
@@ -73,6 +73,11 @@ public interface CallDetailRecordsDao {
 
     void updateCallDetailRecord(CallDetailRecord cdr);
 
+    /**
+     * Sets the media server of a call without touching the rest of the record.
+     */
+    void updateCallDetailRecordMsId(Sid sid, String msId);
+
     void updateInCompleteCallDetailRecordsToCompletedByInstanceId(Sid instanceId);
 
     // Support for filtering of calls list result, Issue 153
@@ -19,8 +19,11 @@
  */
 package org.restcomm.connect.dao;
 
+import java.util.List;
+
 import org.restcomm.connect.commons.Configurable;
 import org.restcomm.connect.commons.LifeCycle;
+import org.restcomm.connect.commons.StatisticsSource;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -78,4 +81,8 @@ public interface DaoManager extends Configurable, LifeCycle {
 
     ProfilesDao getProfilesDao();
 
+    /**
+     * @return the statistics of the DAOs built on start, published by the MonitoringService.
+     */
+    List<StatisticsSource> getStatisticsSources();
 }
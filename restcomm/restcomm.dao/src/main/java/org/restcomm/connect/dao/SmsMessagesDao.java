@@ -48,6 +48,11 @@ public interface SmsMessagesDao {
 
     void updateSmsMessage(SmsMessage smsMessage);
 
+    /**
+     * Updates several messages with a single commit.
+     */
+    void updateSmsMessages(List<SmsMessage> smsMessages);
+
     int getSmsMessagesPerAccountLastPerMinute(String accountSid) throws ParseException;
 
     // Support for filtering of message list result, Issue 1395
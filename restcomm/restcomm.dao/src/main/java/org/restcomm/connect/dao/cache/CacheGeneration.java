@@ -0,0 +1,61 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+import com.google.common.cache.Cache;
+
+/**
+ * Write counter of a caching DAO, closes the race between a read-through and a concurrent write. A
+ * reader takes the generation before loading from the database and caches the value with
+ * {@link #put(Cache, Object, Object, long)}. A writer advances the generation after the database write
+ * and before invalidating. Whatever the interleaving, a value loaded before the write is either never
+ * cached or invalidated again by its reader.
+ */
+@ThreadSafe
+final class CacheGeneration {
+    private final AtomicLong generation;
+
+    CacheGeneration() {
+        super();
+        this.generation = new AtomicLong();
+    }
+
+    long get() {
+        return generation.get();
+    }
+
+    void advance() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Caches a value loaded under the given generation, unless a write happened since.
+     */
+    <K, V> void put(final Cache<K, V> cache, final K key, final V value, final long loadedAt) {
+        cache.put(key, value);
+        if (generation.get() != loadedAt) {
+            cache.invalidate(key);
+        }
+    }
+}
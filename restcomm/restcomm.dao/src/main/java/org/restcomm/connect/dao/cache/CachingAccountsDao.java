@@ -0,0 +1,191 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.AccountsDao;
+import org.restcomm.connect.dao.entities.Account;
+import org.restcomm.connect.dao.exceptions.AccountHierarchyDepthCrossed;
+
+import com.google.common.cache.Cache;
+
+/**
+ * Read-through cache for {@link Account} lookups by sid and by name, and for account lineages. Entries
+ * are invalidated when the account is added, or when it or for lineages one of its ancestors is updated
+ * or removed through this DAO. Cached lineages are shared and cannot be modified.
+ */
+@ThreadSafe
+public final class CachingAccountsDao implements AccountsDao {
+    private final AccountsDao delegate;
+    private final Cache<Sid, Account> accountsBySid;
+    private final Cache<String, Account> accountsByName;
+    // Ancestors of an account, keyed by the account sid.
+    private final Cache<Sid, List<String>> lineages;
+    private final CacheGeneration generation;
+
+    public CachingAccountsDao(final AccountsDao delegate, final Cache<Sid, Account> accountsBySid,
+            final Cache<String, Account> accountsByName, final Cache<Sid, List<String>> lineages) {
+        super();
+        this.delegate = delegate;
+        this.accountsBySid = accountsBySid;
+        this.accountsByName = accountsByName;
+        this.lineages = lineages;
+        this.generation = new CacheGeneration();
+    }
+
+    @Override
+    public void addAccount(final Account account) {
+        delegate.addAccount(account);
+        generation.advance();
+        invalidate(account.getSid());
+        // A name lookup tries the friendly name, then the email address, then the sid.
+        accountsByName.invalidate(account.getSid().toString());
+        if (account.getFriendlyName() != null) {
+            accountsByName.invalidate(account.getFriendlyName());
+        }
+        if (account.getEmailAddress() != null) {
+            accountsByName.invalidate(account.getEmailAddress());
+        }
+    }
+
+    @Override
+    public Account getAccount(final Sid sid) {
+        Account account = accountsBySid.getIfPresent(sid);
+        if (account == null) {
+            final long loadedAt = generation.get();
+            account = delegate.getAccount(sid);
+            if (account != null) {
+                generation.put(accountsBySid, sid, account, loadedAt);
+            }
+        }
+        return account;
+    }
+
+    @Override
+    public Account getAccount(final String name) {
+        Account account = accountsByName.getIfPresent(name);
+        if (account == null) {
+            final long loadedAt = generation.get();
+            account = delegate.getAccount(name);
+            if (account != null) {
+                generation.put(accountsByName, name, account, loadedAt);
+            }
+        }
+        return account;
+    }
+
+    @Override
+    public Account getAccountToAuthenticate(final String name) {
+        return delegate.getAccountToAuthenticate(name);
+    }
+
+    @Override
+    public List<Account> getChildAccounts(final Sid parentSid) {
+        return delegate.getChildAccounts(parentSid);
+    }
+
+    @Override
+    public void removeAccount(final Sid sid) {
+        delegate.removeAccount(sid);
+        generation.advance();
+        invalidate(sid);
+    }
+
+    @Override
+    public void updateAccount(final Account account) {
+        delegate.updateAccount(account);
+        generation.advance();
+        invalidate(account.getSid());
+        if (account.getFriendlyName() != null) {
+            accountsByName.invalidate(account.getFriendlyName());
+        }
+        if (account.getEmailAddress() != null) {
+            accountsByName.invalidate(account.getEmailAddress());
+        }
+    }
+
+    @Override
+    public List<String> getSubAccountSidsRecursive(final Sid parentAccountSid) {
+        return delegate.getSubAccountSidsRecursive(parentAccountSid);
+    }
+
+    @Override
+    public List<String> getAccountLineage(final Sid accountSid) throws AccountHierarchyDepthCrossed {
+        if (accountSid == null) {
+            return null;
+        }
+        List<String> lineage = lineages.getIfPresent(accountSid);
+        if (lineage == null) {
+            final long loadedAt = generation.get();
+            lineage = Collections.unmodifiableList(delegate.getAccountLineage(accountSid));
+            generation.put(lineages, accountSid, lineage, loadedAt);
+        }
+        return lineage;
+    }
+
+    @Override
+    public List<String> getAccountLineage(final Account account) throws AccountHierarchyDepthCrossed {
+        if (account == null) {
+            return null;
+        }
+        // The account may not be stored yet, only the lineage of its parent is cached.
+        final Sid parentSid = account.getParentSid();
+        if (parentSid == null) {
+            return Collections.emptyList();
+        }
+        final List<String> ancestors = getAccountLineage(parentSid);
+        final List<String> lineage = new ArrayList<String>(ancestors.size() + 1);
+        lineage.add(parentSid.toString());
+        lineage.addAll(ancestors);
+        return lineage;
+    }
+
+    @Override
+    public List<Account> getAccountsByOrganization(final Sid organizationSid) {
+        return delegate.getAccountsByOrganization(organizationSid);
+    }
+
+    /**
+     * Drops every cached copy of the account, whatever key it was cached under, and the lineages it is part of.
+     */
+    public void invalidate(final Sid sid) {
+        accountsBySid.invalidate(sid);
+        lineages.invalidate(sid);
+        final String ancestor = sid.toString();
+        final Iterator<List<String>> lineage = lineages.asMap().values().iterator();
+        while (lineage.hasNext()) {
+            if (lineage.next().contains(ancestor)) {
+                lineage.remove();
+            }
+        }
+        final Iterator<Account> accounts = accountsByName.asMap().values().iterator();
+        while (accounts.hasNext()) {
+            if (sid.equals(accounts.next().getSid())) {
+                accounts.remove();
+            }
+        }
+    }
+}
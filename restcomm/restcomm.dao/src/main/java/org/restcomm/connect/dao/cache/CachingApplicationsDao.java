@@ -0,0 +1,104 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.List;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.ApplicationsDao;
+import org.restcomm.connect.dao.entities.Application;
+
+import com.google.common.cache.Cache;
+
+/**
+ * Read-through cache for {@link Application} lookups by sid. Entries are invalidated when the
+ * application is added, updated or removed through this DAO.
+ */
+@ThreadSafe
+public final class CachingApplicationsDao implements ApplicationsDao {
+    private final ApplicationsDao delegate;
+    private final Cache<Sid, Application> applications;
+    private final CacheGeneration generation;
+
+    public CachingApplicationsDao(final ApplicationsDao delegate, final Cache<Sid, Application> applications) {
+        super();
+        this.delegate = delegate;
+        this.applications = applications;
+        this.generation = new CacheGeneration();
+    }
+
+    @Override
+    public void addApplication(final Application application) {
+        delegate.addApplication(application);
+        generation.advance();
+        applications.invalidate(application.getSid());
+    }
+
+    @Override
+    public Application getApplication(final Sid sid) {
+        Application application = applications.getIfPresent(sid);
+        if (application == null) {
+            final long loadedAt = generation.get();
+            application = delegate.getApplication(sid);
+            if (application != null) {
+                generation.put(applications, sid, application, loadedAt);
+            }
+        }
+        return application;
+    }
+
+    @Override
+    public Application getApplication(final String friendlyName) {
+        return delegate.getApplication(friendlyName);
+    }
+
+    @Override
+    public List<Application> getApplications(final Sid accountSid) {
+        return delegate.getApplications(accountSid);
+    }
+
+    @Override
+    public List<Application> getApplicationsWithNumbers(final Sid accountSid) {
+        return delegate.getApplicationsWithNumbers(accountSid);
+    }
+
+    @Override
+    public void removeApplication(final Sid sid) {
+        delegate.removeApplication(sid);
+        generation.advance();
+        applications.invalidate(sid);
+    }
+
+    @Override
+    public void removeApplications(final Sid accountSid) {
+        delegate.removeApplications(accountSid);
+        generation.advance();
+        // Account wide removals are rare, not worth tracking which applications belong to the account.
+        applications.invalidateAll();
+    }
+
+    @Override
+    public void updateApplication(final Application application) {
+        delegate.updateApplication(application);
+        generation.advance();
+        applications.invalidate(application.getSid());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.ClientsDao;
+import org.restcomm.connect.dao.entities.Client;
+
+import com.google.common.cache.Cache;
+
+/**
+ * Read-through cache for {@link Client} lookups by sid and by login within an organization. Entries
+ * are invalidated when a client is added, updated or removed through this DAO.
+ */
+@ThreadSafe
+public final class CachingClientsDao implements ClientsDao {
+    private final ClientsDao delegate;
+    private final Cache<Sid, Client> clientsBySid;
+    private final Cache<String, Client> clientsByLogin;
+    private final CacheGeneration generation;
+
+    public CachingClientsDao(final ClientsDao delegate, final Cache<Sid, Client> clientsBySid,
+            final Cache<String, Client> clientsByLogin) {
+        super();
+        this.delegate = delegate;
+        this.clientsBySid = clientsBySid;
+        this.clientsByLogin = clientsByLogin;
+        this.generation = new CacheGeneration();
+    }
+
+    @Override
+    public void addClient(final Client client) {
+        delegate.addClient(client);
+        generation.advance();
+        invalidate(client.getSid());
+        final String prefix = client.getLogin() + "@";
+        final Iterator<String> logins = clientsByLogin.asMap().keySet().iterator();
+        while (logins.hasNext()) {
+            if (logins.next().startsWith(prefix)) {
+                logins.remove();
+            }
+        }
+    }
+
+    @Override
+    public Client getClient(final Sid sid) {
+        Client client = clientsBySid.getIfPresent(sid);
+        if (client == null) {
+            final long loadedAt = generation.get();
+            client = delegate.getClient(sid);
+            if (client != null) {
+                generation.put(clientsBySid, sid, client, loadedAt);
+            }
+        }
+        return client;
+    }
+
+    @Override
+    public Client getClient(final String user, final Sid organizationSid) {
+        final String key = user + "@" + organizationSid;
+        Client client = clientsByLogin.getIfPresent(key);
+        if (client == null) {
+            final long loadedAt = generation.get();
+            client = delegate.getClient(user, organizationSid);
+            if (client != null) {
+                generation.put(clientsByLogin, key, client, loadedAt);
+            }
+        }
+        return client;
+    }
+
+    @Override
+    public List<Client> getClients(final Sid accountSid) {
+        return delegate.getClients(accountSid);
+    }
+
+    @Override
+    public List<Client> getAllClients() {
+        return delegate.getAllClients();
+    }
+
+    @Override
+    public List<Client> getClientsByOrg(final Sid organizationSid) {
+        return delegate.getClientsByOrg(organizationSid);
+    }
+
+    @Override
+    public void removeClient(final Sid sid) {
+        delegate.removeClient(sid);
+        generation.advance();
+        invalidate(sid);
+    }
+
+    @Override
+    public void removeClients(final Sid accountSid) {
+        delegate.removeClients(accountSid);
+        generation.advance();
+        clientsBySid.invalidateAll();
+        clientsByLogin.invalidateAll();
+    }
+
+    @Override
+    public void updateClient(final Client client) {
+        delegate.updateClient(client);
+        generation.advance();
+        invalidate(client.getSid());
+    }
+
+    /**
+     * Drops every cached copy of the client, whatever key it was cached under.
+     */
+    public void invalidate(final Sid sid) {
+        clientsBySid.invalidate(sid);
+        final Iterator<Client> clients = clientsByLogin.asMap().values().iterator();
+        while (clients.hasNext()) {
+            if (sid.equals(clients.next().getSid())) {
+                clients.remove();
+            }
+        }
+    }
+}
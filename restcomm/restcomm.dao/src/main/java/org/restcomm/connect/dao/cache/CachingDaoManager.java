@@ -0,0 +1,344 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.commons.util.StatisticsUtils;
+import org.restcomm.connect.dao.AccountsDao;
+import org.restcomm.connect.dao.AnnouncementsDao;
+import org.restcomm.connect.dao.ApplicationsDao;
+import org.restcomm.connect.dao.AvailablePhoneNumbersDao;
+import org.restcomm.connect.dao.CallDetailRecordsDao;
+import org.restcomm.connect.dao.ClientsDao;
+import org.restcomm.connect.dao.ConferenceDetailRecordsDao;
+import org.restcomm.connect.dao.DaoManager;
+import org.restcomm.connect.dao.ExtensionsConfigurationDao;
+import org.restcomm.connect.dao.GatewaysDao;
+import org.restcomm.connect.dao.GeolocationDao;
+import org.restcomm.connect.dao.HttpCookiesDao;
+import org.restcomm.connect.dao.IncomingPhoneNumbersDao;
+import org.restcomm.connect.dao.InstanceIdDao;
+import org.restcomm.connect.dao.MediaResourceBrokerDao;
+import org.restcomm.connect.dao.MediaServersDao;
+import org.restcomm.connect.dao.NotificationsDao;
+import org.restcomm.connect.dao.OrganizationsDao;
+import org.restcomm.connect.dao.OutgoingCallerIdsDao;
+import org.restcomm.connect.dao.ProfileAssociationsDao;
+import org.restcomm.connect.dao.ProfilesDao;
+import org.restcomm.connect.dao.RecordingsDao;
+import org.restcomm.connect.dao.RegistrationsDao;
+import org.restcomm.connect.dao.ShortCodesDao;
+import org.restcomm.connect.dao.SmsMessagesDao;
+import org.restcomm.connect.dao.TranscriptionsDao;
+import org.restcomm.connect.dao.UsageDao;
+import org.restcomm.connect.dao.entities.Account;
+import org.restcomm.connect.dao.entities.Application;
+import org.restcomm.connect.dao.entities.Client;
+import org.restcomm.connect.dao.entities.Organization;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * DaoManager decorator that puts a bounded, time limited read-through cache in front of the account,
+ * application, client and organization lookups performed while setting up every call. Updates and
+ * removals done through the returned DAOs invalidate the affected entries, changes made by other
+ * cluster nodes become visible once the entry expires. Optionally incoming phone numbers are kept
+ * in an in-memory index, see {@link IndexedIncomingPhoneNumbersDao}. The hits, misses and evictions
+ * of every cache are published by the MonitoringService.
+ * <p>
+ * Enabled in dao-manager.xml:
+ * <pre>
+ * &lt;cache enabled="true"&gt;
+ *     &lt;max-size&gt;10000&lt;/max-size&gt;
+ *     &lt;ttl&gt;60&lt;/ttl&gt;
+ *     &lt;number-index&gt;false&lt;/number-index&gt;
+ *     &lt;number-index-reload&gt;60&lt;/number-index-reload&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ */
+@ThreadSafe
+public final class CachingDaoManager implements DaoManager, StatisticsSource {
+    // Keyed by one of the prefixes below followed by the cache name, e.g. DaoCacheHitsAccountsBySid.
+    public static final String COUNTERS_MAP_DAO_CACHE_HITS = "DaoCacheHits";
+    public static final String COUNTERS_MAP_DAO_CACHE_MISSES = "DaoCacheMisses";
+    public static final String COUNTERS_MAP_DAO_CACHE_EVICTIONS = "DaoCacheEvictions";
+
+    private final DaoManager delegate;
+    private long maxSize;
+    private long ttl;
+    private boolean numberIndex;
+    private long numberIndexReload;
+
+    private Cache<Sid, Account> accountsBySid;
+    private Cache<String, Account> accountsByName;
+    private Cache<Sid, List<String>> accountLineages;
+    private Cache<Sid, Application> applications;
+    private Cache<Sid, Client> clientsBySid;
+    private Cache<String, Client> clientsByLogin;
+    private Cache<Sid, Organization> organizationsBySid;
+    private Cache<String, Organization> organizationsByDomain;
+
+    private CachingAccountsDao accountsDao;
+    private CachingApplicationsDao applicationsDao;
+    private CachingClientsDao clientsDao;
+    private CachingOrganizationsDao organizationsDao;
+    private IncomingPhoneNumbersDao incomingPhoneNumbersDao;
+
+    public CachingDaoManager(final DaoManager delegate) {
+        super();
+        this.delegate = delegate;
+        this.maxSize = 10000;
+        this.ttl = 60;
+        this.numberIndexReload = 60;
+    }
+
+    @Override
+    public void configure(final Configuration configuration, final Configuration daoManagerConfiguration) {
+        delegate.configure(configuration, daoManagerConfiguration);
+        final Configuration cache = daoManagerConfiguration.subset("dao-manager.cache");
+        maxSize = cache.getLong("max-size", maxSize);
+        ttl = cache.getLong("ttl", ttl);
+        numberIndex = cache.getBoolean("number-index", false);
+        numberIndexReload = cache.getLong("number-index-reload", numberIndexReload);
+    }
+
+    @Override
+    public void start() throws RuntimeException {
+        delegate.start();
+        accountsBySid = newCache();
+        accountsByName = newCache();
+        accountLineages = newCache();
+        applications = newCache();
+        clientsBySid = newCache();
+        clientsByLogin = newCache();
+        organizationsBySid = newCache();
+        organizationsByDomain = newCache();
+        accountsDao = new CachingAccountsDao(delegate.getAccountsDao(), accountsBySid, accountsByName, accountLineages);
+        applicationsDao = new CachingApplicationsDao(delegate.getApplicationsDao(), applications);
+        clientsDao = new CachingClientsDao(delegate.getClientsDao(), clientsBySid, clientsByLogin);
+        organizationsDao = new CachingOrganizationsDao(delegate.getOrganizationsDao(), organizationsBySid, organizationsByDomain);
+        if (numberIndex) {
+            incomingPhoneNumbersDao = new IndexedIncomingPhoneNumbersDao(delegate.getIncomingPhoneNumbersDao(), numberIndexReload);
+        } else {
+            incomingPhoneNumbersDao = delegate.getIncomingPhoneNumbersDao();
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        if (incomingPhoneNumbersDao instanceof IndexedIncomingPhoneNumbersDao) {
+            ((IndexedIncomingPhoneNumbersDao) incomingPhoneNumbersDao).shutdown();
+        }
+        delegate.shutdown();
+    }
+
+    private <K, V> Cache<K, V> newCache() {
+        return CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl, TimeUnit.SECONDS).recordStats().build();
+    }
+
+    /**
+     * @return hit/miss/eviction statistics of every cache, keyed by cache name.
+     */
+    public Map<String, CacheStats> getStatistics() {
+        final Map<String, CacheStats> statistics = new LinkedHashMap<String, CacheStats>();
+        statistics.put("AccountsBySid", accountsBySid.stats());
+        statistics.put("AccountsByName", accountsByName.stats());
+        statistics.put("AccountLineages", accountLineages.stats());
+        statistics.put("Applications", applications.stats());
+        statistics.put("ClientsBySid", clientsBySid.stats());
+        statistics.put("ClientsByLogin", clientsByLogin.stats());
+        statistics.put("OrganizationsBySid", organizationsBySid.stats());
+        statistics.put("OrganizationsByDomain", organizationsByDomain.stats());
+        return statistics;
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        for (final Map.Entry<String, CacheStats> entry : getStatistics().entrySet()) {
+            final CacheStats stats = entry.getValue();
+            countersMap.put(COUNTERS_MAP_DAO_CACHE_HITS + entry.getKey(), StatisticsUtils.counter(stats.hitCount()));
+            countersMap.put(COUNTERS_MAP_DAO_CACHE_MISSES + entry.getKey(), StatisticsUtils.counter(stats.missCount()));
+            countersMap.put(COUNTERS_MAP_DAO_CACHE_EVICTIONS + entry.getKey(), StatisticsUtils.counter(stats.evictionCount()));
+        }
+    }
+
+    /**
+     * Drops every cached entity, e.g. after the database was modified outside of Restcomm.
+     */
+    public void invalidateAll() {
+        accountsBySid.invalidateAll();
+        accountsByName.invalidateAll();
+        accountLineages.invalidateAll();
+        applications.invalidateAll();
+        clientsBySid.invalidateAll();
+        clientsByLogin.invalidateAll();
+        organizationsBySid.invalidateAll();
+        organizationsByDomain.invalidateAll();
+    }
+
+    @Override
+    public AccountsDao getAccountsDao() {
+        return accountsDao;
+    }
+
+    @Override
+    public ApplicationsDao getApplicationsDao() {
+        return applicationsDao;
+    }
+
+    @Override
+    public AnnouncementsDao getAnnouncementsDao() {
+        return delegate.getAnnouncementsDao();
+    }
+
+    @Override
+    public AvailablePhoneNumbersDao getAvailablePhoneNumbersDao() {
+        return delegate.getAvailablePhoneNumbersDao();
+    }
+
+    @Override
+    public CallDetailRecordsDao getCallDetailRecordsDao() {
+        return delegate.getCallDetailRecordsDao();
+    }
+
+    @Override
+    public ConferenceDetailRecordsDao getConferenceDetailRecordsDao() {
+        return delegate.getConferenceDetailRecordsDao();
+    }
+
+    @Override
+    public ClientsDao getClientsDao() {
+        return clientsDao;
+    }
+
+    @Override
+    public HttpCookiesDao getHttpCookiesDao() {
+        return delegate.getHttpCookiesDao();
+    }
+
+    @Override
+    public IncomingPhoneNumbersDao getIncomingPhoneNumbersDao() {
+        return incomingPhoneNumbersDao;
+    }
+
+    @Override
+    public NotificationsDao getNotificationsDao() {
+        return delegate.getNotificationsDao();
+    }
+
+    @Override
+    public OutgoingCallerIdsDao getOutgoingCallerIdsDao() {
+        return delegate.getOutgoingCallerIdsDao();
+    }
+
+    @Override
+    public RegistrationsDao getRegistrationsDao() {
+        return delegate.getRegistrationsDao();
+    }
+
+    @Override
+    public RecordingsDao getRecordingsDao() {
+        return delegate.getRecordingsDao();
+    }
+
+    @Override
+    public ShortCodesDao getShortCodesDao() {
+        return delegate.getShortCodesDao();
+    }
+
+    @Override
+    public SmsMessagesDao getSmsMessagesDao() {
+        return delegate.getSmsMessagesDao();
+    }
+
+    @Override
+    public UsageDao getUsageDao() {
+        return delegate.getUsageDao();
+    }
+
+    @Override
+    public TranscriptionsDao getTranscriptionsDao() {
+        return delegate.getTranscriptionsDao();
+    }
+
+    @Override
+    public GatewaysDao getGatewaysDao() {
+        return delegate.getGatewaysDao();
+    }
+
+    @Override
+    public InstanceIdDao getInstanceIdDao() {
+        return delegate.getInstanceIdDao();
+    }
+
+    @Override
+    public MediaServersDao getMediaServersDao() {
+        return delegate.getMediaServersDao();
+    }
+
+    @Override
+    public MediaResourceBrokerDao getMediaResourceBrokerDao() {
+        return delegate.getMediaResourceBrokerDao();
+    }
+
+    @Override
+    public ExtensionsConfigurationDao getExtensionsConfigurationDao() {
+        return delegate.getExtensionsConfigurationDao();
+    }
+
+    @Override
+    public GeolocationDao getGeolocationDao() {
+        return delegate.getGeolocationDao();
+    }
+
+    @Override
+    public ProfileAssociationsDao getProfileAssociationsDao() {
+        return delegate.getProfileAssociationsDao();
+    }
+
+    @Override
+    public OrganizationsDao getOrganizationsDao() {
+        return organizationsDao;
+    }
+
+    @Override
+    public ProfilesDao getProfilesDao() {
+        return delegate.getProfilesDao();
+    }
+
+    @Override
+    public List<StatisticsSource> getStatisticsSources() {
+        final List<StatisticsSource> statisticsSources = new ArrayList<StatisticsSource>(delegate.getStatisticsSources());
+        statisticsSources.add(this);
+        return Collections.unmodifiableList(statisticsSources);
+    }
+}
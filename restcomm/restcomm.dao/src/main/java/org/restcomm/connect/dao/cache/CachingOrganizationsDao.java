@@ -0,0 +1,116 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.OrganizationsDao;
+import org.restcomm.connect.dao.entities.Organization;
+
+import com.google.common.cache.Cache;
+
+/**
+ * Read-through cache for {@link Organization} lookups by sid and by domain name. Entries are
+ * invalidated when an organization is added or updated through this DAO.
+ */
+@ThreadSafe
+public final class CachingOrganizationsDao implements OrganizationsDao {
+    private final OrganizationsDao delegate;
+    private final Cache<Sid, Organization> organizationsBySid;
+    private final Cache<String, Organization> organizationsByDomain;
+    private final CacheGeneration generation;
+
+    public CachingOrganizationsDao(final OrganizationsDao delegate, final Cache<Sid, Organization> organizationsBySid,
+            final Cache<String, Organization> organizationsByDomain) {
+        super();
+        this.delegate = delegate;
+        this.organizationsBySid = organizationsBySid;
+        this.organizationsByDomain = organizationsByDomain;
+        this.generation = new CacheGeneration();
+    }
+
+    @Override
+    public void addOrganization(final Organization organization) {
+        delegate.addOrganization(organization);
+        generation.advance();
+        invalidate(organization.getSid());
+        organizationsByDomain.invalidate(organization.getDomainName());
+    }
+
+    @Override
+    public Organization getOrganization(final Sid sid) {
+        Organization organization = organizationsBySid.getIfPresent(sid);
+        if (organization == null) {
+            final long loadedAt = generation.get();
+            organization = delegate.getOrganization(sid);
+            if (organization != null) {
+                generation.put(organizationsBySid, sid, organization, loadedAt);
+            }
+        }
+        return organization;
+    }
+
+    @Override
+    public Organization getOrganizationByDomainName(final String domainName) {
+        Organization organization = organizationsByDomain.getIfPresent(domainName);
+        if (organization == null) {
+            final long loadedAt = generation.get();
+            organization = delegate.getOrganizationByDomainName(domainName);
+            if (organization != null) {
+                generation.put(organizationsByDomain, domainName, organization, loadedAt);
+            }
+        }
+        return organization;
+    }
+
+    @Override
+    public List<Organization> getOrganizationsByStatus(final Organization.Status status) {
+        return delegate.getOrganizationsByStatus(status);
+    }
+
+    @Override
+    public List<Organization> getAllOrganizations() {
+        return delegate.getAllOrganizations();
+    }
+
+    @Override
+    public void updateOrganization(final Organization organization) {
+        delegate.updateOrganization(organization);
+        generation.advance();
+        invalidate(organization.getSid());
+        organizationsByDomain.invalidate(organization.getDomainName());
+    }
+
+    /**
+     * Drops every cached copy of the organization, whatever key it was cached under.
+     */
+    public void invalidate(final Sid sid) {
+        organizationsBySid.invalidate(sid);
+        final Iterator<Organization> organizations = organizationsByDomain.asMap().values().iterator();
+        while (organizations.hasNext()) {
+            if (sid.equals(organizations.next().getSid())) {
+                organizations.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.IncomingPhoneNumbersDao;
+import org.restcomm.connect.dao.entities.IncomingPhoneNumber;
+import org.restcomm.connect.dao.entities.IncomingPhoneNumberFilter;
+
+/**
+ * IncomingPhoneNumbersDao that keeps every incoming phone number in memory so that inbound number
+ * resolution does not need to query the database. Numbers are indexed by their exact phone number
+ * and, for pure SIP numbers containing regex characters, by organization ordered longest first the
+ * same way the number selector evaluates them.
+ * <p>
+ * The index is loaded when the DAO is created and updated entry by entry when numbers are added,
+ * updated or removed through this DAO. Filtered queries used by the REST API are still served by the
+ * database. Changes made by other cluster nodes or directly in the database are only picked up by
+ * {@link #reload()}, which runs every <i>reloadInterval</i> seconds when one is given.
+ */
+@ThreadSafe
+public final class IndexedIncomingPhoneNumbersDao implements IncomingPhoneNumbersDao {
+    private static final Logger logger = Logger.getLogger(IndexedIncomingPhoneNumbersDao.class);
+    // Same set of characters used by getIncomingPhoneNumbersRegex in incoming-phone-numbers.xml
+    private static final String REGEX_CHARS = "*#^|.$\\[]";
+    private static final Comparator<IncomingPhoneNumber> LONGEST_FIRST = new Comparator<IncomingPhoneNumber>() {
+        @Override
+        public int compare(final IncomingPhoneNumber first, final IncomingPhoneNumber second) {
+            final int comparison = Integer.compare(second.getPhoneNumber().length(), first.getPhoneNumber().length());
+            return comparison == 0 ? first.getPhoneNumber().compareTo(second.getPhoneNumber()) : comparison;
+        }
+    };
+
+    private final IncomingPhoneNumbersDao delegate;
+    // Values are never modified once published, writers replace them.
+    private final Map<String, List<IncomingPhoneNumber>> numbers;
+    private final Map<Sid, List<IncomingPhoneNumber>> regexesByOrganization;
+    // Guarded by 'this', used by writers only.
+    private final Map<Sid, String> phoneNumbersBySid;
+    private final ScheduledExecutorService scheduler;
+
+    public IndexedIncomingPhoneNumbersDao(final IncomingPhoneNumbersDao delegate) {
+        this(delegate, 0);
+    }
+
+    /**
+     * @param reloadInterval time in seconds between two full reloads of the index, 0 to never reload.
+     */
+    public IndexedIncomingPhoneNumbersDao(final IncomingPhoneNumbersDao delegate, final long reloadInterval) {
+        super();
+        this.delegate = delegate;
+        this.numbers = new ConcurrentHashMap<String, List<IncomingPhoneNumber>>();
+        this.regexesByOrganization = new ConcurrentHashMap<Sid, List<IncomingPhoneNumber>>();
+        this.phoneNumbersBySid = new HashMap<Sid, String>();
+        reload();
+        if (reloadInterval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "IncomingPhoneNumbersIndex");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reload();
+                    } catch (final Throwable throwable) {
+                        logger.error("Could not reload the incoming phone numbers index", throwable);
+                    }
+                }
+            }, reloadInterval, reloadInterval, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Stops the periodic reload, if any.
+     */
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from the database. Lookups keep being served from the previous entries
+     * while it runs.
+     */
+    public synchronized void reload() {
+        final List<IncomingPhoneNumber> all = delegate.getIncomingPhoneNumbersByFilter(IncomingPhoneNumberFilter.Builder.builder().build());
+        final Map<String, List<IncomingPhoneNumber>> byNumber = new HashMap<String, List<IncomingPhoneNumber>>();
+        final Map<Sid, List<IncomingPhoneNumber>> byOrganization = new HashMap<Sid, List<IncomingPhoneNumber>>();
+        phoneNumbersBySid.clear();
+        for (final IncomingPhoneNumber number : all) {
+            List<IncomingPhoneNumber> entries = byNumber.get(number.getPhoneNumber());
+            if (entries == null) {
+                entries = new ArrayList<IncomingPhoneNumber>(1);
+                byNumber.put(number.getPhoneNumber(), entries);
+            }
+            entries.add(number);
+            phoneNumbersBySid.put(number.getSid(), number.getPhoneNumber());
+            if (isRegex(number)) {
+                List<IncomingPhoneNumber> regexes = byOrganization.get(number.getOrganizationSid());
+                if (regexes == null) {
+                    regexes = new ArrayList<IncomingPhoneNumber>();
+                    byOrganization.put(number.getOrganizationSid(), regexes);
+                }
+                regexes.add(number);
+            }
+        }
+        // Replace entries in place and drop the stale ones last, so a concurrent lookup never sees an empty index
+        for (final Map.Entry<String, List<IncomingPhoneNumber>> entry : byNumber.entrySet()) {
+            numbers.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        numbers.keySet().retainAll(byNumber.keySet());
+        for (final Map.Entry<Sid, List<IncomingPhoneNumber>> entry : byOrganization.entrySet()) {
+            Collections.sort(entry.getValue(), LONGEST_FIRST);
+            regexesByOrganization.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        regexesByOrganization.keySet().retainAll(byOrganization.keySet());
+        if (logger.isInfoEnabled()) {
+            logger.info("Indexed " + all.size() + " incoming phone numbers, " + byOrganization.size() + " organizations with regex numbers");
+        }
+    }
+
+    /**
+     * @return every number whose phone number is exactly the given one, in any organization.
+     */
+    public List<IncomingPhoneNumber> getIncomingPhoneNumbersByPhoneNumber(final String phoneNumber) {
+        final List<IncomingPhoneNumber> entries = numbers.get(phoneNumber);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        return entries;
+    }
+
+    /**
+     * @return the pure SIP regex numbers of the organization, longest pattern first.
+     */
+    public List<IncomingPhoneNumber> getRegexIncomingPhoneNumbers(final Sid organizationSid) {
+        final List<IncomingPhoneNumber> entries = regexesByOrganization.get(organizationSid);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        return entries;
+    }
+
+    public int size() {
+        return numbers.size();
+    }
+
+    private static boolean isRegex(final IncomingPhoneNumber number) {
+        if (number.getOrganizationSid() == null || !Boolean.TRUE.equals(number.isPureSip())) {
+            return false;
+        }
+        final String phoneNumber = number.getPhoneNumber();
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            if (REGEX_CHARS.indexOf(phoneNumber.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Reloads every row for the given phone number and rebuilds the regex lists it belongs to.
+    private synchronized void refresh(final String phoneNumber) {
+        final List<IncomingPhoneNumber> previous = getIncomingPhoneNumbersByPhoneNumber(phoneNumber);
+        final IncomingPhoneNumberFilter.Builder filterBuilder = IncomingPhoneNumberFilter.Builder.builder();
+        filterBuilder.byPhoneNumber(phoneNumber);
+        final List<IncomingPhoneNumber> current = delegate.getIncomingPhoneNumbersByFilter(filterBuilder.build());
+        for (final IncomingPhoneNumber number : previous) {
+            phoneNumbersBySid.remove(number.getSid());
+        }
+        for (final IncomingPhoneNumber number : current) {
+            phoneNumbersBySid.put(number.getSid(), phoneNumber);
+        }
+        if (current.isEmpty()) {
+            numbers.remove(phoneNumber);
+        } else {
+            numbers.put(phoneNumber, Collections.unmodifiableList(new ArrayList<IncomingPhoneNumber>(current)));
+        }
+        for (final IncomingPhoneNumber number : previous) {
+            if (isRegex(number)) {
+                replaceRegex(number.getOrganizationSid(), number.getSid(), null);
+            }
+        }
+        for (final IncomingPhoneNumber number : current) {
+            if (isRegex(number)) {
+                replaceRegex(number.getOrganizationSid(), number.getSid(), number);
+            }
+        }
+    }
+
+    private void replaceRegex(final Sid organizationSid, final Sid sid, final IncomingPhoneNumber replacement) {
+        final List<IncomingPhoneNumber> regexes = new ArrayList<IncomingPhoneNumber>(getRegexIncomingPhoneNumbers(organizationSid));
+        for (int i = regexes.size() - 1; i >= 0; i--) {
+            if (regexes.get(i).getSid().equals(sid)) {
+                regexes.remove(i);
+            }
+        }
+        if (replacement != null) {
+            regexes.add(replacement);
+            Collections.sort(regexes, LONGEST_FIRST);
+        }
+        if (regexes.isEmpty()) {
+            regexesByOrganization.remove(organizationSid);
+        } else {
+            regexesByOrganization.put(organizationSid, Collections.unmodifiableList(regexes));
+        }
+    }
+
+    @Override
+    public void addIncomingPhoneNumber(final IncomingPhoneNumber incomingPhoneNumber) {
+        delegate.addIncomingPhoneNumber(incomingPhoneNumber);
+        refresh(incomingPhoneNumber.getPhoneNumber());
+    }
+
+    @Override
+    public IncomingPhoneNumber getIncomingPhoneNumber(final Sid sid) {
+        return delegate.getIncomingPhoneNumber(sid);
+    }
+
+    @Override
+    public List<IncomingPhoneNumber> getIncomingPhoneNumbers(final Sid accountSid) {
+        return delegate.getIncomingPhoneNumbers(accountSid);
+    }
+
+    @Override
+    public List<IncomingPhoneNumber> getIncomingPhoneNumbersByFilter(final IncomingPhoneNumberFilter incomingPhoneNumberFilter) {
+        return delegate.getIncomingPhoneNumbersByFilter(incomingPhoneNumberFilter);
+    }
+
+    @Override
+    public void removeIncomingPhoneNumber(final Sid sid) {
+        delegate.removeIncomingPhoneNumber(sid);
+        final String phoneNumber;
+        synchronized (this) {
+            phoneNumber = phoneNumbersBySid.get(sid);
+        }
+        if (phoneNumber != null) {
+            refresh(phoneNumber);
+        }
+    }
+
+    @Override
+    public void removeIncomingPhoneNumbers(final Sid accountSid) {
+        delegate.removeIncomingPhoneNumbers(accountSid);
+        reload();
+    }
+
+    @Override
+    public void updateIncomingPhoneNumber(final IncomingPhoneNumber incomingPhoneNumber) {
+        delegate.updateIncomingPhoneNumber(incomingPhoneNumber);
+        final String previous;
+        synchronized (this) {
+            previous = phoneNumbersBySid.get(incomingPhoneNumber.getSid());
+        }
+        if (previous != null && !previous.equals(incomingPhoneNumber.getPhoneNumber())) {
+            refresh(previous);
+        }
+        refresh(incomingPhoneNumber.getPhoneNumber());
+    }
+
+    @Override
+    public List<IncomingPhoneNumber> getIncomingPhoneNumbersRegex(final IncomingPhoneNumberFilter incomingPhoneNumberFilter) {
+        return delegate.getIncomingPhoneNumbersRegex(incomingPhoneNumberFilter);
+    }
+
+    @Override
+    public Integer getTotalIncomingPhoneNumbers(final IncomingPhoneNumberFilter filter) {
+        return delegate.getTotalIncomingPhoneNumbers(filter);
+    }
+}
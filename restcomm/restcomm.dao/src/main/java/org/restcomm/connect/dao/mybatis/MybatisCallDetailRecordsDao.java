@@ -25,12 +25,14 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Currency;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.joda.time.DateTime;
@@ -304,6 +306,39 @@ public final class MybatisCallDetailRecordsDao implements CallDetailRecordsDao {
         }
     }
 
+    @Override
+    public void updateCallDetailRecordMsId(final Sid sid, final String msId) {
+        final Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("sid", sid.toString());
+        parameters.put("ms_id", msId);
+        final SqlSession session = sessions.openSession();
+        try {
+            session.update(namespace + "updateCallDetailRecordMsId", parameters);
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Writes a group of CDRs using a single batch session and one commit. Used by the write-behind
+     * pipeline, a CDR sid must appear at most once across both collections.
+     */
+    void writeCallDetailRecords(final Collection<CallDetailRecord> inserts, final Collection<CallDetailRecord> updates) {
+        final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+        try {
+            for (final CallDetailRecord cdr : inserts) {
+                session.insert(namespace + "addCallDetailRecord", toMap(cdr));
+            }
+            for (final CallDetailRecord cdr : updates) {
+                session.update(namespace + "updateCallDetailRecord", toMap(cdr));
+            }
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public void updateInCompleteCallDetailRecordsToCompletedByInstanceId(Sid instanceId) {
         final SqlSession session = sessions.openSession();
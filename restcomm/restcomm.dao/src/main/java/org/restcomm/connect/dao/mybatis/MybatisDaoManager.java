@@ -22,6 +22,7 @@ package org.restcomm.connect.dao.mybatis;
 import org.apache.commons.configuration.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.restcomm.connect.commons.StatisticsSource;
 import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
 import org.restcomm.connect.dao.AccountsDao;
 import org.restcomm.connect.dao.AnnouncementsDao;
@@ -54,6 +55,9 @@ import org.restcomm.connect.dao.UsageDao;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -90,10 +94,13 @@ public final class MybatisDaoManager implements DaoManager {
     private ProfileAssociationsDao profileAssociationsDao;
     private OrganizationsDao organizationsDao;
     private ProfilesDao profilesDao;
-
+    private WriteBehindCallDetailRecordsDao cdrWriteBehind;
+    private UsageRollupCompactor usageRollupCompactor;
+    private final List<StatisticsSource> statisticsSources;
 
     public MybatisDaoManager() {
         super();
+        statisticsSources = new ArrayList<StatisticsSource>();
     }
 
     @Override
@@ -232,9 +239,19 @@ public final class MybatisDaoManager implements DaoManager {
         return profilesDao;
     }
 
+    @Override
+    public List<StatisticsSource> getStatisticsSources() {
+        return Collections.unmodifiableList(statisticsSources);
+    }
+
     @Override
     public void shutdown() {
-        // Nothing to do.
+        if (cdrWriteBehind != null) {
+            cdrWriteBehind.shutdown();
+        }
+        if (usageRollupCompactor != null) {
+            usageRollupCompactor.shutdown();
+        }
     }
 
     @Override
@@ -265,7 +282,17 @@ public final class MybatisDaoManager implements DaoManager {
         applicationsDao = new MybatisApplicationsDao(sessions);
         announcementsDao = new MybatisAnnouncementsDao(sessions);
         availablePhoneNumbersDao = new MybatisAvailablePhoneNumbersDao(sessions);
-        callDetailRecordsDao = new MybatisCallDetailRecordsDao(sessions);
+        final MybatisCallDetailRecordsDao mybatisCallDetailRecordsDao = new MybatisCallDetailRecordsDao(sessions);
+        if (configuration != null && configuration.getBoolean("cdr-write-behind[@enabled]", false)) {
+            final int maxPending = configuration.getInt("cdr-write-behind.max-pending", 10000);
+            final int batchSize = configuration.getInt("cdr-write-behind.batch-size", 500);
+            final long flushInterval = configuration.getLong("cdr-write-behind.flush-interval", 200);
+            cdrWriteBehind = new WriteBehindCallDetailRecordsDao(mybatisCallDetailRecordsDao, maxPending, batchSize, flushInterval);
+            callDetailRecordsDao = cdrWriteBehind;
+            statisticsSources.add(cdrWriteBehind);
+        } else {
+            callDetailRecordsDao = mybatisCallDetailRecordsDao;
+        }
         conferenceDetailRecordsDao = new MybatisConferenceDetailRecordsDao(sessions);
         clientsDao = new MybatisClientsDao(sessions);
         httpCookiesDao = new MybatisHttpCookiesDao(sessions);
@@ -276,7 +303,16 @@ public final class MybatisDaoManager implements DaoManager {
         recordingsDao = new MybatisRecordingsDao(sessions);
         shortCodesDao = new MybatisShortCodesDao(sessions);
         smsMessagesDao = new MybatisSmsMessagesDao(sessions);
-        usageDao = new MybatisUsageDao(sessions);
+        if (configuration != null && configuration.getBoolean("usage-rollup[@enabled]", false)) {
+            final MybatisUsageDao mybatisUsageDao = new MybatisUsageDao(sessions, true);
+            final long interval = configuration.getLong("usage-rollup.interval", 300);
+            final int reopenDays = configuration.getInt("usage-rollup.reopen-days", 1);
+            usageRollupCompactor = new UsageRollupCompactor(mybatisUsageDao, interval, reopenDays);
+            statisticsSources.add(usageRollupCompactor);
+            usageDao = mybatisUsageDao;
+        } else {
+            usageDao = new MybatisUsageDao(sessions);
+        }
         transcriptionsDao = new MybatisTranscriptionsDao(sessions);
         gatewaysDao = new MybatisGatewaysDao(sessions);
         instanceIdDao = new MybatisInstanceIdDao(sessions);
@@ -19,6 +19,7 @@
  */
 package org.restcomm.connect.dao.mybatis;
 
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.joda.time.DateTime;
@@ -192,6 +193,19 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
         }
     }
 
+    @Override
+    public void updateSmsMessages(final List<SmsMessage> smsMessages) {
+        final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+        try {
+            for (final SmsMessage smsMessage : smsMessages) {
+                session.update(namespace + "updateSmsMessage", toMap(smsMessage));
+            }
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public int getSmsMessagesPerAccountLastPerMinute(String accountSid) throws ParseException {
         SimpleDateFormat formatter= new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -40,42 +40,101 @@ import java.util.Locale;
 import java.util.Map;
 
 /**
+ * When rollups are enabled usage is read from the restcomm_usage_daily table, holding per account
+ * daily totals of calls and SMS messages, instead of aggregating every record on each request.
+ * The table is rebuilt from the records by {@link #updateRollups(int)}.
+ *
  * @author brainslog@gmail.com (Alexandre Mendonca)
  */
 @ThreadSafe
 public final class MybatisUsageDao implements UsageDao {
 
   private static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.UsageDao.";
+  private static final String CALLS = "calls";
+  private static final String SMS = "sms";
   private final SqlSessionFactory sessions;
+  private final boolean rollups;
 
   public MybatisUsageDao(final SqlSessionFactory sessions) {
+    this(sessions, false);
+  }
+
+  public MybatisUsageDao(final SqlSessionFactory sessions, final boolean rollups) {
     super();
     this.sessions = sessions;
+    this.rollups = rollups;
+  }
+
+  /**
+   * Recomputes the daily rollups of calls and SMS messages, starting <i>reopenDays</i> days before the
+   * last day already rolled up so that records completed or updated late are accounted for. Every
+   * record is rolled up when the table holds no rollup yet.
+   * <p>
+   * The instances of a cluster share the table, the update is skipped while another instance runs it.
+   *
+   * @return false if another instance was updating the rollups.
+   */
+  public boolean updateRollups(final int reopenDays) {
+    final SqlSession lock = sessions.openSession();
+    try {
+      final Integer locked = lock.selectOne(namespace + "lockRollups");
+      if (locked == null || locked != 1) {
+        return false;
+      }
+      try {
+        updateRollups(Usage.Category.CALLS, reopenDays);
+        updateRollups(Usage.Category.SMS, reopenDays);
+      } finally {
+        lock.selectOne(namespace + "unlockRollups");
+      }
+      return true;
+    } finally {
+      lock.close();
+    }
+  }
+
+  private void updateRollups(final Usage.Category category, final int reopenDays) {
+    final SqlSession session = sessions.openSession();
+    final Map<String, Object> params = new HashMap<String, Object>();
+    fillParametersByCategory(category, params);
+    try {
+      final java.util.Date last = session.selectOne(namespace + "getLastRollupDate", params);
+      params.put("from", last == null ? null : new Date(new DateTime(last).minusDays(reopenDays).getMillis()));
+      session.delete(namespace + "removeRollups", params);
+      session.insert(namespace + "addRollups", params);
+      session.commit();
+    } finally {
+      session.close();
+    }
   }
 
   @Override
   public List<Usage> getUsage(final Sid accountSid, String uri) {
-    return getUsageCalls(accountSid, null, null, null, uri, "getAllTimeCalls");
+    return getUsageCalls(accountSid, null, null, null, uri, query("AllTime"));
   }
 
   @Override
   public List<Usage> getUsageDaily(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, String uri) {
-    return getUsageCalls(accountSid, category, startDate, endDate, uri, "getDailyCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, uri, query("Daily"));
   }
 
   @Override
   public List<Usage> getUsageMonthly(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, String uri) {
-    return getUsageCalls(accountSid, category, startDate, endDate, uri, "getMonthlyCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, uri, query("Monthly"));
   }
 
   @Override
   public List<Usage> getUsageYearly(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, String uri) {
-    return getUsageCalls(accountSid, category, startDate, endDate, uri, "getYearlyCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, uri, query("Yearly"));
   }
 
   @Override
   public List<Usage> getUsageAllTime(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, String uri) {
-    return getUsageCalls(accountSid, category, startDate, endDate, uri, "getAllTimeCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, uri, query("AllTime"));
+  }
+
+  private String query(final String period) {
+    return "get" + period + (rollups ? "Rollups" : "Calls");
   }
 
   @Override
@@ -184,6 +243,8 @@ public final class MybatisUsageDao implements UsageDao {
       case CALLS_CLIENT:
       case CALLS_SIP:
         params.put("tableName", "restcomm_call_detail_records");
+        params.put("usageType", CALLS);
+        params.put("durationCol", "duration");
         //NB: #1690 display duration as minutes rounded up
         params.put("usageExprPre", "COALESCE( CEIL(SUM(");
         params.put("usageExprCol", "duration");
@@ -197,8 +258,11 @@ public final class MybatisUsageDao implements UsageDao {
       case SMS_OUTBOUND_SHORTCODE:
       case SMS_OUTBOUND_LONGCODE:
         params.put("tableName", "restcomm_sms_messages");
-        params.put("usageExprPre", "COUNT(");
-        params.put("usageExprCol", "sid");
+        params.put("usageType", SMS);
+        params.put("durationCol", null);
+        params.put("usageExprPre", rollups ? "SUM(" : "COUNT(");
+        // the rollups hold the number of messages of every day
+        params.put("usageExprCol", rollups ? "count" : "sid");
         params.put("usageExprSuf", ")");
         break;
       case PHONENUMBERS:
@@ -215,6 +279,8 @@ public final class MybatisUsageDao implements UsageDao {
       case TOTALPRICE:
       default:
         params.put("tableName", "restcomm_call_detail_records");
+        params.put("usageType", CALLS);
+        params.put("durationCol", "duration");
         //NB: #1690 display duration as minutes rounded up
         params.put("usageExprPre", "COALESCE( CEIL(SUM(");
         params.put("usageExprCol", "duration");
@@ -0,0 +1,121 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.mybatis;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.util.StatisticsUtils;
+
+/**
+ * Keeps the daily usage rollups up to date from a background thread. The first run, right after start,
+ * catches up with every record created since the last rollup, the following ones every
+ * <i>interval</i> seconds only recompute the last <i>reopenDays</i> days, so usage read from the
+ * rollups lags the records by at most one interval. Every instance of a cluster runs one, a database
+ * lock lets a single one update the rollups at a time.
+ */
+@ThreadSafe
+public final class UsageRollupCompactor implements StatisticsSource {
+    public static final String COUNTERS_MAP_USAGE_ROLLUP_COMPACTIONS = "UsageRollupCompactions";
+    public static final String DURATION_MAP_USAGE_ROLLUP_LAST_COMPACTION_LATENCY_IN_MILLIS = "UsageRollupLastCompactionLatencyInMillis";
+
+    private static final Logger logger = Logger.getLogger(UsageRollupCompactor.class);
+
+    private final MybatisUsageDao usageDao;
+    private final int reopenDays;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong compactions;
+    private final AtomicLong lastCompactionLatency;
+
+    public UsageRollupCompactor(final MybatisUsageDao usageDao, final long interval, final int reopenDays) {
+        super();
+        this.usageDao = usageDao;
+        this.reopenDays = reopenDays;
+        this.compactions = new AtomicLong();
+        this.lastCompactionLatency = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "UsageRollup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (final Throwable throwable) {
+                    logger.error("Unexpected error while updating the usage rollups", throwable);
+                }
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Brings the rollups up to date, unless another instance of the cluster is doing it. Safe to call
+     * from any thread.
+     *
+     * @return false if another instance was updating the rollups.
+     */
+    public synchronized boolean compact() {
+        final long start = System.currentTimeMillis();
+        if (!usageDao.updateRollups(reopenDays)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Usage rollups are being updated by another instance");
+            }
+            return false;
+        }
+        final long latency = System.currentTimeMillis() - start;
+        compactions.incrementAndGet();
+        lastCompactionLatency.set(latency);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Usage rollups updated in " + latency + "ms");
+        }
+        return true;
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public long getLastCompactionLatency() {
+        return lastCompactionLatency.get();
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        countersMap.put(COUNTERS_MAP_USAGE_ROLLUP_COMPACTIONS, StatisticsUtils.counter(getCompactions()));
+        durationMap.put(DURATION_MAP_USAGE_ROLLUP_LAST_COMPACTION_LATENCY_IN_MILLIS, (double) getLastCompactionLatency());
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
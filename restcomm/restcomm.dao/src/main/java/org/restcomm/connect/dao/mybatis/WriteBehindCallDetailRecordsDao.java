@@ -0,0 +1,489 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.mybatis;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.commons.util.StatisticsUtils;
+import org.restcomm.connect.dao.CallDetailRecordsDao;
+import org.restcomm.connect.dao.entities.CallDetailRecord;
+import org.restcomm.connect.dao.entities.CallDetailRecordFilter;
+
+/**
+ * CallDetailRecordsDao that queues CDR inserts and updates and writes them to the database in batches
+ * from a background thread, so that the Call actors do not wait for a database round-trip on every
+ * state change.
+ * <p>
+ * Writes are coalesced per CDR sid (last writer wins), an insert followed by updates is written as a
+ * single insert of the latest state. The queue is flushed when it reaches <i>batchSize</i> entries or
+ * every <i>flushInterval</i> milliseconds. When <i>maxPending</i> is reached the caller writes through
+ * synchronously. Reads by sid are served from the queue, every other read and all removals flush the
+ * queue first so they observe the same data as the synchronous DAO.
+ * <p>
+ * The queue and flush counters are published by the MonitoringService.
+ */
+@ThreadSafe
+public final class WriteBehindCallDetailRecordsDao implements CallDetailRecordsDao, StatisticsSource {
+    public static final String COUNTERS_MAP_CDR_WRITE_BEHIND_QUEUE_DEPTH = "CdrWriteBehindQueueDepth";
+    public static final String COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHES = "CdrWriteBehindFlushes";
+    public static final String COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHED_WRITES = "CdrWriteBehindFlushedWrites";
+    public static final String COUNTERS_MAP_CDR_WRITE_BEHIND_COALESCED_WRITES = "CdrWriteBehindCoalescedWrites";
+    public static final String COUNTERS_MAP_CDR_WRITE_BEHIND_WRITE_THROUGHS = "CdrWriteBehindWriteThroughs";
+    public static final String COUNTERS_MAP_CDR_WRITE_BEHIND_DROPPED_WRITES = "CdrWriteBehindDroppedWrites";
+    public static final String DURATION_MAP_CDR_WRITE_BEHIND_LAST_FLUSH_LATENCY_IN_MILLIS = "CdrWriteBehindLastFlushLatencyInMillis";
+    public static final String DURATION_MAP_CDR_WRITE_BEHIND_MAX_FLUSH_LATENCY_IN_MILLIS = "CdrWriteBehindMaxFlushLatencyInMillis";
+    public static final String DURATION_MAP_CDR_WRITE_BEHIND_AVERAGE_FLUSH_LATENCY_IN_MILLIS = "CdrWriteBehindAverageFlushLatencyInMillis";
+
+    private static final Logger logger = Logger.getLogger(WriteBehindCallDetailRecordsDao.class);
+
+    private final MybatisCallDetailRecordsDao delegate;
+    private final int maxPending;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable flushTask;
+    private final AtomicBoolean flushScheduled;
+
+    // Guarded by 'this'.
+    private Map<Sid, PendingWrite> pending;
+    private Map<Sid, PendingWrite> inFlight;
+    // Serializes flushes and write-through so an older state never overtakes a newer one.
+    private final ReentrantLock writeLock;
+
+    private final AtomicLong flushes;
+    private final AtomicLong flushedWrites;
+    private final AtomicLong coalescedWrites;
+    private final AtomicLong writeThroughs;
+    private final AtomicLong droppedWrites;
+    private final AtomicLong lastFlushLatency;
+    private final AtomicLong maxFlushLatency;
+    private final AtomicLong totalFlushLatency;
+
+    public WriteBehindCallDetailRecordsDao(final MybatisCallDetailRecordsDao delegate, final int maxPending,
+            final int batchSize, final long flushInterval) {
+        super();
+        this.delegate = delegate;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.pending = new LinkedHashMap<Sid, PendingWrite>();
+        this.inFlight = Collections.emptyMap();
+        this.writeLock = new ReentrantLock();
+        this.flushScheduled = new AtomicBoolean(false);
+        this.flushes = new AtomicLong();
+        this.flushedWrites = new AtomicLong();
+        this.coalescedWrites = new AtomicLong();
+        this.writeThroughs = new AtomicLong();
+        this.droppedWrites = new AtomicLong();
+        this.lastFlushLatency = new AtomicLong();
+        this.maxFlushLatency = new AtomicLong();
+        this.totalFlushLatency = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "CdrWriteBehind");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.flushTask = new Runnable() {
+            @Override
+            public void run() {
+                flushScheduled.set(false);
+                try {
+                    flush();
+                } catch (final Throwable throwable) {
+                    logger.error("Unexpected error while flushing call detail records", throwable);
+                }
+            }
+        };
+        this.scheduler.scheduleWithFixedDelay(flushTask, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void addCallDetailRecord(final CallDetailRecord cdr) {
+        enqueue(cdr, true);
+    }
+
+    @Override
+    public void updateCallDetailRecord(final CallDetailRecord cdr) {
+        enqueue(cdr, false);
+    }
+
+    private void enqueue(final CallDetailRecord cdr, final boolean insert) {
+        boolean writeThrough = false;
+        boolean full = false;
+        synchronized (this) {
+            final PendingWrite previous = pending.get(cdr.getSid());
+            if (previous != null) {
+                // The media server is set apart from the call's own updates, keep it
+                previous.cdr = cdr.getMsId() == null && previous.cdr.getMsId() != null ? cdr.setMsId(previous.cdr.getMsId()) : cdr;
+                previous.insert = previous.insert || insert;
+                coalescedWrites.incrementAndGet();
+            } else if (pending.size() >= maxPending) {
+                writeThrough = true;
+            } else {
+                pending.put(cdr.getSid(), new PendingWrite(cdr, insert));
+                full = pending.size() >= batchSize;
+            }
+        }
+        if (writeThrough) {
+            writeThroughs.incrementAndGet();
+            writeLock.lock();
+            try {
+                if (insert) {
+                    delegate.addCallDetailRecord(cdr);
+                } else {
+                    delegate.updateCallDetailRecord(cdr);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } else if (full && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(flushTask);
+        }
+    }
+
+    /**
+     * Writes all the queued CDRs to the database. Safe to call from any thread.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            final Map<Sid, PendingWrite> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<Sid, PendingWrite>();
+            }
+            final long start = System.currentTimeMillis();
+            try {
+                write(batch.values());
+            } finally {
+                synchronized (this) {
+                    inFlight = Collections.emptyMap();
+                }
+            }
+            final long latency = System.currentTimeMillis() - start;
+            flushes.incrementAndGet();
+            lastFlushLatency.set(latency);
+            totalFlushLatency.addAndGet(latency);
+            if (latency > maxFlushLatency.get()) {
+                maxFlushLatency.set(latency);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void write(final Collection<PendingWrite> batch) {
+        final List<CallDetailRecord> inserts = new ArrayList<CallDetailRecord>();
+        final List<CallDetailRecord> updates = new ArrayList<CallDetailRecord>();
+        for (final PendingWrite write : batch) {
+            if (write.insert) {
+                inserts.add(write.cdr);
+            } else {
+                updates.add(write.cdr);
+            }
+        }
+        try {
+            delegate.writeCallDetailRecords(inserts, updates);
+            flushedWrites.addAndGet(batch.size());
+            return;
+        } catch (final RuntimeException exception) {
+            logger.warn("Batch write of " + batch.size() + " call detail records failed, retrying one by one", exception);
+        }
+        // Isolate the offending records so a single bad CDR does not take the whole batch with it.
+        for (final PendingWrite write : batch) {
+            try {
+                if (write.insert) {
+                    delegate.addCallDetailRecord(write.cdr);
+                } else {
+                    delegate.updateCallDetailRecord(write.cdr);
+                }
+                flushedWrites.incrementAndGet();
+            } catch (final RuntimeException exception) {
+                droppedWrites.incrementAndGet();
+                logger.error("Dropping call detail record " + write.cdr.getSid() + " after failed write", exception);
+            }
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes whatever is still queued.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public CallDetailRecord getCallDetailRecord(final Sid sid) {
+        synchronized (this) {
+            PendingWrite write = pending.get(sid);
+            if (write == null) {
+                write = inFlight.get(sid);
+            }
+            if (write != null) {
+                return write.cdr;
+            }
+        }
+        return delegate.getCallDetailRecord(sid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByAccountSid(final Sid accountSid) {
+        flush();
+        return delegate.getCallDetailRecordsByAccountSid(accountSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByRecipient(final String recipient) {
+        flush();
+        return delegate.getCallDetailRecordsByRecipient(recipient);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsBySender(final String sender) {
+        flush();
+        return delegate.getCallDetailRecordsBySender(sender);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByStatus(final String status) {
+        flush();
+        return delegate.getCallDetailRecordsByStatus(status);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByStartTime(final DateTime startTime) {
+        flush();
+        return delegate.getCallDetailRecordsByStartTime(startTime);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByEndTime(final DateTime endTime) {
+        flush();
+        return delegate.getCallDetailRecordsByEndTime(endTime);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByStarTimeAndEndTime(final DateTime endTime) {
+        flush();
+        return delegate.getCallDetailRecordsByStarTimeAndEndTime(endTime);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByParentCall(final Sid parentCallSid) {
+        flush();
+        return delegate.getCallDetailRecordsByParentCall(parentCallSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByConferenceSid(final Sid conferenceSid) {
+        flush();
+        return delegate.getCallDetailRecordsByConferenceSid(conferenceSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getRunningCallDetailRecordsByConferenceSid(final Sid conferenceSid) {
+        flush();
+        return delegate.getRunningCallDetailRecordsByConferenceSid(conferenceSid);
+    }
+
+    @Override
+    public Integer getTotalRunningCallDetailRecordsByConferenceSid(final Sid conferenceSid) {
+        flush();
+        return delegate.getTotalRunningCallDetailRecordsByConferenceSid(conferenceSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByInstanceId(final Sid instanceId) {
+        flush();
+        return delegate.getCallDetailRecordsByInstanceId(instanceId);
+    }
+
+    @Override
+    public List<CallDetailRecord> getInCompleteCallDetailRecordsByInstanceId(final Sid instanceId) {
+        flush();
+        return delegate.getInCompleteCallDetailRecordsByInstanceId(instanceId);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByMsId(final String msId) {
+        flush();
+        return delegate.getCallDetailRecordsByMsId(msId);
+    }
+
+    @Override
+    public Double getAverageCallDurationLast24Hours(final Sid instanceId) throws ParseException {
+        flush();
+        return delegate.getAverageCallDurationLast24Hours(instanceId);
+    }
+
+    @Override
+    public Double getAverageCallDurationLastHour(final Sid instanceId) throws ParseException {
+        flush();
+        return delegate.getAverageCallDurationLastHour(instanceId);
+    }
+
+    @Override
+    public void removeCallDetailRecord(final Sid sid) {
+        flush();
+        delegate.removeCallDetailRecord(sid);
+    }
+
+    @Override
+    public void removeCallDetailRecords(final Sid accountSid) {
+        flush();
+        delegate.removeCallDetailRecords(accountSid);
+    }
+
+    @Override
+    public void updateCallDetailRecordMsId(final Sid sid, final String msId) {
+        synchronized (this) {
+            final PendingWrite previous = pending.get(sid);
+            if (previous != null) {
+                previous.cdr = previous.cdr.setMsId(msId);
+                return;
+            }
+        }
+        writeLock.lock();
+        try {
+            delegate.updateCallDetailRecordMsId(sid, msId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateInCompleteCallDetailRecordsToCompletedByInstanceId(final Sid instanceId) {
+        flush();
+        delegate.updateInCompleteCallDetailRecordsToCompletedByInstanceId(instanceId);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecords(final CallDetailRecordFilter filter) {
+        flush();
+        return delegate.getCallDetailRecords(filter);
+    }
+
+    @Override
+    public Integer getTotalCallDetailRecords(final CallDetailRecordFilter filter) {
+        flush();
+        return delegate.getTotalCallDetailRecords(filter);
+    }
+
+    @Override
+    public Integer getInProgressCallsByClientName(final String client) {
+        flush();
+        return delegate.getInProgressCallsByClientName(client);
+    }
+
+    @Override
+    public Integer getInProgressCallsByAccountSid(final String accountSid) {
+        flush();
+        return delegate.getInProgressCallsByAccountSid(accountSid);
+    }
+
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getFlushedWrites() {
+        return flushedWrites.get();
+    }
+
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    public long getWriteThroughs() {
+        return writeThroughs.get();
+    }
+
+    public long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    public long getLastFlushLatency() {
+        return lastFlushLatency.get();
+    }
+
+    public long getMaxFlushLatency() {
+        return maxFlushLatency.get();
+    }
+
+    public double getAverageFlushLatency() {
+        final long count = flushes.get();
+        return count == 0 ? 0 : (double) totalFlushLatency.get() / count;
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        countersMap.put(COUNTERS_MAP_CDR_WRITE_BEHIND_QUEUE_DEPTH, getQueueDepth());
+        countersMap.put(COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHES, StatisticsUtils.counter(getFlushCount()));
+        countersMap.put(COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHED_WRITES, StatisticsUtils.counter(getFlushedWrites()));
+        countersMap.put(COUNTERS_MAP_CDR_WRITE_BEHIND_COALESCED_WRITES, StatisticsUtils.counter(getCoalescedWrites()));
+        countersMap.put(COUNTERS_MAP_CDR_WRITE_BEHIND_WRITE_THROUGHS, StatisticsUtils.counter(getWriteThroughs()));
+        countersMap.put(COUNTERS_MAP_CDR_WRITE_BEHIND_DROPPED_WRITES, StatisticsUtils.counter(getDroppedWrites()));
+        durationMap.put(DURATION_MAP_CDR_WRITE_BEHIND_LAST_FLUSH_LATENCY_IN_MILLIS, (double) getLastFlushLatency());
+        durationMap.put(DURATION_MAP_CDR_WRITE_BEHIND_MAX_FLUSH_LATENCY_IN_MILLIS, (double) getMaxFlushLatency());
+        durationMap.put(DURATION_MAP_CDR_WRITE_BEHIND_AVERAGE_FLUSH_LATENCY_IN_MILLIS, getAverageFlushLatency());
+    }
+
+    private static final class PendingWrite {
+        private CallDetailRecord cdr;
+        private boolean insert;
+
+        private PendingWrite(final CallDetailRecord cdr, final boolean insert) {
+            this.cdr = cdr;
+            this.insert = insert;
+        }
+    }
+}
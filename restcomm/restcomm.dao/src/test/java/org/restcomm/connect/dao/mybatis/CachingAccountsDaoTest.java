@@ -0,0 +1,163 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.mybatis;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.AccountsDao;
+import org.restcomm.connect.dao.cache.CachingAccountsDao;
+import org.restcomm.connect.dao.entities.Account;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+public class CachingAccountsDaoTest extends DaoTest {
+    private static MybatisDaoManager manager;
+    private Cache<Sid, Account> accountsBySid;
+    private Cache<String, Account> accountsByName;
+    private Cache<Sid, List<String>> lineages;
+    private CachingAccountsDao dao;
+
+    @Before
+    public void before() throws Exception {
+        sandboxRoot = createTempDir("cachingAccountsTest");
+        String mybatisFilesPath = getClass().getResource("/accountsDao").getFile();
+        setupSandbox(mybatisFilesPath, sandboxRoot);
+
+        String mybatisXmlPath = sandboxRoot.getPath() + "/mybatis_updated.xml";
+        final InputStream data = new FileInputStream(mybatisXmlPath);
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+        accountsBySid = CacheBuilder.newBuilder().maximumSize(100).recordStats().build();
+        accountsByName = CacheBuilder.newBuilder().maximumSize(100).recordStats().build();
+        lineages = CacheBuilder.newBuilder().maximumSize(100).recordStats().build();
+        dao = new CachingAccountsDao(manager.getAccountsDao(), accountsBySid, accountsByName, lineages);
+    }
+
+    @After
+    public void after() throws Exception {
+        manager.shutdown();
+        removeTempDir(sandboxRoot.getAbsolutePath());
+    }
+
+    @Test
+    public void repeatedLookupsAreServedFromCache() {
+        final Sid sid = new Sid("AC00000000000000000000000000000000");
+        Assert.assertNotNull(dao.getAccount(sid));
+        Assert.assertNotNull(dao.getAccount(sid));
+        Assert.assertNotNull(dao.getAccount(sid.toString()));
+        Assert.assertNotNull(dao.getAccount(sid.toString()));
+        Assert.assertEquals(2, accountsBySid.stats().hitCount() + accountsByName.stats().hitCount());
+        Assert.assertEquals(2, accountsBySid.stats().missCount() + accountsByName.stats().missCount());
+    }
+
+    @Test
+    public void updateInvalidatesEveryKey() {
+        final Sid sid = new Sid("AC00000000000000000000000000000000");
+        final Account account = dao.getAccount(sid);
+        dao.getAccount(sid.toString());
+        dao.updateAccount(account.setFriendlyName("Renamed"));
+        Assert.assertEquals(0, accountsBySid.size());
+        Assert.assertEquals(0, accountsByName.size());
+        Assert.assertEquals("Renamed", dao.getAccount(sid.toString()).getFriendlyName());
+    }
+
+    @Test
+    public void missesAreNotCached() {
+        Assert.assertNull(dao.getAccount(new Sid("AC59494830204948392023934839392092")));
+        Assert.assertEquals(0, accountsBySid.size());
+    }
+
+    @Test
+    public void lineagesAreCachedAndInvalidatedWithAncestors() throws Exception {
+        final Sid sid = new Sid("AC11100000000000000000000000000000");
+        final List<String> lineage = dao.getAccountLineage(sid);
+        Assert.assertEquals(3, lineage.size());
+        Assert.assertEquals("AC11000000000000000000000000000000", lineage.get(0));
+        Assert.assertSame(lineage, dao.getAccountLineage(sid));
+        Assert.assertEquals(1, lineages.stats().hitCount());
+        // lineage of an account built in memory is derived from the cached lineage of its parent
+        final List<String> parentLineage = dao.getAccountLineage(dao.getAccount(new Sid("AC11000000000000000000000000000000")));
+        Assert.assertEquals(2, parentLineage.size());
+
+        dao.updateAccount(dao.getAccount(new Sid("AC10000000000000000000000000000000")).setFriendlyName("Renamed"));
+        Assert.assertNull(lineages.getIfPresent(sid));
+        Assert.assertEquals(lineage, dao.getAccountLineage(sid));
+    }
+
+    @Test
+    public void readRacingAnUpdateIsNotCached() {
+        final Sid sid = new Sid("AC00000000000000000000000000000000");
+        final AccountsDao accounts = manager.getAccountsDao();
+        final CachingAccountsDao[] caching = new CachingAccountsDao[1];
+        // The update commits and invalidates after the read loaded the previous row, before it is cached.
+        final AccountsDao racing = (AccountsDao) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AccountsDao.class }, new InvocationHandler() {
+                    private boolean raced;
+
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                        final Object result = method.invoke(accounts, args);
+                        if (!raced && "getAccount".equals(method.getName()) && args[0] instanceof Sid) {
+                            raced = true;
+                            caching[0].updateAccount(((Account) result).setFriendlyName("Renamed"));
+                        }
+                        return result;
+                    }
+                });
+        caching[0] = new CachingAccountsDao(racing, accountsBySid, accountsByName, lineages);
+
+        Assert.assertFalse("Renamed".equals(caching[0].getAccount(sid).getFriendlyName()));
+        Assert.assertNull(accountsBySid.getIfPresent(sid));
+        Assert.assertEquals("Renamed", caching[0].getAccount(sid).getFriendlyName());
+    }
+
+    @Test
+    public void addInvalidatesNameKeys() throws Exception {
+        final Account existing = dao.getAccount(new Sid("AC00000000000000000000000000000000"));
+        accountsByName.put("added@telestax.com", existing);
+        accountsByName.put("Added Account", existing);
+        final Sid sid = Sid.generate(Sid.Type.ACCOUNT);
+        dao.addAccount(new Account(sid, new DateTime(), new DateTime(), "added@telestax.com", "Added Account", existing.getSid(),
+                Account.Type.FULL, Account.Status.ACTIVE, "77f8c12cc7b8f8423e5c38b035249166", "Administrator",
+                new URI("/2012-04-24/Accounts/" + sid), existing.getOrganizationSid()));
+        Assert.assertNull(accountsByName.getIfPresent("added@telestax.com"));
+        Assert.assertNull(accountsByName.getIfPresent("Added Account"));
+        Assert.assertEquals(sid, dao.getAccount("added@telestax.com").getSid());
+        dao.removeAccount(sid);
+    }
+}
@@ -152,6 +152,36 @@ public class CallDetailRecordsDaoTest extends DaoTest {
         assertNull(cdrs.getCallDetailRecord(sid));
     }
 
+    @Test
+    public void updateMsIdOnly() {
+        final Sid sid = Sid.generate(Sid.Type.CALL);
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(sid);
+        builder.setInstanceId(instanceId.toString());
+        builder.setDateCreated(DateTime.now());
+        builder.setAccountSid(Sid.generate(Sid.Type.ACCOUNT));
+        builder.setTo("+12223334444");
+        builder.setFrom("+17778889999");
+        builder.setStatus("ringing");
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setDirection("inbound");
+        builder.setApiVersion("2012-04-24");
+        builder.setUri(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"));
+        CallDetailRecord cdr = builder.build();
+        final CallDetailRecordsDao cdrs = manager.getCallDetailRecordsDao();
+        cdrs.addCallDetailRecord(cdr);
+        // The call moves on while the media server is being recorded.
+        cdr = cdr.setStatus("in-progress");
+        cdr = cdr.setDuration(5);
+        cdrs.updateCallDetailRecord(cdr);
+        cdrs.updateCallDetailRecordMsId(sid, "2");
+        final CallDetailRecord result = cdrs.getCallDetailRecord(sid);
+        assertEquals("2", result.getMsId());
+        assertEquals("in-progress", result.getStatus());
+        assertEquals(Integer.valueOf(5), result.getDuration());
+        cdrs.removeCallDetailRecord(sid);
+    }
+
     @Test
     public void testReadDeleteByAccount() {
         final Sid sid = Sid.generate(Sid.Type.CALL);
@@ -0,0 +1,170 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.mybatis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Currency;
+import java.util.List;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.entities.CallDetailRecord;
+import org.restcomm.connect.dao.entities.SmsMessage;
+import org.restcomm.connect.dao.entities.Usage;
+
+/**
+ * Usage read from the daily rollups must match the usage aggregated from the records.
+ */
+public class UsageRollupsDaoTest extends DaoTest {
+    @Rule public TestName name = new TestName();
+
+    private MybatisCallDetailRecordsDao cdrs;
+    private MybatisSmsMessagesDao messages;
+    private MybatisUsageDao records;
+    private MybatisUsageDao rollups;
+    private Sid account;
+
+    @Before
+    public void before() throws Exception {
+        sandboxRoot = createTempDir("usageRollupsTest" + name.getMethodName());
+        String mybatisFilesPath = getClass().getResource("/usageDao").getFile();
+        setupSandbox(mybatisFilesPath, sandboxRoot);
+
+        String mybatisXmlPath = sandboxRoot.getPath() + "/mybatis_updated.xml";
+        final InputStream data = new FileInputStream(mybatisXmlPath);
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        cdrs = new MybatisCallDetailRecordsDao(factory);
+        messages = new MybatisSmsMessagesDao(factory);
+        records = new MybatisUsageDao(factory);
+        rollups = new MybatisUsageDao(factory, true);
+        account = Sid.generate(Sid.Type.ACCOUNT);
+    }
+
+    @After
+    public void after() {
+        removeTempDir(sandboxRoot.getAbsolutePath());
+    }
+
+    private void addCall(final DateTime dateCreated, final int duration, final String price) {
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(Sid.generate(Sid.Type.CALL));
+        builder.setInstanceId(instanceId.toString());
+        builder.setDateCreated(dateCreated);
+        builder.setAccountSid(account);
+        builder.setTo("+12223334444");
+        builder.setFrom("+17778889999");
+        builder.setStatus("completed");
+        builder.setStartTime(dateCreated);
+        builder.setDuration(duration);
+        builder.setPrice(new BigDecimal(price));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setDirection("inbound");
+        builder.setApiVersion("2012-04-24");
+        builder.setUri(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"));
+        cdrs.addCallDetailRecord(builder.build());
+    }
+
+    private void addMessage(final DateTime dateCreated) {
+        final SmsMessage.Builder builder = SmsMessage.builder();
+        builder.setSid(Sid.generate(Sid.Type.SMS_MESSAGE));
+        builder.setAccountSid(account);
+        builder.setApiVersion("2012-04-24");
+        builder.setDateCreated(dateCreated);
+        builder.setRecipient("+12223334444");
+        builder.setSender("+17778889999");
+        builder.setBody("Hello World!");
+        builder.setStatus(SmsMessage.Status.SENT);
+        builder.setDirection(SmsMessage.Direction.INBOUND);
+        builder.setPrice(new BigDecimal("0.01"));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setUri(URI.create("2012-04-24/Accounts/Acoount/SMS/Messages/unique-id.json"));
+        messages.addSmsMessage(builder.build());
+    }
+
+    private void assertSameUsage(final List<Usage> expected, final List<Usage> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStartDate(), actual.get(i).getStartDate());
+            assertEquals(expected.get(i).getEndDate(), actual.get(i).getEndDate());
+            assertEquals(expected.get(i).getCount(), actual.get(i).getCount());
+            assertEquals(expected.get(i).getUsage(), actual.get(i).getUsage());
+            assertEquals(0, expected.get(i).getPrice().compareTo(actual.get(i).getPrice()));
+        }
+    }
+
+    @Test
+    public void rollupsMatchRecords() {
+        final DateTime first = new DateTime(2017, 3, 1, 10, 0);
+        final DateTime second = new DateTime(2017, 3, 2, 23, 0);
+        final DateTime third = new DateTime(2017, 4, 15, 12, 0);
+        addCall(first, 100, "0.25");
+        addCall(first.plusHours(1), 30, "0.5");
+        addCall(second, 3600, "1.75");
+        addCall(third, 59, "0.1");
+        addMessage(first);
+        addMessage(second);
+        addMessage(second.minusHours(2));
+        assertTrue(rollups.updateRollups(1));
+
+        final DateTime start = new DateTime(2017, 1, 1, 0, 0);
+        final DateTime end = new DateTime(2017, 12, 31, 0, 0);
+        for (final Usage.Category category : new Usage.Category[] {Usage.Category.CALLS, Usage.Category.SMS}) {
+            final List<Usage> daily = records.getUsageDaily(account, category, start, end);
+            assertEquals(category == Usage.Category.CALLS ? 3 : 2, daily.size());
+            assertSameUsage(daily, rollups.getUsageDaily(account, category, start, end));
+            assertSameUsage(records.getUsageMonthly(account, category, start, end), rollups.getUsageMonthly(account, category, start, end));
+            assertSameUsage(records.getUsageYearly(account, category, start, end), rollups.getUsageYearly(account, category, start, end));
+            assertSameUsage(records.getUsageAllTime(account, category, start, end), rollups.getUsageAllTime(account, category, start, end));
+        }
+    }
+
+    @Test
+    public void lateRecordsAreRolledUpOnNextUpdate() {
+        final DateTime today = DateTime.now().withTimeAtStartOfDay().plusHours(1);
+        final DateTime start = today.minusDays(10);
+        final DateTime end = today.plusDays(1);
+        addCall(today.minusDays(5), 120, "1");
+        addCall(today, 60, "1");
+        rollups.updateRollups(1);
+        assertEquals(Long.valueOf(2), rollups.getUsageAllTime(account, Usage.Category.CALLS, start, end).get(0).getCount());
+
+        // only the last reopened days are recomputed from now on
+        addCall(today, 60, "1");
+        assertEquals(Long.valueOf(2), rollups.getUsageAllTime(account, Usage.Category.CALLS, start, end).get(0).getCount());
+        rollups.updateRollups(1);
+        assertSameUsage(records.getUsageDaily(account, Usage.Category.CALLS, start, end),
+                rollups.getUsageDaily(account, Usage.Category.CALLS, start, end));
+        assertTrue(rollups.getUsageDaily(account, Usage.Category.SMS, start, end).isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.dao.mybatis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.entities.CallDetailRecord;
+
+public class WriteBehindCallDetailRecordsDaoTest extends DaoTest {
+    @Rule public TestName name = new TestName();
+
+    private MybatisCallDetailRecordsDao mybatisCdrs;
+    private WriteBehindCallDetailRecordsDao cdrs;
+
+    @Before
+    public void before() throws Exception {
+        sandboxRoot = createTempDir("cdrWriteBehindTest" + name.getMethodName());
+        String mybatisFilesPath = getClass().getResource("/callDetailRecordsDao").getFile();
+        setupSandbox(mybatisFilesPath, sandboxRoot);
+
+        String mybatisXmlPath = sandboxRoot.getPath() + "/mybatis_updated.xml";
+        final InputStream data = new FileInputStream(mybatisXmlPath);
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        mybatisCdrs = new MybatisCallDetailRecordsDao(factory);
+        // Long interval so the test controls when flushes happen.
+        cdrs = new WriteBehindCallDetailRecordsDao(mybatisCdrs, 2, 100, 60000);
+    }
+
+    @After
+    public void after() {
+        cdrs.shutdown();
+        removeTempDir(sandboxRoot.getAbsolutePath());
+    }
+
+    private CallDetailRecord cdr(final Sid sid, final String status) {
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(sid);
+        builder.setInstanceId(instanceId.toString());
+        builder.setDateCreated(DateTime.now());
+        builder.setAccountSid(Sid.generate(Sid.Type.ACCOUNT));
+        builder.setTo("+12223334444");
+        builder.setFrom("+17778889999");
+        builder.setStatus(status);
+        builder.setStartTime(DateTime.now());
+        builder.setPrice(new BigDecimal("0.00"));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setDirection("inbound");
+        builder.setApiVersion("2012-04-24");
+        builder.setUri(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"));
+        return builder.build();
+    }
+
+    @Test
+    public void insertAndUpdatesAreCoalesced() {
+        final Sid sid = Sid.generate(Sid.Type.CALL);
+        cdrs.addCallDetailRecord(cdr(sid, "queued"));
+        cdrs.updateCallDetailRecord(cdr(sid, "ringing"));
+        cdrs.updateCallDetailRecord(cdr(sid, "in-progress"));
+        // Nothing reached the database yet but the record is readable through the queue.
+        assertNull(mybatisCdrs.getCallDetailRecord(sid));
+        assertEquals("in-progress", cdrs.getCallDetailRecord(sid).getStatus());
+        assertEquals(1, cdrs.getQueueDepth());
+        assertEquals(2, cdrs.getCoalescedWrites());
+
+        cdrs.flush();
+        assertEquals(0, cdrs.getQueueDepth());
+        assertEquals(1, cdrs.getFlushedWrites());
+        assertEquals("in-progress", mybatisCdrs.getCallDetailRecord(sid).getStatus());
+
+        final Map<String, Integer> countersMap = new HashMap<String, Integer>();
+        final Map<String, Double> durationMap = new HashMap<String, Double>();
+        cdrs.putStatistics(countersMap, durationMap);
+        assertEquals(Integer.valueOf(0), countersMap.get(WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_QUEUE_DEPTH));
+        assertEquals(Integer.valueOf(1), countersMap.get(WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHES));
+        assertEquals(Integer.valueOf(1), countersMap.get(WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHED_WRITES));
+        assertEquals(Integer.valueOf(2), countersMap.get(WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_COALESCED_WRITES));
+        assertEquals(3, durationMap.size());
+    }
+
+    @Test
+    public void writesThroughWhenQueueIsFull() {
+        final Sid first = Sid.generate(Sid.Type.CALL);
+        final Sid second = Sid.generate(Sid.Type.CALL);
+        final Sid third = Sid.generate(Sid.Type.CALL);
+        cdrs.addCallDetailRecord(cdr(first, "queued"));
+        cdrs.addCallDetailRecord(cdr(second, "queued"));
+        cdrs.addCallDetailRecord(cdr(third, "queued"));
+        assertEquals(2, cdrs.getQueueDepth());
+        assertEquals(1, cdrs.getWriteThroughs());
+        assertEquals("queued", mybatisCdrs.getCallDetailRecord(third).getStatus());
+    }
+
+    @Test
+    public void queriesFlushPendingWrites() {
+        final Sid sid = Sid.generate(Sid.Type.CALL);
+        cdrs.addCallDetailRecord(cdr(sid, "in-progress"));
+        assertEquals(1, cdrs.getCallDetailRecordsByInstanceId(instanceId).size());
+        assertEquals(0, cdrs.getQueueDepth());
+        cdrs.removeCallDetailRecord(sid);
+        assertNull(cdrs.getCallDetailRecord(sid));
+        assertEquals(0, cdrs.getDroppedWrites());
+    }
+}
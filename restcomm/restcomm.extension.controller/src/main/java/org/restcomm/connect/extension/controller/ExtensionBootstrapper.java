@@ -47,6 +47,7 @@ public class ExtensionBootstrapper {
 
     public void start() throws ClassNotFoundException, IllegalAccessException, InstantiationException {
 
+        ExtensionController.getInstance().configure(configuration);
         List<HierarchicalConfiguration> exts = ((XMLConfiguration)configuration).configurationsAt("extensions.extension");
 
         for (HierarchicalConfiguration ext: exts) {
@@ -62,6 +63,12 @@ public class ExtensionBootstrapper {
                     //Store it in the context using the extension name
                     context.setAttribute(name, extension);
                     ExtensionController.getInstance().registerExtension(extension);
+                    if (ext.containsKey("timeout")) {
+                        ExtensionController.getInstance().setTimeout(extension.getName(), ext.getLong("timeout"));
+                    }
+                    if (ext.containsKey("independent")) {
+                        ExtensionController.getInstance().setIndependent(extension.getName(), ext.getBoolean("independent"));
+                    }
                     if (logger.isInfoEnabled()) {
                         logger.info("Stated Extension: " + name);
                     }
@@ -1,21 +1,87 @@
 package org.restcomm.connect.extension.controller;
 
+import org.restcomm.connect.commons.util.LatencyHistogram;
 import org.restcomm.connect.extension.api.ApiRequest;
 import org.restcomm.connect.extension.api.ExtensionResponse;
 import org.restcomm.connect.extension.api.ExtensionType;
 import org.restcomm.connect.extension.api.IExtensionRequest;
 import org.restcomm.connect.extension.api.RestcommExtension;
 import org.restcomm.connect.extension.api.RestcommExtensionGeneric;
+import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 
+import com.google.common.util.concurrent.Futures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by gvagenas on 21/09/16.
  */
 public class ExtensionController {
     private static Logger logger = Logger.getLogger(ExtensionController.class);
+    // Default milliseconds an extension may take when running asynchronously
+    private static final long DEFAULT_TIMEOUT = 1000;
+    private static final long[] BOUNDS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 5000};
+
+    private enum Action {
+        PRE_INBOUND {
+            @Override
+            ExtensionResponse execute(final RestcommExtensionGeneric extension, final Object request) {
+                return extension.preInboundAction((IExtensionRequest) request);
+            }
+        },
+        POST_INBOUND {
+            @Override
+            ExtensionResponse execute(final RestcommExtensionGeneric extension, final Object request) {
+                return extension.postInboundAction((IExtensionRequest) request);
+            }
+        },
+        PRE_OUTBOUND {
+            @Override
+            ExtensionResponse execute(final RestcommExtensionGeneric extension, final Object request) {
+                return extension.preOutboundAction((IExtensionRequest) request);
+            }
+        },
+        POST_OUTBOUND {
+            @Override
+            ExtensionResponse execute(final RestcommExtensionGeneric extension, final Object request) {
+                return extension.postOutboundAction((IExtensionRequest) request);
+            }
+        },
+        PRE_API {
+            @Override
+            ExtensionResponse execute(final RestcommExtensionGeneric extension, final Object request) {
+                return extension.preApiAction((ApiRequest) request);
+            }
+        },
+        POST_API {
+            @Override
+            ExtensionResponse execute(final RestcommExtensionGeneric extension, final Object request) {
+                return extension.postApiAction((ApiRequest) request);
+            }
+        };
+
+        abstract ExtensionResponse execute(RestcommExtensionGeneric extension, Object request);
+    }
 
     private static ExtensionController instance;
     private List callManagerExtensions;
@@ -23,6 +89,16 @@ public class ExtensionController {
     private List ussdCallManagerExtensions;
     private List restApiExtensions;
     private List featureAccessControlExtensions;
+    // Latency of every extension by name, whatever the action
+    private final ConcurrentMap<String, LatencyHistogram> latencies;
+    // Milliseconds budget of extensions by name when running asynchronously
+    private final ConcurrentMap<String, Long> timeouts;
+    // Names of the extensions not depending on the outcome of the extensions before them
+    private final Set<String> independents;
+    // Runs the extensions in async mode, null in sync mode
+    private volatile ExecutorService executor;
+    private volatile long timeout;
+    private volatile boolean failOpen;
 
     private ExtensionController(){
         this.callManagerExtensions = new CopyOnWriteArrayList();
@@ -30,6 +106,11 @@ public class ExtensionController {
         this.ussdCallManagerExtensions = new CopyOnWriteArrayList();
         this.restApiExtensions = new CopyOnWriteArrayList();
         this.featureAccessControlExtensions = new CopyOnWriteArrayList();
+        this.latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+        this.timeouts = new ConcurrentHashMap<String, Long>();
+        this.independents = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.timeout = DEFAULT_TIMEOUT;
+        this.failOpen = true;
     }
 
     public static ExtensionController getInstance() {
@@ -44,9 +125,84 @@ public class ExtensionController {
      * TODO should we reset the singleton if app is shutdown...?
      */
     public void reset() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
         instance = null;
     }
 
+    /**
+     * Sets how extensions are executed, from the extensions.execution element of extensions.xml.
+     *
+     * In sync mode, the default, extensions run one after the other on the calling thread. In async mode they run on
+     * a pool of threads and the calling thread waits at most the timeout, in milliseconds, of every extension. An
+     * extension that times out or fails is then skipped when fail-open is true, otherwise it denies the action.
+     * Extensions still run one after the other in async mode, stopping at the first one denying the action, unless
+     * they are declared independent, see {@link #setIndependent(String, boolean)}.
+     *
+     * @param configuration the configuration of extensions.xml
+     */
+    public synchronized void configure(final Configuration configuration) {
+        final String mode = configuration.getString("extensions.execution.mode", "sync");
+        timeout = configuration.getLong("extensions.execution.timeout", DEFAULT_TIMEOUT);
+        failOpen = configuration.getBoolean("extensions.execution.fail-open", true);
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if ("async".equalsIgnoreCase(mode)) {
+            final int threads = configuration.getInt("extensions.execution.threads", Runtime.getRuntime().availableProcessors() * 2);
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "RestcommExtension-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Extensions run in " + (executor == null ? "sync" : "async") + " mode, timeout " + timeout + "ms, fail "
+                    + (failOpen ? "open" : "closed"));
+        }
+    }
+
+    /**
+     * Overrides the default timeout of an extension in async mode.
+     *
+     * @param extensionName the name returned by the extension
+     * @param timeout milliseconds
+     */
+    public void setTimeout(final String extensionName, final long timeout) {
+        timeouts.put(extensionName, timeout);
+    }
+
+    /**
+     * Declares whether an extension depends on the outcome of the extensions before it. In async mode an independent
+     * extension runs in parallel with the others, a dependent one, the default, only runs once every extension before
+     * it allowed the action.
+     *
+     * @param extensionName the name returned by the extension
+     * @param independent true to run the extension in parallel
+     */
+    public void setIndependent(final String extensionName, final boolean independent) {
+        if (independent) {
+            independents.add(extensionName);
+        } else {
+            independents.remove(extensionName);
+        }
+    }
+
+    /**
+     * @return the latency histogram of every extension executed so far, by extension name, published by the
+     * MonitoringService.
+     */
+    public Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
     public List<RestcommExtensionGeneric> getExtensions(final ExtensionType type) {
         //Check the sender's class and return the extensions that are supported for this class
         if (type.equals(ExtensionType.CallManager) && (callManagerExtensions != null && callManagerExtensions.size() > 0)) {
@@ -103,19 +259,96 @@ public class ExtensionController {
     }
 
     public ExtensionResponse executePreOutboundAction(final IExtensionRequest ier, List<RestcommExtensionGeneric> extensions) {
+        return execute(Action.PRE_OUTBOUND, ier, extensions);
+    }
+
+    /**
+     * Same as executePreOutboundAction, in async mode the extensions keep running after this method returns.
+     */
+    public Future<ExtensionResponse> executePreOutboundActionAsync(final IExtensionRequest ier, List<RestcommExtensionGeneric> extensions) {
+        return executeAsync(Action.PRE_OUTBOUND, ier, extensions);
+    }
+
+    public ExtensionResponse executePostOutboundAction(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
+        return execute(Action.POST_OUTBOUND, er, extensions);
+    }
+
+    /**
+     * Same as executePostOutboundAction, in async mode the extensions keep running after this method returns.
+     */
+    public Future<ExtensionResponse> executePostOutboundActionAsync(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
+        return executeAsync(Action.POST_OUTBOUND, er, extensions);
+    }
+
+    public ExtensionResponse executePreInboundAction(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
+        return execute(Action.PRE_INBOUND, er, extensions);
+    }
+
+    /**
+     * Same as executePreInboundAction, in async mode the extensions keep running after this method returns.
+     */
+    public Future<ExtensionResponse> executePreInboundActionAsync(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
+        return executeAsync(Action.PRE_INBOUND, er, extensions);
+    }
+
+    public ExtensionResponse executePostInboundAction(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
+        return execute(Action.POST_INBOUND, er, extensions);
+    }
+
+    /**
+     * Same as executePostInboundAction, in async mode the extensions keep running after this method returns.
+     */
+    public Future<ExtensionResponse> executePostInboundActionAsync(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
+        return executeAsync(Action.POST_INBOUND, er, extensions);
+    }
+
+    public ExtensionResponse executePreApiAction(final ApiRequest apiRequest, List<RestcommExtensionGeneric> extensions) {
+        return execute(Action.PRE_API, apiRequest, extensions);
+    }
+
+    /**
+     * Same as executePreApiAction, in async mode the extensions keep running after this method returns.
+     */
+    public Future<ExtensionResponse> executePreApiActionAsync(final ApiRequest apiRequest, List<RestcommExtensionGeneric> extensions) {
+        return executeAsync(Action.PRE_API, apiRequest, extensions);
+    }
+
+    public ExtensionResponse executePostApiAction(final ApiRequest apiRequest, List<RestcommExtensionGeneric> extensions) {
+        return execute(Action.POST_API, apiRequest, extensions);
+    }
+
+    /**
+     * Same as executePostApiAction, in async mode the extensions keep running after this method returns.
+     */
+    public Future<ExtensionResponse> executePostApiActionAsync(final ApiRequest apiRequest, List<RestcommExtensionGeneric> extensions) {
+        return executeAsync(Action.POST_API, apiRequest, extensions);
+    }
+
+    private ExtensionResponse execute(final Action action, final Object request, final List<RestcommExtensionGeneric> extensions) {
+        final ExecutorService executor = this.executor;
+        if (executor != null) {
+            try {
+                return submit(executor, action, request, extensions).get();
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                final ExtensionResponse response = new ExtensionResponse();
+                response.setAllowed(failOpen);
+                return response;
+            }
+        }
         //FIXME: if we have more than one extension in chain
         // and all of them are successful, we only receive the last
         // extensionResponse
         ExtensionResponse response = new ExtensionResponse();
         if (extensions != null && extensions.size() > 0) {
-
             for (RestcommExtensionGeneric extension : extensions) {
-                if(logger.isInfoEnabled()) {
-                    logger.info( extension.getName()+" is enabled="+extension.isEnabled());
+                if (logger.isDebugEnabled()) {
+                    logger.debug(extension.getName() + " is enabled=" + extension.isEnabled());
                 }
                 if (extension.isEnabled()) {
+                    final long start = System.currentTimeMillis();
                     try {
-                        ExtensionResponse tempResponse = extension.preOutboundAction(ier);
+                        ExtensionResponse tempResponse = action.execute(extension, request);
                         if (tempResponse != null) {
                             response = tempResponse;
                             //fail fast
@@ -125,9 +358,11 @@ public class ExtensionController {
                         }
                     } catch (Throwable t) {
                         if (logger.isDebugEnabled()) {
-                            String msg = String.format("There was an exception while executing preInboundAction from extension %s", extension.getName());
+                            String msg = String.format("There was an exception while executing %s from extension %s", action, extension.getName());
                             logger.debug(msg, t);
                         }
+                    } finally {
+                        record(extension, System.currentTimeMillis() - start);
                     }
                 }
             }
@@ -135,151 +370,112 @@ public class ExtensionController {
         return response;
     }
 
-    public ExtensionResponse executePostOutboundAction(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
-        ExtensionResponse response = new ExtensionResponse();
-        if (extensions != null && extensions.size() > 0) {
-
-            for (RestcommExtensionGeneric extension : extensions) {
-                if(logger.isInfoEnabled()) {
-                    logger.info( extension.getName()+" is enabled="+extension.isEnabled());
-                }
-                if (extension.isEnabled()) {
-                    try {
-                        ExtensionResponse tempResponse = extension.postOutboundAction(er);
-                        if (tempResponse != null) {
-                            response = tempResponse;
-                            //fail fast
-                            if (!tempResponse.isAllowed()) {
-                                break;
-                            }
-                        }
-                    } catch (Throwable t) {
-                        if (logger.isDebugEnabled()) {
-                            String msg = String.format("There was an exception while executing preInboundAction from extension %s", extension.getName());
-                            logger.debug(msg, t);
-                        }
-                    }
-                }
-            }
+    private Future<ExtensionResponse> executeAsync(final Action action, final Object request, final List<RestcommExtensionGeneric> extensions) {
+        final ExecutorService executor = this.executor;
+        if (executor == null) {
+            return Futures.immediateFuture(execute(action, request, extensions));
         }
-        return response;
+        return submit(executor, action, request, extensions);
     }
 
-    public ExtensionResponse executePreInboundAction(final IExtensionRequest er, List<RestcommExtensionGeneric> extensions) {
-        ExtensionResponse response = new ExtensionResponse();
-        if (extensions != null && extensions.size() > 0) {
-            for (RestcommExtensionGeneric extension : extensions) {
-                if(logger.isInfoEnabled()) {
-                    logger.info( extension.getName()+" is enabled="+extension.isEnabled());
-                }
+    private ExtensionResponseFuture submit(final ExecutorService executor, final Action action, final Object request,
+            final List<RestcommExtensionGeneric> extensions) {
+        final List<RestcommExtensionGeneric> enabled = new ArrayList<RestcommExtensionGeneric>();
+        if (extensions != null) {
+            for (final RestcommExtensionGeneric extension : extensions) {
                 if (extension.isEnabled()) {
-                    try {
-                        ExtensionResponse tempResponse = extension.preInboundAction(er);
-                        if (tempResponse != null) {
-                            response = tempResponse;
-                            //fail fast
-                            if (!tempResponse.isAllowed()) {
-                                break;
-                            }
-                        }
-                    } catch (Throwable t) {
-                        if (logger.isDebugEnabled()) {
-                            String msg = String.format("There was an exception while executing preInboundAction from extension %s", extension.getName());
-                            logger.debug(msg, t);
-                        }
-                    }
+                    enabled.add(extension);
                 }
             }
         }
-        return response;
-    }
-
-    public ExtensionResponse executePostInboundAction(final IExtensionRequest er,  List<RestcommExtensionGeneric> extensions) {
-        ExtensionResponse response = new ExtensionResponse();
-        if (extensions != null && extensions.size() > 0) {
-            for (RestcommExtensionGeneric extension : extensions) {
-                if(logger.isInfoEnabled()) {
-                    logger.info( extension.getName()+" is enabled="+extension.isEnabled());
+        final List<Future<ExtensionResponse>> responses = new ArrayList<Future<ExtensionResponse>>(enabled.size());
+        final long[] deadlines = new long[enabled.size()];
+        final boolean failOpen = this.failOpen;
+        for (int index = 0; index < enabled.size(); index++) {
+            final RestcommExtensionGeneric extension = enabled.get(index);
+            final Long budget = timeouts.get(extension.getName());
+            final long now = System.nanoTime();
+            Callable<ExtensionResponse> task;
+            if (extension.getName() != null && independents.contains(extension.getName())) {
+                deadlines[index] = now + TimeUnit.MILLISECONDS.toNanos(budget == null ? timeout : budget);
+                task = new Callable<ExtensionResponse>() {
+                    @Override
+                    public ExtensionResponse call() throws Exception {
+                        return run(action, extension, request);
+                    }
+                };
+            } else {
+                // Starts once the extensions before it answered, its budget too.
+                long start = now;
+                for (int previous = 0; previous < index; previous++) {
+                    if (deadlines[previous] - start > 0) {
+                        start = deadlines[previous];
+                    }
                 }
-                if (extension.isEnabled()) {
-                    try {
-                        ExtensionResponse tempResponse = extension.postInboundAction(er);
-                        if (tempResponse != null) {
-                            response = tempResponse;
-                            //fail fast
-                            if (!tempResponse.isAllowed()) {
-                                break;
+                deadlines[index] = start + TimeUnit.MILLISECONDS.toNanos(budget == null ? timeout : budget);
+                final List<Future<ExtensionResponse>> previous = new ArrayList<Future<ExtensionResponse>>(responses);
+                final long[] previousDeadlines = Arrays.copyOf(deadlines, index);
+                task = new Callable<ExtensionResponse>() {
+                    @Override
+                    public ExtensionResponse call() throws Exception {
+                        // The pool runs tasks in submission order, the extensions before this one are already running.
+                        for (int index = 0; index < previous.size(); index++) {
+                            if (!allowed(previous.get(index), previousDeadlines[index], failOpen)) {
+                                return null;
                             }
                         }
-                    } catch (Throwable t) {
-                        if (logger.isDebugEnabled()) {
-                            String msg = String.format("There was an exception while executing preInboundAction from extension %s", extension.getName());
-                            logger.debug(msg, t);
-                        }
+                        return run(action, extension, request);
                     }
-                }
+                };
             }
+            Future<ExtensionResponse> response;
+            try {
+                response = executor.submit(task);
+            } catch (final RejectedExecutionException exception) {
+                response = Futures.immediateFailedFuture(exception);
+            }
+            responses.add(response);
         }
-        return response;
+        return new ExtensionResponseFuture(enabled, responses, deadlines, failOpen);
     }
 
-    public ExtensionResponse executePreApiAction(final ApiRequest apiRequest, List<RestcommExtensionGeneric> extensions) {
-        ExtensionResponse response = new ExtensionResponse();
-
-        if (extensions != null && extensions.size() > 0) {
-            for (RestcommExtensionGeneric extension : extensions) {
-                if(logger.isInfoEnabled()) {
-                    logger.info( extension.getName()+" is enabled="+extension.isEnabled());
-                }
-                if (extension.isEnabled()) {
-                    try {
-                        ExtensionResponse tempResponse = extension.preApiAction(apiRequest);
-                        if (tempResponse != null) {
-                            response = tempResponse;
-                            //fail fast
-                            if (!tempResponse.isAllowed()) {
-                                break;
-                            }
-                        }
-                    } catch (Throwable t) {
-                        if (logger.isDebugEnabled()) {
-                            String msg = String.format("There was an exception while executing preInboundAction from extension %s", extension.getName());
-                            logger.debug(msg, t);
-                        }
-                    }
-                }
-            }
+    private ExtensionResponse run(final Action action, final RestcommExtensionGeneric extension, final Object request) {
+        final long start = System.currentTimeMillis();
+        try {
+            return action.execute(extension, request);
+        } finally {
+            record(extension, System.currentTimeMillis() - start);
         }
-        return response;
     }
 
-    public ExtensionResponse executePostApiAction(final ApiRequest apiRequest, List<RestcommExtensionGeneric> extensions) {
-        ExtensionResponse response = new ExtensionResponse();
+    // Whether an extension running in parallel allowed the action, the same way ExtensionResponseFuture combines it.
+    private static boolean allowed(final Future<ExtensionResponse> future, final long deadline, final boolean failOpen)
+            throws InterruptedException {
+        try {
+            final ExtensionResponse response = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return response == null || response.isAllowed();
+        } catch (final TimeoutException exception) {
+            return failOpen;
+        } catch (final ExecutionException exception) {
+            return failOpen;
+        } catch (final CancellationException exception) {
+            return failOpen;
+        }
+    }
 
-        if (extensions != null && extensions.size() > 0) {
-            for (RestcommExtensionGeneric extension : extensions) {
-                if(logger.isInfoEnabled()) {
-                    logger.info( extension.getName()+" is enabled="+extension.isEnabled());
-                }
-                if (extension.isEnabled()) {
-                    try {
-                        ExtensionResponse tempResponse = extension.postApiAction(apiRequest);
-                        if (tempResponse != null) {
-                            response = tempResponse;
-                            //fail fast
-                            if (!tempResponse.isAllowed()) {
-                                break;
-                            }
-                        }
-                    } catch (Throwable t) {
-                        if (logger.isDebugEnabled()) {
-                            String msg = String.format("There was an exception while executing preInboundAction from extension %s", extension.getName());
-                            logger.debug(msg, t);
-                        }
-                    }
-                }
+    private void record(final RestcommExtensionGeneric extension, final long millis) {
+        final String name = extension.getName();
+        if (name == null) {
+            return;
+        }
+        LatencyHistogram histogram = latencies.get(name);
+        if (histogram == null) {
+            final LatencyHistogram created = new LatencyHistogram(BOUNDS);
+            histogram = latencies.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
             }
         }
-        return response;
+        histogram.record(millis);
     }
 }
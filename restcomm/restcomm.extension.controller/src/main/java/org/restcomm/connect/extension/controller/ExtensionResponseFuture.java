@@ -0,0 +1,167 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.extension.controller;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.extension.api.ExtensionResponse;
+import org.restcomm.connect.extension.api.RestcommExtensionGeneric;
+
+/**
+ * Outcome of extensions running in async mode. Responses are combined in the order of the extensions, the same way
+ * the sequential execution does: the first response not allowing the action wins, otherwise the last response.
+ * An extension that does not answer within its budget, or fails, is skipped when failing open and denies the
+ * action when failing closed.
+ */
+public final class ExtensionResponseFuture implements Future<ExtensionResponse> {
+    private static Logger logger = Logger.getLogger(ExtensionResponseFuture.class);
+
+    private final List<RestcommExtensionGeneric> extensions;
+    private final List<Future<ExtensionResponse>> responses;
+    // Deadline of every extension in nanoseconds, System.nanoTime() based
+    private final long[] deadlines;
+    private final boolean failOpen;
+    private ExtensionResponse response;
+    private boolean cancelled;
+
+    ExtensionResponseFuture(final List<RestcommExtensionGeneric> extensions, final List<Future<ExtensionResponse>> responses,
+            final long[] deadlines, final boolean failOpen) {
+        super();
+        this.extensions = extensions;
+        this.responses = responses;
+        this.deadlines = deadlines;
+        this.failOpen = failOpen;
+    }
+
+    @Override
+    public synchronized boolean cancel(final boolean mayInterruptIfRunning) {
+        if (response != null || cancelled) {
+            return false;
+        }
+        for (final Future<ExtensionResponse> future : responses) {
+            future.cancel(mayInterruptIfRunning);
+        }
+        cancelled = true;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        if (response != null || cancelled) {
+            return true;
+        }
+        final long now = System.nanoTime();
+        for (int index = 0; index < responses.size(); index++) {
+            if (!responses.get(index).isDone() && now - deadlines[index] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits at most for the budget of every extension.
+     */
+    @Override
+    public synchronized ExtensionResponse get() throws InterruptedException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (response == null) {
+            response = combine();
+        }
+        return response;
+    }
+
+    /**
+     * Waits at most for the given time or the budget of every extension, whichever comes first. Extensions not
+     * answering in time are handled as if their own budget was exceeded.
+     */
+    @Override
+    public synchronized ExtensionResponse get(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int index = 0; index < deadlines.length; index++) {
+            if (deadline - deadlines[index] < 0) {
+                deadlines[index] = deadline;
+            }
+        }
+        return get();
+    }
+
+    private ExtensionResponse combine() throws InterruptedException {
+        ExtensionResponse combined = new ExtensionResponse();
+        for (int index = 0; index < responses.size(); index++) {
+            final RestcommExtensionGeneric extension = extensions.get(index);
+            final Future<ExtensionResponse> future = responses.get(index);
+            ExtensionResponse current = null;
+            try {
+                current = future.get(Math.max(0, deadlines[index] - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException exception) {
+                // Extensions are not written to be interrupted, the late one is left to finish.
+                future.cancel(false);
+                logger.warn(String.format("Extension %s did not answer in time, failing %s", extension.getName(), failOpen ? "open" : "closed"));
+                current = failure();
+            } catch (final ExecutionException exception) {
+                if (logger.isDebugEnabled()) {
+                    String msg = String.format("There was an exception while executing extension %s", extension.getName());
+                    logger.debug(msg, exception.getCause());
+                }
+                current = failure();
+            } catch (final CancellationException exception) {
+                current = failure();
+            }
+            if (current != null) {
+                combined = current;
+                //fail fast
+                if (!current.isAllowed()) {
+                    cancelRemaining(index + 1);
+                    break;
+                }
+            }
+        }
+        return combined;
+    }
+
+    private ExtensionResponse failure() {
+        if (failOpen) {
+            return null;
+        }
+        final ExtensionResponse denied = new ExtensionResponse();
+        denied.setAllowed(false);
+        return denied;
+    }
+
+    private void cancelRemaining(final int from) {
+        for (int index = from; index < responses.size(); index++) {
+            responses.get(index).cancel(false);
+        }
+    }
+}
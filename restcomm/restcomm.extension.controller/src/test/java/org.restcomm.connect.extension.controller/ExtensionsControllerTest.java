@@ -20,9 +20,14 @@
 package org.restcomm.connect.extension.controller;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletContext;
 
+import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.log4j.Logger;
 import org.junit.After;
 import org.junit.Assert;
@@ -154,6 +159,182 @@ public class ExtensionsControllerTest {
         Assert.assertTrue(er.isAllowed());
     }
 
+    private List<RestcommExtensionGeneric> asyncExtensions(boolean failOpen, RestcommExtensionGeneric... extensions) {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.addProperty("extensions.execution.mode", "async");
+        configuration.addProperty("extensions.execution.threads", 4);
+        configuration.addProperty("extensions.execution.timeout", 10000);
+        configuration.addProperty("extensions.execution.fail-open", failOpen);
+        ExtensionController extensionController = ExtensionController.getInstance();
+        extensionController.configure(configuration);
+        for (RestcommExtensionGeneric extension : extensions) {
+            extensionController.registerExtension(extension);
+        }
+        return extensionController.getExtensions(ExtensionType.CallManager);
+    }
+
+    @Test
+    public void independentExtensionsRunInParallel() throws Exception {
+        // Each one waits for the other to start, only possible when running in parallel.
+        CountDownLatch started = new CountDownLatch(2);
+        LatchExtension first = new LatchExtension("first", started, started, true);
+        LatchExtension second = new LatchExtension("second", started, started, true);
+        List<RestcommExtensionGeneric> extensions = asyncExtensions(true, first, second);
+        ExtensionController.getInstance().setIndependent("first", true);
+        ExtensionController.getInstance().setIndependent("second", true);
+        Future<ExtensionResponse> future = ExtensionController.getInstance().executePreOutboundActionAsync(new ExtensionRequest(), extensions);
+        ExtensionResponse er = future.get();
+        Assert.assertTrue(er.isAllowed());
+        Assert.assertTrue(first.awaited);
+        Assert.assertTrue(second.awaited);
+        Assert.assertEquals(1, ExtensionController.getInstance().getLatencies().get("first").getCount());
+        Assert.assertEquals(1, ExtensionController.getInstance().getLatencies().get("second").getCount());
+    }
+
+    @Test
+    public void dependentExtensionsRunInOrder() throws Exception {
+        // The first one gives the second one a chance to start while it runs.
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        LatchExtension first = new LatchExtension("first", null, secondStarted, true);
+        first.wait = 200;
+        LatchExtension second = new LatchExtension("second", secondStarted, null, true);
+        List<RestcommExtensionGeneric> extensions = asyncExtensions(true, first, second);
+        ExtensionResponse er = ExtensionController.getInstance().executePreOutboundAction(new ExtensionRequest(), extensions);
+        Assert.assertTrue(er.isAllowed());
+        Assert.assertFalse(first.awaited);
+        Assert.assertEquals(1, second.calls.get());
+    }
+
+    @Test
+    public void dependentExtensionsFailFast() throws Exception {
+        LatchExtension second = new LatchExtension("second", null, null, true);
+        List<RestcommExtensionGeneric> extensions = asyncExtensions(true, new LatchExtension("first", null, null, false), second);
+        ExtensionResponse er = ExtensionController.getInstance().executePreInboundAction(new ExtensionRequest(), extensions);
+        Assert.assertFalse(er.isAllowed());
+        Assert.assertEquals(0, second.calls.get());
+    }
+
+    @Test
+    public void asyncDenialWinsWhateverTheOrder() {
+        // The denial comes last but the denying extension is first.
+        CountDownLatch allowed = new CountDownLatch(1);
+        List<RestcommExtensionGeneric> extensions = asyncExtensions(true, new LatchExtension("denying", null, allowed, false),
+                new LatchExtension("allowing", allowed, null, true));
+        ExtensionController.getInstance().setIndependent("denying", true);
+        ExtensionController.getInstance().setIndependent("allowing", true);
+        ExtensionResponse er = ExtensionController.getInstance().executePreInboundAction(new ExtensionRequest(), extensions);
+        Assert.assertFalse(er.isAllowed());
+    }
+
+    @Test
+    public void slowExtensionFailsOpen() {
+        // Would deny the action if it answered.
+        CountDownLatch never = new CountDownLatch(1);
+        List<RestcommExtensionGeneric> extensions = asyncExtensions(true, new LatchExtension("slow", null, never, false));
+        ExtensionController.getInstance().setTimeout("slow", 100);
+        ExtensionResponse er = ExtensionController.getInstance().executePreOutboundAction(new ExtensionRequest(), extensions);
+        never.countDown();
+        Assert.assertTrue(er.isAllowed());
+    }
+
+    @Test
+    public void slowExtensionFailsClosed() {
+        CountDownLatch never = new CountDownLatch(1);
+        List<RestcommExtensionGeneric> extensions = asyncExtensions(false, new LatchExtension("slow", null, never, true));
+        ExtensionController.getInstance().setTimeout("slow", 100);
+        Sid accSid = Sid.generate(Sid.Type.ACCOUNT);
+        ApiRequest apiRequest = new ApiRequest(accSid.toString(), null, ApiRequest.Type.CREATE_SUBACCOUNT);
+        ExtensionResponse er = ExtensionController.getInstance().executePreApiAction(apiRequest, extensions);
+        never.countDown();
+        Assert.assertFalse(er.isAllowed());
+    }
+
+    /**
+     * Counts down a latch when called, then waits for another one before answering.
+     */
+    @RestcommExtension(author = "TestExtension", version = "1.0.0.Alpha", type = {ExtensionType.CallManager})
+    private static class LatchExtension implements RestcommExtensionGeneric {
+        private final String name;
+        private final CountDownLatch done;
+        private final CountDownLatch await;
+        private final boolean allowed;
+        final AtomicInteger calls = new AtomicInteger();
+        volatile boolean awaited;
+        long wait = 5000;
+
+        LatchExtension(String name, CountDownLatch done, CountDownLatch await, boolean allowed) {
+            this.name = name;
+            this.done = done;
+            this.await = await;
+            this.allowed = allowed;
+        }
+
+        private ExtensionResponse respond() {
+            calls.incrementAndGet();
+            if (done != null) {
+                done.countDown();
+            }
+            try {
+                if (await != null) {
+                    awaited = await.await(wait, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ExtensionResponse response = new ExtensionResponse();
+            response.setAllowed(allowed);
+            return response;
+        }
+        @Override
+        public void init (ServletContext context) {
+        }
+
+        @Override
+        public boolean isEnabled () {
+            return true;
+        }
+
+        @Override
+        public ExtensionResponse preInboundAction (IExtensionRequest extensionRequest) {
+            return respond();
+        }
+
+        @Override
+        public ExtensionResponse postInboundAction (IExtensionRequest extensionRequest) {
+            return respond();
+        }
+
+        @Override
+        public ExtensionResponse preOutboundAction (IExtensionRequest extensionRequest) {
+            return respond();
+        }
+
+        @Override
+        public ExtensionResponse postOutboundAction (IExtensionRequest extensionRequest) {
+            return respond();
+        }
+
+        @Override
+        public ExtensionResponse preApiAction (ApiRequest apiRequest) {
+            return respond();
+        }
+
+        @Override
+        public ExtensionResponse postApiAction (ApiRequest apiRequest) {
+            return respond();
+        }
+
+        @Override
+        public String getName () {
+            return name;
+        }
+
+        @Override
+        public String getVersion () {
+            return null;
+        }
+    }
+
     @RestcommExtension(author = "TestExtension", version = "1.0.0.Alpha", type = {ExtensionType.CallManager, ExtensionType.SmsService, ExtensionType.UssdCallManager, ExtensionType.FeatureAccessControl, ExtensionType.RestApi})
     private class TestExtension implements RestcommExtensionGeneric {
 
@@ -57,6 +57,8 @@ import org.restcomm.connect.http.exceptions.InsufficientPermission;
 import org.restcomm.connect.http.exceptions.PasswordTooWeak;
 import org.restcomm.connect.http.security.ContextUtil;
 import org.restcomm.connect.http.security.PermissionEvaluator.SecuredType;
+import org.restcomm.connect.identity.CredentialsCache;
+import org.restcomm.connect.identity.IdentityContext;
 import org.restcomm.connect.identity.UserIdentityContext;
 import org.restcomm.connect.identity.passwords.PasswordValidator;
 import org.restcomm.connect.identity.passwords.PasswordValidatorFactory;
@@ -117,6 +119,7 @@ public class AccountsEndpoint extends AbstractEndpoint {
     private ClientsDao clientDao;
     private ProfileAssociationsDao profileAssociationsDao;
     private ProfileService profileService;
+    private CredentialsCache credentialsCache;
 
 
 
@@ -138,6 +141,8 @@ public class AccountsEndpoint extends AbstractEndpoint {
         clientDao = storage.getClientsDao();
         profileAssociationsDao = storage.getProfileAssociationsDao();
         profileService = (ProfileService)context.getAttribute(ProfileService.class.getName());
+        final IdentityContext identityContext = (IdentityContext) context.getAttribute(IdentityContext.class.getName());
+        credentialsCache = identityContext == null ? null : identityContext.getCredentialsCache();
         final AccountConverter converter = new AccountConverter(runtimeConfiguration);
         final GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(Account.class, converter);
@@ -324,6 +329,7 @@ public class AccountsEndpoint extends AbstractEndpoint {
         removeIncomingPhoneNumbers(sid,daoManager.getIncomingPhoneNumbersDao());
         daoManager.getClientsDao().removeClients(sid);
         profileAssociationsDao.deleteProfileAssociationByTargetSid(sid.toString());
+        profileService.invalidateCachedProfiles();
     }
 
     /**
@@ -639,6 +645,7 @@ public class AccountsEndpoint extends AbstractEndpoint {
                 updateLinkedClient(account, data);
             }
             accountsDao.updateAccount(modifiedAccount);
+            invalidateCredentials(modifiedAccount.getSid());
 
 
             if (APPLICATION_JSON_TYPE.equals(responseType)) {
@@ -721,6 +728,7 @@ public class AccountsEndpoint extends AbstractEndpoint {
         //Update Account for the new Organization
         Account modifiedAccount = operatingAccount.setOrganizationSid(organization.getSid());
         accountsDao.updateAccount(modifiedAccount);
+        invalidateCredentials(modifiedAccount.getSid());
 
         if (logger.isDebugEnabled()) {
             String msg = String.format("Parent Account %s migrated to Organization %s", modifiedAccount.getSid(), organization.getSid());
@@ -733,12 +741,15 @@ public class AccountsEndpoint extends AbstractEndpoint {
             if (!child.getOrganizationSid().equals(organization.getSid())) {
                 Account modifiedChildAccount = child.setOrganizationSid(organization.getSid());
                 accountsDao.updateAccount(modifiedChildAccount);
+                invalidateCredentials(modifiedChildAccount.getSid());
                 if (logger.isDebugEnabled()) {
                     String msg = String.format("Child Account %s from Parent Account %s, migrated to Organization %s", modifiedChildAccount.getSid(), modifiedAccount.getSid(), organization.getSid());
                     logger.debug(msg);
                 }
             }
         }
+        // The organization profile of the migrated accounts changed.
+        profileService.invalidateCachedProfiles();
 
         if (APPLICATION_JSON_TYPE.equals(responseType)) {
             return ok(gson.toJson(modifiedAccount), APPLICATION_JSON).build();
@@ -796,6 +807,14 @@ public class AccountsEndpoint extends AbstractEndpoint {
         // finally, set and persist account status
         account = account.setStatus(status);
         accountsDao.updateAccount(account);
+        invalidateCredentials(account.getSid());
+    }
+
+    // Verified credentials carry the account, they are checked again once it changed.
+    private void invalidateCredentials(final Sid accountSid) {
+        if (credentialsCache != null) {
+            credentialsCache.invalidate(accountSid);
+        }
     }
 
     /**
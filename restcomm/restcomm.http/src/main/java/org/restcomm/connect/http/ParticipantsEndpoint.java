@@ -58,6 +58,7 @@ import org.apache.shiro.authz.AuthorizationException;
 import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
 import org.restcomm.connect.commons.configuration.RestcommConfiguration;
 import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.core.service.api.ConferenceParticipantsService;
 import org.restcomm.connect.dao.AccountsDao;
 import org.restcomm.connect.dao.CallDetailRecordsDao;
 import org.restcomm.connect.dao.DaoManager;
@@ -101,6 +102,7 @@ public class ParticipantsEndpoint extends AbstractEndpoint {
     private CallDetailRecordListConverter listConverter;
     private AccountsDao accountsDao;
     private RecordingsDao recordingsDao;
+    private ConferenceParticipantsService conferenceParticipants;
     private String instanceId;
 
 
@@ -118,6 +120,7 @@ public class ParticipantsEndpoint extends AbstractEndpoint {
         daos = (DaoManager) context.getAttribute(DaoManager.class.getName());
         accountsDao = daos.getAccountsDao();
         recordingsDao = daos.getRecordingsDao();
+        conferenceParticipants = (ConferenceParticipantsService) context.getAttribute(ConferenceParticipantsService.class.getName());
         super.init(configuration);
         ConferenceParticipantConverter converter = new ConferenceParticipantConverter(configuration);
         listConverter = new CallDetailRecordListConverter(configuration);
@@ -207,7 +210,7 @@ public class ParticipantsEndpoint extends AbstractEndpoint {
 
         CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
 
-        final int total = dao.getTotalRunningCallDetailRecordsByConferenceSid(new Sid(conferenceSid));
+        final int total = conferenceParticipants.getParticipants(new Sid(conferenceSid));
 
         if (Integer.parseInt(page) > (total / limit)) {
             return status(javax.ws.rs.core.Response.Status.BAD_REQUEST).build();
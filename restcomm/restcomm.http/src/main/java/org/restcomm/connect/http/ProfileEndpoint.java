@@ -192,6 +192,7 @@ public class ProfileEndpoint {
         String targetSid = retrieveSid(link.getUri());
         checkTargetSid(new Sid(targetSid));
         profileAssociationsDao.deleteProfileAssociationByTargetSid(targetSid, profileSidStr);
+        profileService.invalidateCachedProfiles();
         return Response.ok().build();
     }
 
@@ -231,6 +232,7 @@ public class ProfileEndpoint {
         //remove previous link if any
         profileAssociationsDao.deleteProfileAssociationByTargetSid(targetSidStr);
         profileAssociationsDao.addProfileAssociation(assoc);
+        profileService.invalidateCachedProfiles();
         return Response.ok().build();
     }
 
@@ -239,6 +241,7 @@ public class ProfileEndpoint {
         checkDefaultProfile(profileSid);
         profilesDao.deleteProfile(profileSid);
         profileAssociationsDao.deleteProfileAssociationByProfileSid(profileSid);
+        profileService.invalidateCachedProfiles();
         return Response.ok().build();
     }
 
@@ -279,6 +282,7 @@ public class ProfileEndpoint {
             if (report.isSuccess()) {
                 Profile profile = new Profile(profileSid, profileStr, new Date(), new Date());
                 profilesDao.updateProfile(profile);
+                profileService.invalidateCachedProfile(profileSid);
                 Profile updatedProfile = profilesDao.getProfile(profileSid);
                 return getProfileBuilder(updatedProfile, info).build();
             } else {
@@ -133,10 +133,11 @@ public class ExtensionFilter implements ResourceFilter, ContainerRequestFilter,
         return ec.executePreApiAction(apiRequest, extensions).isAllowed();
     }
 
-    private boolean executePostApiAction(final ApiRequest apiRequest) {
+    // Nothing depends on the outcome, in async mode the response is not held back by the extensions.
+    private void executePostApiAction(final ApiRequest apiRequest) {
         List<RestcommExtensionGeneric> extensions = ExtensionController.getInstance().getExtensions(ExtensionType.RestApi);
         ExtensionController ec = ExtensionController.getInstance();
-        return ec.executePostApiAction(apiRequest, extensions).isAllowed();
+        ec.executePostApiActionAsync(apiRequest, extensions);
     }
 
     @Override
@@ -21,9 +21,6 @@ package org.restcomm.connect.http.security;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.log4j.Logger;
-import org.apache.shiro.authz.Permission;
-import org.apache.shiro.authz.SimpleRole;
-import org.apache.shiro.authz.permission.WildcardPermissionResolver;
 import org.restcomm.connect.commons.dao.Sid;
 import org.restcomm.connect.dao.AccountsDao;
 import org.restcomm.connect.dao.DaoManager;
@@ -264,6 +261,8 @@ public class PermissionEvaluator {
      * mappings contained in restcomm.xml. The permission mappings are stored in RestcommRoles.
      *
      * Note: Administrator is granted access with eyes closed
+     *
+     * Decisions are memoized by RestcommRoles, so a permission string is only resolved the first time a role is checked against it.
 
      * @param neededPermissionString
      * @param roleNames
@@ -274,33 +273,21 @@ public class PermissionEvaluator {
         if ( roleNames.contains(getAdministratorRole()))
             return AuthOutcome.OK;
 
-        // normalize the permission string
-        //neededPermissionString = "domain:" + neededPermissionString;
-
-        WildcardPermissionResolver resolver = new WildcardPermissionResolver();
-        Permission neededPermission = resolver.resolvePermission(neededPermissionString);
-
         // check the neededPermission against all roles of the user
         RestcommRoles restcommRoles = identityContext.getRestcommRoles();
         for (String roleName: roleNames) {
-            SimpleRole simpleRole = restcommRoles.getRole(roleName);
-            if ( simpleRole == null) {
+            Boolean permitted = restcommRoles.isPermitted(roleName, neededPermissionString);
+            if ( permitted == null) {
                 return AuthOutcome.FAILED;
             }
-            else {
-                Set<Permission> permissions = simpleRole.getPermissions();
-                // check the permissions one by one
-                for (Permission permission: permissions) {
-                    if (permission.implies(neededPermission)) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Granted access by permission " + permission.toString());
-                        }
-                        return AuthOutcome.OK;
-                    }
-                }
+            else if (permitted) {
                 if (logger.isDebugEnabled()) {
-                    logger.debug("Role " + roleName + " does not allow " + neededPermissionString);
+                    logger.debug("Role " + roleName + " grants access to " + neededPermissionString);
                 }
+                return AuthOutcome.OK;
+            }
+            else if (logger.isDebugEnabled()) {
+                logger.debug("Role " + roleName + " does not allow " + neededPermissionString);
             }
         }
         return AuthOutcome.FAILED;
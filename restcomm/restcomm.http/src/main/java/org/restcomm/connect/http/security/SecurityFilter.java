@@ -26,6 +26,7 @@ import org.restcomm.connect.dao.AccountsDao;
 import org.restcomm.connect.dao.DaoManager;
 import org.restcomm.connect.dao.entities.Account;
 import org.restcomm.connect.dao.entities.Organization;
+import org.restcomm.connect.identity.IdentityContext;
 import org.restcomm.connect.identity.UserIdentityContext;
 
 import javax.servlet.http.HttpServletRequest;
@@ -62,7 +63,9 @@ public class SecurityFilter implements ContainerRequestFilter {
     public ContainerRequest filter(ContainerRequest cr) {
         final DaoManager storage = (DaoManager) servletRequest.getServletContext().getAttribute(DaoManager.class.getName());
         AccountsDao accountsDao = storage.getAccountsDao();
-        UserIdentityContext userIdentityContext = new UserIdentityContext(servletRequest, accountsDao);
+        final IdentityContext identityContext = (IdentityContext) servletRequest.getServletContext().getAttribute(IdentityContext.class.getName());
+        UserIdentityContext userIdentityContext = new UserIdentityContext(servletRequest, accountsDao,
+                identityContext == null ? null : identityContext.getCredentialsCache());
         // exclude recording file https://telestax.atlassian.net/browse/RESTCOMM-1736
         logger.info("cr.getPath(): " + cr.getPath());
         if (!isUnprotected(cr)) {
@@ -28,6 +28,16 @@ public class AccountKey {
         verify(dao);
     }
 
+    /**
+     * Creates a key for credentials already verified for the given account.
+     */
+    public AccountKey(String sid, String key, Account verifiedAccount) {
+        this.challengedSid = sid;
+        this.challengedKey = key;
+        this.account = verifiedAccount;
+        this.verified = true;
+    }
+
     private void verify(AccountsDao dao) {
         if ( account != null ) {
             if ( challengedKey != null )
@@ -0,0 +1,121 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.identity;
+
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.commons.util.StatisticsUtils;
+import org.restcomm.connect.dao.entities.Account;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Accounts whose Basic auth credentials were recently verified, keyed by a salted hash of the Authorization
+ * header so that neither the header nor the token is kept in memory. Only successful verifications are cached.
+ * <p>
+ * Entries expire after a short time so that changes made on other instances are picked up, changes made on this
+ * instance are applied at once through {@link #invalidate(Sid)}. The hits, misses and evictions are published by the
+ * MonitoringService.
+ */
+@ThreadSafe
+public final class CredentialsCache implements StatisticsSource {
+    public static final String COUNTERS_MAP_AUTH_CACHE_HITS = "AuthCacheHits";
+    public static final String COUNTERS_MAP_AUTH_CACHE_MISSES = "AuthCacheMisses";
+    public static final String COUNTERS_MAP_AUTH_CACHE_EVICTIONS = "AuthCacheEvictions";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_SIZE = 10000;
+
+    private final byte[] salt;
+    private final Cache<String, Account> accounts;
+
+    /**
+     * @param ttl seconds a verified account is trusted without reading it again, 0 disables the cache.
+     */
+    public CredentialsCache(final int ttl) {
+        super();
+        this.salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (ttl > 0) {
+            builder.maximumSize(MAX_SIZE).expireAfterWrite(ttl, TimeUnit.SECONDS);
+        } else {
+            builder.maximumSize(0);
+        }
+        this.accounts = builder.build();
+    }
+
+    private String key(final String authorization) {
+        final byte[] header = authorization.getBytes(UTF_8);
+        final byte[] salted = new byte[salt.length + header.length];
+        System.arraycopy(salt, 0, salted, 0, salt.length);
+        System.arraycopy(header, 0, salted, salt.length, header.length);
+        return DigestUtils.sha256Hex(salted);
+    }
+
+    /**
+     * @return the account the Authorization header was verified for, null if it is not cached.
+     */
+    public Account getVerifiedAccount(final String authorization) {
+        return accounts.getIfPresent(key(authorization));
+    }
+
+    public void verified(final String authorization, final Account account) {
+        accounts.put(key(authorization), account);
+    }
+
+    /**
+     * Drops the verified credentials of an account, to be called when its token, status or organization changes.
+     */
+    public void invalidate(final Sid accountSid) {
+        final Iterator<Account> iterator = accounts.asMap().values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getSid().equals(accountSid)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        accounts.invalidateAll();
+    }
+
+    public CacheStats getStatistics() {
+        return accounts.stats();
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        final CacheStats stats = getStatistics();
+        countersMap.put(COUNTERS_MAP_AUTH_CACHE_HITS, StatisticsUtils.counter(stats.hitCount()));
+        countersMap.put(COUNTERS_MAP_AUTH_CACHE_MISSES, StatisticsUtils.counter(stats.missCount()));
+        countersMap.put(COUNTERS_MAP_AUTH_CACHE_EVICTIONS, StatisticsUtils.counter(stats.evictionCount()));
+    }
+}
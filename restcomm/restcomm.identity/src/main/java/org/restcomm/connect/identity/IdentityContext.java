@@ -32,21 +32,29 @@ import org.restcomm.connect.identity.shiro.RestcommRoles;
  * @author "Tsakiridis Orestis"
  */
 public class IdentityContext {
+    // Default seconds verified Basic auth credentials are trusted
+    private static final int DEFAULT_AUTH_CACHE_TTL = 5;
+
     RestcommRoles restcommRoles;
+    CredentialsCache credentialsCache;
 
     /**
      * @param restcommConfiguration An apache configuration object representing <restcomm/> element of restcomm.xml
      */
     public IdentityContext(Configuration restcommConfiguration) {
         this.restcommRoles = new RestcommRoles(restcommConfiguration.subset("runtime-settings").subset("security-roles"));
+        this.credentialsCache = new CredentialsCache(restcommConfiguration.getInt("runtime-settings.auth-cache-ttl", DEFAULT_AUTH_CACHE_TTL));
     }
 
     public IdentityContext(RestcommRoles restcommRoles) {
         if (restcommRoles == null)
             throw  new IllegalArgumentException("Cannot create an IdentityContext object with null roles!");
         this.restcommRoles = restcommRoles;
+        this.credentialsCache = new CredentialsCache(0);
     }
 
     public RestcommRoles getRestcommRoles() { return restcommRoles; }
 
+    public CredentialsCache getCredentialsCache() { return credentialsCache; }
+
 }
@@ -46,6 +46,7 @@ public class UserIdentityContext {
     List<String> accountLineage = null; // list of all parent account Sids up to the lop level account. It's initialized in a lazy way.
 
     AccountsDao accountsDao;
+    CredentialsCache credentialsCache;
 
     /**
      * After successfull creation of a UserIdentityContext object the following stands:
@@ -58,7 +59,18 @@ public class UserIdentityContext {
      * @param accountsDao
      */
     public UserIdentityContext(HttpServletRequest request, AccountsDao accountsDao) {
+        this(request, accountsDao, null);
+    }
+
+    /**
+     * Same as above, verified BASIC http credentials are looked up in and added to the credentialsCache.
+     * @param request
+     * @param accountsDao
+     * @param credentialsCache may be null
+     */
+    public UserIdentityContext(HttpServletRequest request, AccountsDao accountsDao, CredentialsCache credentialsCache) {
         this.accountsDao = accountsDao;
+        this.credentialsCache = credentialsCache;
         this.accountKey = extractAccountKey(request, accountsDao);
         if (accountKey != null) {
             if (accountKey.isVerified()) {
@@ -92,7 +104,16 @@ public class UserIdentityContext {
                 // credentials = username:password
                 final String[] values = credentials.split(":",2);
                 if (values.length >= 2) {
+                    if (credentialsCache != null) {
+                        Account verifiedAccount = credentialsCache.getVerifiedAccount(authHeader);
+                        if (verifiedAccount != null) {
+                            return new AccountKey(values[0], values[1], verifiedAccount);
+                        }
+                    }
                     AccountKey accountKey = new AccountKey(values[0], values[1], dao);
+                    if (credentialsCache != null && accountKey.isVerified()) {
+                        credentialsCache.verified(authHeader, accountKey.getAccount());
+                    }
                     return accountKey;
                 }
 
@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.shiro.authz.Permission;
@@ -33,7 +35,12 @@ import org.apache.shiro.authz.permission.WildcardPermission;
  * @author orestis.tsakiridis@telestax.com (Orestis Tsakiridis)
  */
 public class RestcommRoles {
+    // Permission strings come from the endpoints, this only guards against unbounded growth.
+    private static final int MAX_DECISIONS = 10000;
+
     private Map<String, SimpleRole> roles;
+    // Decisions already taken by every role, keyed by needed permission string.
+    private final Map<String, ConcurrentMap<String, Boolean>> decisions;
 
     /**
      * Parses restcomm.xml configuration and builds a map out of roles from it.
@@ -43,12 +50,39 @@ public class RestcommRoles {
     public RestcommRoles(Configuration configuration) {
         roles = new HashMap<String, SimpleRole>();
         loadSecurityRoles(configuration);
+        decisions = new HashMap<String, ConcurrentMap<String, Boolean>>();
+        for (String role: roles.keySet()) {
+            decisions.put(role, new ConcurrentHashMap<String, Boolean>());
+        }
     }
 
     public SimpleRole getRole(final String role) {
         return roles.get(role);
     }
 
+    /**
+     * Checks a permission against the permissions of a role. The permission string is resolved and
+     * checked once per role, later checks only look the decision up.
+     *
+     * @param role
+     * @param permission - e.g. 'RestComm:Create:Accounts'
+     * @return null if the role is not defined, otherwise whether one of its permissions implies the given one
+     */
+    public Boolean isPermitted(final String role, final String permission) {
+        final ConcurrentMap<String, Boolean> roleDecisions = decisions.get(role);
+        if (roleDecisions == null) {
+            return null;
+        }
+        Boolean decision = roleDecisions.get(permission);
+        if (decision == null) {
+            decision = roles.get(role).isPermitted(new WildcardPermission(permission));
+            if (roleDecisions.size() < MAX_DECISIONS) {
+                roleDecisions.put(permission, decision);
+            }
+        }
+        return decision;
+    }
+
     private void loadSecurityRoles(final Configuration configuration) {
         @SuppressWarnings("unchecked")
         final List<String> roleNames = (List<String>) configuration.getList("role[@name]");
@@ -0,0 +1,77 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.identity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.entities.Account;
+
+public class CredentialsCacheTest {
+
+    private Account account(final Sid sid) {
+        final Account.Builder builder = Account.builder();
+        builder.setSid(sid);
+        builder.setAuthToken("77f8c12cc7b8f8423e5c38b035249166");
+        builder.setStatus(Account.Status.ACTIVE);
+        return builder.build();
+    }
+
+    @Test
+    public void verifiedCredentialsAreCachedByHeader() {
+        final CredentialsCache cache = new CredentialsCache(60);
+        final Account account = account(Sid.generate(Sid.Type.ACCOUNT));
+        Assert.assertNull(cache.getVerifiedAccount("Basic QUMxOnRva2Vu"));
+        cache.verified("Basic QUMxOnRva2Vu", account);
+        Assert.assertSame(account, cache.getVerifiedAccount("Basic QUMxOnRva2Vu"));
+        // another token of the same account is not trusted
+        Assert.assertNull(cache.getVerifiedAccount("Basic QUMxOm90aGVy"));
+        Assert.assertEquals(1, cache.getStatistics().hitCount());
+        final Map<String, Integer> countersMap = new HashMap<String, Integer>();
+        cache.putStatistics(countersMap, new HashMap<String, Double>());
+        Assert.assertEquals(Integer.valueOf(1), countersMap.get(CredentialsCache.COUNTERS_MAP_AUTH_CACHE_HITS));
+        Assert.assertEquals(Integer.valueOf(2), countersMap.get(CredentialsCache.COUNTERS_MAP_AUTH_CACHE_MISSES));
+    }
+
+    @Test
+    public void invalidateDropsEveryHeaderOfTheAccount() {
+        final CredentialsCache cache = new CredentialsCache(60);
+        final Sid sid = Sid.generate(Sid.Type.ACCOUNT);
+        final Account other = account(Sid.generate(Sid.Type.ACCOUNT));
+        cache.verified("Basic QUMxOnRva2Vu", account(sid));
+        cache.verified("Basic ZW1haWw6dG9rZW4=", account(sid));
+        cache.verified("Basic QUMyOnRva2Vu", other);
+        cache.invalidate(sid);
+        Assert.assertNull(cache.getVerifiedAccount("Basic QUMxOnRva2Vu"));
+        Assert.assertNull(cache.getVerifiedAccount("Basic ZW1haWw6dG9rZW4="));
+        Assert.assertSame(other, cache.getVerifiedAccount("Basic QUMyOnRva2Vu"));
+    }
+
+    @Test
+    public void zeroTtlDisablesTheCache() {
+        final CredentialsCache cache = new CredentialsCache(0);
+        cache.verified("Basic QUMxOnRva2Vu", account(Sid.generate(Sid.Type.ACCOUNT)));
+        Assert.assertNull(cache.getVerifiedAccount("Basic QUMxOnRva2Vu"));
+    }
+}
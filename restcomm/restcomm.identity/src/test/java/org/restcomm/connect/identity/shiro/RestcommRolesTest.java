@@ -0,0 +1,70 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.identity.shiro;
+
+import java.io.StringReader;
+import java.util.Collections;
+
+import junit.framework.Assert;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.junit.Test;
+
+public class RestcommRolesTest {
+    private static final String ROLES = "<security-roles>"
+            + "<role name=\"Developer\">"
+            + "<permission>RestComm:*:Accounts</permission>"
+            + "<permission>RestComm:Create,Delete,Read:Faxes</permission>"
+            + "<permission>RestComm:Read:Notifications</permission>"
+            + "</role>"
+            + "</security-roles>";
+
+    private RestcommRoles roles() throws Exception {
+        final XMLConfiguration configuration = new XMLConfiguration();
+        configuration.load(new StringReader(ROLES));
+        return new RestcommRoles(configuration);
+    }
+
+    @Test
+    public void decisionsMatchShiro() throws Exception {
+        final RestcommRoles roles = roles();
+        final String[] permissions = {"RestComm:Read:Accounts", "RestComm:Modify:Faxes", "RestComm:Read:Faxes",
+                "RestComm:Delete:Notifications", "RestComm:Read:Notifications", "RestComm:Read:Calls"};
+        for (int pass = 0; pass < 2; pass++) {
+            for (final String permission : permissions) {
+                final boolean expected = roles.getRole("Developer").isPermitted(new WildcardPermission(permission));
+                Assert.assertEquals(permission, Boolean.valueOf(expected), roles.isPermitted("Developer", permission));
+            }
+        }
+        Assert.assertNull(roles.isPermitted("Unknown", "RestComm:Read:Accounts"));
+    }
+
+    @Test
+    public void decisionsAreMemoized() throws Exception {
+        final RestcommRoles roles = roles();
+        Assert.assertEquals(Boolean.TRUE, roles.isPermitted("Developer", "RestComm:Read:Notifications"));
+        // Later checks no longer resolve the permission against the role.
+        roles.getRole("Developer").setPermissions(Collections.<Permission>emptySet());
+        Assert.assertEquals(Boolean.TRUE, roles.isPermitted("Developer", "RestComm:Read:Notifications"));
+        Assert.assertEquals(Boolean.FALSE, roles.isPermitted("Developer", "RestComm:Read:Faxes"));
+    }
+}
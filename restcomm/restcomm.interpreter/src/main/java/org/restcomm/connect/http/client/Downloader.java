@@ -37,16 +37,16 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.restcomm.connect.commons.common.http.CustomHttpClientBuilder;
 import org.restcomm.connect.commons.configuration.RestcommConfiguration;
+import org.restcomm.connect.commons.configuration.sets.MainConfigurationSet;
 import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
-import org.xml.sax.InputSource;
+import org.restcomm.connect.interpreter.rcml.RcmlReader;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.stream.XMLStreamException;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -65,14 +65,26 @@ public final class Downloader extends RestcommUntypedActor {
 
     public static final int LOGGED_RESPONSE_MAX_SIZE = 100;
 
+    // Redirects followed by the async mode before giving up.
+    private static final int MAX_REDIRECTS = 10;
+
     private CloseableHttpClient client = null;
+    // Only set when http-client.async-downloader is enabled.
+    private CloseableHttpAsyncClient asyncClient = null;
+    // Only set when http-client.rcml-cache is enabled.
+    private RcmlCache cache = null;
 
     // Logger.
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
 
     public Downloader () {
         super();
-        client = (CloseableHttpClient) CustomHttpClientBuilder.buildDefaultClient(RestcommConfiguration.getInstance().getMain());
+        final MainConfigurationSet config = RestcommConfiguration.getInstance().getMain();
+        client = (CloseableHttpClient) CustomHttpClientBuilder.buildDefaultClient(config);
+        if (config.isAsyncDownloader()) {
+            asyncClient = CustomHttpClientBuilder.buildCloseableHttpAsyncClient(config);
+        }
+        cache = RcmlCache.getInstance();
     }
 
 
@@ -89,15 +101,16 @@ public final class Downloader extends RestcommUntypedActor {
                 request = request(temp);
                 //FIXME:should we externalize RVD encoding default?
                 request.setHeader("http.protocol.content-charset", "UTF-8");
-                if (descriptor.getTimeout() > 0){
-                    HttpContext httpContext = new BasicHttpContext();
-                    httpContext.setAttribute(HttpClientContext.REQUEST_CONFIG, RequestConfig.custom().
-                    setConnectTimeout(descriptor.getTimeout()).
-                    setSocketTimeout(descriptor.getTimeout()).
-                    setConnectionRequestTimeout(descriptor.getTimeout()).build());
-                    response = client.execute((HttpUriRequest) request, httpContext);
-                } else {
-                    response = client.execute((HttpUriRequest) request);
+                final long start = System.currentTimeMillis();
+                DownloaderStatistics.requestStarted();
+                try {
+                    if (descriptor.getTimeout() > 0){
+                        response = client.execute((HttpUriRequest) request, context(descriptor));
+                    } else {
+                        response = client.execute((HttpUriRequest) request);
+                    }
+                } finally {
+                    DownloaderStatistics.requestCompleted(((HttpUriRequest) request).getURI().getHost(), System.currentTimeMillis() - start);
                 }
                 code = response.getStatusLine().getStatusCode();
                 if (isRedirect(code)) {
@@ -148,6 +161,134 @@ public final class Downloader extends RestcommUntypedActor {
         return responseDescriptor;
     }
 
+    /**
+     * Sends the request without blocking the actor, the response is sent to the requester from the
+     * http client callback once every redirect has been followed.
+     */
+    private void fetchAsync (final HttpRequestDescriptor descriptor, final HttpRequestDescriptor current, final int redirects,
+            final String cacheKey, final RcmlCache.Entry stale, final ActorRef sender, final ActorRef self) {
+        final HttpUriRequest request;
+        try {
+            request = request(current);
+        } catch (final Exception exception) {
+            reply(sender, self, new DownloaderResponse(exception, "Problem while trying to download RCML"));
+            return;
+        }
+        //FIXME:should we externalize RVD encoding default?
+        request.setHeader("http.protocol.content-charset", "UTF-8");
+        final long start = System.currentTimeMillis();
+        final FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed (final HttpResponse result) {
+                DownloaderStatistics.requestCompleted(request.getURI().getHost(), System.currentTimeMillis() - start);
+                final int code = result.getStatusLine().getStatusCode();
+                if (isRedirect(code)) {
+                    final Header header = result.getFirstHeader(HttpHeaders.LOCATION);
+                    if (header != null && redirects < MAX_REDIRECTS) {
+                        try {
+                            final URI uri = URI.create(header.getValue());
+                            fetchAsync(descriptor, new HttpRequestDescriptor(uri, current.getMethod(), current.getParameters()),
+                                    redirects + 1, cacheKey, stale, sender, self);
+                        } catch (final IllegalArgumentException exception) {
+                            reply(sender, self, new DownloaderResponse(exception, "Problem while trying to download RCML"));
+                        }
+                        return;
+                    }
+                }
+                String content = null;
+                try {
+                    final HttpResponseDescriptor rawResponseDescriptor = response(request, result);
+                    content = rawResponseDescriptor.getContentAsString();
+                    if (isHttpError(code)) {
+                        logger.warning(String.format("Problem while fetching http resource: %s \n Http status code: %d \n Http status message: %s",
+                                request.getRequestLine().getUri(), code, result.getStatusLine().getReasonPhrase()));
+                    }
+                    HttpResponseDescriptor responseDescriptor = validateXML(rawResponseDescriptor);
+                    if (cacheKey != null) {
+                        responseDescriptor = cache.update(cacheKey, stale, responseDescriptor);
+                    }
+                    reply(sender, self, new DownloaderResponse(responseDescriptor));
+                } catch (final Exception exception) {
+                    String responseInfo = "n/a";
+                    if (content != null) {
+                        responseInfo = content.length() > LOGGED_RESPONSE_MAX_SIZE ? content.substring(0, LOGGED_RESPONSE_MAX_SIZE) + "..." : content;
+                    }
+                    logger.warning(String.format("Problem while trying to download RCML. URL: %s, Status: %s, Response: %s ",
+                            request.getRequestLine(), result.getStatusLine(), responseInfo));
+                    reply(sender, self, new DownloaderResponse(exception, "Problem while trying to download RCML"));
+                }
+            }
+
+            @Override
+            public void failed (final Exception exception) {
+                DownloaderStatistics.requestCompleted(request.getURI().getHost(), System.currentTimeMillis() - start);
+                logger.warning("Problem while trying to download RCML from {}, exception: {}", request.getRequestLine(), exception);
+                reply(sender, self, new DownloaderResponse(exception, "Problem while trying to download RCML"));
+            }
+
+            @Override
+            public void cancelled () {
+                DownloaderStatistics.requestCompleted(request.getURI().getHost(), System.currentTimeMillis() - start);
+                final Exception exception = new Exception("Download of RCML from " + request.getRequestLine() + " was cancelled");
+                reply(sender, self, new DownloaderResponse(exception, "Problem while trying to download RCML"));
+            }
+        };
+        DownloaderStatistics.requestStarted();
+        try {
+            if (descriptor.getTimeout() > 0) {
+                asyncClient.execute(request, context(descriptor), callback);
+            } else {
+                asyncClient.execute(request, callback);
+            }
+        } catch (final RuntimeException exception) {
+            // The client was shut down, the callback will never be called.
+            callback.failed(exception);
+        }
+    }
+
+    private void fetchCached (final HttpRequestDescriptor descriptor, final ActorRef sender, final ActorRef self) {
+        final String key = cache.key(descriptor);
+        final RcmlCache.Entry entry = cache.get(key);
+        if (entry != null && entry.isFresh(System.currentTimeMillis())) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Serving RCML of " + key + " from the cache");
+            }
+            reply(sender, self, new DownloaderResponse(entry.getResponse()));
+            return;
+        }
+        final HttpRequestDescriptor request = cache.request(descriptor, entry);
+        if (asyncClient != null) {
+            fetchAsync(request, request, 0, key, entry, sender, self);
+            return;
+        }
+        DownloaderResponse response = null;
+        try {
+            response = new DownloaderResponse(cache.update(key, entry, fetch(request)));
+        } catch (final Exception exception) {
+            response = new DownloaderResponse(exception, "Problem while trying to download RCML");
+        }
+        reply(sender, self, response);
+    }
+
+    private HttpContext context (final HttpRequestDescriptor descriptor) {
+        final HttpContext httpContext = new BasicHttpContext();
+        httpContext.setAttribute(HttpClientContext.REQUEST_CONFIG, RequestConfig.custom().
+                setConnectTimeout(descriptor.getTimeout()).
+                setSocketTimeout(descriptor.getTimeout()).
+                setConnectionRequestTimeout(descriptor.getTimeout()).build());
+        return httpContext;
+    }
+
+    private void reply (final ActorRef sender, final ActorRef self, final DownloaderResponse response) {
+        if (sender != null && !sender.isTerminated()) {
+            sender.tell(response, self);
+        } else {
+            if (logger.isInfoEnabled()) {
+                logger.info("DownloaderResponse wont be send because sender is :" + (sender == null ? "null" : "terminated"));
+            }
+        }
+    }
+
     private boolean isRedirect (final int code) {
         return HttpStatus.SC_MOVED_PERMANENTLY == code || HttpStatus.SC_MOVED_TEMPORARILY == code
                 || HttpStatus.SC_SEE_OTHER == code || HttpStatus.SC_TEMPORARY_REDIRECT == code;
@@ -160,12 +301,8 @@ public final class Downloader extends RestcommUntypedActor {
     private HttpResponseDescriptor validateXML (final HttpResponseDescriptor descriptor) throws XMLStreamException {
         if (descriptor.getContentLength() > 0) {
             try {
-                // parse an XML document into a DOM tree
-                String xml = descriptor.getContentAsString().trim().replaceAll("&([^;]+(?!(?:\\w|;)))", "&amp;$1");
-                DocumentBuilder parser = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                //FIXME:should we externalize RVD encoding default?
-                parser.parse(new InputSource(new ByteArrayInputStream(xml.getBytes("utf-8"))));
-                return descriptor;
+                // Validation and parsing happen in the same pass, the interpreter reuses the resulting tree.
+                return descriptor.setRcml(RcmlReader.read(descriptor.getContentAsString()));
             } catch (final Exception e) {
                 throw new XMLStreamException("Error parsing the RCML:" + e);
             }
@@ -183,19 +320,21 @@ public final class Downloader extends RestcommUntypedActor {
             if (logger.isDebugEnabled()) {
                 logger.debug("New HttpRequestDescriptor, method: " + request.getMethod() + " URI: " + request.getUri() + " parameters: " + request.getParametersAsString());
             }
+            if (cache != null && cache.isCacheable(request)) {
+                fetchCached(request, sender, self);
+                return;
+            }
+            if (asyncClient != null) {
+                fetchAsync(request, request, 0, null, null, sender, self);
+                return;
+            }
             DownloaderResponse response = null;
             try {
                 response = new DownloaderResponse(fetch(request));
             } catch (final Exception exception) {
                 response = new DownloaderResponse(exception, "Problem while trying to download RCML");
             }
-            if (sender != null && !sender.isTerminated()) {
-                sender.tell(response, self);
-            } else {
-                if (logger.isInfoEnabled()) {
-                    logger.info("DownloaderResponse wont be send because sender is :" + (sender.isTerminated() ? "terminated" : "null"));
-                }
-            }
+            reply(sender, self, response);
         }
     }
 
@@ -203,6 +342,7 @@ public final class Downloader extends RestcommUntypedActor {
             UnsupportedEncodingException {
         final URI uri = descriptor.getUri();
         final String method = descriptor.getMethod();
+        HttpUriRequest httpUriRequest = null;
         if ("GET".equalsIgnoreCase(method)) {
             final String query = descriptor.getParametersAsString();
             URI result = null;
@@ -217,16 +357,20 @@ public final class Downloader extends RestcommUntypedActor {
             } else {
                 result = uri;
             }
-            return new HttpGet(result);
+            httpUriRequest = new HttpGet(result);
         } else if ("POST".equalsIgnoreCase(method)) {
             final List<NameValuePair> parameters = descriptor.getParameters();
             final HttpPost post = new HttpPost(uri);
             //FIXME:should we externalize RVD encoding default?
             post.setEntity(new UrlEncodedFormEntity(parameters, "UTF-8"));
-            return post;
+            httpUriRequest = post;
         } else {
             throw new IllegalArgumentException(method + " is not a supported downloader method.");
         }
+        if (descriptor.getHeaders() != null && descriptor.getHeaders().length > 0) {
+            httpUriRequest.setHeaders(descriptor.getHeaders());
+        }
+        return httpUriRequest;
     }
 
     private HttpResponseDescriptor response (final HttpRequest request, final HttpResponse response) throws IOException {
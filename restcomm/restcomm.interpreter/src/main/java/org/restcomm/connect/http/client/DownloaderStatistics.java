@@ -0,0 +1,93 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.http.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.pool.PoolStats;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.common.http.CustomHttpClientBuilder;
+import org.restcomm.connect.commons.util.LatencyHistogram;
+
+/**
+ * Per host latency of the requests made by the {@link Downloader} and the state of the shared async
+ * connection pool, so that slow application servers can be told apart from an exhausted pool.
+ */
+@ThreadSafe
+public final class DownloaderStatistics {
+    // Hosts beyond this limit are accounted together so that the map cannot grow without bound.
+    private static final int MAX_HOSTS = 1000;
+    static final String OTHER_HOSTS = "other";
+
+    private static final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private DownloaderStatistics() {
+        super();
+    }
+
+    static void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    static void requestCompleted(final String host, final long millis) {
+        inFlight.decrementAndGet();
+        histogram(host == null ? OTHER_HOSTS : host).record(millis);
+    }
+
+    private static LatencyHistogram histogram(final String host) {
+        LatencyHistogram histogram = latencies.get(host);
+        if (histogram == null) {
+            final String key = latencies.size() >= MAX_HOSTS ? OTHER_HOSTS : host;
+            final LatencyHistogram created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(key, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the latency histogram of every host requested so far.
+     */
+    public static Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * @return number of requests sent by downloaders and still waiting for a response.
+     */
+    public static int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return leased, pending and available connections of the async pool, null when the async
+     *         client is not in use.
+     */
+    public static PoolStats getPoolStats() {
+        return CustomHttpClientBuilder.getAsyncClientPoolStats();
+    }
+}
@@ -41,6 +41,7 @@ public final class HttpRequestDescriptor {
     private final List<NameValuePair> parameters;
     private final Integer timeout;
     private final Header[] headers;
+    private final String query;
 
     public HttpRequestDescriptor(final URI uri, final String method,
             final List<NameValuePair> parameters,
@@ -54,7 +55,7 @@ public final class HttpRequestDescriptor {
         } else {
             this.parameters = new ArrayList<NameValuePair>();
         }
-        final String query = uri.getQuery();
+        this.query = uri.getRawQuery();
         if (query != null) {
             //FIXME:should we externalize RVD encoding default?
             final List<NameValuePair> other = URLEncodedUtils.parse(uri, "UTF-8");
@@ -121,4 +122,12 @@ public final class HttpRequestDescriptor {
         return headers;
     }
 
+    /**
+     * @return the raw query of the uri this request was created with, null if it had none. Unlike
+     *         {@link #getParameters()} it does not contain the parameters added by the caller.
+     */
+    public String getQuery() {
+        return query;
+    }
+
 }
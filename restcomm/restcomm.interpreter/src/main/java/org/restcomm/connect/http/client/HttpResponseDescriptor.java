@@ -26,6 +26,7 @@ import org.apache.http.Header;
 
 import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
 import org.restcomm.connect.commons.util.HttpUtils;
+import org.restcomm.connect.interpreter.rcml.Tag;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -41,10 +42,11 @@ public final class HttpResponseDescriptor {
     private final String contentType;
     private final boolean isChunked;
     private final Header[] headers;
+    private final Tag rcml;
 
     private HttpResponseDescriptor(final URI uri, final int statusCode, final String statusDescription,
             final String content, final long contentLength, final String contentEncoding, final String contentType,
-            final boolean isChunked, final Header[] headers) {
+            final boolean isChunked, final Header[] headers, final Tag rcml) {
         super();
         this.uri = uri;
         this.statusCode = statusCode;
@@ -55,6 +57,7 @@ public final class HttpResponseDescriptor {
         this.contentType = contentType;
         this.isChunked = isChunked;
         this.headers = headers;
+        this.rcml = rcml;
     }
 
     public int getStatusCode() {
@@ -111,6 +114,19 @@ public final class HttpResponseDescriptor {
         return uri;
     }
 
+    /**
+     * @return the RCML document already read from the content while validating it, or null when
+     *         the content was not validated.
+     */
+    public Tag getRcml() {
+        return rcml;
+    }
+
+    public HttpResponseDescriptor setRcml(final Tag rcml) {
+        return new HttpResponseDescriptor(uri, statusCode, statusDescription, content, contentLength, contentEncoding,
+                contentType, isChunked, headers, rcml);
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -125,6 +141,7 @@ public final class HttpResponseDescriptor {
         private String contentType;
         private boolean isChunked;
         private Header[] headers;
+        private Tag rcml;
 
         private Builder() {
             super();
@@ -132,7 +149,7 @@ public final class HttpResponseDescriptor {
 
         public HttpResponseDescriptor build() {
             return new HttpResponseDescriptor(uri, statusCode, statusDescription, content, contentLength, contentEncoding,
-                    contentType, isChunked, headers);
+                    contentType, isChunked, headers, rcml);
         }
 
         public void setStatusCode(final int statusCode) {
@@ -170,5 +187,9 @@ public final class HttpResponseDescriptor {
         public void setURI(final URI uri) {
             this.uri = uri;
         }
+
+        public void setRcml(final Tag rcml) {
+            this.rcml = rcml;
+        }
     }
 }
@@ -0,0 +1,314 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.http.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHeader;
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.configuration.RestcommConfiguration;
+import org.restcomm.connect.commons.configuration.sets.RcmlCacheConfigurationSet;
+
+/**
+ * Cache of RCML responses for applications that opted in by listing their url under
+ * http-client.rcml-cache.urls. Only GET requests are cached, keyed by the url the application
+ * configured, and the per-call parameters added by the interpreters are not sent for them.
+ * <p>
+ * Freshness follows the Cache-Control max-age and Expires headers of the response, falling back to
+ * the configured default ttl. Stale entries that carry an ETag or Last-Modified validator are
+ * revalidated with a conditional GET. The cached {@link HttpResponseDescriptor} keeps the RCML tree
+ * read by the Downloader so that hits are not parsed again. The cache is bounded by entry count and
+ * by content size, the least recently used entries are evicted first.
+ */
+@ThreadSafe
+public final class RcmlCache {
+    private static final Logger logger = Logger.getLogger(RcmlCache.class);
+    private static RcmlCache instance;
+    private static boolean initialized;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long defaultTtl;
+    private final List<String> urls;
+    // Guarded by 'this', in access order so that the eldest entry is the least recently used.
+    private final LinkedHashMap<String, Entry> entries;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long revalidations;
+
+    public RcmlCache(final RcmlCacheConfigurationSet configuration) {
+        super();
+        this.maxEntries = configuration.getMaxEntries();
+        this.maxBytes = configuration.getMaxBytes();
+        this.defaultTtl = configuration.getDefaultTtl() * 1000L;
+        this.urls = new ArrayList<String>(configuration.getUrls());
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    }
+
+    /**
+     * @return the cache shared by every Downloader, null when it is disabled.
+     */
+    public static synchronized RcmlCache getInstance() {
+        if (!initialized) {
+            final RcmlCacheConfigurationSet configuration = RestcommConfiguration.getInstance().getRcmlCache();
+            if (configuration != null && configuration.isEnabled() && !configuration.getUrls().isEmpty()) {
+                instance = new RcmlCache(configuration);
+            }
+            initialized = true;
+        }
+        return instance;
+    }
+
+    public boolean isCacheable(final HttpRequestDescriptor request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) {
+            return false;
+        }
+        final String url = request.getUri().toString();
+        for (final String prefix : urls) {
+            if (url.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String key(final HttpRequestDescriptor request) {
+        final String query = request.getQuery();
+        return query == null ? request.getUri().toString() : request.getUri() + "?" + query;
+    }
+
+    /**
+     * @return the entry for the key even if it is stale, null if there is none.
+     */
+    public synchronized Entry get(final String key) {
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.isFresh(System.currentTimeMillis())) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the request to send to the application, without per-call parameters and with the
+     *         validators of the stale entry if there is one.
+     */
+    public HttpRequestDescriptor request(final HttpRequestDescriptor request, final Entry stale) {
+        final URI uri = URI.create(key(request));
+        final List<Header> headers = new ArrayList<Header>();
+        if (request.getHeaders() != null) {
+            for (final Header header : request.getHeaders()) {
+                headers.add(header);
+            }
+        }
+        if (stale != null) {
+            if (stale.etag != null) {
+                headers.add(new BasicHeader(HttpHeaders.IF_NONE_MATCH, stale.etag));
+            }
+            if (stale.lastModified != null) {
+                headers.add(new BasicHeader(HttpHeaders.IF_MODIFIED_SINCE, stale.lastModified));
+            }
+        }
+        return new HttpRequestDescriptor(uri, "GET", new ArrayList<NameValuePair>(), request.getTimeout(),
+                headers.toArray(new Header[headers.size()]));
+    }
+
+    /**
+     * Stores or refreshes the entry with the response of the application.
+     *
+     * @return the response to hand to the interpreter, the cached one when the application answered
+     *         304 Not Modified.
+     */
+    public HttpResponseDescriptor update(final String key, final Entry stale, final HttpResponseDescriptor response)
+            throws IOException {
+        final long now = System.currentTimeMillis();
+        if (response.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && stale != null) {
+            final Entry refreshed = new Entry(stale.response, stale.etag, stale.lastModified, expires(response, now), stale.size);
+            synchronized (this) {
+                revalidations++;
+                if (entries.get(key) == stale) {
+                    entries.put(key, refreshed);
+                }
+            }
+            return stale.response;
+        }
+        if (response.getStatusCode() != HttpStatus.SC_OK || response.getRcml() == null || isNoStore(response)) {
+            remove(key);
+            return response;
+        }
+        final String etag = header(response, HttpHeaders.ETAG);
+        final String lastModified = header(response, HttpHeaders.LAST_MODIFIED);
+        final long expires = expires(response, now);
+        if (expires <= now && etag == null && lastModified == null) {
+            // Could only be used once, do not evict anything for it.
+            remove(key);
+            return response;
+        }
+        final String content = response.getContentAsString();
+        final int size = content == null ? 0 : content.length() * 2;
+        if (size > maxBytes) {
+            remove(key);
+            return response;
+        }
+        synchronized (this) {
+            final Entry previous = entries.put(key, new Entry(response, etag, lastModified, expires, size));
+            if (previous != null) {
+                bytes -= previous.size;
+            }
+            bytes += size;
+            evict();
+        }
+        return response;
+    }
+
+    public synchronized void remove(final String key) {
+        final Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.size;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+    // Guarded by 'this'.
+    private void evict() {
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            final Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            bytes -= eldest.size;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Evicted RCML of " + eldest.response.getURI() + " from the cache");
+            }
+        }
+    }
+
+    private long expires(final HttpResponseDescriptor response, final long now) {
+        final String cacheControl = header(response, HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null) {
+            long maxAge = -1;
+            for (final String directive : cacheControl.split(",")) {
+                final String value = directive.trim().toLowerCase();
+                if (value.equals("no-cache")) {
+                    return now;
+                } else if (value.startsWith("max-age=")) {
+                    try {
+                        maxAge = Long.parseLong(value.substring("max-age=".length()).trim());
+                    } catch (final NumberFormatException ignored) {
+                        return now;
+                    }
+                }
+            }
+            if (maxAge >= 0) {
+                return now + maxAge * 1000L;
+            }
+        }
+        final String expires = header(response, HttpHeaders.EXPIRES);
+        if (expires != null) {
+            final Date date = DateUtils.parseDate(expires);
+            return date == null ? now : date.getTime();
+        }
+        return now + defaultTtl;
+    }
+
+    private static boolean isNoStore(final HttpResponseDescriptor response) {
+        final String cacheControl = header(response, HttpHeaders.CACHE_CONTROL);
+        return cacheControl != null && cacheControl.toLowerCase().contains("no-store");
+    }
+
+    private static String header(final HttpResponseDescriptor response, final String name) {
+        final Header[] headers = response.getHeaders();
+        if (headers != null) {
+            for (final Header header : headers) {
+                if (name.equalsIgnoreCase(header.getName())) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A cached response with the validators and expiration time it was stored with.
+     */
+    public static final class Entry {
+        private final HttpResponseDescriptor response;
+        private final String etag;
+        private final String lastModified;
+        private final long expires;
+        private final int size;
+
+        private Entry(final HttpResponseDescriptor response, final String etag, final String lastModified,
+                final long expires, final int size) {
+            super();
+            this.response = response;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+            this.size = size;
+        }
+
+        public HttpResponseDescriptor getResponse() {
+            return response;
+        }
+
+        public boolean isFresh(final long now) {
+            return now < expires;
+        }
+    }
+}
@@ -53,6 +53,7 @@ import org.restcomm.connect.commons.fsm.Action;
 import org.restcomm.connect.commons.fsm.FiniteStateMachine;
 import org.restcomm.connect.commons.fsm.State;
 import org.restcomm.connect.commons.fsm.Transition;
+import org.restcomm.connect.commons.fsm.TransitionTable;
 import org.restcomm.connect.commons.patterns.Observe;
 import org.restcomm.connect.commons.util.WavUtils;
 import org.restcomm.connect.core.service.RestcommConnectServiceProvider;
@@ -136,6 +137,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -148,6 +151,8 @@ import static akka.pattern.Patterns.ask;
  * @author pavel.slegr@telestax.com
  */
 public abstract class BaseVoiceInterpreter extends RestcommUntypedActor {
+    // Transitions shared by every interpreter of a class, taken from the first one created.
+    private static final ConcurrentMap<Class<?>, TransitionTable> TRANSITION_TABLES = new ConcurrentHashMap<Class<?>, TransitionTable>();
     // Logger.
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
 
@@ -281,6 +286,30 @@ public abstract class BaseVoiceInterpreter extends RestcommUntypedActor {
 
     private UriUtils uriUtils;
 
+    /**
+     * @return true if the transitions of this interpreter class are already known and do not need to be added.
+     */
+    protected boolean hasSharedTransitions() {
+        return TRANSITION_TABLES.containsKey(getClass());
+    }
+
+    /**
+     * @return the transitions shared by every interpreter of this class, taken from the ones added by this
+     *         interpreter if it is the first one.
+     */
+    protected TransitionTable sharedTransitions() {
+        TransitionTable table = TRANSITION_TABLES.get(getClass());
+        if (table == null) {
+            table = TransitionTable.templateOf(transitions);
+            final TransitionTable existing = TRANSITION_TABLES.putIfAbsent(getClass(), table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        transitions.clear();
+        return table;
+    }
+
     public BaseVoiceInterpreter() {
         super();
         restcommConfiguration = RestcommConfiguration.getInstance();
@@ -307,111 +336,113 @@ public abstract class BaseVoiceInterpreter extends RestcommUntypedActor {
         sendingSms = new State("sending sms", new SendingSms(source), null);
         hangingUp = new State("hanging up", new HangingUp(source), null);
         sendingEmail = new State("sending Email", new SendingEmail(source), null);
-        // Initialize the transitions for the FSM.
-        transitions.add(new Transition(uninitialized, acquiringAsrInfo));
-        transitions.add(new Transition(acquiringAsrInfo, acquiringSynthesizerInfo));
-        transitions.add(new Transition(acquiringSynthesizerInfo, acquiringCallInfo));
-        transitions.add(new Transition(pausing, hangingUp));
-        transitions.add(new Transition(playingRejectionPrompt, hangingUp));
-        transitions.add(new Transition(faxing, faxing));
-        transitions.add(new Transition(faxing, caching));
-        transitions.add(new Transition(faxing, pausing));
-        transitions.add(new Transition(faxing, redirecting));
-        transitions.add(new Transition(faxing, synthesizing));
-        transitions.add(new Transition(faxing, processingGatherChildren));
-        transitions.add(new Transition(faxing, creatingRecording));
-        transitions.add(new Transition(faxing, creatingSmsSession));
-        transitions.add(new Transition(faxing, hangingUp));
-        transitions.add(new Transition(sendingEmail, sendingEmail));
-        transitions.add(new Transition(sendingEmail, caching));
-        transitions.add(new Transition(sendingEmail, pausing));
-        transitions.add(new Transition(sendingEmail, redirecting));
-        transitions.add(new Transition(sendingEmail, synthesizing));
-        transitions.add(new Transition(sendingEmail, processingGatherChildren));
-        transitions.add(new Transition(sendingEmail, creatingRecording));
-        transitions.add(new Transition(sendingEmail, creatingSmsSession));
-        transitions.add(new Transition(sendingEmail, hangingUp));
-        transitions.add(new Transition(caching, faxing));
-        transitions.add(new Transition(caching, sendingEmail));
-        transitions.add(new Transition(caching, playing));
-        transitions.add(new Transition(caching, caching));
-        transitions.add(new Transition(caching, pausing));
-        transitions.add(new Transition(caching, redirecting));
-        transitions.add(new Transition(caching, synthesizing));
-        transitions.add(new Transition(caching, processingGatherChildren));
-        transitions.add(new Transition(caching, creatingRecording));
-        transitions.add(new Transition(caching, creatingSmsSession));
-        transitions.add(new Transition(caching, hangingUp));
-        transitions.add(new Transition(checkingCache, synthesizing));
-        transitions.add(new Transition(checkingCache, playing));
-        transitions.add(new Transition(checkingCache, checkingCache));
-        transitions.add(new Transition(playing, hangingUp));
-        transitions.add(new Transition(synthesizing, faxing));
-        transitions.add(new Transition(synthesizing, sendingEmail));
-        transitions.add(new Transition(synthesizing, pausing));
-        transitions.add(new Transition(synthesizing, checkingCache));
-        transitions.add(new Transition(synthesizing, caching));
-        transitions.add(new Transition(synthesizing, redirecting));
-        transitions.add(new Transition(synthesizing, processingGatherChildren));
-        transitions.add(new Transition(synthesizing, creatingRecording));
-        transitions.add(new Transition(synthesizing, creatingSmsSession));
-        transitions.add(new Transition(synthesizing, synthesizing));
-        transitions.add(new Transition(synthesizing, hangingUp));
-        transitions.add(new Transition(redirecting, faxing));
-        transitions.add(new Transition(redirecting, sendingEmail));
-        transitions.add(new Transition(redirecting, pausing));
-        transitions.add(new Transition(redirecting, checkingCache));
-        transitions.add(new Transition(redirecting, caching));
-        transitions.add(new Transition(redirecting, synthesizing));
-        transitions.add(new Transition(redirecting, redirecting));
-        transitions.add(new Transition(redirecting, processingGatherChildren));
-        transitions.add(new Transition(redirecting, creatingRecording));
-        transitions.add(new Transition(redirecting, creatingSmsSession));
-        transitions.add(new Transition(redirecting, hangingUp));
-        transitions.add(new Transition(creatingRecording, finishRecording));
-        transitions.add(new Transition(creatingRecording, hangingUp));
-        transitions.add(new Transition(finishRecording, faxing));
-        transitions.add(new Transition(finishRecording, sendingEmail));
-        transitions.add(new Transition(finishRecording, pausing));
-        transitions.add(new Transition(finishRecording, checkingCache));
-        transitions.add(new Transition(finishRecording, caching));
-        transitions.add(new Transition(finishRecording, synthesizing));
-        transitions.add(new Transition(finishRecording, redirecting));
-        transitions.add(new Transition(finishRecording, processingGatherChildren));
-        transitions.add(new Transition(finishRecording, creatingRecording));
-        transitions.add(new Transition(finishRecording, creatingSmsSession));
-        transitions.add(new Transition(finishRecording, hangingUp));
-        transitions.add(new Transition(processingGatherChildren, processingGatherChildren));
-        transitions.add(new Transition(processingGatherChildren, gathering));
-        transitions.add(new Transition(processingGatherChildren, synthesizing));
-        transitions.add(new Transition(processingGatherChildren, hangingUp));
-
-        transitions.add(new Transition(gathering, finishGathering));
-        transitions.add(new Transition(gathering, hangingUp));
-
-        transitions.add(new Transition(finishGathering, faxing));
-        transitions.add(new Transition(finishGathering, sendingEmail));
-        transitions.add(new Transition(finishGathering, pausing));
-        transitions.add(new Transition(finishGathering, checkingCache));
-        transitions.add(new Transition(finishGathering, caching));
-        transitions.add(new Transition(finishGathering, synthesizing));
-        transitions.add(new Transition(finishGathering, redirecting));
-        transitions.add(new Transition(finishGathering, processingGatherChildren));
-        transitions.add(new Transition(finishGathering, creatingRecording));
-        transitions.add(new Transition(finishGathering, creatingSmsSession));
-        transitions.add(new Transition(finishGathering, hangingUp));
-        transitions.add(new Transition(creatingSmsSession, sendingSms));
-        transitions.add(new Transition(creatingSmsSession, hangingUp));
-        transitions.add(new Transition(sendingSms, faxing));
-        transitions.add(new Transition(sendingSms, sendingEmail));
-        transitions.add(new Transition(sendingSms, pausing));
-        transitions.add(new Transition(sendingSms, caching));
-        transitions.add(new Transition(sendingSms, synthesizing));
-        transitions.add(new Transition(sendingSms, redirecting));
-        transitions.add(new Transition(sendingSms, processingGatherChildren));
-        transitions.add(new Transition(sendingSms, creatingRecording));
-        transitions.add(new Transition(sendingSms, creatingSmsSession));
-        transitions.add(new Transition(sendingSms, hangingUp));
+        // Initialize the transitions for the FSM, once per interpreter class.
+        if (!hasSharedTransitions()) {
+            transitions.add(new Transition(uninitialized, acquiringAsrInfo));
+            transitions.add(new Transition(acquiringAsrInfo, acquiringSynthesizerInfo));
+            transitions.add(new Transition(acquiringSynthesizerInfo, acquiringCallInfo));
+            transitions.add(new Transition(pausing, hangingUp));
+            transitions.add(new Transition(playingRejectionPrompt, hangingUp));
+            transitions.add(new Transition(faxing, faxing));
+            transitions.add(new Transition(faxing, caching));
+            transitions.add(new Transition(faxing, pausing));
+            transitions.add(new Transition(faxing, redirecting));
+            transitions.add(new Transition(faxing, synthesizing));
+            transitions.add(new Transition(faxing, processingGatherChildren));
+            transitions.add(new Transition(faxing, creatingRecording));
+            transitions.add(new Transition(faxing, creatingSmsSession));
+            transitions.add(new Transition(faxing, hangingUp));
+            transitions.add(new Transition(sendingEmail, sendingEmail));
+            transitions.add(new Transition(sendingEmail, caching));
+            transitions.add(new Transition(sendingEmail, pausing));
+            transitions.add(new Transition(sendingEmail, redirecting));
+            transitions.add(new Transition(sendingEmail, synthesizing));
+            transitions.add(new Transition(sendingEmail, processingGatherChildren));
+            transitions.add(new Transition(sendingEmail, creatingRecording));
+            transitions.add(new Transition(sendingEmail, creatingSmsSession));
+            transitions.add(new Transition(sendingEmail, hangingUp));
+            transitions.add(new Transition(caching, faxing));
+            transitions.add(new Transition(caching, sendingEmail));
+            transitions.add(new Transition(caching, playing));
+            transitions.add(new Transition(caching, caching));
+            transitions.add(new Transition(caching, pausing));
+            transitions.add(new Transition(caching, redirecting));
+            transitions.add(new Transition(caching, synthesizing));
+            transitions.add(new Transition(caching, processingGatherChildren));
+            transitions.add(new Transition(caching, creatingRecording));
+            transitions.add(new Transition(caching, creatingSmsSession));
+            transitions.add(new Transition(caching, hangingUp));
+            transitions.add(new Transition(checkingCache, synthesizing));
+            transitions.add(new Transition(checkingCache, playing));
+            transitions.add(new Transition(checkingCache, checkingCache));
+            transitions.add(new Transition(playing, hangingUp));
+            transitions.add(new Transition(synthesizing, faxing));
+            transitions.add(new Transition(synthesizing, sendingEmail));
+            transitions.add(new Transition(synthesizing, pausing));
+            transitions.add(new Transition(synthesizing, checkingCache));
+            transitions.add(new Transition(synthesizing, caching));
+            transitions.add(new Transition(synthesizing, redirecting));
+            transitions.add(new Transition(synthesizing, processingGatherChildren));
+            transitions.add(new Transition(synthesizing, creatingRecording));
+            transitions.add(new Transition(synthesizing, creatingSmsSession));
+            transitions.add(new Transition(synthesizing, synthesizing));
+            transitions.add(new Transition(synthesizing, hangingUp));
+            transitions.add(new Transition(redirecting, faxing));
+            transitions.add(new Transition(redirecting, sendingEmail));
+            transitions.add(new Transition(redirecting, pausing));
+            transitions.add(new Transition(redirecting, checkingCache));
+            transitions.add(new Transition(redirecting, caching));
+            transitions.add(new Transition(redirecting, synthesizing));
+            transitions.add(new Transition(redirecting, redirecting));
+            transitions.add(new Transition(redirecting, processingGatherChildren));
+            transitions.add(new Transition(redirecting, creatingRecording));
+            transitions.add(new Transition(redirecting, creatingSmsSession));
+            transitions.add(new Transition(redirecting, hangingUp));
+            transitions.add(new Transition(creatingRecording, finishRecording));
+            transitions.add(new Transition(creatingRecording, hangingUp));
+            transitions.add(new Transition(finishRecording, faxing));
+            transitions.add(new Transition(finishRecording, sendingEmail));
+            transitions.add(new Transition(finishRecording, pausing));
+            transitions.add(new Transition(finishRecording, checkingCache));
+            transitions.add(new Transition(finishRecording, caching));
+            transitions.add(new Transition(finishRecording, synthesizing));
+            transitions.add(new Transition(finishRecording, redirecting));
+            transitions.add(new Transition(finishRecording, processingGatherChildren));
+            transitions.add(new Transition(finishRecording, creatingRecording));
+            transitions.add(new Transition(finishRecording, creatingSmsSession));
+            transitions.add(new Transition(finishRecording, hangingUp));
+            transitions.add(new Transition(processingGatherChildren, processingGatherChildren));
+            transitions.add(new Transition(processingGatherChildren, gathering));
+            transitions.add(new Transition(processingGatherChildren, synthesizing));
+            transitions.add(new Transition(processingGatherChildren, hangingUp));
+
+            transitions.add(new Transition(gathering, finishGathering));
+            transitions.add(new Transition(gathering, hangingUp));
+
+            transitions.add(new Transition(finishGathering, faxing));
+            transitions.add(new Transition(finishGathering, sendingEmail));
+            transitions.add(new Transition(finishGathering, pausing));
+            transitions.add(new Transition(finishGathering, checkingCache));
+            transitions.add(new Transition(finishGathering, caching));
+            transitions.add(new Transition(finishGathering, synthesizing));
+            transitions.add(new Transition(finishGathering, redirecting));
+            transitions.add(new Transition(finishGathering, processingGatherChildren));
+            transitions.add(new Transition(finishGathering, creatingRecording));
+            transitions.add(new Transition(finishGathering, creatingSmsSession));
+            transitions.add(new Transition(finishGathering, hangingUp));
+            transitions.add(new Transition(creatingSmsSession, sendingSms));
+            transitions.add(new Transition(creatingSmsSession, hangingUp));
+            transitions.add(new Transition(sendingSms, faxing));
+            transitions.add(new Transition(sendingSms, sendingEmail));
+            transitions.add(new Transition(sendingSms, pausing));
+            transitions.add(new Transition(sendingSms, caching));
+            transitions.add(new Transition(sendingSms, synthesizing));
+            transitions.add(new Transition(sendingSms, redirecting));
+            transitions.add(new Transition(sendingSms, processingGatherChildren));
+            transitions.add(new Transition(sendingSms, creatingRecording));
+            transitions.add(new Transition(sendingSms, creatingSmsSession));
+            transitions.add(new Transition(sendingSms, hangingUp));
+        }
 
         extensions = ExtensionController.getInstance().getExtensions(ExtensionType.FeatureAccessControl);
 
@@ -688,6 +719,23 @@ public abstract class BaseVoiceInterpreter extends RestcommUntypedActor {
         return getContext().actorOf(props);
     }
 
+    ActorRef parser(final HttpResponseDescriptor response) throws IOException {
+        final Tag document = response.getRcml();
+        if (document == null) {
+            return parser(response.getContentAsString());
+        }
+        final String xml = response.getContentAsString();
+        final Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws IOException {
+                return new Parser(document, xml, self());
+            }
+        });
+        return getContext().actorOf(props);
+    }
+
     void postCleanup() {
         if (smsSessions.isEmpty() && outstandingAsrRequests == 0) {
             final UntypedActorContext context = getContext();
@@ -28,6 +28,7 @@ import org.restcomm.connect.commons.fsm.Action;
 import org.restcomm.connect.commons.fsm.FiniteStateMachine;
 import org.restcomm.connect.commons.fsm.State;
 import org.restcomm.connect.commons.fsm.Transition;
+import org.restcomm.connect.commons.fsm.TransitionTable;
 import org.restcomm.connect.commons.patterns.Observe;
 import org.restcomm.connect.dao.DaoManager;
 import org.restcomm.connect.dao.NotificationsDao;
@@ -76,6 +77,82 @@ import static org.restcomm.connect.interpreter.rcml.Verbs.say;
 public class ConfVoiceInterpreter extends RestcommUntypedActor {
     private static final int ERROR_NOTIFICATION = 0;
     private static final int WARNING_NOTIFICATION = 1;
+
+    // State graph shared by every interpreter, the states of each interpreter carry its actions.
+    private static final TransitionTable TRANSITIONS;
+
+    static {
+        final State uninitialized = new State("uninitialized", null);
+        final State acquiringSynthesizerInfo = new State("acquiring tts info", null);
+        final State acquiringConfMediaGroup = new State("acquiring call media group", null);
+        final State downloadingRcml = new State("downloading rcml", null);
+        final State initializingConfMediaGroup = new State("initializing call media group", null);
+        final State ready = new State("ready", null);
+        final State notFound = new State("notFound", null);
+        final State caching = new State("caching", null);
+        final State checkingCache = new State("checkingCache", null);
+        final State playing = new State("playing", null);
+        final State synthesizing = new State("synthesizing", null);
+        final State redirecting = new State("redirecting", null);
+        final State finished = new State("finished", null);
+
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(uninitialized, acquiringSynthesizerInfo));
+        transitions.add(new Transition(uninitialized, finished));
+
+        transitions.add(new Transition(acquiringSynthesizerInfo, finished));
+        transitions.add(new Transition(acquiringSynthesizerInfo, downloadingRcml));
+
+        transitions.add(new Transition(acquiringConfMediaGroup, initializingConfMediaGroup));
+        transitions.add(new Transition(acquiringConfMediaGroup, finished));
+
+        transitions.add(new Transition(initializingConfMediaGroup, downloadingRcml));
+        transitions.add(new Transition(initializingConfMediaGroup, checkingCache));
+        transitions.add(new Transition(initializingConfMediaGroup, caching));
+        transitions.add(new Transition(initializingConfMediaGroup, synthesizing));
+        transitions.add(new Transition(initializingConfMediaGroup, redirecting));
+        transitions.add(new Transition(initializingConfMediaGroup, finished));
+        transitions.add(new Transition(initializingConfMediaGroup, ready));
+        transitions.add(new Transition(downloadingRcml, ready));
+        transitions.add(new Transition(downloadingRcml, notFound));
+        transitions.add(new Transition(downloadingRcml, finished));
+        transitions.add(new Transition(downloadingRcml, acquiringConfMediaGroup));
+
+        transitions.add(new Transition(ready, checkingCache));
+        transitions.add(new Transition(ready, caching));
+        transitions.add(new Transition(ready, synthesizing));
+        transitions.add(new Transition(ready, redirecting));
+        transitions.add(new Transition(ready, finished));
+
+        transitions.add(new Transition(caching, playing));
+        transitions.add(new Transition(caching, caching));
+        transitions.add(new Transition(caching, redirecting));
+        transitions.add(new Transition(caching, synthesizing));
+
+        transitions.add(new Transition(caching, finished));
+        transitions.add(new Transition(checkingCache, synthesizing));
+        transitions.add(new Transition(checkingCache, playing));
+        transitions.add(new Transition(checkingCache, checkingCache));
+        transitions.add(new Transition(playing, ready));
+        transitions.add(new Transition(playing, finished));
+
+        transitions.add(new Transition(synthesizing, checkingCache));
+        transitions.add(new Transition(synthesizing, caching));
+        transitions.add(new Transition(synthesizing, redirecting));
+
+        transitions.add(new Transition(synthesizing, synthesizing));
+        transitions.add(new Transition(synthesizing, finished));
+
+        transitions.add(new Transition(redirecting, ready));
+        transitions.add(new Transition(redirecting, checkingCache));
+        transitions.add(new Transition(redirecting, caching));
+        transitions.add(new Transition(redirecting, synthesizing));
+        transitions.add(new Transition(redirecting, redirecting));
+
+        transitions.add(new Transition(redirecting, finished));
+        TRANSITIONS = new TransitionTable(transitions);
+    }
+
     static String EMAIL_SENDER;
 
     // Logger.
@@ -169,64 +246,8 @@ public class ConfVoiceInterpreter extends RestcommUntypedActor {
 
         finished = new State("finished", new Finished(source), null);
 
-        // Initialize the transitions for the FSM.
-        final Set<Transition> transitions = new HashSet<Transition>();
-        transitions.add(new Transition(uninitialized, acquiringSynthesizerInfo));
-        transitions.add(new Transition(uninitialized, finished));
-
-        transitions.add(new Transition(acquiringSynthesizerInfo, finished));
-        transitions.add(new Transition(acquiringSynthesizerInfo, downloadingRcml));
-
-        transitions.add(new Transition(acquiringConfMediaGroup, initializingConfMediaGroup));
-        transitions.add(new Transition(acquiringConfMediaGroup, finished));
-
-        transitions.add(new Transition(initializingConfMediaGroup, downloadingRcml));
-        transitions.add(new Transition(initializingConfMediaGroup, checkingCache));
-        transitions.add(new Transition(initializingConfMediaGroup, caching));
-        transitions.add(new Transition(initializingConfMediaGroup, synthesizing));
-        transitions.add(new Transition(initializingConfMediaGroup, redirecting));
-        transitions.add(new Transition(initializingConfMediaGroup, finished));
-        transitions.add(new Transition(initializingConfMediaGroup, ready));
-        transitions.add(new Transition(downloadingRcml, ready));
-        transitions.add(new Transition(downloadingRcml, notFound));
-        transitions.add(new Transition(downloadingRcml, finished));
-        transitions.add(new Transition(downloadingRcml, acquiringConfMediaGroup));
-
-        transitions.add(new Transition(ready, checkingCache));
-        transitions.add(new Transition(ready, caching));
-        transitions.add(new Transition(ready, synthesizing));
-        transitions.add(new Transition(ready, redirecting));
-        transitions.add(new Transition(ready, finished));
-
-        transitions.add(new Transition(caching, playing));
-        transitions.add(new Transition(caching, caching));
-        transitions.add(new Transition(caching, redirecting));
-        transitions.add(new Transition(caching, synthesizing));
-
-        transitions.add(new Transition(caching, finished));
-        transitions.add(new Transition(checkingCache, synthesizing));
-        transitions.add(new Transition(checkingCache, playing));
-        transitions.add(new Transition(checkingCache, checkingCache));
-        transitions.add(new Transition(playing, ready));
-        transitions.add(new Transition(playing, finished));
-
-        transitions.add(new Transition(synthesizing, checkingCache));
-        transitions.add(new Transition(synthesizing, caching));
-        transitions.add(new Transition(synthesizing, redirecting));
-
-        transitions.add(new Transition(synthesizing, synthesizing));
-        transitions.add(new Transition(synthesizing, finished));
-
-        transitions.add(new Transition(redirecting, ready));
-        transitions.add(new Transition(redirecting, checkingCache));
-        transitions.add(new Transition(redirecting, caching));
-        transitions.add(new Transition(redirecting, synthesizing));
-        transitions.add(new Transition(redirecting, redirecting));
-
-        transitions.add(new Transition(redirecting, finished));
-
         // Initialize the FSM.
-        this.fsm = new FiniteStateMachine(uninitialized, transitions);
+        this.fsm = new FiniteStateMachine(uninitialized, TRANSITIONS);
         // Initialize the runtime stuff.
         this.accountId = params.getAccount();
         this.version = params.getVersion();
@@ -517,6 +538,23 @@ public class ConfVoiceInterpreter extends RestcommUntypedActor {
         return getContext().actorOf(props);
     }
 
+    private ActorRef parser(final HttpResponseDescriptor response) throws IOException {
+        final Tag document = response.getRcml();
+        if (document == null) {
+            return parser(response.getContentAsString());
+        }
+        final String xml = response.getContentAsString();
+        final Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Parser(document, xml, self());
+            }
+        });
+        return getContext().actorOf(props);
+    }
+
     private void postCleanup() {
         final ActorRef self = self();
         final UntypedActorContext context = getContext();
@@ -676,7 +714,7 @@ public class ConfVoiceInterpreter extends RestcommUntypedActor {
 
                 final String type = response.getContentType();
                 if (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html")) {
-                    parser = parser(response.getContentAsString());
+                    parser = parser(response);
                 } else if (type.contains("audio/wav") || type.contains("audio/wave") || type.contains("audio/x-wav")) {
                     parser = parser("<Play>" + request.getUri() + "</Play>");
                 } else if (type.contains("text/plain")) {
@@ -44,6 +44,7 @@ import org.restcomm.connect.commons.fsm.Action;
 import org.restcomm.connect.commons.fsm.FiniteStateMachine;
 import org.restcomm.connect.commons.fsm.State;
 import org.restcomm.connect.commons.fsm.Transition;
+import org.restcomm.connect.commons.fsm.TransitionTable;
 import org.restcomm.connect.commons.patterns.Observe;
 import org.restcomm.connect.dao.DaoManager;
 import org.restcomm.connect.dao.NotificationsDao;
@@ -102,6 +103,66 @@ import org.restcomm.connect.interpreter.rcml.SmsVerb;
 public final class SmsInterpreter extends RestcommUntypedActor {
     private static final int ERROR_NOTIFICATION = 0;
     private static final int WARNING_NOTIFICATION = 1;
+
+    // State graph shared by every interpreter, the states of each interpreter carry its actions.
+    private static final TransitionTable TRANSITIONS;
+
+    static {
+        final State uninitialized = new State("uninitialized", null);
+        final State acquiringLastSmsRequest = new State("acquiring last sms event", null);
+        final State downloadingRcml = new State("downloading rcml", null);
+        final State downloadingFallbackRcml = new State("downloading fallback rcml", null);
+        final State ready = new State("ready", null);
+        final State redirecting = new State("redirecting", null);
+        final State creatingSmsSession = new State("creating sms session", null);
+        final State sendingSms = new State("sending sms", null);
+        final State waitingForSmsResponses = new State("waiting for sms responses", null);
+        final State sendingEmail = new State("sending Email", null);
+        final State finished = new State("finished", null);
+
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(uninitialized, acquiringLastSmsRequest));
+        transitions.add(new Transition(acquiringLastSmsRequest, downloadingRcml));
+        transitions.add(new Transition(acquiringLastSmsRequest, finished));
+        transitions.add(new Transition(acquiringLastSmsRequest, sendingEmail));
+        transitions.add(new Transition(downloadingRcml, ready));
+        transitions.add(new Transition(downloadingRcml, downloadingFallbackRcml));
+        transitions.add(new Transition(downloadingRcml, finished));
+        transitions.add(new Transition(downloadingRcml, sendingEmail));
+        transitions.add(new Transition(downloadingFallbackRcml, ready));
+        transitions.add(new Transition(downloadingFallbackRcml, finished));
+        transitions.add(new Transition(downloadingFallbackRcml, sendingEmail));
+        transitions.add(new Transition(ready, redirecting));
+        transitions.add(new Transition(ready, creatingSmsSession));
+        transitions.add(new Transition(ready, waitingForSmsResponses));
+        transitions.add(new Transition(ready, sendingEmail));
+        transitions.add(new Transition(ready, finished));
+        transitions.add(new Transition(redirecting, ready));
+        transitions.add(new Transition(redirecting, creatingSmsSession));
+        transitions.add(new Transition(redirecting, finished));
+        transitions.add(new Transition(redirecting, sendingEmail));
+        transitions.add(new Transition(redirecting, waitingForSmsResponses));
+        transitions.add(new Transition(creatingSmsSession, sendingSms));
+        transitions.add(new Transition(creatingSmsSession, waitingForSmsResponses));
+        transitions.add(new Transition(creatingSmsSession, sendingEmail));
+        transitions.add(new Transition(creatingSmsSession, finished));
+        transitions.add(new Transition(sendingSms, ready));
+        transitions.add(new Transition(sendingSms, redirecting));
+        transitions.add(new Transition(sendingSms, creatingSmsSession));
+        transitions.add(new Transition(sendingSms, waitingForSmsResponses));
+        transitions.add(new Transition(sendingSms, sendingEmail));
+        transitions.add(new Transition(sendingSms, finished));
+        transitions.add(new Transition(waitingForSmsResponses, waitingForSmsResponses));
+        transitions.add(new Transition(waitingForSmsResponses, sendingEmail));
+        transitions.add(new Transition(waitingForSmsResponses, finished));
+        transitions.add(new Transition(sendingEmail, ready));
+        transitions.add(new Transition(sendingEmail, redirecting));
+        transitions.add(new Transition(sendingEmail, creatingSmsSession));
+        transitions.add(new Transition(sendingEmail, waitingForSmsResponses));
+        transitions.add(new Transition(sendingEmail, finished));
+        TRANSITIONS = new TransitionTable(transitions);
+    }
+
     static String EMAIL_SENDER;
     // Logger
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
@@ -172,49 +233,8 @@ public final class SmsInterpreter extends RestcommUntypedActor {
         waitingForSmsResponses = new State("waiting for sms responses", new WaitingForSmsResponses(source), null);
         sendingEmail = new State("sending Email", new SendingEmail(source), null);
         finished = new State("finished", new Finished(source), null);
-        // Initialize the transitions for the FSM.
-        final Set<Transition> transitions = new HashSet<Transition>();
-        transitions.add(new Transition(uninitialized, acquiringLastSmsRequest));
-        transitions.add(new Transition(acquiringLastSmsRequest, downloadingRcml));
-        transitions.add(new Transition(acquiringLastSmsRequest, finished));
-        transitions.add(new Transition(acquiringLastSmsRequest, sendingEmail));
-        transitions.add(new Transition(downloadingRcml, ready));
-        transitions.add(new Transition(downloadingRcml, downloadingFallbackRcml));
-        transitions.add(new Transition(downloadingRcml, finished));
-        transitions.add(new Transition(downloadingRcml, sendingEmail));
-        transitions.add(new Transition(downloadingFallbackRcml, ready));
-        transitions.add(new Transition(downloadingFallbackRcml, finished));
-        transitions.add(new Transition(downloadingFallbackRcml, sendingEmail));
-        transitions.add(new Transition(ready, redirecting));
-        transitions.add(new Transition(ready, creatingSmsSession));
-        transitions.add(new Transition(ready, waitingForSmsResponses));
-        transitions.add(new Transition(ready, sendingEmail));
-        transitions.add(new Transition(ready, finished));
-        transitions.add(new Transition(redirecting, ready));
-        transitions.add(new Transition(redirecting, creatingSmsSession));
-        transitions.add(new Transition(redirecting, finished));
-        transitions.add(new Transition(redirecting, sendingEmail));
-        transitions.add(new Transition(redirecting, waitingForSmsResponses));
-        transitions.add(new Transition(creatingSmsSession, sendingSms));
-        transitions.add(new Transition(creatingSmsSession, waitingForSmsResponses));
-        transitions.add(new Transition(creatingSmsSession, sendingEmail));
-        transitions.add(new Transition(creatingSmsSession, finished));
-        transitions.add(new Transition(sendingSms, ready));
-        transitions.add(new Transition(sendingSms, redirecting));
-        transitions.add(new Transition(sendingSms, creatingSmsSession));
-        transitions.add(new Transition(sendingSms, waitingForSmsResponses));
-        transitions.add(new Transition(sendingSms, sendingEmail));
-        transitions.add(new Transition(sendingSms, finished));
-        transitions.add(new Transition(waitingForSmsResponses, waitingForSmsResponses));
-        transitions.add(new Transition(waitingForSmsResponses, sendingEmail));
-        transitions.add(new Transition(waitingForSmsResponses, finished));
-        transitions.add(new Transition(sendingEmail, ready));
-        transitions.add(new Transition(sendingEmail, redirecting));
-        transitions.add(new Transition(sendingEmail, creatingSmsSession));
-        transitions.add(new Transition(sendingEmail, waitingForSmsResponses));
-        transitions.add(new Transition(sendingEmail, finished));
         // Initialize the FSM.
-        this.fsm = new FiniteStateMachine(uninitialized, transitions);
+        this.fsm = new FiniteStateMachine(uninitialized, TRANSITIONS);
         // Initialize the runtime stuff.
         this.service = params.getSmsService();
         this.downloader = downloader();
@@ -396,7 +416,7 @@ public final class SmsInterpreter extends RestcommUntypedActor {
 
                 if (er.isAllowed()) {
                     fsm.transition(message, creatingSmsSession);
-                    ec.executePostOutboundAction(far, extensions);
+                    ec.executePostOutboundActionAsync(far, extensions);
                 } else {
                     if (logger.isDebugEnabled()) {
                         final String errMsg = "Outbound SMS is not Allowed";
@@ -406,7 +426,7 @@ public final class SmsInterpreter extends RestcommUntypedActor {
                     final Notification notification = notification(WARNING_NOTIFICATION, 11001, "Outbound SMS is now allowed");
                     notifications.addNotification(notification);
                     fsm.transition(message, finished);
-                    ec.executePostOutboundAction(far, extensions);
+                    ec.executePostOutboundActionAsync(far, extensions);
                     return;
                 }
             } else if (Verbs.email.equals(verb.name())) {
@@ -482,6 +502,23 @@ public final class SmsInterpreter extends RestcommUntypedActor {
         return getContext().actorOf(props);
     }
 
+    private ActorRef parser(final HttpResponseDescriptor response) throws IOException {
+        final Tag document = response.getRcml();
+        if (document == null) {
+            return parser(response.getContentAsString());
+        }
+        final String xml = response.getContentAsString();
+        final Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Parser(document, xml, self());
+            }
+        });
+        return getContext().actorOf(props);
+    }
+
     private void response(final Object message) {
         final Class<?> klass = message.getClass();
         final ActorRef self = self();
@@ -641,7 +678,7 @@ public final class SmsInterpreter extends RestcommUntypedActor {
                 final String type = response.getContentType();
                 final String content = response.getContentAsString();
                 if ((type != null && content != null) && (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html"))) {
-                    parser = parser(content);
+                    parser = parser(response);
                 } else {
                     if(logger.isInfoEnabled()) {
                         logger.info("DownloaderResponse getContentType is null: "+response);
@@ -105,50 +105,52 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
         rejecting = new State("rejecting", new Rejecting(source), null);
         finished = new State("finished", new Finished(source), null);
 
-        transitions.add(new Transition(acquiringAsrInfo, finished));
-        transitions.add(new Transition(acquiringSynthesizerInfo, finished));
-        transitions.add(new Transition(acquiringCallInfo, downloadingRcml));
-        transitions.add(new Transition(acquiringCallInfo, finished));
-        transitions.add(new Transition(downloadingRcml, ready));
-        transitions.add(new Transition(downloadingRcml, notFound));
-        transitions.add(new Transition(downloadingRcml, hangingUp));
-        transitions.add(new Transition(downloadingRcml, finished));
-        transitions.add(new Transition(ready, faxing));
-        transitions.add(new Transition(ready, pausing));
-        transitions.add(new Transition(ready, checkingCache));
-        transitions.add(new Transition(ready, caching));
-        transitions.add(new Transition(ready, synthesizing));
-        transitions.add(new Transition(ready, rejecting));
-        transitions.add(new Transition(ready, redirecting));
-        transitions.add(new Transition(ready, processingGatherChildren));
-        transitions.add(new Transition(ready, creatingRecording));
-        transitions.add(new Transition(ready, creatingSmsSession));
-        transitions.add(new Transition(ready, hangingUp));
-        transitions.add(new Transition(ready, finished));
-        transitions.add(new Transition(pausing, ready));
-        transitions.add(new Transition(pausing, finished));
-        transitions.add(new Transition(rejecting, finished));
-        transitions.add(new Transition(faxing, ready));
-        transitions.add(new Transition(faxing, finished));
-        transitions.add(new Transition(caching, finished));
-        transitions.add(new Transition(playing, ready));
-        transitions.add(new Transition(playing, finished));
-        transitions.add(new Transition(synthesizing, finished));
-        transitions.add(new Transition(redirecting, ready));
-        transitions.add(new Transition(redirecting, finished));
-        transitions.add(new Transition(creatingRecording, finished));
-        transitions.add(new Transition(finishRecording, ready));
-        transitions.add(new Transition(finishRecording, finished));
-        transitions.add(new Transition(processingGatherChildren, finished));
-        transitions.add(new Transition(gathering, finished));
-        transitions.add(new Transition(finishGathering, finished));
-        transitions.add(new Transition(creatingSmsSession, finished));
-        transitions.add(new Transition(sendingSms, ready));
-        transitions.add(new Transition(sendingSms, finished));
-        transitions.add(new Transition(hangingUp, finished));
+        if (!hasSharedTransitions()) {
+            transitions.add(new Transition(acquiringAsrInfo, finished));
+            transitions.add(new Transition(acquiringSynthesizerInfo, finished));
+            transitions.add(new Transition(acquiringCallInfo, downloadingRcml));
+            transitions.add(new Transition(acquiringCallInfo, finished));
+            transitions.add(new Transition(downloadingRcml, ready));
+            transitions.add(new Transition(downloadingRcml, notFound));
+            transitions.add(new Transition(downloadingRcml, hangingUp));
+            transitions.add(new Transition(downloadingRcml, finished));
+            transitions.add(new Transition(ready, faxing));
+            transitions.add(new Transition(ready, pausing));
+            transitions.add(new Transition(ready, checkingCache));
+            transitions.add(new Transition(ready, caching));
+            transitions.add(new Transition(ready, synthesizing));
+            transitions.add(new Transition(ready, rejecting));
+            transitions.add(new Transition(ready, redirecting));
+            transitions.add(new Transition(ready, processingGatherChildren));
+            transitions.add(new Transition(ready, creatingRecording));
+            transitions.add(new Transition(ready, creatingSmsSession));
+            transitions.add(new Transition(ready, hangingUp));
+            transitions.add(new Transition(ready, finished));
+            transitions.add(new Transition(pausing, ready));
+            transitions.add(new Transition(pausing, finished));
+            transitions.add(new Transition(rejecting, finished));
+            transitions.add(new Transition(faxing, ready));
+            transitions.add(new Transition(faxing, finished));
+            transitions.add(new Transition(caching, finished));
+            transitions.add(new Transition(playing, ready));
+            transitions.add(new Transition(playing, finished));
+            transitions.add(new Transition(synthesizing, finished));
+            transitions.add(new Transition(redirecting, ready));
+            transitions.add(new Transition(redirecting, finished));
+            transitions.add(new Transition(creatingRecording, finished));
+            transitions.add(new Transition(finishRecording, ready));
+            transitions.add(new Transition(finishRecording, finished));
+            transitions.add(new Transition(processingGatherChildren, finished));
+            transitions.add(new Transition(gathering, finished));
+            transitions.add(new Transition(finishGathering, finished));
+            transitions.add(new Transition(creatingSmsSession, finished));
+            transitions.add(new Transition(sendingSms, ready));
+            transitions.add(new Transition(sendingSms, finished));
+            transitions.add(new Transition(hangingUp, finished));
+        }
 
         // Initialize the FSM.
-        this.fsm = new FiniteStateMachine(uninitialized, transitions);
+        this.fsm = new FiniteStateMachine(uninitialized, sharedTransitions());
         // Initialize the runtime stuff.
         this.accountId = params.getAccount();
         this.phoneId = params.getPhone();
@@ -502,7 +504,7 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
 
                 final String type = response.getContentType();
                 if (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html")) {
-                    parser = parser(response.getContentAsString());
+                    parser = parser(response);
                 } else if (type.contains("audio/wav") || type.contains("audio/wave") || type.contains("audio/x-wav")) {
                     parser = parser("<Play>" + request.getUri() + "</Play>");
                 } else if (type.contains("text/plain")) {
@@ -273,180 +273,182 @@ public class VoiceInterpreter extends BaseVoiceInterpreter {
          * dialing = new State("dialing", null, null); bridging = new State("bridging", null, null); conferencing = new
          * State("conferencing", null, null);
          */
-        transitions.add(new Transition(acquiringAsrInfo, finished));
-        transitions.add(new Transition(acquiringSynthesizerInfo, finished));
-        transitions.add(new Transition(acquiringCallInfo, initializingCall));
-        transitions.add(new Transition(acquiringCallInfo, downloadingRcml));
-        transitions.add(new Transition(acquiringCallInfo, finished));
-        transitions.add(new Transition(acquiringCallInfo, ready));
-        transitions.add(new Transition(initializingCall, downloadingRcml));
-        transitions.add(new Transition(initializingCall, ready));
-        transitions.add(new Transition(initializingCall, finishDialing));
-        transitions.add(new Transition(initializingCall, hangingUp));
-        transitions.add(new Transition(initializingCall, finished));
-        transitions.add(new Transition(downloadingRcml, ready));
-        transitions.add(new Transition(downloadingRcml, notFound));
-        transitions.add(new Transition(downloadingRcml, downloadingFallbackRcml));
-        transitions.add(new Transition(downloadingRcml, hangingUp));
-        transitions.add(new Transition(downloadingRcml, finished));
-        transitions.add(new Transition(downloadingFallbackRcml, ready));
-        transitions.add(new Transition(downloadingFallbackRcml, hangingUp));
-        transitions.add(new Transition(downloadingFallbackRcml, finished));
-        transitions.add(new Transition(downloadingFallbackRcml, notFound));
-        transitions.add(new Transition(ready, initializingCall));
-        transitions.add(new Transition(ready, faxing));
-        transitions.add(new Transition(ready, sendingEmail));
-        transitions.add(new Transition(ready, pausing));
-        transitions.add(new Transition(ready, checkingCache));
-        transitions.add(new Transition(ready, caching));
-        transitions.add(new Transition(ready, synthesizing));
-        transitions.add(new Transition(ready, rejecting));
-        transitions.add(new Transition(ready, redirecting));
-        transitions.add(new Transition(ready, processingGatherChildren));
-        transitions.add(new Transition(ready, creatingRecording));
-        transitions.add(new Transition(ready, creatingSmsSession));
-        transitions.add(new Transition(ready, startDialing));
-        transitions.add(new Transition(ready, hangingUp));
-        transitions.add(new Transition(ready, finished));
-        transitions.add(new Transition(pausing, ready));
-        transitions.add(new Transition(pausing, finished));
-        transitions.add(new Transition(rejecting, finished));
-        transitions.add(new Transition(faxing, ready));
-        transitions.add(new Transition(faxing, finished));
-        transitions.add(new Transition(sendingEmail, ready));
-        transitions.add(new Transition(sendingEmail, finished));
-        transitions.add(new Transition(sendingEmail, finishDialing));
-        transitions.add(new Transition(checkingCache, caching));
-        transitions.add(new Transition(checkingCache, conferencing));
-        transitions.add(new Transition(caching, finished));
-        transitions.add(new Transition(caching, conferencing));
-        transitions.add(new Transition(caching, finishConferencing));
-        transitions.add(new Transition(playing, ready));
-        transitions.add(new Transition(playing, finishConferencing));
-        transitions.add(new Transition(playing, finished));
-        transitions.add(new Transition(synthesizing, finished));
-        transitions.add(new Transition(redirecting, ready));
-        transitions.add(new Transition(redirecting, finished));
-        transitions.add(new Transition(creatingRecording, finished));
-        transitions.add(new Transition(finishRecording, ready));
-        transitions.add(new Transition(finishRecording, finished));
-        transitions.add(new Transition(processingGatherChildren, finished));
-        transitions.add(new Transition(gathering, finished));
-        transitions.add(new Transition(finishGathering, ready));
-        transitions.add(new Transition(finishGathering, finishGathering));
-        transitions.add(new Transition(finishGathering, finished));
-        transitions.add(new Transition(creatingSmsSession, finished));
-        transitions.add(new Transition(sendingSms, ready));
-        transitions.add(new Transition(sendingSms, startDialing));
-        transitions.add(new Transition(sendingSms, finished));
-        transitions.add(new Transition(startDialing, processingDialChildren));
-        transitions.add(new Transition(startDialing, acquiringConferenceInfo));
-        transitions.add(new Transition(startDialing, faxing));
-        transitions.add(new Transition(startDialing, sendingEmail));
-        transitions.add(new Transition(startDialing, pausing));
-        transitions.add(new Transition(startDialing, checkingCache));
-        transitions.add(new Transition(startDialing, caching));
-        transitions.add(new Transition(startDialing, synthesizing));
-        transitions.add(new Transition(startDialing, redirecting));
-        transitions.add(new Transition(startDialing, processingGatherChildren));
-        transitions.add(new Transition(startDialing, creatingRecording));
-        transitions.add(new Transition(startDialing, creatingSmsSession));
-        transitions.add(new Transition(startDialing, startDialing));
-        transitions.add(new Transition(startDialing, hangingUp));
-        transitions.add(new Transition(startDialing, finished));
-        transitions.add(new Transition(processingDialChildren, processingDialChildren));
-        transitions.add(new Transition(processingDialChildren, forking));
-        transitions.add(new Transition(processingDialChildren, startDialing));
-        transitions.add(new Transition(processingDialChildren, checkingCache));
-        transitions.add(new Transition(processingDialChildren, sendingEmail));
-        transitions.add(new Transition(processingDialChildren, faxing));
-        transitions.add(new Transition(processingDialChildren, sendingSms));
-        transitions.add(new Transition(processingDialChildren, playing));
-        transitions.add(new Transition(processingDialChildren, pausing));
-        transitions.add(new Transition(processingDialChildren, ready));
-        transitions.add(new Transition(processingDialChildren, hangingUp));
-        transitions.add(new Transition(processingDialChildren, finished));
-        transitions.add(new Transition(forking, acquiringOutboundCallInfo));
-        transitions.add(new Transition(forking, finishDialing));
-        transitions.add(new Transition(forking, hangingUp));
-        transitions.add(new Transition(forking, finished));
-        transitions.add(new Transition(forking, ready));
-        transitions.add(new Transition(forking, checkingCache));
-        transitions.add(new Transition(forking, caching));
-        transitions.add(new Transition(forking, faxing));
-        transitions.add(new Transition(forking, sendingEmail));
-        transitions.add(new Transition(forking, pausing));
-        transitions.add(new Transition(forking, synthesizing));
-        transitions.add(new Transition(forking, redirecting));
-        transitions.add(new Transition(forking, processingGatherChildren));
-        transitions.add(new Transition(forking, creatingRecording));
-        transitions.add(new Transition(forking, creatingSmsSession));
-        // transitions.add(new Transition(acquiringOutboundCallInfo, joiningCalls));
-        transitions.add(new Transition(acquiringOutboundCallInfo, hangingUp));
-        transitions.add(new Transition(acquiringOutboundCallInfo, finished));
-        transitions.add(new Transition(acquiringOutboundCallInfo, creatingBridge));
-        transitions.add(new Transition(creatingBridge, initializingBridge));
-        transitions.add(new Transition(creatingBridge, finishDialing));
-        transitions.add(new Transition(initializingBridge, bridging));
-        transitions.add(new Transition(initializingBridge, hangingUp));
-        transitions.add(new Transition(initializingBridge, finished));
-        transitions.add(new Transition(bridging, bridged));
-        transitions.add(new Transition(bridging, finishDialing));
-        transitions.add(new Transition(bridged, finishDialing));
-        transitions.add(new Transition(bridged, finished));
-        transitions.add(new Transition(finishDialing, ready));
-        transitions.add(new Transition(finishDialing, faxing));
-        transitions.add(new Transition(finishDialing, sendingEmail));
-        transitions.add(new Transition(finishDialing, pausing));
-        transitions.add(new Transition(finishDialing, checkingCache));
-        transitions.add(new Transition(finishDialing, caching));
-        transitions.add(new Transition(finishDialing, synthesizing));
-        transitions.add(new Transition(finishDialing, redirecting));
-        transitions.add(new Transition(finishDialing, processingGatherChildren));
-        transitions.add(new Transition(finishDialing, creatingRecording));
-        transitions.add(new Transition(finishDialing, creatingSmsSession));
-        transitions.add(new Transition(finishDialing, startDialing));
-        transitions.add(new Transition(finishDialing, hangingUp));
-        transitions.add(new Transition(finishDialing, finished));
-        transitions.add(new Transition(finishDialing, initializingCall));
-        transitions.add(new Transition(acquiringConferenceInfo, joiningConference));
-        transitions.add(new Transition(acquiringConferenceInfo, hangingUp));
-        transitions.add(new Transition(acquiringConferenceInfo, finished));
-        transitions.add(new Transition(joiningConference, conferencing));
-        transitions.add(new Transition(joiningConference, acquiringConferenceInfo));
-        transitions.add(new Transition(joiningConference, hangingUp));
-        transitions.add(new Transition(joiningConference, finished));
-        transitions.add(new Transition(conferencing, finishConferencing));
-        transitions.add(new Transition(conferencing, hangingUp));
-        transitions.add(new Transition(conferencing, finished));
-        transitions.add(new Transition(conferencing, checkingCache));
-        transitions.add(new Transition(conferencing, caching));
-        transitions.add(new Transition(conferencing, playing));
-        transitions.add(new Transition(conferencing, startDialing));
-        transitions.add(new Transition(conferencing, creatingSmsSession));
-        transitions.add(new Transition(conferencing, sendingEmail));
-        transitions.add(new Transition(finishConferencing, ready));
-        transitions.add(new Transition(finishConferencing, faxing));
-        transitions.add(new Transition(finishConferencing, sendingEmail));
-        transitions.add(new Transition(finishConferencing, pausing));
-        transitions.add(new Transition(finishConferencing, checkingCache));
-        transitions.add(new Transition(finishConferencing, caching));
-        transitions.add(new Transition(finishConferencing, synthesizing));
-        transitions.add(new Transition(finishConferencing, redirecting));
-        transitions.add(new Transition(finishConferencing, processingGatherChildren));
-        transitions.add(new Transition(finishConferencing, creatingRecording));
-        transitions.add(new Transition(finishConferencing, creatingSmsSession));
-        transitions.add(new Transition(finishConferencing, startDialing));
-        transitions.add(new Transition(finishConferencing, hangingUp));
-        transitions.add(new Transition(finishConferencing, finished));
-        transitions.add(new Transition(hangingUp, finished));
-        transitions.add(new Transition(hangingUp, finishConferencing));
-        transitions.add(new Transition(hangingUp, finishDialing));
-        transitions.add(new Transition(hangingUp, ready));
-        transitions.add(new Transition(uninitialized, finished));
-        transitions.add(new Transition(notFound, finished));
+        if (!hasSharedTransitions()) {
+            transitions.add(new Transition(acquiringAsrInfo, finished));
+            transitions.add(new Transition(acquiringSynthesizerInfo, finished));
+            transitions.add(new Transition(acquiringCallInfo, initializingCall));
+            transitions.add(new Transition(acquiringCallInfo, downloadingRcml));
+            transitions.add(new Transition(acquiringCallInfo, finished));
+            transitions.add(new Transition(acquiringCallInfo, ready));
+            transitions.add(new Transition(initializingCall, downloadingRcml));
+            transitions.add(new Transition(initializingCall, ready));
+            transitions.add(new Transition(initializingCall, finishDialing));
+            transitions.add(new Transition(initializingCall, hangingUp));
+            transitions.add(new Transition(initializingCall, finished));
+            transitions.add(new Transition(downloadingRcml, ready));
+            transitions.add(new Transition(downloadingRcml, notFound));
+            transitions.add(new Transition(downloadingRcml, downloadingFallbackRcml));
+            transitions.add(new Transition(downloadingRcml, hangingUp));
+            transitions.add(new Transition(downloadingRcml, finished));
+            transitions.add(new Transition(downloadingFallbackRcml, ready));
+            transitions.add(new Transition(downloadingFallbackRcml, hangingUp));
+            transitions.add(new Transition(downloadingFallbackRcml, finished));
+            transitions.add(new Transition(downloadingFallbackRcml, notFound));
+            transitions.add(new Transition(ready, initializingCall));
+            transitions.add(new Transition(ready, faxing));
+            transitions.add(new Transition(ready, sendingEmail));
+            transitions.add(new Transition(ready, pausing));
+            transitions.add(new Transition(ready, checkingCache));
+            transitions.add(new Transition(ready, caching));
+            transitions.add(new Transition(ready, synthesizing));
+            transitions.add(new Transition(ready, rejecting));
+            transitions.add(new Transition(ready, redirecting));
+            transitions.add(new Transition(ready, processingGatherChildren));
+            transitions.add(new Transition(ready, creatingRecording));
+            transitions.add(new Transition(ready, creatingSmsSession));
+            transitions.add(new Transition(ready, startDialing));
+            transitions.add(new Transition(ready, hangingUp));
+            transitions.add(new Transition(ready, finished));
+            transitions.add(new Transition(pausing, ready));
+            transitions.add(new Transition(pausing, finished));
+            transitions.add(new Transition(rejecting, finished));
+            transitions.add(new Transition(faxing, ready));
+            transitions.add(new Transition(faxing, finished));
+            transitions.add(new Transition(sendingEmail, ready));
+            transitions.add(new Transition(sendingEmail, finished));
+            transitions.add(new Transition(sendingEmail, finishDialing));
+            transitions.add(new Transition(checkingCache, caching));
+            transitions.add(new Transition(checkingCache, conferencing));
+            transitions.add(new Transition(caching, finished));
+            transitions.add(new Transition(caching, conferencing));
+            transitions.add(new Transition(caching, finishConferencing));
+            transitions.add(new Transition(playing, ready));
+            transitions.add(new Transition(playing, finishConferencing));
+            transitions.add(new Transition(playing, finished));
+            transitions.add(new Transition(synthesizing, finished));
+            transitions.add(new Transition(redirecting, ready));
+            transitions.add(new Transition(redirecting, finished));
+            transitions.add(new Transition(creatingRecording, finished));
+            transitions.add(new Transition(finishRecording, ready));
+            transitions.add(new Transition(finishRecording, finished));
+            transitions.add(new Transition(processingGatherChildren, finished));
+            transitions.add(new Transition(gathering, finished));
+            transitions.add(new Transition(finishGathering, ready));
+            transitions.add(new Transition(finishGathering, finishGathering));
+            transitions.add(new Transition(finishGathering, finished));
+            transitions.add(new Transition(creatingSmsSession, finished));
+            transitions.add(new Transition(sendingSms, ready));
+            transitions.add(new Transition(sendingSms, startDialing));
+            transitions.add(new Transition(sendingSms, finished));
+            transitions.add(new Transition(startDialing, processingDialChildren));
+            transitions.add(new Transition(startDialing, acquiringConferenceInfo));
+            transitions.add(new Transition(startDialing, faxing));
+            transitions.add(new Transition(startDialing, sendingEmail));
+            transitions.add(new Transition(startDialing, pausing));
+            transitions.add(new Transition(startDialing, checkingCache));
+            transitions.add(new Transition(startDialing, caching));
+            transitions.add(new Transition(startDialing, synthesizing));
+            transitions.add(new Transition(startDialing, redirecting));
+            transitions.add(new Transition(startDialing, processingGatherChildren));
+            transitions.add(new Transition(startDialing, creatingRecording));
+            transitions.add(new Transition(startDialing, creatingSmsSession));
+            transitions.add(new Transition(startDialing, startDialing));
+            transitions.add(new Transition(startDialing, hangingUp));
+            transitions.add(new Transition(startDialing, finished));
+            transitions.add(new Transition(processingDialChildren, processingDialChildren));
+            transitions.add(new Transition(processingDialChildren, forking));
+            transitions.add(new Transition(processingDialChildren, startDialing));
+            transitions.add(new Transition(processingDialChildren, checkingCache));
+            transitions.add(new Transition(processingDialChildren, sendingEmail));
+            transitions.add(new Transition(processingDialChildren, faxing));
+            transitions.add(new Transition(processingDialChildren, sendingSms));
+            transitions.add(new Transition(processingDialChildren, playing));
+            transitions.add(new Transition(processingDialChildren, pausing));
+            transitions.add(new Transition(processingDialChildren, ready));
+            transitions.add(new Transition(processingDialChildren, hangingUp));
+            transitions.add(new Transition(processingDialChildren, finished));
+            transitions.add(new Transition(forking, acquiringOutboundCallInfo));
+            transitions.add(new Transition(forking, finishDialing));
+            transitions.add(new Transition(forking, hangingUp));
+            transitions.add(new Transition(forking, finished));
+            transitions.add(new Transition(forking, ready));
+            transitions.add(new Transition(forking, checkingCache));
+            transitions.add(new Transition(forking, caching));
+            transitions.add(new Transition(forking, faxing));
+            transitions.add(new Transition(forking, sendingEmail));
+            transitions.add(new Transition(forking, pausing));
+            transitions.add(new Transition(forking, synthesizing));
+            transitions.add(new Transition(forking, redirecting));
+            transitions.add(new Transition(forking, processingGatherChildren));
+            transitions.add(new Transition(forking, creatingRecording));
+            transitions.add(new Transition(forking, creatingSmsSession));
+            // transitions.add(new Transition(acquiringOutboundCallInfo, joiningCalls));
+            transitions.add(new Transition(acquiringOutboundCallInfo, hangingUp));
+            transitions.add(new Transition(acquiringOutboundCallInfo, finished));
+            transitions.add(new Transition(acquiringOutboundCallInfo, creatingBridge));
+            transitions.add(new Transition(creatingBridge, initializingBridge));
+            transitions.add(new Transition(creatingBridge, finishDialing));
+            transitions.add(new Transition(initializingBridge, bridging));
+            transitions.add(new Transition(initializingBridge, hangingUp));
+            transitions.add(new Transition(initializingBridge, finished));
+            transitions.add(new Transition(bridging, bridged));
+            transitions.add(new Transition(bridging, finishDialing));
+            transitions.add(new Transition(bridged, finishDialing));
+            transitions.add(new Transition(bridged, finished));
+            transitions.add(new Transition(finishDialing, ready));
+            transitions.add(new Transition(finishDialing, faxing));
+            transitions.add(new Transition(finishDialing, sendingEmail));
+            transitions.add(new Transition(finishDialing, pausing));
+            transitions.add(new Transition(finishDialing, checkingCache));
+            transitions.add(new Transition(finishDialing, caching));
+            transitions.add(new Transition(finishDialing, synthesizing));
+            transitions.add(new Transition(finishDialing, redirecting));
+            transitions.add(new Transition(finishDialing, processingGatherChildren));
+            transitions.add(new Transition(finishDialing, creatingRecording));
+            transitions.add(new Transition(finishDialing, creatingSmsSession));
+            transitions.add(new Transition(finishDialing, startDialing));
+            transitions.add(new Transition(finishDialing, hangingUp));
+            transitions.add(new Transition(finishDialing, finished));
+            transitions.add(new Transition(finishDialing, initializingCall));
+            transitions.add(new Transition(acquiringConferenceInfo, joiningConference));
+            transitions.add(new Transition(acquiringConferenceInfo, hangingUp));
+            transitions.add(new Transition(acquiringConferenceInfo, finished));
+            transitions.add(new Transition(joiningConference, conferencing));
+            transitions.add(new Transition(joiningConference, acquiringConferenceInfo));
+            transitions.add(new Transition(joiningConference, hangingUp));
+            transitions.add(new Transition(joiningConference, finished));
+            transitions.add(new Transition(conferencing, finishConferencing));
+            transitions.add(new Transition(conferencing, hangingUp));
+            transitions.add(new Transition(conferencing, finished));
+            transitions.add(new Transition(conferencing, checkingCache));
+            transitions.add(new Transition(conferencing, caching));
+            transitions.add(new Transition(conferencing, playing));
+            transitions.add(new Transition(conferencing, startDialing));
+            transitions.add(new Transition(conferencing, creatingSmsSession));
+            transitions.add(new Transition(conferencing, sendingEmail));
+            transitions.add(new Transition(finishConferencing, ready));
+            transitions.add(new Transition(finishConferencing, faxing));
+            transitions.add(new Transition(finishConferencing, sendingEmail));
+            transitions.add(new Transition(finishConferencing, pausing));
+            transitions.add(new Transition(finishConferencing, checkingCache));
+            transitions.add(new Transition(finishConferencing, caching));
+            transitions.add(new Transition(finishConferencing, synthesizing));
+            transitions.add(new Transition(finishConferencing, redirecting));
+            transitions.add(new Transition(finishConferencing, processingGatherChildren));
+            transitions.add(new Transition(finishConferencing, creatingRecording));
+            transitions.add(new Transition(finishConferencing, creatingSmsSession));
+            transitions.add(new Transition(finishConferencing, startDialing));
+            transitions.add(new Transition(finishConferencing, hangingUp));
+            transitions.add(new Transition(finishConferencing, finished));
+            transitions.add(new Transition(hangingUp, finished));
+            transitions.add(new Transition(hangingUp, finishConferencing));
+            transitions.add(new Transition(hangingUp, finishDialing));
+            transitions.add(new Transition(hangingUp, ready));
+            transitions.add(new Transition(uninitialized, finished));
+            transitions.add(new Transition(notFound, finished));
+        }
         // Initialize the FSM.
-        this.fsm = new FiniteStateMachine(uninitialized, transitions);
+        this.fsm = new FiniteStateMachine(uninitialized, sharedTransitions());
         // Initialize the runtime stuff.
         this.accountId = params.getAccount();
         this.phoneId = params.getPhone();
@@ -1034,7 +1036,7 @@ public class VoiceInterpreter extends BaseVoiceInterpreter {
 
                 if (er.isAllowed()) {
                     fsm.transition(message, creatingSmsSession);
-                    ec.executePostOutboundAction(far, extensions);
+                    ec.executePostOutboundActionAsync(far, extensions);
                 } else {
                     if (logger.isDebugEnabled()) {
                         final String errMsg = "Outbound SMS is not Allowed";
@@ -1044,7 +1046,7 @@ public class VoiceInterpreter extends BaseVoiceInterpreter {
                     final Notification notification = notification(WARNING_NOTIFICATION, 11001, "Outbound SMS is now allowed");
                     notifications.addNotification(notification);
                     fsm.transition(message, rejecting);
-                    ec.executePostOutboundAction(far, extensions);
+                    ec.executePostOutboundActionAsync(far, extensions);
                     return;
                 }
             } else if (Verbs.email.equals(verb.name())) {
@@ -1211,7 +1213,7 @@ public class VoiceInterpreter extends BaseVoiceInterpreter {
                 final String type = response.get().getContentType();
                 if (type != null) {
                     if (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html")) {
-                        parser = parser(response.get().getContentAsString());
+                        parser = parser(response.get());
                     } else if (type.contains("audio/wav") || type.contains("audio/wave") || type.contains("audio/x-wav")) {
                         parser = parser("<Play>" + request.getUri() + "</Play>");
                     } else if (type.contains("text/plain")) {
@@ -1972,7 +1974,7 @@ public class VoiceInterpreter extends BaseVoiceInterpreter {
                 final String type = response.getContentType();
                 if (type != null) {
                         if (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html")) {
-                            parser = parser(response.getContentAsString());
+                            parser = parser(response);
                         } else if (type.contains("audio/wav") || type.contains("audio/wave") || type.contains("audio/x-wav")) {
                             parser = parser("<Play>" + request.getUri() + "</Play>");
                         } else if (type.contains("text/plain")) {
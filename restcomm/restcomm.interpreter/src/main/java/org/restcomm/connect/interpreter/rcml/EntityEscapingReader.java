@@ -0,0 +1,132 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.interpreter.rcml;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+
+import org.restcomm.connect.commons.annotations.concurrency.NotThreadSafe;
+
+/**
+ * Escapes every '&amp;' that does not start a well formed entity or character reference while the
+ * document is being read, so that loosely written RCML can be parsed without copying it first.
+ */
+@NotThreadSafe
+final class EntityEscapingReader extends Reader {
+    private static final int MAX_REFERENCE_LENGTH = 32;
+    private static final String ESCAPE = "amp;";
+
+    private final PushbackReader in;
+    private final char[] lookahead;
+    private int escaped;
+
+    EntityEscapingReader(final Reader in) {
+        super();
+        this.in = new PushbackReader(in, MAX_REFERENCE_LENGTH);
+        this.lookahead = new char[MAX_REFERENCE_LENGTH];
+        this.escaped = ESCAPE.length();
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length) {
+            if (escaped < ESCAPE.length()) {
+                buffer[offset + count++] = ESCAPE.charAt(escaped++);
+                continue;
+            }
+            final int c = in.read();
+            if (c == -1) {
+                break;
+            }
+            buffer[offset + count++] = (char) c;
+            if (c == '&' && !referenceFollows()) {
+                escaped = 0;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Peeks at the characters after an '&' and pushes them back whatever the outcome.
+    private boolean referenceFollows() throws IOException {
+        int count = 0;
+        boolean reference = false;
+        while (count < lookahead.length) {
+            final int c = in.read();
+            if (c == -1) {
+                break;
+            }
+            lookahead[count++] = (char) c;
+            if (c == ';') {
+                reference = isReference(lookahead, count - 1);
+                break;
+            } else if (!isNameChar((char) c) && c != '#') {
+                break;
+            }
+        }
+        if (count > 0) {
+            in.unread(lookahead, 0, count);
+        }
+        return reference;
+    }
+
+    private static boolean isReference(final char[] chars, final int length) {
+        if (length == 0) {
+            return false;
+        }
+        if (chars[0] == '#') {
+            if (length > 1 && (chars[1] == 'x' || chars[1] == 'X')) {
+                return length > 2 && allMatch(chars, 2, length, 16);
+            }
+            return length > 1 && allMatch(chars, 1, length, 10);
+        }
+        if (!Character.isLetter(chars[0]) && chars[0] != '_' && chars[0] != ':') {
+            return false;
+        }
+        for (int index = 1; index < length; index++) {
+            if (!isNameChar(chars[index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allMatch(final char[] chars, final int from, final int to, final int radix) {
+        for (int index = from; index < to; index++) {
+            if (Character.digit(chars[index], radix) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameChar(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+    }
+}
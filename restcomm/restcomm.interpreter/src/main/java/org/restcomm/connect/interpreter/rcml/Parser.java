@@ -26,9 +26,7 @@ import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
 import org.restcomm.connect.interpreter.rcml.domain.GatherAttributes;
 
 import javax.naming.LimitExceededException;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -37,9 +35,6 @@ import java.io.StringReader;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
-
-import static javax.xml.stream.XMLStreamConstants.*;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -64,57 +59,31 @@ public final class Parser extends RestcommUntypedActor {
         }
         this.xml = xml;
         this.sender = sender;
-        final XMLInputFactory inputs = XMLInputFactory.newInstance();
-        inputs.setProperty("javax.xml.stream.isCoalescing", true);
-        XMLStreamReader stream = null;
         try {
-            stream = inputs.createXMLStreamReader(reader);
-            document = parse(stream);
-            if (document == null) {
-                throw new IOException("There was an error parsing the RCML.");
-            }
+            document = RcmlReader.read(reader);
             iterator = document.iterator();
         } catch (final XMLStreamException exception) {
             if(logger.isInfoEnabled()) {
                 logger.info("There was an error parsing the RCML for xml: "+xml+" excpetion: ", exception);
             }
             sender.tell(new ParserFailed(exception,xml), null);
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (final XMLStreamException nested) {
-                    throw new IOException(nested);
-                }
-            }
         }
     }
 
     public Parser(final String xml, final ActorRef sender) throws IOException {
-        this(new StringReader(xml.trim().replaceAll("&([^;]+(?!(?:\\w|;)))", "&amp;$1")), xml, sender);
-    }
-
-    private void end(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
-        if (builders.size() > 1) {
-            final Tag.Builder builder = builders.pop();
-            final Tag tag = builder.build();
-            builders.peek().addChild(tag);
-        }
+        this(new StringReader(xml.trim()), xml, sender);
     }
 
-    private void start(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
-        final Tag.Builder builder = Tag.builder();
-        // Read the next tag.
-        builder.setName(stream.getLocalName());
-        // Read the attributes.
-        final int limit = stream.getAttributeCount();
-        for (int index = 0; index < limit; index++) {
-            final String name = stream.getAttributeLocalName(index);
-            final String value = stream.getAttributeValue(index).trim();
-            final Attribute attribute = new Attribute(name, value);
-            builder.addAttribute(attribute);
-        }
-        builders.push(builder);
+    /**
+     * Creates a parser over a document that was already read, usually by the Downloader while
+     * validating the response.
+     */
+    public Parser(final Tag document, final String xml, final ActorRef sender) {
+        super();
+        this.xml = xml;
+        this.sender = sender;
+        this.document = document;
+        this.iterator = document.iterator();
     }
 
     private Tag next() throws LimitExceededException{
@@ -152,32 +121,6 @@ public final class Parser extends RestcommUntypedActor {
         return null;
     }
 
-    private Tag parse(final XMLStreamReader stream) throws IOException, XMLStreamException {
-        final Stack<Tag.Builder> builders = new Stack<Tag.Builder>();
-        while (stream.hasNext()) {
-            switch (stream.next()) {
-                case START_ELEMENT: {
-                    start(builders, stream);
-                    continue;
-                }
-                case CHARACTERS: {
-                    text(builders, stream);
-                    continue;
-                }
-                case END_ELEMENT: {
-                    end(builders, stream);
-                    continue;
-                }
-                case END_DOCUMENT: {
-                    if (!builders.isEmpty()) {
-                        return builders.pop().build();
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
     @Override
     public void onReceive(final Object message) throws Exception {
         final Class<?> klass = message.getClass();
@@ -204,13 +147,4 @@ public final class Parser extends RestcommUntypedActor {
             }
         }
     }
-
-    private void text(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
-        if (!stream.isWhiteSpace()) {
-            // Read the text.
-            final Tag.Builder builder = builders.peek();
-            final String text = stream.getText().trim();
-            builder.setText(text);
-        }
-    }
 }
@@ -0,0 +1,139 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.interpreter.rcml;
+
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Stack;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Reads an RCML document into a {@link Tag} tree in a single streaming pass. The same pass checks
+ * that the document is well formed, so callers that validate a downloaded document can keep the
+ * resulting tree and hand it to the {@link Parser} instead of parsing the document a second time.
+ * <p>
+ * Bare ampersands, which are common in hand written RCML urls, are escaped on the fly by
+ * {@link EntityEscapingReader} the same way the former regular expression did.
+ */
+@ThreadSafe
+public final class RcmlReader {
+    // XMLInputFactory is expensive to look up and not guaranteed to be thread safe.
+    private static final ThreadLocal<XMLInputFactory> factories = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            return factory;
+        }
+    };
+
+    private RcmlReader() {
+        super();
+    }
+
+    /**
+     * @return the root tag of the document, never null.
+     * @throws XMLStreamException if the document is not well formed or empty.
+     */
+    public static Tag read(final String xml) throws XMLStreamException {
+        return read(new StringReader(xml.trim()));
+    }
+
+    /**
+     * @return the root tag of the document, never null.
+     * @throws XMLStreamException if the document is not well formed or empty.
+     */
+    public static Tag read(final Reader reader) throws XMLStreamException {
+        final XMLStreamReader stream = factories.get().createXMLStreamReader(new EntityEscapingReader(reader));
+        try {
+            final Tag document = parse(stream);
+            if (document == null) {
+                throw new XMLStreamException("The RCML document is empty.");
+            }
+            return document;
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static Tag parse(final XMLStreamReader stream) throws XMLStreamException {
+        final Stack<Tag.Builder> builders = new Stack<Tag.Builder>();
+        while (stream.hasNext()) {
+            switch (stream.next()) {
+                case START_ELEMENT: {
+                    start(builders, stream);
+                    continue;
+                }
+                case CHARACTERS: {
+                    text(builders, stream);
+                    continue;
+                }
+                case END_ELEMENT: {
+                    end(builders);
+                    continue;
+                }
+                case END_DOCUMENT: {
+                    if (!builders.isEmpty()) {
+                        return builders.pop().build();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void start(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
+        final Tag.Builder builder = Tag.builder();
+        // Read the next tag.
+        builder.setName(stream.getLocalName());
+        // Read the attributes.
+        final int limit = stream.getAttributeCount();
+        for (int index = 0; index < limit; index++) {
+            final String name = stream.getAttributeLocalName(index);
+            final String value = stream.getAttributeValue(index).trim();
+            builder.addAttribute(new Attribute(name, value));
+        }
+        builders.push(builder);
+    }
+
+    private static void end(final Stack<Tag.Builder> builders) {
+        if (builders.size() > 1) {
+            final Tag tag = builders.pop().build();
+            builders.peek().addChild(tag);
+        }
+    }
+
+    private static void text(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
+        if (!stream.isWhiteSpace() && !builders.isEmpty()) {
+            // Read the text.
+            builders.peek().setText(stream.getText().trim());
+        }
+    }
+}
@@ -103,6 +103,7 @@ public final class DownloaderTest {
                 final HttpResponseDescriptor descriptor = response.get();
                 System.out.println("Result: " + descriptor.getContentAsString());
                 assertTrue(descriptor.getContentAsString().contains("expectedBody"));
+                assertTrue(DownloaderStatistics.getLatencies().get("localhost").getCount() > 0);
             }
         };
     }
@@ -0,0 +1,142 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.Test;
+import org.restcomm.connect.commons.configuration.sets.impl.RcmlCacheConfigurationSetImpl;
+import org.restcomm.connect.interpreter.rcml.RcmlReader;
+
+public final class RcmlCacheTest {
+    private static final String RCML = "<Response><Say>Hello</Say></Response>";
+
+    private RcmlCache cache(final int maxEntries, final long maxBytes) {
+        return new RcmlCache(new RcmlCacheConfigurationSetImpl(true, maxEntries, maxBytes, 0,
+                Arrays.asList("http://static.example.com/")));
+    }
+
+    private HttpRequestDescriptor request(final String url, final String method) {
+        final ArrayList<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        parameters.add(new BasicNameValuePair("CallSid", "CA00000000000000000000000000000000"));
+        return new HttpRequestDescriptor(URI.create(url), method, parameters);
+    }
+
+    private HttpResponseDescriptor response(final int status, final Header... headers) throws Exception {
+        final HttpResponseDescriptor.Builder builder = HttpResponseDescriptor.builder();
+        builder.setStatusCode(status);
+        builder.setContent(status == 200 ? RCML : null);
+        builder.setContentLength(status == 200 ? RCML.length() : 0);
+        builder.setHeaders(headers);
+        if (status == 200) {
+            builder.setRcml(RcmlReader.read(RCML));
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testOnlyOptedInGetsAreCacheable() {
+        final RcmlCache cache = cache(10, 100000);
+        assertTrue(cache.isCacheable(request("http://static.example.com/app.xml", "GET")));
+        assertFalse(cache.isCacheable(request("http://static.example.com/app.xml", "POST")));
+        assertFalse(cache.isCacheable(request("http://dynamic.example.com/app.xml", "GET")));
+    }
+
+    @Test
+    public void testPerCallParametersAreDropped() {
+        final RcmlCache cache = cache(10, 100000);
+        final HttpRequestDescriptor request = request("http://static.example.com/app.xml?lang=en", "GET");
+        assertEquals("http://static.example.com/app.xml?lang=en", cache.key(request));
+        final HttpRequestDescriptor sent = cache.request(request, null);
+        assertEquals("lang=en", sent.getParametersAsString());
+    }
+
+    @Test
+    public void testFreshEntryIsServed() throws Exception {
+        final RcmlCache cache = cache(10, 100000);
+        final HttpResponseDescriptor response = response(200, new BasicHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=60"));
+        cache.update("key", null, response);
+        final RcmlCache.Entry entry = cache.get("key");
+        assertNotNull(entry);
+        assertTrue(entry.isFresh(System.currentTimeMillis()));
+        assertSame(response.getRcml(), entry.getResponse().getRcml());
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        final RcmlCache cache = cache(10, 100000);
+        final HttpResponseDescriptor response = response(200, new BasicHeader(HttpHeaders.CACHE_CONTROL, "no-cache"),
+                new BasicHeader(HttpHeaders.ETAG, "\"v1\""));
+        cache.update("key", null, response);
+        final RcmlCache.Entry stale = cache.get("key");
+        assertFalse(stale.isFresh(System.currentTimeMillis()));
+
+        final HttpRequestDescriptor conditional = cache.request(request("http://static.example.com/app.xml", "GET"), stale);
+        assertEquals(HttpHeaders.IF_NONE_MATCH, conditional.getHeaders()[0].getName());
+        assertEquals("\"v1\"", conditional.getHeaders()[0].getValue());
+
+        final HttpResponseDescriptor notModified = response(304, new BasicHeader(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+        assertSame(response, cache.update("key", stale, notModified));
+        assertTrue(cache.get("key").isFresh(System.currentTimeMillis()));
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    @Test
+    public void testUncacheableResponses() throws Exception {
+        final RcmlCache cache = cache(10, 100000);
+        cache.update("no-store", null, response(200, new BasicHeader(HttpHeaders.CACHE_CONTROL, "no-store, max-age=60")));
+        cache.update("no-validator", null, response(200));
+        cache.update("error", null, response(500, new BasicHeader(HttpHeaders.CACHE_CONTROL, "max-age=60")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        final RcmlCache cache = cache(2, 100000);
+        final Header maxAge = new BasicHeader(HttpHeaders.CACHE_CONTROL, "max-age=60");
+        cache.update("first", null, response(200, maxAge));
+        cache.update("second", null, response(200, maxAge));
+        cache.get("first");
+        cache.update("third", null, response(200, maxAge));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("first"));
+
+        final RcmlCache small = cache(10, RCML.length() * 2);
+        small.update("first", null, response(200, maxAge));
+        small.update("second", null, response(200, maxAge));
+        assertEquals(1, small.size());
+        assertNull(small.get("first"));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.interpreter.rcml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public final class RcmlReaderTest {
+    private static final String RCML = "<Response>\n"
+            + "  <Gather action=\"http://127.0.0.1/gather?a=1&b=2\" numDigits=\"1\">\n"
+            + "    <Say voice=\"man\">Press one &amp; wait</Say>\n"
+            + "    <Play loop=\"2\">http://127.0.0.1/audio.wav?x=&#49;&#x32;</Play>\n"
+            + "  </Gather>\n"
+            + "  <Dial timeout=\"30\"><Number>+1234</Number></Dial>\n"
+            + "  <Hangup/>\n"
+            + "</Response>";
+
+    @Test
+    public void testTree() throws Exception {
+        final Tag document = RcmlReader.read("  \n" + RCML);
+        assertEquals("Response", document.name());
+        assertEquals(3, document.children().size());
+        final Tag gather = document.children().get(0);
+        assertEquals("http://127.0.0.1/gather?a=1&b=2", gather.attribute("action").value());
+        assertEquals("Press one & wait", gather.children().get(0).text());
+        assertEquals("http://127.0.0.1/audio.wav?x=12", gather.children().get(1).text());
+        assertEquals("+1234", document.children().get(1).children().get(0).text());
+        assertEquals("Hangup", document.children().get(2).name());
+    }
+
+    @Test
+    public void testBareAmpersands() throws Exception {
+        final Tag document = RcmlReader.read("<Response><Redirect>http://host/path?a=1&b=2&d=&#;&amp&</Redirect></Response>");
+        assertEquals("http://host/path?a=1&b=2&d=&#;&amp&", document.children().get(0).text());
+    }
+
+    @Test
+    public void testReferenceSplitAcrossReads() throws Exception {
+        // A one char buffer forces every lookahead to span several reads.
+        final EntityEscapingReader reader = new EntityEscapingReader(new StringReader("a&amp;b&c&#x41;"));
+        final StringBuilder buffer = new StringBuilder();
+        final char[] chars = new char[1];
+        while (reader.read(chars, 0, 1) != -1) {
+            buffer.append(chars[0]);
+        }
+        reader.close();
+        assertEquals("a&amp;b&amp;c&#x41;", buffer.toString());
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testMalformedDocument() throws Exception {
+        RcmlReader.read("<Response><Say>hello</Response>");
+    }
+}
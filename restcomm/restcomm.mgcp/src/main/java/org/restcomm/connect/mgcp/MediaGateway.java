@@ -21,6 +21,7 @@ package org.restcomm.connect.mgcp;
 import akka.actor.Actor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import akka.actor.Terminated;
 import akka.actor.UntypedActor;
 import akka.actor.UntypedActorContext;
 import akka.actor.UntypedActorFactory;
@@ -34,7 +35,6 @@ import jain.protocol.ip.mgcp.JainMgcpProvider;
 import jain.protocol.ip.mgcp.JainMgcpResponseEvent;
 import jain.protocol.ip.mgcp.JainMgcpStack;
 import jain.protocol.ip.mgcp.message.Constants;
-import jain.protocol.ip.mgcp.message.NotificationRequest;
 import jain.protocol.ip.mgcp.message.Notify;
 import jain.protocol.ip.mgcp.message.parms.ConnectionIdentifier;
 import jain.protocol.ip.mgcp.message.parms.EventName;
@@ -43,9 +43,9 @@ import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
 import org.restcomm.connect.commons.util.RevolvingCounter;
 
 import java.net.InetAddress;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.TooManyListenersException;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -70,24 +70,73 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
     private NotifiedEntity agent;
     // Media gateway domain name.
     private String domain;
-    // Message responseListeners.
-    private Map<String, ActorRef> notificationListeners;
-    private Map<Integer, ActorRef> responseListeners;
+    // Transactions waiting for a response and notification listeners.
+    private final MgcpTransactions transactions;
     // Runtime stuff.
-    private RevolvingCounter requestIdPool;
     private RevolvingCounter sessionIdPool;
-    private RevolvingCounter transactionIdPool;
+    private MgcpTransactions.Partition partition;
+    // Actors sending the MGCP commands, null when commands are sent by the gateway itself.
+    private ActorRef[] shards;
+    private int nextShard;
+    // Live connections and endpoints, watched so that the load drops when they stop.
+    private MediaGatewayLoad load;
+    private final Set<ActorRef> endpoints;
 
     public MediaGateway() {
         super();
-        notificationListeners = new ConcurrentHashMap<String, ActorRef>();
-        responseListeners = new ConcurrentHashMap<Integer, ActorRef>();
+        transactions = new MgcpTransactions();
+        load = new MediaGatewayLoad();
+        endpoints = new HashSet<ActorRef>();
+    }
+
+    private ActorRef watch(final ActorRef child, final boolean endpoint) {
+        getContext().watch(child);
+        if (endpoint) {
+            endpoints.add(child);
+            load.endpointAdded();
+        } else {
+            load.connectionAdded();
+        }
+        return child;
+    }
+
+    private void onTerminated(final Terminated message) {
+        if (endpoints.remove(message.getActor())) {
+            load.endpointRemoved();
+        } else {
+            load.connectionRemoved();
+        }
+    }
+
+    // The actor the MGCP commands of a new connection, link or endpoint are sent to.
+    private ActorRef gateway() {
+        if (shards == null) {
+            return self();
+        }
+        final ActorRef shard = shards[nextShard];
+        nextShard = (nextShard + 1) % shards.length;
+        return shard;
+    }
+
+    private ActorRef getShard(final int index, final int count) {
+        final JainMgcpProvider provider = this.provider;
+        final MgcpTransactions transactions = this.transactions;
+        final MgcpTransactions.Partition partition = new MgcpTransactions.Partition(index, count);
+        final Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new MediaGatewayShard(provider, transactions, partition);
+            }
+        });
+        return getContext().actorOf(props);
     }
 
     private ActorRef getConnection(final Object message) {
         final CreateConnection request = (CreateConnection) message;
         final MediaSession session = request.session();
-        final ActorRef gateway = self();
+        final ActorRef gateway = gateway();
 
         final Props props = new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -102,7 +151,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
 
     private ActorRef getBridgeEndpoint(final Object message) {
         final CreateBridgeEndpoint request = (CreateBridgeEndpoint) message;
-        final ActorRef gateway = self();
+        final ActorRef gateway = gateway();
         final MediaSession session = request.session();
         final String endpointName = request.endpointName();
         Props props = null;
@@ -129,7 +178,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
     }
 
     private ActorRef getConferenceEndpoint(final Object message) {
-        final ActorRef gateway = self();
+        final ActorRef gateway = gateway();
         final CreateConferenceEndpoint request = (CreateConferenceEndpoint) message;
         final MediaSession session = request.session();
         final String endpointName = request.endpointName();
@@ -149,7 +198,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
     }
 
     private ActorRef getIvrEndpoint(final Object message) {
-        final ActorRef gateway = self();
+        final ActorRef gateway = gateway();
         final CreateIvrEndpoint request = (CreateIvrEndpoint) message;
         final MediaSession session = request.session();
         final String endpointName = request.endpointName();
@@ -166,7 +215,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
 
     private ActorRef getLink(final Object message) {
         final CreateLink request = (CreateLink) message;
-        final ActorRef gateway = self();
+        final ActorRef gateway = gateway();
         final MediaSession session = request.session();
         final ConnectionIdentifier connectionIdentifier = request.connectionIdentifier();
         final Props props = new Props(new UntypedActorFactory() {
@@ -181,7 +230,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
     }
 
     private ActorRef getPacketRelayEndpoint(final Object message) {
-        final ActorRef gateway = self();
+        final ActorRef gateway = gateway();
         final CreatePacketRelayEndpoint request = (CreatePacketRelayEndpoint) message;
         final MediaSession session = request.session();
         final Props props = new Props(new UntypedActorFactory() {
@@ -226,11 +275,17 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
         stack = null;
         agent = null;
         domain = null;
-        responseListeners.clear();
-        responseListeners = null;
-        requestIdPool = null;
+        if (shards != null) {
+            for (final ActorRef shard : shards) {
+                getContext().stop(shard);
+            }
+            shards = null;
+        }
+        transactions.clear();
+        transactions.setLoad(null);
+        load.setTimeout(0);
         sessionIdPool = null;
-        transactionIdPool = null;
+        partition = null;
     }
 
     private void powerOn(final Object message) {
@@ -255,11 +310,25 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
         }
         agent = new NotifiedEntity("restcomm", localIp.getHostAddress(), localPort);
         domain = new StringBuilder().append(remoteIp.getHostAddress()).append(":").append(remotePort).toString();
-        notificationListeners.clear();
-        responseListeners.clear();
-        requestIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
+        transactions.clear();
+        if (request.getLoad() != null) {
+            load = request.getLoad();
+        }
+        load.setTimeout(timeout);
+        transactions.setLoad(load);
         sessionIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
-        transactionIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
+        // Gateways sharing the provider see each other's responses, each one uses its own identifiers.
+        final int gatewayIndex = request.getGatewayIndex();
+        final int gateways = Math.max(request.getGateways(), 1);
+        partition = new MgcpTransactions.Partition(gatewayIndex, gateways);
+        final int count = request.getShards();
+        if (count > 1) {
+            shards = new ActorRef[count];
+            for (int i = 0; i < count; i++) {
+                shards[i] = getShard(gatewayIndex * count + i, gateways * count);
+            }
+            nextShard = 0;
+        }
     }
 
     private boolean isPartialNotify(final Notify notify) {
@@ -275,12 +344,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
                 final Notify notify = (Notify) event;
                 final String id = notify.getRequestIdentifier().toString();
 
-                final ActorRef listener;
-                if (isPartialNotify(notify)) {
-                    listener = notificationListeners.get(id);
-                } else {
-                    listener = notificationListeners.remove(id);
-                }
+                final ActorRef listener = transactions.notificationListener(id, isPartialNotify(notify));
                 if (listener != null) {
                     listener.tell(notify, self());
                 }
@@ -290,8 +354,7 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
 
     @Override
     public void processMgcpResponseEvent(final JainMgcpResponseEvent event) {
-        final int id = event.getTransactionHandle();
-        final ActorRef listener = responseListeners.remove(id);
+        final ActorRef listener = transactions.response(event);
         if (listener != null) {
             listener.tell(event, self());
         }
@@ -316,22 +379,22 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
         } else if (GetMediaGatewayInfo.class.equals(klass)) {
             sender.tell(new MediaGatewayResponse<MediaGatewayInfo>(getInfo(message)), sender);
         } else if (CreateConnection.class.equals(klass)) {
-            sender.tell(new MediaGatewayResponse<ActorRef>(getConnection(message)), self);
+            sender.tell(new MediaGatewayResponse<ActorRef>(watch(getConnection(message), false)), self);
         } else if (CreateLink.class.equals(klass)) {
-            sender.tell(new MediaGatewayResponse<ActorRef>(getLink(message)), self);
+            sender.tell(new MediaGatewayResponse<ActorRef>(watch(getLink(message), false)), self);
         } else if (CreateMediaSession.class.equals(klass)) {
             sender.tell(new MediaGatewayResponse<MediaSession>(getSession()), self);
         } else if (CreateBridgeEndpoint.class.equals(klass)) {
-            final ActorRef endpoint = getBridgeEndpoint(message);
+            final ActorRef endpoint = watch(getBridgeEndpoint(message), true);
             sender.tell(new MediaGatewayResponse<ActorRef>(endpoint), self);
         } else if (CreatePacketRelayEndpoint.class.equals(klass)) {
-            final ActorRef endpoint = getPacketRelayEndpoint(message);
+            final ActorRef endpoint = watch(getPacketRelayEndpoint(message), true);
             sender.tell(new MediaGatewayResponse<ActorRef>(endpoint), self);
         } else if (CreateIvrEndpoint.class.equals(klass)) {
-            final ActorRef endpoint = getIvrEndpoint(message);
+            final ActorRef endpoint = watch(getIvrEndpoint(message), true);
             sender.tell(new MediaGatewayResponse<ActorRef>(endpoint), self);
         } else if (CreateConferenceEndpoint.class.equals(klass)) {
-            final ActorRef endpoint = getConferenceEndpoint(message);
+            final ActorRef endpoint = watch(getConferenceEndpoint(message), true);
             sender.tell(new MediaGatewayResponse<ActorRef>(endpoint), self);
         } else if (DestroyConnection.class.equals(klass)) {
             final DestroyConnection request = (DestroyConnection) message;
@@ -344,31 +407,21 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
             final DestroyEndpoint request = (DestroyEndpoint) message;
             if (logger.isInfoEnabled())
                 logger.info("Gateway: "+self().path()+" about to stop endpoint path: "+request.endpoint().path()+" isTerminated: "+request.endpoint().isTerminated()+" sender: "+sender().path());
-            while (notificationListeners.containsValue(request.endpoint())) {
-                notificationListeners.values().remove(request.endpoint());
-            }
+            transactions.removeNotificationListener(request.endpoint());
             context.stop(request.endpoint());
         } else if (message instanceof JainMgcpCommandEvent) {
-            send(message, sender);
+            if (shards == null) {
+                transactions.send(provider, (JainMgcpCommandEvent) message, sender, partition);
+            } else {
+                gateway().tell(message, sender);
+            }
         } else if (message instanceof JainMgcpResponseEvent) {
             send(message);
+        } else if (Terminated.class.equals(klass)) {
+            onTerminated((Terminated) message);
         }
     }
 
-    private void send(final Object message, final ActorRef sender) {
-        final JainMgcpCommandEvent command = (JainMgcpCommandEvent) message;
-        final int transactionId = (int) transactionIdPool.get();
-        command.setTransactionHandle(transactionId);
-        responseListeners.put(transactionId, sender);
-        if (NotificationRequest.class.equals(command.getClass())) {
-            final NotificationRequest request = (NotificationRequest) command;
-            final String id = Long.toString(requestIdPool.get());
-            request.getRequestIdentifier().setRequestIdentifier(id);
-            notificationListeners.put(id, sender);
-        }
-        provider.sendMgcpEvents(new JainMgcpEvent[] { command });
-    }
-
     private void send(final Object message) {
         final JainMgcpResponseEvent response = (JainMgcpResponseEvent) message;
         provider.sendMgcpEvents(new JainMgcpEvent[] { response });
@@ -379,9 +432,9 @@ public final class MediaGateway extends RestcommUntypedActor implements JainMgcp
         return "MediaGateway [logger=" + logger + ", name=" + name + ", localIp=" + localIp + ", localPort=" + localPort
                 + ", remoteIp=" + remoteIp + ", remotePort=" + remotePort + ", useNat=" + useNat + ", externalIp="
                 + externalIp + ", timeout=" + timeout + ", provider=" + provider + ", stack=" + stack + ", agent="
-                + agent + ", domain=" + domain + ", notificationListeners=" + notificationListeners
-                + ", responseListeners=" + responseListeners + ", requestIdPool=" + requestIdPool + ", sessionIdPool="
-                + sessionIdPool + ", transactionIdPool=" + transactionIdPool + "]";
+                + agent + ", domain=" + domain + ", notificationListeners=" + transactions.getNotificationListeners()
+                + ", pendingTransactions=" + transactions.getPendingTransactions() + ", sessionIdPool=" + sessionIdPool
+                + ", shards=" + (shards == null ? 1 : shards.length) + ", load=" + load + "]";
     }
 
     @Override
@@ -0,0 +1,129 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.mgcp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Live connections and endpoints of a media gateway and whether its media server answers MGCP commands,
+ * updated by the MediaGateway and read by the media resource broker to pick a media server.
+ * <p>
+ * An unhealthy media server gets no new calls, so it would never get the chance to answer again. Once
+ * per trial interval it is offered a single trial call, see {@link #tryTrial(long)}, and becomes
+ * healthy again as soon as it answers.
+ */
+@ThreadSafe
+public final class MediaGatewayLoad {
+    // Lower bound of the time between two trial calls to an unhealthy media server.
+    static final long MIN_TRIAL_INTERVAL = 5000;
+
+    private final AtomicInteger connections;
+    private final AtomicInteger endpoints;
+    // Time the first command sent after the last response was sent, 0 when every command was answered.
+    private final AtomicLong unansweredSince;
+    private final AtomicLong lastTrial;
+    private volatile long timeout;
+
+    public MediaGatewayLoad() {
+        super();
+        this.connections = new AtomicInteger();
+        this.endpoints = new AtomicInteger();
+        this.unansweredSince = new AtomicLong();
+        this.lastTrial = new AtomicLong();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getEndpoints() {
+        return endpoints.get();
+    }
+
+    public int get() {
+        return connections.get() + endpoints.get();
+    }
+
+    public boolean isHealthy() {
+        return isHealthy(System.currentTimeMillis());
+    }
+
+    /**
+     * @return false when the media server did not answer any command for longer than the response timeout.
+     */
+    public boolean isHealthy(final long now) {
+        final long since = unansweredSince.get();
+        return timeout <= 0 || since == 0 || now - since <= timeout;
+    }
+
+    /**
+     * Grants at most one caller per trial interval the right to send a call to this unhealthy media
+     * server. The interval starts when the media server became unhealthy.
+     *
+     * @return true if the caller should send its call here as a trial.
+     */
+    public boolean tryTrial(final long now) {
+        final long since = unansweredSince.get();
+        if (isHealthy(now) || since == 0) {
+            return false;
+        }
+        final long interval = Math.max(timeout, MIN_TRIAL_INTERVAL);
+        final long last = lastTrial.get();
+        final long from = Math.max(last, since + timeout);
+        return now - from >= interval && lastTrial.compareAndSet(last, now);
+    }
+
+    void setTimeout(final long timeout) {
+        this.timeout = timeout;
+        unansweredSince.set(0);
+    }
+
+    void connectionAdded() {
+        connections.incrementAndGet();
+    }
+
+    void connectionRemoved() {
+        connections.decrementAndGet();
+    }
+
+    void endpointAdded() {
+        endpoints.incrementAndGet();
+    }
+
+    void endpointRemoved() {
+        endpoints.decrementAndGet();
+    }
+
+    void commandSent(final long now) {
+        unansweredSince.compareAndSet(0, now);
+    }
+
+    void responseReceived() {
+        unansweredSince.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "MediaGatewayLoad [connections=" + connections + ", endpoints=" + endpoints + ", healthy=" + isHealthy() + "]";
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.mgcp;
+
+import jain.protocol.ip.mgcp.JainMgcpCommandEvent;
+import jain.protocol.ip.mgcp.JainMgcpEvent;
+import jain.protocol.ip.mgcp.JainMgcpProvider;
+import jain.protocol.ip.mgcp.JainMgcpResponseEvent;
+
+import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
+
+/**
+ * Sends the MGCP commands of a subset of the endpoints and connections of a MediaGateway, so that
+ * commands are not serialized through the mailbox of the MediaGateway. Every shard allocates
+ * transaction ids from its own partition and registers its transactions in the registry shared with
+ * the MediaGateway, which dispatches the responses.
+ */
+public final class MediaGatewayShard extends RestcommUntypedActor {
+    private final JainMgcpProvider provider;
+    private final MgcpTransactions transactions;
+    private final MgcpTransactions.Partition partition;
+
+    MediaGatewayShard(final JainMgcpProvider provider, final MgcpTransactions transactions,
+            final MgcpTransactions.Partition partition) {
+        super();
+        this.provider = provider;
+        this.transactions = transactions;
+        this.partition = partition;
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        if (message instanceof JainMgcpCommandEvent) {
+            transactions.send(provider, (JainMgcpCommandEvent) message, sender(), partition);
+        } else if (message instanceof JainMgcpResponseEvent) {
+            provider.sendMgcpEvents(new JainMgcpEvent[] { (JainMgcpResponseEvent) message });
+        } else {
+            unhandled(message);
+        }
+    }
+}
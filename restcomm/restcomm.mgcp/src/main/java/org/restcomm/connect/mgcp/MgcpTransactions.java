@@ -0,0 +1,159 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.mgcp;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jain.protocol.ip.mgcp.JainMgcpCommandEvent;
+import jain.protocol.ip.mgcp.JainMgcpEvent;
+import jain.protocol.ip.mgcp.JainMgcpProvider;
+import jain.protocol.ip.mgcp.JainMgcpResponseEvent;
+import jain.protocol.ip.mgcp.message.NotificationRequest;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.util.RevolvingCounter;
+import org.restcomm.connect.mgcp.stats.MgcpStatistics;
+
+import akka.actor.ActorRef;
+
+/**
+ * The MGCP transactions in flight on a media gateway, shared by the MediaGateway, its shards and the
+ * JAIN MGCP stack thread delivering responses and notifications.
+ */
+@ThreadSafe
+final class MgcpTransactions {
+    // RFC 3435 transaction identifiers are between 1 and 999999999.
+    private static final long MAX_TRANSACTION_ID = 999999999L;
+
+    private final ConcurrentMap<Integer, Transaction> responseListeners;
+    private final ConcurrentMap<String, ActorRef> notificationListeners;
+    private volatile MediaGatewayLoad load;
+
+    MgcpTransactions() {
+        super();
+        this.responseListeners = new ConcurrentHashMap<Integer, Transaction>();
+        this.notificationListeners = new ConcurrentHashMap<String, ActorRef>();
+    }
+
+    /**
+     * Sends a command, its response and notifications will be delivered to the sender.
+     */
+    void send(final JainMgcpProvider provider, final JainMgcpCommandEvent command, final ActorRef sender,
+            final Partition partition) {
+        final int transactionId = (int) partition.nextTransactionId();
+        command.setTransactionHandle(transactionId);
+        final long now = System.currentTimeMillis();
+        responseListeners.put(transactionId, new Transaction(sender, command.getClass().getSimpleName(), now));
+        final MediaGatewayLoad load = this.load;
+        if (load != null) {
+            load.commandSent(now);
+        }
+        if (NotificationRequest.class.equals(command.getClass())) {
+            final NotificationRequest request = (NotificationRequest) command;
+            final String id = Long.toString(partition.nextRequestId());
+            request.getRequestIdentifier().setRequestIdentifier(id);
+            notificationListeners.put(id, sender);
+        }
+        provider.sendMgcpEvents(new JainMgcpEvent[] { command });
+    }
+
+    /**
+     * @return the listener of the transaction the response belongs to, null if unknown.
+     */
+    ActorRef response(final JainMgcpResponseEvent event) {
+        final Transaction transaction = responseListeners.remove(event.getTransactionHandle());
+        if (transaction == null) {
+            return null;
+        }
+        final MediaGatewayLoad load = this.load;
+        if (load != null) {
+            load.responseReceived();
+        }
+        MgcpStatistics.record(transaction.command, System.currentTimeMillis() - transaction.sent);
+        return transaction.listener;
+    }
+
+    ActorRef notificationListener(final String requestId, final boolean partial) {
+        return partial ? notificationListeners.get(requestId) : notificationListeners.remove(requestId);
+    }
+
+    void removeNotificationListener(final ActorRef listener) {
+        notificationListeners.values().removeAll(Collections.singleton(listener));
+    }
+
+    void setLoad(final MediaGatewayLoad load) {
+        this.load = load;
+    }
+
+    void clear() {
+        responseListeners.clear();
+        notificationListeners.clear();
+    }
+
+    int getPendingTransactions() {
+        return responseListeners.size();
+    }
+
+    int getNotificationListeners() {
+        return notificationListeners.size();
+    }
+
+    /**
+     * One of <i>partitions</i> disjoint ranges of transaction and request identifiers, so that
+     * several actors can allocate identifiers without sharing a counter.
+     */
+    static final class Partition {
+        private final int index;
+        private final int partitions;
+        private final RevolvingCounter transactionIds;
+        private final RevolvingCounter requestIds;
+
+        Partition(final int index, final int partitions) {
+            super();
+            this.index = index;
+            this.partitions = partitions;
+            this.transactionIds = new RevolvingCounter(1, MAX_TRANSACTION_ID / partitions);
+            this.requestIds = new RevolvingCounter(1, Long.MAX_VALUE / partitions);
+        }
+
+        long nextTransactionId() {
+            return transactionIds.get() * partitions + index;
+        }
+
+        long nextRequestId() {
+            return requestIds.get() * partitions + index;
+        }
+    }
+
+    private static final class Transaction {
+        private final ActorRef listener;
+        private final String command;
+        private final long sent;
+
+        private Transaction(final ActorRef listener, final String command, final long sent) {
+            super();
+            this.listener = listener;
+            this.command = command;
+            this.sent = sent;
+        }
+    }
+}
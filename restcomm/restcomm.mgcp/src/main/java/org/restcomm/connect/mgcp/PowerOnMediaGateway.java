@@ -45,10 +45,29 @@ public final class PowerOnMediaGateway {
     private final JainMgcpStack stack;
     private final JainMgcpProvider provider;
     private final ActorRef monitoringService;
+    // Number of actors sending MGCP commands in parallel.
+    private final int shards;
+    // Position of this gateway among the gateways sharing the JAIN MGCP provider.
+    private final int gatewayIndex;
+    private final int gateways;
+    private final MediaGatewayLoad load;
 
     public PowerOnMediaGateway(final String name, final InetAddress localIp, final int localPort, final InetAddress remoteIp,
             final int remotePort, final boolean useNat, final InetAddress externalIp, final long timeout, final JainMgcpStack stack,
                                final JainMgcpProvider provider, final ActorRef monitoringService) {
+        this(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout, stack, provider, monitoringService, 1);
+    }
+
+    public PowerOnMediaGateway(final String name, final InetAddress localIp, final int localPort, final InetAddress remoteIp,
+            final int remotePort, final boolean useNat, final InetAddress externalIp, final long timeout, final JainMgcpStack stack,
+                               final JainMgcpProvider provider, final ActorRef monitoringService, final int shards) {
+        this(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout, stack, provider, monitoringService, shards, 0, 1, null);
+    }
+
+    public PowerOnMediaGateway(final String name, final InetAddress localIp, final int localPort, final InetAddress remoteIp,
+            final int remotePort, final boolean useNat, final InetAddress externalIp, final long timeout, final JainMgcpStack stack,
+                               final JainMgcpProvider provider, final ActorRef monitoringService, final int shards,
+                               final int gatewayIndex, final int gateways, final MediaGatewayLoad load) {
         super();
         this.name = name;
         this.localIp = localIp;
@@ -61,6 +80,10 @@ public final class PowerOnMediaGateway {
         this.stack = stack;
         this.provider = provider;
         this.monitoringService = monitoringService;
+        this.shards = shards;
+        this.gatewayIndex = gatewayIndex;
+        this.gateways = gateways;
+        this.load = load;
     }
 
     public static Builder builder() {
@@ -111,6 +134,25 @@ public final class PowerOnMediaGateway {
         return monitoringService;
     }
 
+    public int getShards() {
+        return shards;
+    }
+
+    public int getGatewayIndex() {
+        return gatewayIndex;
+    }
+
+    public int getGateways() {
+        return gateways;
+    }
+
+    /**
+     * @return the load the gateway reports its connections and endpoints to, null if nobody reads it.
+     */
+    public MediaGatewayLoad getLoad() {
+        return load;
+    }
+
     public static final class Builder {
         private String name;
         private InetAddress localIp;
@@ -123,13 +165,18 @@ public final class PowerOnMediaGateway {
         private JainMgcpStack stack;
         private JainMgcpProvider provider;
         private ActorRef monitoringService;
+        private int shards = 1;
+        private int gatewayIndex;
+        private int gateways = 1;
+        private MediaGatewayLoad load;
 
         private Builder() {
             super();
         }
 
         public PowerOnMediaGateway build() {
-            return new PowerOnMediaGateway(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout, stack, provider, monitoringService);
+            return new PowerOnMediaGateway(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout, stack, provider, monitoringService, shards,
+                    gatewayIndex, gateways, load);
         }
 
         public void setName(final String name) {
@@ -175,5 +222,21 @@ public final class PowerOnMediaGateway {
         public void setMonitoringService (ActorRef monitoringService) {
             this.monitoringService = monitoringService;
         }
+
+        public void setShards(final int shards) {
+            this.shards = shards;
+        }
+
+        public void setGatewayIndex(final int gatewayIndex) {
+            this.gatewayIndex = gatewayIndex;
+        }
+
+        public void setGateways(final int gateways) {
+            this.gateways = gateways;
+        }
+
+        public void setLoad(final MediaGatewayLoad load) {
+            this.load = load;
+        }
     }
 }
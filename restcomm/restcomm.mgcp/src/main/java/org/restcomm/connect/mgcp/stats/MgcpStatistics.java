@@ -0,0 +1,65 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.mgcp.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.util.LatencyHistogram;
+
+/**
+ * Latency of MGCP transactions, from the command being sent to its response being received, per
+ * command type (CreateConnection, ModifyConnection, NotificationRequest...).
+ */
+@ThreadSafe
+public final class MgcpStatistics {
+    private static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000};
+    private static final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    private MgcpStatistics() {
+        super();
+    }
+
+    public static void record(final String command, final long millis) {
+        LatencyHistogram histogram = latencies.get(command);
+        if (histogram == null) {
+            final LatencyHistogram created = new LatencyHistogram(BOUNDS);
+            histogram = latencies.putIfAbsent(command, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(millis);
+    }
+
+    /**
+     * @return the latency histogram of every command type seen so far.
+     */
+    public static Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    public static void reset() {
+        latencies.clear();
+    }
+}
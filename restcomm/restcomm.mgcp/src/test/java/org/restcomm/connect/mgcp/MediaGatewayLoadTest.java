@@ -0,0 +1,87 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.mgcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public final class MediaGatewayLoadTest {
+
+    @Test
+    public void testCountsConnectionsAndEndpoints() {
+        final MediaGatewayLoad load = new MediaGatewayLoad();
+        load.connectionAdded();
+        load.connectionAdded();
+        load.endpointAdded();
+        assertEquals(2, load.getConnections());
+        assertEquals(1, load.getEndpoints());
+        assertEquals(3, load.get());
+        load.connectionRemoved();
+        load.endpointRemoved();
+        assertEquals(1, load.get());
+    }
+
+    @Test
+    public void testUnhealthyWhenCommandsAreNotAnswered() {
+        final MediaGatewayLoad load = new MediaGatewayLoad();
+        load.setTimeout(500);
+        assertTrue(load.isHealthy(1000));
+        load.commandSent(1000);
+        load.commandSent(1400);
+        assertTrue(load.isHealthy(1500));
+        // The oldest unanswered command decides, not the latest one.
+        assertFalse(load.isHealthy(1501));
+        load.responseReceived();
+        assertTrue(load.isHealthy(5000));
+    }
+
+    @Test
+    public void testRecoversThroughTrialCalls() {
+        final MediaGatewayLoad load = new MediaGatewayLoad();
+        load.setTimeout(500);
+        load.commandSent(1000);
+        // Unhealthy from 1501, the first trial is due one trial interval later.
+        assertFalse(load.isHealthy(2000));
+        assertFalse(load.tryTrial(2000));
+        final long due = 1500 + MediaGatewayLoad.MIN_TRIAL_INTERVAL;
+        assertTrue(load.tryTrial(due));
+        // A single trial per interval.
+        assertFalse(load.tryTrial(due));
+        load.commandSent(due);
+        assertFalse(load.tryTrial(due + MediaGatewayLoad.MIN_TRIAL_INTERVAL - 1));
+        assertTrue(load.tryTrial(due + MediaGatewayLoad.MIN_TRIAL_INTERVAL));
+        // The media server answers the trial and takes calls again.
+        load.responseReceived();
+        assertTrue(load.isHealthy(due + MediaGatewayLoad.MIN_TRIAL_INTERVAL + 1));
+        assertFalse(load.tryTrial(due + MediaGatewayLoad.MIN_TRIAL_INTERVAL + 1));
+    }
+
+    @Test
+    public void testHealthyWithoutTimeout() {
+        final MediaGatewayLoad load = new MediaGatewayLoad();
+        load.commandSent(1000);
+        assertTrue(load.isHealthy(100000));
+        load.setTimeout(500);
+        assertTrue(load.isHealthy(100000));
+    }
+}
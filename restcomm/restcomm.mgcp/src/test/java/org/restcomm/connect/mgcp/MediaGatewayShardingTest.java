@@ -0,0 +1,172 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.mgcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import jain.protocol.ip.mgcp.JainMgcpEvent;
+import jain.protocol.ip.mgcp.JainMgcpListener;
+import jain.protocol.ip.mgcp.JainMgcpProvider;
+import jain.protocol.ip.mgcp.message.CreateConnectionResponse;
+import jain.protocol.ip.mgcp.message.parms.CallIdentifier;
+import jain.protocol.ip.mgcp.message.parms.ConnectionIdentifier;
+import jain.protocol.ip.mgcp.message.parms.ConnectionMode;
+import jain.protocol.ip.mgcp.message.parms.EndpointIdentifier;
+import jain.protocol.ip.mgcp.message.parms.ReturnCode;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.restcomm.connect.mgcp.stats.MgcpStatistics;
+
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.JavaTestKit;
+
+/**
+ * Drives the real MediaGateway with a JAIN MGCP provider answering every CreateConnection from its own
+ * thread, so that commands go through the transaction registry and the shards the same way they do
+ * against a media server.
+ */
+public final class MediaGatewayShardingTest {
+    private static final Logger logger = Logger.getLogger(MediaGatewayShardingTest.class);
+    private static final int COMMANDS = 5000;
+
+    private static ActorSystem system;
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        system = ActorSystem.create();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        executor.shutdownNow();
+        system.shutdown();
+    }
+
+    // Answers every command with a successful CreateConnectionResponse carrying the same transaction handle.
+    private static JainMgcpProvider provider() {
+        final JainMgcpListener[] listener = new JainMgcpListener[1];
+        return (JainMgcpProvider) Proxy.newProxyInstance(MediaGatewayShardingTest.class.getClassLoader(),
+                new Class<?>[] { JainMgcpProvider.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                        if ("addJainMgcpListener".equals(method.getName())) {
+                            listener[0] = (JainMgcpListener) args[0];
+                        } else if ("sendMgcpEvents".equals(method.getName())) {
+                            for (final JainMgcpEvent event : (JainMgcpEvent[]) args[0]) {
+                                final CreateConnectionResponse response = new CreateConnectionResponse(proxy,
+                                        ReturnCode.Transaction_Executed_Normally, new ConnectionIdentifier(Integer.toHexString(event.getTransactionHandle())));
+                                response.setTransactionHandle(event.getTransactionHandle());
+                                executor.execute(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        listener[0].processMgcpResponseEvent(response);
+                                    }
+                                });
+                            }
+                        } else if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        } else if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        } else if ("toString".equals(method.getName())) {
+                            return "FakeJainMgcpProvider";
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private ActorRef gateway(final int shards) throws Exception {
+        final ActorRef gateway = system.actorOf(new Props(MediaGateway.class));
+        final PowerOnMediaGateway.Builder builder = PowerOnMediaGateway.builder();
+        builder.setName("test");
+        builder.setLocalIP(InetAddress.getByName("127.0.0.1"));
+        builder.setLocalPort(2727);
+        builder.setRemoteIP(InetAddress.getByName("127.0.0.1"));
+        builder.setRemotePort(2427);
+        builder.setTimeout(500);
+        builder.setProvider(provider());
+        builder.setShards(shards);
+        gateway.tell(builder.build(), null);
+        return gateway;
+    }
+
+    private long run(final int shards) throws Exception {
+        final ActorRef gateway = gateway(shards);
+        final long[] elapsed = new long[1];
+        new JavaTestKit(system) {
+            {
+                final ActorRef observer = getRef();
+                final EndpointIdentifier endpoint = new EndpointIdentifier("mobicents/relay/$", "127.0.0.1:2427");
+                final long start = System.nanoTime();
+                for (int i = 0; i < COMMANDS; i++) {
+                    gateway.tell(new jain.protocol.ip.mgcp.message.CreateConnection(observer, new CallIdentifier(Integer.toHexString(i + 1)),
+                            endpoint, ConnectionMode.SendRecv), observer);
+                }
+                final Set<Integer> transactions = new HashSet<Integer>();
+                for (int i = 0; i < COMMANDS; i++) {
+                    final CreateConnectionResponse response = expectMsgClass(new FiniteDuration(10, TimeUnit.SECONDS),
+                            CreateConnectionResponse.class);
+                    assertTrue(transactions.add(response.getTransactionHandle()));
+                }
+                elapsed[0] = System.nanoTime() - start;
+                assertEquals(COMMANDS, transactions.size());
+            }
+        };
+        system.stop(gateway);
+        return elapsed[0];
+    }
+
+    @Test
+    public void testSingleGateway() throws Exception {
+        MgcpStatistics.reset();
+        run(1);
+        assertNotNull(MgcpStatistics.getLatencies().get("CreateConnection"));
+        assertEquals(COMMANDS, MgcpStatistics.getLatencies().get("CreateConnection").getCount());
+    }
+
+    @Test
+    public void testShardedGateway() throws Exception {
+        MgcpStatistics.reset();
+        final long elapsed = run(4);
+        assertEquals(COMMANDS, MgcpStatistics.getLatencies().get("CreateConnection").getCount());
+        logger.info("Sharded MediaGateway handled " + COMMANDS + " transactions in " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+                + "ms, CreateConnection p99 " + MgcpStatistics.getLatencies().get("CreateConnection").getPercentile(99) + "ms");
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.restcomm.connect.monitoringservice;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.restcomm.connect.commons.annotations.concurrency.NotThreadSafe;
+import org.restcomm.connect.commons.util.LatencyHistogram;
+import org.restcomm.connect.telephony.api.CallStateChanged;
+
+/**
+ * Outcomes and durations of the calls finished during the last minutes. They are kept per minute, so that any
+ * span of whole minutes up to the window can be summarized without storing every call.
+ */
+@NotThreadSafe
+final class CallStatistics {
+    private static final long MINUTE = 60 * 1000L;
+    private static final Set<CallStateChanged.State> OUTCOMES = EnumSet.of(CallStateChanged.State.COMPLETED,
+            CallStateChanged.State.FAILED, CallStateChanged.State.BUSY, CallStateChanged.State.CANCELED,
+            CallStateChanged.State.NO_ANSWER, CallStateChanged.State.NOT_FOUND);
+
+    private final long[] bounds;
+    private final int minutes;
+    private final long[] slotMinutes;
+    private final LatencyHistogram[] slotDurations;
+    // Calls per outcome, indexed by state ordinal
+    private final int[][] slotOutcomes;
+    // When every live call went in progress, its duration is measured from there
+    private final Map<String, Long> answerTimes;
+
+    /**
+     * @param minutes the number of minutes kept.
+     * @param bounds the upper bound in seconds of every duration bucket but the last one, in ascending order.
+     */
+    CallStatistics(final int minutes, final long... bounds) {
+        super();
+        this.bounds = bounds.clone();
+        this.minutes = minutes;
+        this.slotMinutes = new long[minutes];
+        Arrays.fill(slotMinutes, -1);
+        this.slotDurations = new LatencyHistogram[minutes];
+        this.slotOutcomes = new int[minutes][CallStateChanged.State.values().length];
+        this.answerTimes = new HashMap<String, Long>();
+    }
+
+    /**
+     * Adds a finished call to the statistics. The duration is only kept for completed calls and is measured
+     * from the time the call went in progress, so that ringing is not counted.
+     */
+    void stateChanged(final String call, final long timestamp, final CallStateChanged.State state) {
+        if (CallStateChanged.State.IN_PROGRESS == state) {
+            if (!answerTimes.containsKey(call)) {
+                answerTimes.put(call, timestamp);
+            }
+            return;
+        }
+        if (!OUTCOMES.contains(state)) {
+            return;
+        }
+        final Long answered = answerTimes.remove(call);
+        long duration = -1;
+        if (CallStateChanged.State.COMPLETED == state && answered != null) {
+            duration = Math.max(0, (timestamp - answered) / 1000);
+        }
+        record(timestamp, state, duration);
+    }
+
+    /**
+     * Forgets a call that is gone, whatever its state.
+     */
+    void remove(final String call) {
+        answerTimes.remove(call);
+    }
+
+    /**
+     * @param duration the duration in seconds of a completed call, negative when unknown.
+     */
+    void record(final long timestamp, final CallStateChanged.State outcome, final long duration) {
+        final int slot = slot(timestamp);
+        if (slot < 0) {
+            return;
+        }
+        slotOutcomes[slot][outcome.ordinal()]++;
+        if (duration >= 0) {
+            slotDurations[slot].record(duration);
+        }
+    }
+
+    private int slot(final long timestamp) {
+        final long minute = timestamp / MINUTE;
+        final int slot = (int) (minute % minutes);
+        if (slotMinutes[slot] != minute) {
+            if (slotMinutes[slot] > minute) {
+                // Older than the window, or the clock went backwards past it.
+                return -1;
+            }
+            slotMinutes[slot] = minute;
+            slotDurations[slot] = new LatencyHistogram(bounds);
+            Arrays.fill(slotOutcomes[slot], 0);
+        }
+        return slot;
+    }
+
+    private boolean inSpan(final int slot, final long timestamp, final int span) {
+        final long current = timestamp / MINUTE;
+        return slotMinutes[slot] > current - Math.min(span, minutes) && slotMinutes[slot] <= current;
+    }
+
+    /**
+     * @param timestamp the current time in milliseconds.
+     * @param span the number of minutes to summarize, the current one included.
+     * @return the durations of the calls completed during the last span minutes.
+     */
+    LatencyHistogram getDurations(final long timestamp, final int span) {
+        final LatencyHistogram durations = new LatencyHistogram(bounds);
+        for (int slot = 0; slot < minutes; slot++) {
+            if (inSpan(slot, timestamp, span)) {
+                durations.add(slotDurations[slot]);
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * @return the number of calls finished with the given outcome during the last span minutes.
+     */
+    int getOutcomes(final long timestamp, final int span, final CallStateChanged.State outcome) {
+        int count = 0;
+        for (int slot = 0; slot < minutes; slot++) {
+            if (inSpan(slot, timestamp, span)) {
+                count += slotOutcomes[slot][outcome.ordinal()];
+            }
+        }
+        return count;
+    }
+}
@@ -1,5 +1,11 @@
 package org.restcomm.connect.monitoringservice;
 
+import org.restcomm.connect.commons.cache.DiskCacheIndex;
+import org.restcomm.connect.commons.util.StatisticsUtils;
+import org.restcomm.connect.dao.cache.CachingDaoManager;
+import org.restcomm.connect.dao.mybatis.UsageRollupCompactor;
+import org.restcomm.connect.dao.mybatis.WriteBehindCallDetailRecordsDao;
+
 /**
  * Created by gvagenas on 26/09/16.
  */
@@ -14,6 +20,15 @@ public class MonitoringMetrics {
     public static String COUNTERS_MAP_MAXIMUM_CONCURRENT_OUTGOING_CALLS="MaximumConcurrentOutgoingCalls";
     public static String DURATION_MAP_AVERAGE_CALL_DURATION_IN_SECONDS_LAST_24_HOURS="AverageCallDurationInSecondsLast24Hours";
     public static String DURATION_MAP_AVERAGE_CALL_DURATION_IN_SECONDS_LAST_HOUR="AverageCallDurationInSecondsLastHour";
+    // Rolling window metrics are keyed by one of the prefixes below followed by a window suffix,
+    // e.g. AverageCallDurationInSecondsLastHour or CompletedCallsLast24Hours.
+    public static String DURATION_MAP_AVERAGE_CALL_DURATION_IN_SECONDS="AverageCallDurationInSeconds";
+    public static String DURATION_MAP_CALL_DURATION_IN_SECONDS_P50="CallDurationInSecondsP50";
+    public static String DURATION_MAP_CALL_DURATION_IN_SECONDS_P95="CallDurationInSecondsP95";
+    public static String DURATION_MAP_CALL_DURATION_IN_SECONDS_P99="CallDurationInSecondsP99";
+    public static String WINDOW_LAST_MINUTE="LastMinute";
+    public static String WINDOW_LAST_HOUR="LastHour";
+    public static String WINDOW_LAST_24_HOURS="Last24Hours";
     public static String COUNTERS_MAP_LIVE_INCOMING_CALLS="LiveIncomingCalls";
     public static String COUNTERS_MAP_LIVE_OUTGOING_CALLS="LiveOutgoingCalls";
     public static String COUNTERS_MAP_COMPLETED_CALLS="CompletedCalls";
@@ -34,4 +49,82 @@ public class MonitoringMetrics {
     public static String COUNTERS_MAP_MGCP_ENDPOINTS_IVR="MgcpEndpointsIvr";
     public static String COUNTERS_MAP_MGCP_ENDPOINTS_PACKETRELAY="MgcpEndpointsPacketRelay";
     public static String COUNTERS_MAP_MGCP_ENDPOINTS_CONFERENCE="MgcpEndpointsConference";
+    // MGCP transaction metrics are keyed by one of the prefixes below followed by the command type,
+    // e.g. MgcpTransactionsCreateConnection or MgcpLatencyInMillisP95NotificationRequest.
+    public static String COUNTERS_MAP_MGCP_TRANSACTIONS="MgcpTransactions";
+    public static String DURATION_MAP_MGCP_AVERAGE_LATENCY_IN_MILLIS="MgcpAverageLatencyInMillis";
+    public static String DURATION_MAP_MGCP_LATENCY_IN_MILLIS_P95="MgcpLatencyInMillisP95";
+    public static String DURATION_MAP_MGCP_LATENCY_IN_MILLIS_P99="MgcpLatencyInMillisP99";
+    public static String COUNTERS_MAP_KEEPALIVE_REGISTRATIONS="KeepAliveRegistrations";
+    public static String COUNTERS_MAP_KEEPALIVE_PINGS_PER_SECOND="KeepAlivePingsPerSecond";
+    public static String COUNTERS_MAP_KEEPALIVE_OUTSTANDING_PINGS="KeepAliveOutstandingPings";
+    // Put by the DAOs, which cannot see this class.
+    public static String COUNTERS_MAP_CDR_WRITE_BEHIND_QUEUE_DEPTH=WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_QUEUE_DEPTH;
+    public static String COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHES=WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHES;
+    public static String COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHED_WRITES=WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_FLUSHED_WRITES;
+    public static String COUNTERS_MAP_CDR_WRITE_BEHIND_COALESCED_WRITES=WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_COALESCED_WRITES;
+    public static String COUNTERS_MAP_CDR_WRITE_BEHIND_WRITE_THROUGHS=WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_WRITE_THROUGHS;
+    public static String COUNTERS_MAP_CDR_WRITE_BEHIND_DROPPED_WRITES=WriteBehindCallDetailRecordsDao.COUNTERS_MAP_CDR_WRITE_BEHIND_DROPPED_WRITES;
+    public static String DURATION_MAP_CDR_WRITE_BEHIND_LAST_FLUSH_LATENCY_IN_MILLIS=WriteBehindCallDetailRecordsDao.DURATION_MAP_CDR_WRITE_BEHIND_LAST_FLUSH_LATENCY_IN_MILLIS;
+    public static String DURATION_MAP_CDR_WRITE_BEHIND_MAX_FLUSH_LATENCY_IN_MILLIS=WriteBehindCallDetailRecordsDao.DURATION_MAP_CDR_WRITE_BEHIND_MAX_FLUSH_LATENCY_IN_MILLIS;
+    public static String DURATION_MAP_CDR_WRITE_BEHIND_AVERAGE_FLUSH_LATENCY_IN_MILLIS=WriteBehindCallDetailRecordsDao.DURATION_MAP_CDR_WRITE_BEHIND_AVERAGE_FLUSH_LATENCY_IN_MILLIS;
+    // Keyed by one of the prefixes below followed by the cache name, e.g. DaoCacheHitsAccountsBySid.
+    public static String COUNTERS_MAP_DAO_CACHE_HITS=CachingDaoManager.COUNTERS_MAP_DAO_CACHE_HITS;
+    public static String COUNTERS_MAP_DAO_CACHE_MISSES=CachingDaoManager.COUNTERS_MAP_DAO_CACHE_MISSES;
+    public static String COUNTERS_MAP_DAO_CACHE_EVICTIONS=CachingDaoManager.COUNTERS_MAP_DAO_CACHE_EVICTIONS;
+    public static String COUNTERS_MAP_USAGE_ROLLUP_COMPACTIONS=UsageRollupCompactor.COUNTERS_MAP_USAGE_ROLLUP_COMPACTIONS;
+    public static String DURATION_MAP_USAGE_ROLLUP_LAST_COMPACTION_LATENCY_IN_MILLIS=UsageRollupCompactor.DURATION_MAP_USAGE_ROLLUP_LAST_COMPACTION_LATENCY_IN_MILLIS;
+    // Extension metrics are keyed by one of the prefixes below followed by the extension name.
+    public static String COUNTERS_MAP_EXTENSION_EXECUTIONS="ExtensionExecutions";
+    public static String DURATION_MAP_EXTENSION_AVERAGE_LATENCY_IN_MILLIS="ExtensionAverageLatencyInMillis";
+    public static String DURATION_MAP_EXTENSION_LATENCY_IN_MILLIS_P95="ExtensionLatencyInMillisP95";
+    public static String DURATION_MAP_EXTENSION_LATENCY_IN_MILLIS_P99="ExtensionLatencyInMillisP99";
+    public static String COUNTERS_MAP_DOWNLOADER_REQUESTS_IN_FLIGHT="DownloaderRequestsInFlight";
+    public static String COUNTERS_MAP_DOWNLOADER_POOL_LEASED="DownloaderPoolLeased";
+    public static String COUNTERS_MAP_DOWNLOADER_POOL_PENDING="DownloaderPoolPending";
+    public static String COUNTERS_MAP_DOWNLOADER_POOL_AVAILABLE="DownloaderPoolAvailable";
+    public static String DURATION_MAP_DOWNLOADER_AVERAGE_LATENCY_IN_MILLIS="DownloaderAverageLatencyInMillis";
+    public static String DURATION_MAP_DOWNLOADER_LATENCY_IN_MILLIS_P50="DownloaderLatencyInMillisP50";
+    public static String DURATION_MAP_DOWNLOADER_LATENCY_IN_MILLIS_P95="DownloaderLatencyInMillisP95";
+    public static String DURATION_MAP_DOWNLOADER_LATENCY_IN_MILLIS_P99="DownloaderLatencyInMillisP99";
+    // Put by the disk cache, which cannot see this class.
+    public static String COUNTERS_MAP_DISK_CACHE_FILES=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_FILES;
+    public static String COUNTERS_MAP_DISK_CACHE_KILOBYTES=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_KILOBYTES;
+    public static String COUNTERS_MAP_DISK_CACHE_MAX_KILOBYTES=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_MAX_KILOBYTES;
+    public static String COUNTERS_MAP_DISK_CACHE_HITS=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_HITS;
+    public static String COUNTERS_MAP_DISK_CACHE_MISSES=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_MISSES;
+    public static String COUNTERS_MAP_DISK_CACHE_EVICTIONS=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_EVICTIONS;
+    public static String COUNTERS_MAP_DISK_CACHE_SHARED_DOWNLOADS=DiskCacheIndex.COUNTERS_MAP_DISK_CACHE_SHARED_DOWNLOADS;
+    public static String COUNTERS_MAP_S3_UPLOADS="S3Uploads";
+    public static String COUNTERS_MAP_S3_UPLOAD_FAILURES="S3UploadFailures";
+    public static String COUNTERS_MAP_S3_UPLOAD_RETRIES="S3UploadRetries";
+    public static String COUNTERS_MAP_S3_UPLOADS_PENDING="S3UploadsPending";
+    public static String COUNTERS_MAP_S3_UPLOADED_KILOBYTES="S3UploadedKilobytes";
+    public static String COUNTERS_MAP_S3_UPLOAD_KILOBYTES_PER_SECOND="S3UploadKilobytesPerSecond";
+    public static String DURATION_MAP_S3_AVERAGE_UPLOAD_TIME_IN_MILLIS="S3AverageUploadTimeInMillis";
+    public static String DURATION_MAP_S3_MAX_UPLOAD_TIME_IN_MILLIS="S3MaxUploadTimeInMillis";
+    public static String COUNTERS_MAP_SMPP_BINDS="SmppBinds";
+    public static String COUNTERS_MAP_SMPP_BINDS_BOUND="SmppBindsBound";
+    public static String COUNTERS_MAP_SMPP_SUBMITTED="SmppSubmitted";
+    public static String COUNTERS_MAP_SMPP_RESPONSES="SmppResponses";
+    public static String COUNTERS_MAP_SMPP_FAILED="SmppFailed";
+    public static String COUNTERS_MAP_SMPP_EXPIRED="SmppExpired";
+    public static String COUNTERS_MAP_SMPP_OUTSTANDING="SmppOutstanding";
+    public static String COUNTERS_MAP_SMPP_WINDOW_SIZE="SmppWindowSize";
+    public static String DURATION_MAP_SMPP_AVERAGE_LATENCY_IN_MILLIS="SmppAverageLatencyInMillis";
+    // Worst bind, a single slow or saturated bind is not hidden by the others.
+    public static String DURATION_MAP_SMPP_MAX_LATENCY_IN_MILLIS_P99="SmppMaxLatencyInMillisP99";
+    public static String DURATION_MAP_SMPP_MAX_WINDOW_USAGE="SmppMaxWindowUsage";
+    public static String COUNTERS_MAP_SMPP_CORRELATIONS="SmppCorrelations";
+    public static String COUNTERS_MAP_SMPP_RECEIPTS_CORRELATED_IN_MEMORY="SmppReceiptsCorrelatedInMemory";
+    public static String COUNTERS_MAP_SMPP_RECEIPTS_CORRELATED_IN_DATABASE="SmppReceiptsCorrelatedInDatabase";
+    public static String COUNTERS_MAP_SMS_RATE_LIMIT_ACCEPTED="SmsRateLimitAccepted";
+    public static String COUNTERS_MAP_SMS_RATE_LIMIT_REJECTED="SmsRateLimitRejected";
+
+    /**
+     * @return the value of a long counter for the counters map, capped at Integer.MAX_VALUE.
+     */
+    public static int counter(final long value) {
+        return StatisticsUtils.counter(value);
+    }
 }
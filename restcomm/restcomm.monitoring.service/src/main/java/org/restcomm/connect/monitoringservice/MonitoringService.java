@@ -23,17 +23,20 @@ package org.restcomm.connect.monitoringservice;
 import akka.actor.ActorRef;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
+import org.restcomm.connect.commons.StatisticsSource;
 import org.restcomm.connect.commons.configuration.RestcommConfiguration;
 import org.restcomm.connect.commons.dao.Sid;
 import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
 import org.restcomm.connect.commons.patterns.Observing;
 import org.restcomm.connect.commons.patterns.StopObserving;
+import org.restcomm.connect.commons.util.LatencyHistogram;
 import org.restcomm.connect.dao.DaoManager;
 import org.restcomm.connect.dao.entities.InstanceId;
 import org.restcomm.connect.mgcp.stats.MgcpConnectionAdded;
 import org.restcomm.connect.mgcp.stats.MgcpConnectionDeleted;
 import org.restcomm.connect.mgcp.stats.MgcpEndpointAdded;
 import org.restcomm.connect.mgcp.stats.MgcpEndpointDeleted;
+import org.restcomm.connect.mgcp.stats.MgcpStatistics;
 import org.restcomm.connect.telephony.api.CallInfo;
 import org.restcomm.connect.telephony.api.CallResponse;
 import org.restcomm.connect.telephony.api.CallStateChanged;
@@ -43,6 +46,7 @@ import org.restcomm.connect.telephony.api.GetLiveCalls;
 import org.restcomm.connect.telephony.api.GetStatistics;
 import org.restcomm.connect.telephony.api.MonitoringServiceResponse;
 import org.restcomm.connect.telephony.api.TextMessage;
+import org.restcomm.connect.telephony.api.KeepAliveStatistics;
 import org.restcomm.connect.telephony.api.UserRegistration;
 
 import javax.servlet.sip.ServletParseException;
@@ -62,6 +66,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  */
 public class MonitoringService extends RestcommUntypedActor {
+    // Rolling statistics cover the last day, per minute.
+    private static final int STATISTICS_WINDOW_MINUTES = 24 * 60;
+    private static final long[] CALL_DURATION_BOUNDS_IN_SECONDS = {5, 10, 30, 60, 120, 300, 600, 1800, 3600};
 
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
     private DaoManager daoManager;
@@ -97,7 +104,10 @@ public class MonitoringService extends RestcommUntypedActor {
     private final AtomicInteger mgcpEndpointsPacketRelay;
     private final Map<String, String> mgcpEndpointMap;
     private final Map<String, String> mgcpConnectionMap;
+    private final CallStatistics callStatistics;
 
+    private volatile KeepAliveStatistics keepAliveStatistics;
+    private final List<StatisticsSource> statisticsSources;
 
 
     private InstanceId instanceId;
@@ -138,6 +148,12 @@ public class MonitoringService extends RestcommUntypedActor {
         mgcpEndpointMap = new ConcurrentHashMap<String, String>();
         mgcpConnectionMap = new ConcurrentHashMap<String, String>();
 
+        callStatistics = new CallStatistics(STATISTICS_WINDOW_MINUTES, CALL_DURATION_BOUNDS_IN_SECONDS);
+        statisticsSources = new ArrayList<StatisticsSource>();
+        if (daoManager != null) {
+            statisticsSources.addAll(daoManager.getStatisticsSources());
+        }
+
         if(logger.isInfoEnabled()){
             logger.info("Monitoring Service started");
         }
@@ -173,6 +189,10 @@ public class MonitoringService extends RestcommUntypedActor {
             onUserRegistration((UserRegistration)message, self, sender);
         } else if (TextMessage.class.equals(klass)) {
             onTextMessage((TextMessage) message, self, sender);
+        } else if (KeepAliveStatistics.class.equals(klass)) {
+            keepAliveStatistics = (KeepAliveStatistics) message;
+        } else if (message instanceof StatisticsSource) {
+            statisticsSources.add((StatisticsSource) message);
         } else if (GetCall.class.equals(klass)) {
             if (message != null) {
                 onGetCall(message, self, sender);
@@ -350,6 +370,7 @@ public class MonitoringService extends RestcommUntypedActor {
             outgoingCallDetailsMap.remove(senderPath);
         }
         callStateMap.remove(senderPath);
+        callStatistics.remove(senderPath);
     }
 
     /**
@@ -398,10 +419,13 @@ public class MonitoringService extends RestcommUntypedActor {
         String senderPath = sender.path().name();
         if (senderPath != null && message != null && callStateMap != null && callDetailsMap != null) {
             CallStateChanged.State callState = message.state();
-            callStateMap.put(senderPath, callState);
+            CallStateChanged.State previousState = callStateMap.put(senderPath, callState);
             CallInfo callInfo = callDetailsMap.get(senderPath);
             if (callInfo != null) {
                 callInfo.setState(callState);
+                if (!callState.equals(previousState)) {
+                    callStatistics.stateChanged(senderPath, System.currentTimeMillis(), callState);
+                }
                 if (callState.equals(CallStateChanged.State.FAILED)) {
                     failedCalls.incrementAndGet();
                 } else if (callState.equals(CallStateChanged.State.COMPLETED)) {
@@ -423,6 +447,29 @@ public class MonitoringService extends RestcommUntypedActor {
         }
     }
 
+    /**
+     * Puts the duration average and percentiles and the outcome counters of the calls finished during
+     * the last span minutes, under the given window suffix.
+     */
+    private void putWindowStatistics(Map<String, Integer> countersMap, Map<String, Double> durationMap, long now, int span, String window) {
+        LatencyHistogram durations = callStatistics.getDurations(now, span);
+        double average = durations.getCount() == 0 ? 0.0 : (double) durations.getTotal() / durations.getCount();
+        durationMap.put(MonitoringMetrics.DURATION_MAP_AVERAGE_CALL_DURATION_IN_SECONDS + window, average);
+        durationMap.put(MonitoringMetrics.DURATION_MAP_CALL_DURATION_IN_SECONDS_P50 + window, (double) durations.getPercentile(50));
+        durationMap.put(MonitoringMetrics.DURATION_MAP_CALL_DURATION_IN_SECONDS_P95 + window, (double) durations.getPercentile(95));
+        durationMap.put(MonitoringMetrics.DURATION_MAP_CALL_DURATION_IN_SECONDS_P99 + window, (double) durations.getPercentile(99));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_COMPLETED_CALLS + window, outcomeCount(CallStateChanged.State.COMPLETED, now, span));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_FAILED_CALLS + window, outcomeCount(CallStateChanged.State.FAILED, now, span));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_BUSY_CALLS + window, outcomeCount(CallStateChanged.State.BUSY, now, span));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_CANCELED_CALLS + window, outcomeCount(CallStateChanged.State.CANCELED, now, span));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_NO_ANSWER_CALLS + window, outcomeCount(CallStateChanged.State.NO_ANSWER, now, span));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_NOT_FOUND_CALLS + window, outcomeCount(CallStateChanged.State.NOT_FOUND, now, span));
+    }
+
+    private int outcomeCount(CallStateChanged.State callState, long now, int span) {
+        return callStatistics.getOutcomes(now, span, callState);
+    }
+
     /**
      * @param message
      * @param self
@@ -446,28 +493,11 @@ public class MonitoringService extends RestcommUntypedActor {
         countersMap.put(MonitoringMetrics.COUNTERS_MAP_MAXIMUM_CONCURRENT_INCOMING_CALLS, maxConcurrentIncomingCalls.get());
         countersMap.put(MonitoringMetrics.COUNTERS_MAP_MAXIMUM_CONCURRENT_OUTGOING_CALLS, maxConcurrentOutgoingCalls.get());
 
-        Double averageCallDurationLast24Hours = null;
-        Double averageCallDurationLastHour = null;
-
-        try {
-            averageCallDurationLast24Hours = daoManager.getCallDetailRecordsDao().getAverageCallDurationLast24Hours(instanceId.getId());
-            averageCallDurationLastHour = daoManager.getCallDetailRecordsDao().getAverageCallDurationLastHour(instanceId.getId());
-        } catch (Exception e) {
-            if (logger.isDebugEnabled()) {
-                logger.debug("MonitoringService Exception during the query for AVG Call Duration: "+e.getStackTrace());
-            }
-        }
-
-        if (averageCallDurationLast24Hours == null) {
-            averageCallDurationLast24Hours = 0.0;
-        }
-
-        if (averageCallDurationLastHour == null) {
-            averageCallDurationLastHour = 0.0;
-        }
-
-        durationMap.put(MonitoringMetrics.DURATION_MAP_AVERAGE_CALL_DURATION_IN_SECONDS_LAST_24_HOURS, averageCallDurationLast24Hours);
-        durationMap.put(MonitoringMetrics.DURATION_MAP_AVERAGE_CALL_DURATION_IN_SECONDS_LAST_HOUR, averageCallDurationLastHour);
+        // Served from the rolling statistics, so frequent polling never reaches the CDR table.
+        long now = System.currentTimeMillis();
+        putWindowStatistics(countersMap, durationMap, now, 1, MonitoringMetrics.WINDOW_LAST_MINUTE);
+        putWindowStatistics(countersMap, durationMap, now, 60, MonitoringMetrics.WINDOW_LAST_HOUR);
+        putWindowStatistics(countersMap, durationMap, now, STATISTICS_WINDOW_MINUTES, MonitoringMetrics.WINDOW_LAST_24_HOURS);
 
         for (CallInfo callInfo : callDetailsList) {
             if (callInfo.direction().equalsIgnoreCase("inbound")) {
@@ -490,6 +520,18 @@ public class MonitoringService extends RestcommUntypedActor {
         countersMap.put(MonitoringMetrics.COUNTERS_MAP_TEXT_MESSAGE_INBOUND_TO_PROXY_OUT, textInboundToProxyOut.get());
         countersMap.put(MonitoringMetrics.COUNTERS_MAP_TEXT_MESSAGE_NOT_FOUND, textNotFound.get());
         countersMap.put(MonitoringMetrics.COUNTERS_MAP_TEXT_MESSAGE_OUTBOUND, textOutbound.get());
+        if (keepAliveStatistics != null) {
+            countersMap.put(MonitoringMetrics.COUNTERS_MAP_KEEPALIVE_REGISTRATIONS, keepAliveStatistics.getRegistrations());
+            countersMap.put(MonitoringMetrics.COUNTERS_MAP_KEEPALIVE_PINGS_PER_SECOND, keepAliveStatistics.getPingsPerSecond());
+            countersMap.put(MonitoringMetrics.COUNTERS_MAP_KEEPALIVE_OUTSTANDING_PINGS, keepAliveStatistics.getOutstandingPings());
+        }
+        for (StatisticsSource source : statisticsSources) {
+            try {
+                source.putStatistics(countersMap, durationMap);
+            } catch (RuntimeException e) {
+                logger.error(e, "MonitoringService problem while reading the statistics of " + source);
+            }
+        }
 
         if (message.isWithMgcpStats()) {
             countersMap.put(MonitoringMetrics.COUNTERS_MAP_MGCP_CONNECTIONS, mgcpConnectionMap.size());
@@ -500,6 +542,14 @@ public class MonitoringService extends RestcommUntypedActor {
                 countersMap.put(MonitoringMetrics.COUNTERS_MAP_MGCP_ENDPOINTS_CONFERENCE, mgcpEndpointsConference.get());
                 countersMap.put(MonitoringMetrics.COUNTERS_MAP_MGCP_ENDPOINTS_PACKETRELAY, mgcpEndpointsPacketRelay.get());
             }
+            for (Map.Entry<String, LatencyHistogram> latency : MgcpStatistics.getLatencies().entrySet()) {
+                final String command = latency.getKey();
+                final LatencyHistogram histogram = latency.getValue();
+                countersMap.put(MonitoringMetrics.COUNTERS_MAP_MGCP_TRANSACTIONS + command, MonitoringMetrics.counter(histogram.getCount()));
+                durationMap.put(MonitoringMetrics.DURATION_MAP_MGCP_AVERAGE_LATENCY_IN_MILLIS + command, (double) histogram.getAverage());
+                durationMap.put(MonitoringMetrics.DURATION_MAP_MGCP_LATENCY_IN_MILLIS_P95 + command, (double) histogram.getPercentile(95));
+                durationMap.put(MonitoringMetrics.DURATION_MAP_MGCP_LATENCY_IN_MILLIS_P99 + command, (double) histogram.getPercentile(99));
+            }
         }
 
         MonitoringServiceResponse callInfoList = null;
@@ -0,0 +1,150 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.restcomm.connect.monitoringservice;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.restcomm.connect.commons.util.LatencyHistogram;
+import org.restcomm.connect.telephony.api.CallStateChanged;
+
+public class CallStatisticsTest {
+    private static final long MINUTE = 60 * 1000L;
+    private static final long SECOND = 1000L;
+    // A minute boundary, every timestamp below is an explicit offset from it
+    private static final long NOW = 25000000L * MINUTE;
+    private static final long[] BOUNDS = {5, 10, 30, 60};
+
+    private static long minutesAgo(final int minutes) {
+        return NOW - minutes * MINUTE;
+    }
+
+    @Test
+    public void testSlotIsReusedWhenTheMinuteWraps() {
+        final CallStatistics statistics = new CallStatistics(3, BOUNDS);
+        statistics.record(minutesAgo(3), CallStateChanged.State.COMPLETED, 10);
+        assertEquals(1, statistics.getOutcomes(minutesAgo(3), 3, CallStateChanged.State.COMPLETED));
+
+        // three minutes later the same slot holds the current minute, the old one is cleared
+        statistics.record(NOW + 30 * SECOND, CallStateChanged.State.FAILED, -1);
+        assertEquals(0, statistics.getOutcomes(NOW, 3, CallStateChanged.State.COMPLETED));
+        assertEquals(1, statistics.getOutcomes(NOW, 3, CallStateChanged.State.FAILED));
+        assertEquals(0, statistics.getDurations(NOW, 3).getCount());
+    }
+
+    @Test
+    public void testSpans() {
+        final CallStatistics statistics = new CallStatistics(1440, BOUNDS);
+        statistics.record(NOW + 59 * SECOND, CallStateChanged.State.COMPLETED, 1);
+        statistics.record(minutesAgo(59), CallStateChanged.State.COMPLETED, 2);
+        statistics.record(minutesAgo(60), CallStateChanged.State.COMPLETED, 3);
+        statistics.record(minutesAgo(1439), CallStateChanged.State.COMPLETED, 4);
+
+        assertEquals(1, statistics.getOutcomes(NOW, 1, CallStateChanged.State.COMPLETED));
+        assertEquals(2, statistics.getOutcomes(NOW, 60, CallStateChanged.State.COMPLETED));
+        assertEquals(4, statistics.getOutcomes(NOW, 1440, CallStateChanged.State.COMPLETED));
+        // spans are capped at the window
+        assertEquals(4, statistics.getOutcomes(NOW, 2880, CallStateChanged.State.COMPLETED));
+
+        assertEquals(1, statistics.getDurations(NOW, 1).getTotal());
+        assertEquals(3, statistics.getDurations(NOW, 60).getTotal());
+        assertEquals(10, statistics.getDurations(NOW, 1440).getTotal());
+
+        // a minute later the oldest call leaves the day
+        assertEquals(3, statistics.getOutcomes(NOW + MINUTE, 1440, CallStateChanged.State.COMPLETED));
+        assertEquals(0, statistics.getOutcomes(NOW + MINUTE, 1, CallStateChanged.State.COMPLETED));
+    }
+
+    @Test
+    public void testOutOfWindowTimestampsAreDropped() {
+        final CallStatistics statistics = new CallStatistics(60, BOUNDS);
+        statistics.record(NOW, CallStateChanged.State.BUSY, -1);
+
+        // same slot as the current minute, but a window older: dropped without clearing the slot
+        statistics.record(minutesAgo(60), CallStateChanged.State.BUSY, -1);
+        assertEquals(1, statistics.getOutcomes(NOW, 60, CallStateChanged.State.BUSY));
+
+        // older than the window in a slot not used yet: kept out of every span
+        statistics.record(minutesAgo(61), CallStateChanged.State.BUSY, -1);
+        assertEquals(1, statistics.getOutcomes(NOW, 60, CallStateChanged.State.BUSY));
+    }
+
+    @Test
+    public void testClockSkewedTimestampsAreDropped() {
+        final CallStatistics statistics = new CallStatistics(60, BOUNDS);
+        statistics.record(NOW + 2 * MINUTE, CallStateChanged.State.NO_ANSWER, -1);
+        // the clock went back past the window
+        statistics.record(NOW + 2 * MINUTE - 60 * MINUTE, CallStateChanged.State.NO_ANSWER, -1);
+        assertEquals(1, statistics.getOutcomes(NOW + 2 * MINUTE, 60, CallStateChanged.State.NO_ANSWER));
+
+        // calls ahead of the time asked for are not counted
+        assertEquals(0, statistics.getOutcomes(NOW, 60, CallStateChanged.State.NO_ANSWER));
+    }
+
+    @Test
+    public void testEachOutcomeIsCountedOnce() {
+        final CallStatistics statistics = new CallStatistics(60, BOUNDS);
+        final CallStateChanged.State[] outcomes = {CallStateChanged.State.COMPLETED, CallStateChanged.State.FAILED,
+                CallStateChanged.State.BUSY, CallStateChanged.State.CANCELED, CallStateChanged.State.NO_ANSWER,
+                CallStateChanged.State.NOT_FOUND};
+        for (int i = 0; i < outcomes.length; i++) {
+            final String call = "call-" + i;
+            statistics.stateChanged(call, NOW, CallStateChanged.State.QUEUED);
+            statistics.stateChanged(call, NOW, CallStateChanged.State.RINGING);
+            statistics.stateChanged(call, NOW, CallStateChanged.State.WAIT_FOR_ANSWER);
+            statistics.stateChanged(call, NOW, outcomes[i]);
+        }
+        for (final CallStateChanged.State outcome : outcomes) {
+            assertEquals(1, statistics.getOutcomes(NOW, 60, outcome));
+        }
+        for (final CallStateChanged.State state : new CallStateChanged.State[] {CallStateChanged.State.QUEUED,
+                CallStateChanged.State.RINGING, CallStateChanged.State.WAIT_FOR_ANSWER, CallStateChanged.State.IN_PROGRESS}) {
+            assertEquals(0, statistics.getOutcomes(NOW, 60, state));
+        }
+    }
+
+    @Test
+    public void testDurationIsMeasuredFromInProgress() {
+        final CallStatistics statistics = new CallStatistics(60, BOUNDS);
+        statistics.stateChanged("answered", minutesAgo(2), CallStateChanged.State.RINGING);
+        statistics.stateChanged("answered", minutesAgo(1), CallStateChanged.State.IN_PROGRESS);
+        // going in progress again, after a hold or a transfer, does not restart the call
+        statistics.stateChanged("answered", minutesAgo(1) + 20 * SECOND, CallStateChanged.State.IN_PROGRESS);
+        statistics.stateChanged("answered", NOW + 5 * SECOND, CallStateChanged.State.COMPLETED);
+
+        // completed without going in progress, its duration is unknown
+        statistics.stateChanged("unanswered", NOW, CallStateChanged.State.COMPLETED);
+        // failed after going in progress, only completed calls have a duration
+        statistics.stateChanged("dropped", minutesAgo(1), CallStateChanged.State.IN_PROGRESS);
+        statistics.stateChanged("dropped", NOW, CallStateChanged.State.FAILED);
+        statistics.stateChanged("dropped", NOW, CallStateChanged.State.COMPLETED);
+        // removed while in progress, its answer time is forgotten
+        statistics.stateChanged("removed", minutesAgo(1), CallStateChanged.State.IN_PROGRESS);
+        statistics.remove("removed");
+        statistics.stateChanged("removed", NOW, CallStateChanged.State.COMPLETED);
+
+        final LatencyHistogram durations = statistics.getDurations(NOW, 60);
+        assertEquals(1, durations.getCount());
+        assertEquals(65, durations.getTotal());
+        assertEquals(4, statistics.getOutcomes(NOW, 60, CallStateChanged.State.COMPLETED));
+        assertEquals(1, statistics.getOutcomes(NOW, 60, CallStateChanged.State.FAILED));
+    }
+}
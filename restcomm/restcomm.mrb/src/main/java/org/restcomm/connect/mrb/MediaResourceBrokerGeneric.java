@@ -22,9 +22,12 @@ package org.restcomm.connect.mrb;
 
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.configuration.Configuration;
 import org.joda.time.DateTime;
@@ -41,6 +44,7 @@ import org.restcomm.connect.dao.entities.CallDetailRecord;
 import org.restcomm.connect.dao.entities.ConferenceDetailRecord;
 import org.restcomm.connect.dao.entities.ConferenceDetailRecordFilter;
 import org.restcomm.connect.dao.entities.MediaServerEntity;
+import org.restcomm.connect.mgcp.MediaGatewayLoad;
 import org.restcomm.connect.mgcp.MediaResourceBrokerResponse;
 import org.restcomm.connect.mgcp.PowerOnMediaGateway;
 import org.restcomm.connect.mrb.api.GetConferenceMediaResourceController;
@@ -53,16 +57,22 @@ import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
 import akka.actor.UntypedActorFactory;
+import akka.dispatch.Futures;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import jain.protocol.ip.mgcp.CreateProviderException;
 import jain.protocol.ip.mgcp.JainMgcpProvider;
 import jain.protocol.ip.mgcp.JainMgcpStack;
+import scala.concurrent.ExecutionContext;
 
 /**
  * @author maria.farooq@telestax.com (Maria Farooq)
  */
 public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
+    // Every call goes to the media server of this instance.
+    protected static final String LOCAL_SELECTION = "local";
+    // Calls go to the healthy media server with the fewest live connections and endpoints.
+    protected static final String LEAST_LOADED_SELECTION = "least-loaded";
 
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
 
@@ -73,6 +83,10 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
     protected ActorRef localMediaGateway;
     protected String localMsId;
     protected Map<String, ActorRef> mediaGatewayMap;
+    // Load of every media gateway by msId, local one first, null unless media servers are selected by load.
+    protected Map<String, MediaGatewayLoad> mediaGatewayLoads;
+    // Runs the call detail record updates of calls sent to a media server selected by load.
+    protected ExecutionContext blockingDispatcher;
 
     protected JainMgcpStack mgcpStack;
     protected JainMgcpProvider mgcpProvider;
@@ -118,9 +132,81 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
 
         localMediaServerEntity = uploadLocalMediaServersInDataBase();
         bindMGCPStack(localMediaServerEntity.getLocalIpAddress(), localMediaServerEntity.getLocalPort());
-        this.localMediaGateway = turnOnMediaGateway(localMediaServerEntity);
+        final String selection = configuration.getString("mrb.media-server-selection", LOCAL_SELECTION);
+        if (LEAST_LOADED_SELECTION.equalsIgnoreCase(selection)) {
+            turnOnMediaGateways();
+        } else {
+            this.localMediaGateway = turnOnMediaGateway(localMediaServerEntity);
+            this.mediaGatewayMap = new HashMap<String, ActorRef>();
+            mediaGatewayMap.put(localMediaServerEntity.getMsId()+"", localMediaGateway);
+        }
+    }
+
+    /**
+     * Turns on a media gateway for the local media server and for every other media server registered
+     * in the database. All of them share the JAIN MGCP provider, each one allocates its own transaction identifiers.
+     * @throws UnknownHostException
+     */
+    protected void turnOnMediaGateways() throws UnknownHostException {
+        final List<MediaServerEntity> mediaServers = new ArrayList<MediaServerEntity>();
+        mediaServers.add(localMediaServerEntity);
+        final List<MediaServerEntity> registered = storage.getMediaServersDao().getMediaServers();
+        if (registered != null) {
+            for (final MediaServerEntity mediaServer : registered) {
+                if (!localMsId.equals(mediaServer.getMsId()+"")) {
+                    mediaServers.add(mediaServer);
+                }
+            }
+        }
         this.mediaGatewayMap = new HashMap<String, ActorRef>();
-        mediaGatewayMap.put(localMediaServerEntity.getMsId()+"", localMediaGateway);
+        this.mediaGatewayLoads = new LinkedHashMap<String, MediaGatewayLoad>();
+        for (int i = 0; i < mediaServers.size(); i++) {
+            final MediaServerEntity mediaServer = mediaServers.get(i);
+            final String msId = i == 0 ? localMsId : mediaServer.getMsId()+"";
+            final MediaGatewayLoad load = new MediaGatewayLoad();
+            final ActorRef gateway = turnOnMediaGateway(mediaServer, i, mediaServers.size(), load);
+            mediaGatewayMap.put(msId, gateway);
+            mediaGatewayLoads.put(msId, load);
+            if (i == 0) {
+                this.localMediaGateway = gateway;
+            }
+        }
+        try {
+            this.blockingDispatcher = getContext().system().dispatchers().lookup("restcomm-blocking-dispatcher");
+        } catch (Exception e) {
+            logger.warning("restcomm-blocking-dispatcher is not configured, call detail records will be updated from the MRB dispatcher");
+            this.blockingDispatcher = getContext().dispatcher();
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Media servers selected by load among: " + mediaGatewayLoads.keySet());
+        }
+    }
+
+    /**
+     * @return the msId of the healthy media server with the fewest live connections and endpoints,
+     * the local one if none is healthy or on a tie. An unhealthy media server due for a trial call is
+     * returned first, so it can recover.
+     */
+    protected String selectMediaServer() {
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<String, MediaGatewayLoad> entry : mediaGatewayLoads.entrySet()) {
+            if (entry.getValue().tryTrial(now)) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Sending a trial call to unhealthy media server " + entry.getKey());
+                }
+                return entry.getKey();
+            }
+        }
+        String selected = localMsId;
+        int lowest = Integer.MAX_VALUE;
+        for (final Map.Entry<String, MediaGatewayLoad> entry : mediaGatewayLoads.entrySet()) {
+            final MediaGatewayLoad load = entry.getValue();
+            if (load.isHealthy(now) && load.get() < lowest) {
+                selected = entry.getKey();
+                lowest = load.get();
+            }
+        }
+        return selected;
     }
 
     /**
@@ -156,6 +242,18 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
      * @throws UnknownHostException
      */
     protected ActorRef turnOnMediaGateway(MediaServerEntity mediaServerEntity) throws UnknownHostException {
+        return turnOnMediaGateway(mediaServerEntity, 0, 1, null);
+    }
+
+    /**
+     * @param mediaServerEntity
+     * @param gatewayIndex position of the gateway among the gateways sharing the JAIN MGCP provider
+     * @param gateways number of gateways sharing the JAIN MGCP provider
+     * @param load updated by the gateway with its live connections and endpoints, can be null
+     * @return
+     * @throws UnknownHostException
+     */
+    protected ActorRef turnOnMediaGateway(MediaServerEntity mediaServerEntity, int gatewayIndex, int gateways, MediaGatewayLoad load) throws UnknownHostException {
 
         if (logger.isDebugEnabled()) {
             String mgcpServer = configuration.getString("mgcp-server[@class]");
@@ -187,6 +285,10 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
         builder.setStack(mgcpStack);
         builder.setProvider(mgcpProvider);
         builder.setMonitoringService(monitoringService);
+        builder.setShards(configuration.getInt("mgcp-server.shards", 1));
+        builder.setGatewayIndex(gatewayIndex);
+        builder.setGateways(gateways);
+        builder.setLoad(load);
 
         final PowerOnMediaGateway powerOn = builder.build();
         gateway.tell(powerOn, null);
@@ -226,8 +328,14 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
 
         // if its not request for conference return home media-gateway (media-server associated with this RC instance)
         if(conferenceName == null){
-            updateMSIdinCallDetailRecord(localMsId, callSid);
-            sender.tell(new MediaResourceBrokerResponse<ActorRef>(localMediaGateway), self);
+            if (mediaGatewayLoads == null) {
+                updateMSIdinCallDetailRecord(localMsId, callSid);
+                sender.tell(new MediaResourceBrokerResponse<ActorRef>(localMediaGateway), self);
+            } else {
+                final String msId = selectMediaServer();
+                updateMSIdinCallDetailRecordAsync(msId, callSid);
+                sender.tell(new MediaResourceBrokerResponse<ActorRef>(mediaGatewayMap.get(msId)), self);
+            }
         }else{
             final MediaGatewayForConference mgfc = addConferenceDetailRecord(conferenceName, callSid);
             sender.tell(new MediaResourceBrokerResponse<MediaGatewayForConference>(mgfc), self);
@@ -256,6 +364,29 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
 
     }
 
+    /**
+     * Same as updateMSIdinCallDetailRecord but does not hold the MRB while the database is updated. Only
+     * the msId column is written so the updates the Call makes meanwhile are not overwritten.
+     * @param msId
+     * @param callSid
+     */
+    protected void updateMSIdinCallDetailRecordAsync(final String msId, final Sid callSid){
+        if(callSid == null){
+            return;
+        }
+        Futures.future(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    storage.getCallDetailRecordsDao().updateCallDetailRecordMsId(callSid, msId);
+                } catch (Exception e) {
+                    logger.error(e, "Could not update msId of call " + callSid);
+                }
+                return null;
+            }
+        }, blockingDispatcher);
+    }
+
     /**
      * @param conferenceName
      * @param callSid
@@ -385,6 +516,7 @@ public class MediaResourceBrokerGeneric extends RestcommUntypedActor {
                 mgcpStack = null;
             }
             mediaGatewayMap = null;
+            mediaGatewayLoads = null;
         } catch (Exception e) {
             logger.error("Exception is cleanup: ", e);
         }
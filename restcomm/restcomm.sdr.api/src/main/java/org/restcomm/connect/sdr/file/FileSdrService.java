@@ -0,0 +1,213 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sdr.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.log4j.Logger;
+import org.restcomm.connect.dao.entities.Recording;
+import org.restcomm.connect.dao.entities.SmsMessage;
+import org.restcomm.connect.sdr.api.SdrService;
+import org.restcomm.connect.sdr.api.StartSdrService;
+import org.restcomm.connect.telephony.api.CallInfoStreamEvent;
+import org.restcomm.connect.telephony.api.events.UssdStreamEvent;
+
+import akka.actor.ActorRef;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * Writes service detail records to rolling gzip compressed files, without touching the database.
+ * <p>
+ * Events are formatted by the actor into a {@link SdrRingBuffer} and written in batches by a dedicated
+ * thread, so a slow disk never slows down the event stream. When the buffer is full records are dropped
+ * and counted. Configured under runtime-settings:
+ * <pre>
+ * &lt;sdr-service class="org.restcomm.connect.sdr.file.FileSdrService"&gt;
+ *     &lt;directory&gt;${restcomm:home}/sdr&lt;/directory&gt;
+ *     &lt;buffer-size&gt;8388608&lt;/buffer-size&gt;
+ *     &lt;batch-interval&gt;1000&lt;/batch-interval&gt;
+ *     &lt;max-file-size&gt;67108864&lt;/max-file-size&gt;
+ *     &lt;max-file-age&gt;3600&lt;/max-file-age&gt;
+ *     &lt;fsync&gt;roll&lt;/fsync&gt;
+ *     &lt;stats-interval&gt;60&lt;/stats-interval&gt;
+ * &lt;/sdr-service&gt;
+ * </pre>
+ */
+public class FileSdrService extends SdrService {
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final StringBuilder record = new StringBuilder(256);
+    private SdrRingBuffer buffer;
+    private Flusher flusher;
+    private Thread thread;
+
+    @Override
+    protected void onStartSdrService(final StartSdrService message, final ActorRef self, final ActorRef sender) {
+        final Configuration configuration = message.getConfiguration().subset("runtime-settings").subset("sdr-service");
+        final String directory = configuration.getString("directory");
+        if (directory == null || directory.isEmpty()) {
+            logger.error("No sdr-service directory configured, service detail records will not be written");
+            return;
+        }
+        final SdrFileWriter.FsyncPolicy fsync = SdrFileWriter.FsyncPolicy.valueOf(configuration.getString("fsync", "roll").toUpperCase());
+        final SdrFileWriter writer;
+        try {
+            writer = new SdrFileWriter(new File(directory), configuration.getString("prefix", "sdr"),
+                    configuration.getLong("max-file-size", 64L * 1024 * 1024),
+                    TimeUnit.SECONDS.toMillis(configuration.getLong("max-file-age", 3600)), fsync);
+        } catch (IOException e) {
+            logger.error(e, "Could not open sdr-service directory " + directory + ", service detail records will not be written");
+            return;
+        }
+        buffer = new SdrRingBuffer(configuration.getInt("buffer-size", 8 * 1024 * 1024));
+        flusher = new Flusher(buffer, writer, configuration.getLong("batch-interval", 1000),
+                TimeUnit.SECONDS.toMillis(configuration.getLong("stats-interval", 60)));
+        thread = new Thread(flusher, "restcomm-sdr-writer");
+        thread.setDaemon(true);
+        thread.start();
+        if (logger.isInfoEnabled()) {
+            logger.info("Writing service detail records to " + directory + ", fsync " + fsync);
+        }
+    }
+
+    private void onEvent(final Object event) {
+        if (buffer == null) {
+            return;
+        }
+        final byte[] bytes = SdrRecordFormat.format(event, System.currentTimeMillis(), record);
+        if (bytes == null) {
+            return;
+        }
+        if (buffer.offer(bytes)) {
+            flusher.events.incrementAndGet();
+            // Do not wait for the next batch when half of the buffer is used.
+            if (buffer.size() > buffer.capacity() / 2) {
+                LockSupport.unpark(thread);
+            }
+        } else {
+            flusher.drops.incrementAndGet();
+        }
+    }
+
+    @Override
+    protected void onCallInfoStreamEvent(final CallInfoStreamEvent message, final ActorRef self, final ActorRef sender) {
+        onEvent(message);
+    }
+
+    @Override
+    protected void onSmsMessage(final SmsMessage message, final ActorRef self, final ActorRef sender) {
+        onEvent(message);
+    }
+
+    @Override
+    protected void onUssdStreamEvent(final UssdStreamEvent message, final ActorRef self, final ActorRef sender) {
+        onEvent(message);
+    }
+
+    @Override
+    protected void onRecording(final Recording recording, final ActorRef self, final ActorRef sender) {
+        onEvent(recording);
+    }
+
+    @Override
+    public void postStop() {
+        if (thread != null) {
+            flusher.running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        super.postStop();
+    }
+
+    /**
+     * Writes the buffered records every batch interval, reports throughput, buffer occupancy and drops
+     * every stats interval, and writes whatever is left when stopped.
+     */
+    private static final class Flusher implements Runnable {
+        private static final Logger logger = Logger.getLogger(Flusher.class);
+
+        private final SdrRingBuffer buffer;
+        private final SdrFileWriter writer;
+        private final long batchInterval;
+        private final long statsInterval;
+        private final AtomicLong events;
+        private final AtomicLong drops;
+        private volatile boolean running;
+
+        private Flusher(final SdrRingBuffer buffer, final SdrFileWriter writer, final long batchInterval, final long statsInterval) {
+            super();
+            this.buffer = buffer;
+            this.writer = writer;
+            this.batchInterval = batchInterval;
+            this.statsInterval = statsInterval;
+            this.events = new AtomicLong();
+            this.drops = new AtomicLong();
+            this.running = true;
+        }
+
+        @Override
+        public void run() {
+            long lastStats = System.currentTimeMillis();
+            long lastEvents = 0;
+            while (running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(batchInterval));
+                final long now = System.currentTimeMillis();
+                write(now);
+                if (statsInterval > 0 && now - lastStats >= statsInterval) {
+                    final long total = events.get();
+                    if (logger.isInfoEnabled()) {
+                        logger.info("Service detail records: " + ((total - lastEvents) * 1000 / (now - lastStats)) + " events/s, buffer "
+                                + (buffer.size() * 100L / buffer.capacity()) + "% used, " + drops.get() + " dropped, "
+                                + writer.getFiles() + " files, " + writer.getBytes() + " bytes written");
+                    }
+                    lastStats = now;
+                    lastEvents = total;
+                }
+            }
+            write(System.currentTimeMillis());
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.error("Could not close the service detail record file", e);
+            }
+        }
+
+        private void write(final long now) {
+            try {
+                writer.write(buffer, now);
+            } catch (IOException e) {
+                // The records stay in the buffer and go to the next file.
+                logger.error("Could not write service detail records", e);
+                writer.abort();
+            }
+        }
+    }
+}
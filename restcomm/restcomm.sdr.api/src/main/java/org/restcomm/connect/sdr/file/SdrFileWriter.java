@@ -0,0 +1,339 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sdr.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.annotations.concurrency.NotThreadSafe;
+
+/**
+ * Writes the records of a {@link SdrRingBuffer} to gzip compressed files, rolled when they reach a size
+ * or an age. The file being written ends with {@value #PART_SUFFIX} and is renamed when closed, so that
+ * readers only pick complete files.
+ * <p>
+ * A part file left by a crash or by a failed write is never renamed as is, it may be truncated anywhere.
+ * Its complete records are copied to a new file under the complete name and the part is deleted. A part
+ * that cannot be read at all is kept under {@value #CORRUPT_SUFFIX} for inspection.
+ */
+@NotThreadSafe
+public final class SdrFileWriter implements Closeable {
+    public static final String SUFFIX = ".sdr.gz";
+    public static final String PART_SUFFIX = ".part";
+    public static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final String SALVAGE_SUFFIX = ".salvage";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Logger logger = Logger.getLogger(SdrFileWriter.class);
+
+    public enum FsyncPolicy {
+        // Left to the operating system.
+        NEVER,
+        // When a file is closed.
+        ROLL,
+        // After every batch, a crash loses at most the batch being written.
+        BATCH
+    }
+
+    private final File directory;
+    private final String prefix;
+    private final long maxFileSize;
+    private final long maxFileAge;
+    private final FsyncPolicy fsync;
+    private final SimpleDateFormat dateFormat;
+
+    private File file;
+    private FileOutputStream fileOut;
+    private OutputStream out;
+    private long opened;
+    private long written;
+    private int sequence;
+    private long files;
+    private long bytes;
+
+    /**
+     * @param maxFileSize uncompressed bytes after which the file is rolled.
+     * @param maxFileAge milliseconds after which the file is rolled, 0 to roll on size only.
+     */
+    public SdrFileWriter(final File directory, final String prefix, final long maxFileSize, final long maxFileAge,
+            final FsyncPolicy fsync) throws IOException {
+        super();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileSize = maxFileSize;
+        this.maxFileAge = maxFileAge;
+        this.fsync = fsync;
+        this.dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        recover();
+    }
+
+    private File[] list(final String suffix) {
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(prefix + "-") && name.endsWith(suffix);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    // Files left open by a crash hold the records up to their last flush, the last one possibly cut.
+    private void recover() {
+        for (final File salvage : list(SALVAGE_SUFFIX)) {
+            // Interrupted recovery, its part file is still there.
+            salvage.delete();
+        }
+        for (final File part : list(PART_SUFFIX)) {
+            recover(part, Long.MAX_VALUE);
+        }
+        // Continue the sequence after every file already written, so a restart within the same second
+        // does not reuse a name.
+        for (final File existing : list("")) {
+            final int next = parseSequence(existing.getName()) + 1;
+            if (next > sequence) {
+                sequence = next;
+            }
+        }
+    }
+
+    // prefix-yyyyMMdd-HHmmss-sequence.sdr.gz with any suffix, -1 when the name does not match.
+    private int parseSequence(final String name) {
+        final int start = prefix.length() + "-yyyyMMdd-HHmmss-".length();
+        if (!name.startsWith(prefix + "-") || name.length() <= start) {
+            return -1;
+        }
+        int end = start;
+        while (end < name.length() && Character.isDigit(name.charAt(end))) {
+            end++;
+        }
+        if (end == start || !name.startsWith(SUFFIX, end)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(start, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Copies the complete records of a part file, at most <i>limit</i> uncompressed bytes, to its complete
+     * name and deletes it. Quarantined under {@value #CORRUPT_SUFFIX} if that fails.
+     */
+    private void recover(final File part, final long limit) {
+        final String name = part.getName();
+        final File complete = new File(directory, name.substring(0, name.length() - PART_SUFFIX.length()));
+        try {
+            final long salvaged = salvage(part, complete, limit);
+            if (!part.delete()) {
+                throw new IOException("Could not delete " + part);
+            }
+            if (salvaged > 0) {
+                files++;
+                logger.warn("Recovered " + salvaged + " bytes of service detail records from incomplete file " + part);
+            }
+        } catch (IOException e) {
+            final File corrupt = new File(directory, name + CORRUPT_SUFFIX);
+            logger.error("Could not recover service detail record file " + part + ", moving it to " + corrupt, e);
+            part.renameTo(corrupt);
+        }
+    }
+
+    private long salvage(final File part, final File complete, final long limit) throws IOException {
+        final File target = new File(directory, complete.getName() + SALVAGE_SUFFIX);
+        final byte[] bytes = new byte[BUFFER_SIZE];
+        // Bytes read after the last line break, only written once the record is complete.
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        long salvaged = 0;
+        long remaining = limit;
+        final InputStream in;
+        try {
+            in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(part), BUFFER_SIZE), BUFFER_SIZE);
+        } catch (EOFException e) {
+            // Nothing was flushed before the crash.
+            return 0;
+        }
+        final FileOutputStream targetOut = new FileOutputStream(target);
+        boolean done = false;
+        try {
+            final GZIPOutputStream gzipOut = new GZIPOutputStream(new BufferedOutputStream(targetOut, BUFFER_SIZE), BUFFER_SIZE);
+            try {
+                while (remaining > 0) {
+                    int count;
+                    try {
+                        count = in.read(bytes, 0, (int) Math.min(bytes.length, remaining));
+                    } catch (IOException e) {
+                        // Truncated or corrupt compressed data, the records before it are kept.
+                        if (salvaged == 0 && !(e instanceof EOFException)) {
+                            throw e;
+                        }
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Service detail record file " + part + " ends after " + salvaged + " bytes", e);
+                        }
+                        break;
+                    }
+                    if (count < 0) {
+                        break;
+                    }
+                    remaining -= count;
+                    int end = count;
+                    while (end > 0 && bytes[end - 1] != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        record.write(bytes, 0, count);
+                        continue;
+                    }
+                    record.writeTo(gzipOut);
+                    gzipOut.write(bytes, 0, end);
+                    salvaged += record.size() + end;
+                    record.reset();
+                    record.write(bytes, end, count - end);
+                }
+                gzipOut.finish();
+                gzipOut.flush();
+                if (fsync != FsyncPolicy.NEVER) {
+                    targetOut.getFD().sync();
+                }
+            } finally {
+                gzipOut.close();
+            }
+            if (salvaged > 0 && !target.renameTo(complete)) {
+                throw new IOException("Could not rename " + target + " to " + complete);
+            }
+            done = true;
+        } finally {
+            in.close();
+            if (!done || salvaged == 0) {
+                target.delete();
+            }
+        }
+        return salvaged;
+    }
+
+    /**
+     * Writes the records buffered so far, rolling the current file first if it is due.
+     * @return the number of bytes written.
+     */
+    public int write(final SdrRingBuffer buffer, final long now) throws IOException {
+        if (file != null && (written >= maxFileSize || (maxFileAge > 0 && now - opened >= maxFileAge))) {
+            close();
+        }
+        if (buffer.size() == 0) {
+            return 0;
+        }
+        if (file == null) {
+            open(now);
+        }
+        final int count = buffer.drainTo(out);
+        written += count;
+        bytes += count;
+        if (fsync == FsyncPolicy.BATCH) {
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        return count;
+    }
+
+    private void open(final long now) throws IOException {
+        String name;
+        do {
+            name = prefix + "-" + dateFormat.format(new Date(now)) + "-" + (sequence++) + SUFFIX;
+        } while (new File(directory, name).exists() || new File(directory, name + PART_SUFFIX).exists());
+        file = new File(directory, name + PART_SUFFIX);
+        fileOut = new FileOutputStream(file);
+        // Sync flush so that a batch written under the BATCH policy can be decompressed after a crash.
+        out = new GZIPOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE), BUFFER_SIZE, fsync == FsyncPolicy.BATCH);
+        opened = now;
+        written = 0;
+    }
+
+    /**
+     * Closes the current file, if any. The next write opens a new one.
+     */
+    @Override
+    public void close() throws IOException {
+        if (file == null) {
+            return;
+        }
+        final File part = file;
+        file = null;
+        try {
+            ((GZIPOutputStream) out).finish();
+            out.flush();
+            if (fsync != FsyncPolicy.NEVER) {
+                fileOut.getFD().sync();
+            }
+        } finally {
+            out.close();
+        }
+        final String name = part.getName();
+        final File complete = new File(directory, name.substring(0, name.length() - PART_SUFFIX.length()));
+        if (!part.renameTo(complete)) {
+            throw new IOException("Could not rename " + part + " to " + complete);
+        }
+        files++;
+    }
+
+    /**
+     * Closes the current file after a failed write. The records of the failed batch stay in the buffer
+     * and go to the next file, so only the records written by the previous batches are kept from this one.
+     */
+    public void abort() {
+        if (file == null) {
+            return;
+        }
+        final File part = file;
+        file = null;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.debug("Could not close service detail record file", e);
+        }
+        recover(part, written);
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sdr.file;
+
+import java.nio.charset.Charset;
+
+import org.joda.time.DateTime;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.dao.entities.Recording;
+import org.restcomm.connect.dao.entities.SmsMessage;
+import org.restcomm.connect.telephony.api.CallInfo;
+import org.restcomm.connect.telephony.api.CallInfoStreamEvent;
+import org.restcomm.connect.telephony.api.events.UssdStreamEvent;
+
+/**
+ * One line per service detail record, tab separated, starting with the record type and the time the
+ * record was produced in milliseconds since the epoch:
+ * <pre>
+ * CALL time sid accountSid state direction type from to dateCreated
+ * SMS  time sid accountSid status direction from to price priceUnit dateCreated
+ * USSD time sid accountSid status direction from to dateCreated
+ * REC  time sid accountSid callSid duration dateCreated
+ * </pre>
+ * Missing values are empty, tabs, line breaks and backslashes in values are escaped with a backslash.
+ */
+@ThreadSafe
+public final class SdrRecordFormat {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SdrRecordFormat() {
+        super();
+    }
+
+    /**
+     * @param record reused between calls, cleared before the record is written.
+     * @return the UTF-8 encoded record, null if the event is not a service detail record.
+     */
+    public static byte[] format(final Object event, final long now, final StringBuilder record) {
+        record.setLength(0);
+        if (event instanceof CallInfoStreamEvent) {
+            final CallInfo call = ((CallInfoStreamEvent) event).getCallInfo();
+            if (call == null) {
+                return null;
+            }
+            append(record.append("CALL"), now);
+            append(record, call.sid());
+            append(record, call.accountSid());
+            append(record, call.state());
+            append(record, call.direction());
+            append(record, call.type());
+            append(record, call.from());
+            append(record, call.to());
+            append(record, call.dateCreated());
+        } else if (event instanceof SmsMessage) {
+            final SmsMessage sms = (SmsMessage) event;
+            append(record.append("SMS"), now);
+            append(record, sms.getSid());
+            append(record, sms.getAccountSid());
+            append(record, sms.getStatus());
+            append(record, sms.getDirection());
+            append(record, sms.getSender());
+            append(record, sms.getRecipient());
+            append(record, sms.getPrice());
+            append(record, sms.getPriceUnit());
+            append(record, sms.getDateCreated());
+        } else if (event instanceof UssdStreamEvent) {
+            final UssdStreamEvent ussd = (UssdStreamEvent) event;
+            append(record.append("USSD"), now);
+            append(record, ussd.getSid());
+            append(record, ussd.getAccountSid());
+            append(record, ussd.getStatus());
+            append(record, ussd.getDirection());
+            append(record, ussd.getFrom());
+            append(record, ussd.getTo());
+            append(record, ussd.getDateCreated());
+        } else if (event instanceof Recording) {
+            final Recording recording = (Recording) event;
+            append(record.append("REC"), now);
+            append(record, recording.getSid());
+            append(record, recording.getAccountSid());
+            append(record, recording.getCallSid());
+            append(record, recording.getDuration());
+            append(record, recording.getDateCreated());
+        } else {
+            return null;
+        }
+        record.append('\n');
+        return record.toString().getBytes(UTF_8);
+    }
+
+    private static void append(final StringBuilder record, final Object value) {
+        record.append('\t');
+        if (value == null) {
+            return;
+        }
+        if (value instanceof DateTime) {
+            record.append(((DateTime) value).getMillis());
+            return;
+        }
+        final String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '\t':
+                    record.append("\\t");
+                    break;
+                case '\n':
+                    record.append("\\n");
+                    break;
+                case '\r':
+                    record.append("\\r");
+                    break;
+                case '\\':
+                    record.append("\\\\");
+                    break;
+                default:
+                    record.append(c);
+            }
+        }
+    }
+
+    private static void append(final StringBuilder record, final long value) {
+        record.append('\t').append(value);
+    }
+}
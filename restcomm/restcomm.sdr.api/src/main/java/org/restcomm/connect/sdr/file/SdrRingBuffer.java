@@ -0,0 +1,92 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sdr.file;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Bytes of whole records between one producer and one consumer, in an array allocated once. Records
+ * that do not fit are rejected as a whole, so the consumer only ever sees complete records.
+ */
+@ThreadSafe
+public final class SdrRingBuffer {
+    private final byte[] buffer;
+    // Bytes ever published, written by the producer only.
+    private final AtomicLong tail;
+    // Bytes ever consumed, written by the consumer only.
+    private final AtomicLong head;
+
+    public SdrRingBuffer(final int capacity) {
+        super();
+        this.buffer = new byte[capacity];
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+    }
+
+    /**
+     * Must only be called by the producer.
+     * @return false, and nothing is written, when the record does not fit.
+     */
+    public boolean offer(final byte[] record) {
+        final int length = record.length;
+        final long position = tail.get();
+        if (length > buffer.length - (position - head.get())) {
+            return false;
+        }
+        final int offset = (int) (position % buffer.length);
+        final int first = Math.min(length, buffer.length - offset);
+        System.arraycopy(record, 0, buffer, offset, first);
+        System.arraycopy(record, first, buffer, 0, length - first);
+        tail.set(position + length);
+        return true;
+    }
+
+    /**
+     * Writes every published byte. Must only be called by the consumer, nothing is consumed if the stream fails.
+     * @return the number of bytes written.
+     */
+    public int drainTo(final OutputStream out) throws IOException {
+        final long position = head.get();
+        final int available = (int) (tail.get() - position);
+        if (available == 0) {
+            return 0;
+        }
+        final int offset = (int) (position % buffer.length);
+        final int first = Math.min(available, buffer.length - offset);
+        out.write(buffer, offset, first);
+        if (available > first) {
+            out.write(buffer, 0, available - first);
+        }
+        head.set(position + available);
+        return available;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
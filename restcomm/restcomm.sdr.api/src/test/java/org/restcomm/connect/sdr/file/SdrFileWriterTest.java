@@ -0,0 +1,291 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sdr.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SdrFileWriterTest {
+    private File directory;
+
+    @Before
+    public void before() throws IOException {
+        directory = File.createTempFile("sdr", "");
+        directory.delete();
+    }
+
+    @After
+    public void after() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static byte[] record(final int i) {
+        return ("CALL\t" + i + "\tCA" + i + "\n").getBytes();
+    }
+
+    private String read(final File file) throws IOException {
+        final InputStream in = new GZIPInputStream(new FileInputStream(file));
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] bytes = new byte[4096];
+            int count;
+            while ((count = in.read(bytes)) > 0) {
+                out.write(bytes, 0, count);
+            }
+            return out.toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(final File file, final byte[] bytes) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] readRaw(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] bytes = new byte[4096];
+            int count;
+            while ((count = in.read(bytes)) > 0) {
+                out.write(bytes, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private File[] files(final String suffix) {
+        final File[] files = directory.listFiles();
+        int count = 0;
+        for (final File file : files) {
+            if (file.getName().endsWith(suffix)) {
+                files[count++] = file;
+            }
+        }
+        final File[] matching = Arrays.copyOf(files, count);
+        Arrays.sort(matching);
+        return matching;
+    }
+
+    @Test
+    public void testRingBufferWrapsAndRejectsWholeRecords() throws IOException {
+        final SdrRingBuffer buffer = new SdrRingBuffer(16);
+        assertTrue(buffer.offer("0123456789\n".getBytes()));
+        assertFalse(buffer.offer("0123456789\n".getBytes()));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(11, buffer.drainTo(out));
+        // Wraps around the end of the array.
+        assertTrue(buffer.offer("abcdefghij\n".getBytes()));
+        assertEquals(11, buffer.size());
+        buffer.drainTo(out);
+        assertEquals("0123456789\nabcdefghij\n", out.toString());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testRollsOnSize() throws IOException {
+        final SdrRingBuffer buffer = new SdrRingBuffer(1024);
+        final SdrFileWriter writer = new SdrFileWriter(directory, "sdr", 30, 0, SdrFileWriter.FsyncPolicy.BATCH);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(record(i));
+            expected.append(new String(record(i)));
+            writer.write(buffer, 1000L + i);
+        }
+        // The file being written is only visible as a part file.
+        assertEquals(1, files(SdrFileWriter.PART_SUFFIX).length);
+        writer.close();
+        assertEquals(0, files(SdrFileWriter.PART_SUFFIX).length);
+        final StringBuilder actual = new StringBuilder();
+        final File[] files = files(SdrFileWriter.SUFFIX);
+        assertEquals(4, files.length);
+        for (final File file : files) {
+            actual.append(read(file));
+        }
+        // Every record once, in order, none split between files.
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(4, writer.getFiles());
+    }
+
+    @Test
+    public void testRollsOnAge() throws IOException {
+        final SdrRingBuffer buffer = new SdrRingBuffer(1024);
+        final SdrFileWriter writer = new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 1000, SdrFileWriter.FsyncPolicy.NEVER);
+        buffer.offer(record(1));
+        writer.write(buffer, 0);
+        // Rolled even without new records.
+        writer.write(buffer, 1000);
+        assertEquals(1, files(SdrFileWriter.SUFFIX).length);
+        assertEquals(0, files(SdrFileWriter.PART_SUFFIX).length);
+    }
+
+    @Test
+    public void testRecoversPartFiles() throws IOException {
+        final SdrRingBuffer buffer = new SdrRingBuffer(1024);
+        final SdrFileWriter writer = new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 0, SdrFileWriter.FsyncPolicy.BATCH);
+        buffer.offer(record(1));
+        writer.write(buffer, 0);
+        // Crash, the part file holds every synced record.
+        new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 0, SdrFileWriter.FsyncPolicy.BATCH);
+        final File[] files = files(SdrFileWriter.SUFFIX);
+        assertEquals(1, files.length);
+        final byte[] bytes = new byte[64];
+        final InputStream in = new GZIPInputStream(new FileInputStream(files[0]));
+        try {
+            final int count = in.read(bytes);
+            assertEquals(new String(record(1)), new String(bytes, 0, count));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testSalvagesTruncatedPartFiles() throws IOException {
+        // Crash in the middle of a record, without the gzip trailer.
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final GZIPOutputStream gzip = new GZIPOutputStream(compressed, true);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            gzip.write(record(i));
+            expected.append(new String(record(i)));
+        }
+        gzip.write("CALL\t3".getBytes());
+        gzip.flush();
+        directory.mkdirs();
+        write(new File(directory, "sdr-19700101-000000-7" + SdrFileWriter.SUFFIX + SdrFileWriter.PART_SUFFIX),
+                compressed.toByteArray());
+        write(new File(directory, "sdr-19700101-000000-8" + SdrFileWriter.SUFFIX + SdrFileWriter.PART_SUFFIX),
+                "not compressed".getBytes());
+        final SdrFileWriter writer = new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 0, SdrFileWriter.FsyncPolicy.NEVER);
+        assertEquals(0, files(SdrFileWriter.PART_SUFFIX).length);
+        // Only the complete records are kept.
+        final File[] files = files(SdrFileWriter.SUFFIX);
+        assertEquals(1, files.length);
+        assertEquals("sdr-19700101-000000-7" + SdrFileWriter.SUFFIX, files[0].getName());
+        assertEquals(expected.toString(), read(files[0]));
+        // An unreadable file is kept aside.
+        final File[] corrupt = files(SdrFileWriter.CORRUPT_SUFFIX);
+        assertEquals(1, corrupt.length);
+        assertEquals("not compressed", new String(readRaw(corrupt[0])));
+        // The sequence continues after the recovered files.
+        final SdrRingBuffer buffer = new SdrRingBuffer(1024);
+        buffer.offer(record(4));
+        writer.write(buffer, 0);
+        writer.close();
+        assertTrue(new File(directory, "sdr-19700101-000000-9" + SdrFileWriter.SUFFIX).exists());
+    }
+
+    @Test
+    public void testRestartDoesNotReuseFileNames() throws IOException {
+        final SdrRingBuffer buffer = new SdrRingBuffer(1024);
+        SdrFileWriter writer = new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 0, SdrFileWriter.FsyncPolicy.ROLL);
+        buffer.offer(record(1));
+        writer.write(buffer, 0);
+        writer.close();
+        // Restarted within the same second.
+        writer = new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 0, SdrFileWriter.FsyncPolicy.ROLL);
+        buffer.offer(record(2));
+        writer.write(buffer, 0);
+        writer.close();
+        final File[] files = files(SdrFileWriter.SUFFIX);
+        assertEquals(2, files.length);
+        assertEquals(new String(record(1)) + new String(record(2)), read(files[0]) + read(files[1]));
+    }
+
+    @Test
+    public void testAbortKeepsOnlyWrittenBatches() throws IOException {
+        final SdrRingBuffer buffer = new SdrRingBuffer(1024);
+        final SdrFileWriter writer = new SdrFileWriter(directory, "sdr", Long.MAX_VALUE, 0, SdrFileWriter.FsyncPolicy.BATCH);
+        buffer.offer(record(1));
+        writer.write(buffer, 0);
+        // The next batch fails and stays in the buffer.
+        buffer.offer(record(2));
+        writer.abort();
+        assertEquals(0, files(SdrFileWriter.PART_SUFFIX).length);
+        writer.write(buffer, 0);
+        writer.close();
+        final File[] files = files(SdrFileWriter.SUFFIX);
+        assertEquals(2, files.length);
+        // Every record once.
+        assertEquals(new String(record(1)) + new String(record(2)), read(files[0]) + read(files[1]));
+        assertEquals(0, files(SdrFileWriter.CORRUPT_SUFFIX).length);
+    }
+
+    @Test
+    public void testKeepsEveryRecordWhenTheBufferFills() throws IOException {
+        // Small buffer and files, so that the buffer wraps and files roll many times.
+        final SdrRingBuffer buffer = new SdrRingBuffer(4 * 1024);
+        final SdrFileWriter writer = new SdrFileWriter(directory, "sdr", 64 * 1024, 0, SdrFileWriter.FsyncPolicy.ROLL);
+        final int records = 100000;
+        for (int i = 0; i < records; i++) {
+            if (!buffer.offer(record(i))) {
+                writer.write(buffer, 0);
+                assertTrue(buffer.offer(record(i)));
+            }
+        }
+        writer.write(buffer, 0);
+        writer.close();
+        final File[] files = files(SdrFileWriter.SUFFIX);
+        assertTrue(files.length > 1);
+        assertEquals(files.length, writer.getFiles());
+        // Every record once, none split between files.
+        final boolean[] seen = new boolean[records];
+        int count = 0;
+        for (final File file : files) {
+            for (final String line : read(file).split("\n")) {
+                final int i = Integer.parseInt(line.split("\t")[1]);
+                assertEquals(new String(record(i)), line + "\n");
+                assertFalse(seen[i]);
+                seen[i] = true;
+                count++;
+            }
+        }
+        assertEquals(records, count);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.configuration.Configuration;
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
+
+/**
+ * Limits the outbound SMS every account can send in a sliding window of one minute, without querying
+ * the messages table. The window is split in buckets, every bucket packs the second it belongs to and
+ * its count in a single long updated by compare and set, so accounts never contend on a lock.
+ * <p>
+ * The limit of an account is, in order, the one configured for the account, the one configured for its
+ * organization or the default one. A limit of 0 or less disables limiting, messages are still counted.
+ * Concurrent senders of the same account can overshoot the limit by at most the number of senders.
+ * <p>
+ * The accepted and rejected totals are published by the MonitoringService.
+ */
+@ThreadSafe
+public final class SmsRateLimiter implements StatisticsSource {
+    private static final int BUCKETS = 60;
+    private static final long BUCKET_MILLIS = 1000;
+    private static final long COUNT_MASK = 0xffffffffL;
+
+    private final long defaultLimit;
+    private final Map<String, Long> accountLimits;
+    private final Map<String, Long> organizationLimits;
+    private final ConcurrentMap<String, Window> windows;
+    private final AtomicLong accepted;
+    private final AtomicLong rejected;
+
+    public SmsRateLimiter(final long defaultLimit, final Map<String, Long> accountLimits, final Map<String, Long> organizationLimits) {
+        super();
+        this.defaultLimit = defaultLimit;
+        this.accountLimits = Collections.unmodifiableMap(new HashMap<String, Long>(accountLimits));
+        this.organizationLimits = Collections.unmodifiableMap(new HashMap<String, Long>(organizationLimits));
+        this.windows = new ConcurrentHashMap<String, Window>();
+        this.accepted = new AtomicLong();
+        this.rejected = new AtomicLong();
+    }
+
+    /**
+     * Reads the limits from the sms-aggregator rate-limit element, absent limits disable limiting.
+     */
+    @SuppressWarnings("unchecked")
+    public static SmsRateLimiter create(final Configuration configuration) {
+        final Map<String, Long> accounts = new HashMap<String, Long>();
+        final List<Object> accountSids = configuration.getList("rate-limit.account[@sid]");
+        for (int i = 0; i < accountSids.size(); i++) {
+            accounts.put(accountSids.get(i).toString(), configuration.getLong("rate-limit.account(" + i + ")[@per-minute]"));
+        }
+        final Map<String, Long> organizations = new HashMap<String, Long>();
+        final List<Object> organizationSids = configuration.getList("rate-limit.organization[@sid]");
+        for (int i = 0; i < organizationSids.size(); i++) {
+            organizations.put(organizationSids.get(i).toString(), configuration.getLong("rate-limit.organization(" + i + ")[@per-minute]"));
+        }
+        return new SmsRateLimiter(configuration.getLong("rate-limit[@per-minute]", 0), accounts, organizations);
+    }
+
+    /**
+     * Counts an outbound message of the account if it is within its limit.
+     *
+     * @return false if the account already sent its limit in the last minute.
+     */
+    public boolean tryAcquire(final String accountSid, final String organizationSid) {
+        return tryAcquire(accountSid, organizationSid, System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(final String accountSid, final String organizationSid, final long now) {
+        final long limit = getLimit(accountSid, organizationSid);
+        final Window window = window(accountSid);
+        final long second = now / BUCKET_MILLIS;
+        if (limit > 0 && window.count(second) >= limit) {
+            window.rejected.incrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        window.increment(second);
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    public long getLimit(final String accountSid, final String organizationSid) {
+        Long limit = accountLimits.get(accountSid);
+        if (limit == null && organizationSid != null) {
+            limit = organizationLimits.get(organizationSid);
+        }
+        return limit == null ? defaultLimit : limit;
+    }
+
+    /**
+     * @return the outbound messages the account sent in the last minute.
+     */
+    public long getRate(final String accountSid) {
+        final Window window = windows.get(accountSid);
+        return window == null ? 0 : window.count(System.currentTimeMillis() / BUCKET_MILLIS);
+    }
+
+    /**
+     * @return the outbound messages of the account rejected since startup.
+     */
+    public long getRejected(final String accountSid) {
+        final Window window = windows.get(accountSid);
+        return window == null ? 0 : window.rejected.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMS_RATE_LIMIT_ACCEPTED, MonitoringMetrics.counter(accepted.get()));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMS_RATE_LIMIT_REJECTED, MonitoringMetrics.counter(rejected.get()));
+    }
+
+    private Window window(final String accountSid) {
+        Window window = windows.get(accountSid);
+        if (window == null) {
+            final Window created = new Window();
+            window = windows.putIfAbsent(accountSid, created);
+            if (window == null) {
+                window = created;
+            }
+        }
+        return window;
+    }
+
+    private static final class Window {
+        // Second of the bucket in the high 32 bits, count in the low 32 bits.
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong rejected = new AtomicLong();
+
+        private void increment(final long second) {
+            final int index = (int) (second % BUCKETS);
+            while (true) {
+                final long current = buckets.get(index);
+                final long updated = (current >>> 32) == second ? current + 1 : (second << 32) | 1;
+                if (buckets.compareAndSet(index, current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        private long count(final long second) {
+            long count = 0;
+            for (int index = 0; index < BUCKETS; index++) {
+                final long bucket = buckets.get(index);
+                if (second - (bucket >>> 32) < BUCKETS) {
+                    count += bucket & COUNT_MASK;
+                }
+            }
+            return count;
+        }
+    }
+}
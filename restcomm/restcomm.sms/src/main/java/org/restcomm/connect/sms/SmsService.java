@@ -26,8 +26,13 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletConfig;
@@ -144,6 +149,16 @@ public final class SmsService extends RestcommUntypedActor {
 
     private UriUtils uriUtils;
 
+    // SMPP status updates are written in batches of statusBatchSize, or after statusFlushInterval ms.
+    private final int statusBatchSize;
+    private final long statusFlushInterval;
+    private final Map<Sid, SmsMessage> pendingStatusUpdates;
+    private final List<SmsMessage> pendingStatusNotifications;
+    private boolean statusFlushScheduled;
+
+    // Outbound SMS allowed per account and minute.
+    private final SmsRateLimiter rateLimiter;
+
     public SmsService(final Configuration configuration, final SipFactory factory,
             final DaoManager storage, final ServletContext servletContext) {
         super();
@@ -175,6 +190,14 @@ public final class SmsService extends RestcommUntypedActor {
         }
 
         this.uriUtils = RestcommConnectServiceProvider.getInstance().uriUtils();
+        this.statusBatchSize = configuration.getInt("smpp.status-batch-size", 1);
+        this.statusFlushInterval = configuration.getLong("smpp.status-flush-interval", 200);
+        this.pendingStatusUpdates = new LinkedHashMap<Sid, SmsMessage>();
+        this.pendingStatusNotifications = new ArrayList<SmsMessage>();
+        this.rateLimiter = SmsRateLimiter.create(configuration.subset("sms-aggregator"));
+        if (monitoringService != null) {
+            monitoringService.tell(rateLimiter, self());
+        }
     }
 
     private void message(final Object message) throws IOException {
@@ -514,6 +537,9 @@ public final class SmsService extends RestcommUntypedActor {
             onServletResponse(message);
         } else if (message instanceof SmsStatusUpdated) {
             onStatusUpdated((SmsStatusUpdated) message);
+        } else if (FlushStatusUpdates.class.equals(klass)) {
+            statusFlushScheduled = false;
+            flushStatusUpdates();
         }
 
     }
@@ -547,11 +573,17 @@ public final class SmsService extends RestcommUntypedActor {
         final ActorRef self = self();
         final ActorRef sender = sender();
         IExtensionCreateSmsSessionRequest ier = (CreateSmsSession) message;
+        CreateSmsSession createSmsSession = (CreateSmsSession) message;
+        final Sid organizationSid = OrganizationUtil.getOrganizationSidByAccountSid(storage, new Sid(createSmsSession.getAccountSid()));
+        if (!rateLimiter.tryAcquire(createSmsSession.getAccountSid(), organizationSid == null ? null : organizationSid.toString())) {
+            logger.warning("Outbound SMS rate limit exceeded for account " + createSmsSession.getAccountSid());
+            sender.tell(new SmsServiceResponse<ActorRef>(new SmsServiceException("Outbound SMS rate limit exceeded")), self);
+            return;
+        }
         ier.setConfiguration(this.configuration);
         ExtensionResponse executePreOutboundAction = ec.executePreOutboundAction(ier, this.extensions);
         if (executePreOutboundAction.isAllowed()) {
-            CreateSmsSession createSmsSession = (CreateSmsSession) message;
-            final ActorRef session = session(ier.getConfiguration(), OrganizationUtil.getOrganizationSidByAccountSid(storage, new Sid(createSmsSession.getAccountSid())));
+            final ActorRef session = session(ier.getConfiguration(), organizationSid);
             final SmsServiceResponse<ActorRef> response = new SmsServiceResponse<ActorRef>(session);
             sender.tell(response, self);
         } else {
@@ -688,9 +720,65 @@ public final class SmsService extends RestcommUntypedActor {
 
     private void onStatusUpdated(SmsStatusUpdated event) {
         SmsMessage msg = (SmsMessage) event.getInfo().attributes().get(RECORD_ATT);
-        storage.getSmsMessagesDao().updateSmsMessage(msg);
-        notifyStatus(msg);
+        if (statusBatchSize <= 1) {
+            storage.getSmsMessagesDao().updateSmsMessage(msg);
+            notifyStatus(msg);
+            return;
+        }
+        // Only the last update of a message is written, every update is notified
+        pendingStatusUpdates.remove(msg.getSid());
+        pendingStatusUpdates.put(msg.getSid(), msg);
+        pendingStatusNotifications.add(msg);
+        if (pendingStatusNotifications.size() >= statusBatchSize) {
+            flushStatusUpdates();
+        } else if (!statusFlushScheduled) {
+            statusFlushScheduled = true;
+            system.scheduler().scheduleOnce(Duration.create(statusFlushInterval, TimeUnit.MILLISECONDS), self(),
+                    new FlushStatusUpdates(), system.dispatcher());
+        }
+    }
+
+    private void flushStatusUpdates() {
+        if (pendingStatusNotifications.isEmpty()) {
+            return;
+        }
+        final List<SmsMessage> updates = new ArrayList<SmsMessage>(pendingStatusUpdates.values());
+        final List<SmsMessage> notifications = new ArrayList<SmsMessage>(pendingStatusNotifications);
+        pendingStatusUpdates.clear();
+        pendingStatusNotifications.clear();
+        final Set<Sid> failed = new HashSet<Sid>();
+        try {
+            storage.getSmsMessagesDao().updateSmsMessages(updates);
+        } catch (Exception exception) {
+            // A single bad row must not cost the whole batch, write the updates one by one
+            logger.warning("Could not write " + updates.size() + " SMS status updates in a batch, writing them one by one: " + exception);
+            for (final SmsMessage msg : updates) {
+                try {
+                    storage.getSmsMessagesDao().updateSmsMessage(msg);
+                } catch (Exception rowException) {
+                    logger.error(rowException, "Could not write status update of SMS message " + msg.getSid());
+                    failed.add(msg.getSid());
+                }
+            }
+        }
+        for (final SmsMessage msg : notifications) {
+            if (!failed.contains(msg.getSid())) {
+                notifyStatus(msg);
+            }
+        }
+    }
+
+    @Override
+    public void postStop() {
+        try {
+            flushStatusUpdates();
+        } catch (Exception exception) {
+            logger.error(exception, "Could not write pending SMS status updates");
+        }
+        super.postStop();
+    }
 
+    private static final class FlushStatusUpdates {
     }
 
     // The storage engine.
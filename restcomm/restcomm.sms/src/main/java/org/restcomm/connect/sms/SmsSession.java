@@ -357,7 +357,7 @@ public final class SmsSession extends RestcommUntypedActor {
         return sendUsingSmpp(from, to, body, null, encoding);
     }
     private boolean sendUsingSmpp(String from, String to, String body, TlvSet tlvSet, Charset encoding) {
-        if ((SmppClientOpsThread.getSmppSession() != null && SmppClientOpsThread.getSmppSession().isBound()) && smppMessageHandler != null) {
+        if ((SmppClientOpsThread.getSessionPool() != null && SmppClientOpsThread.getSessionPool().isBound()) && smppMessageHandler != null) {
             if(logger.isInfoEnabled()) {
                 logger.info("SMPP session is available and connected, outbound message will be forwarded to :  " + to );
                 logger.info("Encoding:  " + encoding );
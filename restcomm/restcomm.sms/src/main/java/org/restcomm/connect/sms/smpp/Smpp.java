@@ -50,6 +50,9 @@ public class Smpp {
     private boolean messagePayloadFlag;
     private boolean autoDetectDcsFlag;
 
+    // index of this bind among the binds opened for the same connection
+    private int bindIndex;
+
     // not used as of today, but later we can allow users to stop each SMPP
     private boolean started = true;
 
@@ -248,6 +251,14 @@ public class Smpp {
         return autoDetectDcsFlag;
     }
 
+    public int getBindIndex() {
+        return bindIndex;
+    }
+
+    public void setBindIndex(int bindIndex) {
+        this.bindIndex = bindIndex;
+    }
+
     public boolean isStarted() {
         return started;
     }
@@ -269,7 +280,7 @@ public class Smpp {
 
     @Override
     public String toString() {
-        return "Smpp [name=" + name + ", systemId=" + systemId + ", peerIp=" + peerIp + ", peerPort=" + peerPort
+        return "Smpp [name=" + name + ", bindIndex=" + bindIndex + ", systemId=" + systemId + ", peerIp=" + peerIp + ", peerPort=" + peerPort
                 + ", smppBindType=" + smppBindType + ", password=" + password + ", systemType=" + systemType
                 + ", interfaceVersion=" + interfaceVersion + ", address=" + address + ", connectTimeout=" + connectTimeout
                 + ", windowSize=" + windowSize + ", windowWaitTimeout=" + windowWaitTimeout + ", requestExpiryTimeout="
@@ -285,6 +296,7 @@ public class Smpp {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((name == null) ? 0 : name.hashCode());
+        result = prime * result + bindIndex;
         return result;
     }
 
@@ -302,6 +314,8 @@ public class Smpp {
                 return false;
         } else if (!name.equals(other.name))
             return false;
+        if (bindIndex != other.bindIndex)
+            return false;
         return true;
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import org.restcomm.connect.commons.annotations.concurrency.Immutable;
+
+/**
+ * Throughput, latency and window usage of one SMPP bind at the time it was taken.
+ */
+@Immutable
+public final class SmppBindStatistics {
+    private final String name;
+    private final int bindIndex;
+    private final boolean bound;
+    private final long submitted;
+    private final long responses;
+    private final long failed;
+    private final long expired;
+    private final int outstanding;
+    private final int windowSize;
+    private final long averageLatency;
+    private final long p99Latency;
+
+    public SmppBindStatistics(final String name, final int bindIndex, final boolean bound, final long submitted,
+            final long responses, final long failed, final long expired, final int outstanding, final int windowSize,
+            final long averageLatency, final long p99Latency) {
+        super();
+        this.name = name;
+        this.bindIndex = bindIndex;
+        this.bound = bound;
+        this.submitted = submitted;
+        this.responses = responses;
+        this.failed = failed;
+        this.expired = expired;
+        this.outstanding = outstanding;
+        this.windowSize = windowSize;
+        this.averageLatency = averageLatency;
+        this.p99Latency = p99Latency;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBindIndex() {
+        return bindIndex;
+    }
+
+    public boolean isBound() {
+        return bound;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getResponses() {
+        return responses;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public int getOutstanding() {
+        return outstanding;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the fraction of the send window in use.
+     */
+    public double getWindowUsage() {
+        return windowSize == 0 ? 0 : (double) outstanding / windowSize;
+    }
+
+    public long getAverageLatency() {
+        return averageLatency;
+    }
+
+    public long getP99Latency() {
+        return p99Latency;
+    }
+
+    @Override
+    public String toString() {
+        return "SmppBindStatistics [name=" + name + ", bindIndex=" + bindIndex + ", bound=" + bound + ", submitted="
+                + submitted + ", responses=" + responses + ", failed=" + failed + ", expired=" + expired
+                + ", outstanding=" + outstanding + ", windowSize=" + windowSize + ", averageLatency=" + averageLatency
+                + ", p99Latency=" + p99Latency + "]";
+    }
+}
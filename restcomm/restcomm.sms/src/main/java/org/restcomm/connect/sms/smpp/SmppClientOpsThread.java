@@ -67,8 +67,9 @@ public class SmppClientOpsThread implements Runnable {
     private List<ChangeRequest> pendingChanges = new CopyOnWriteArrayList<ChangeRequest>();
     private Object waitObject = new Object();
     private final DefaultSmppClient clientBootstrap;
-    private static SmppSession getSmppSession;
-    //FIXME: like getSmppSession, this is bad design
+    private static SmppSessionPool sessionPool;
+    private final SmppReassembler reassembler;
+    //FIXME: like sessionPool, this is bad design
     //this assumes singular SMPP connection all the time,so it works
     private static Charset outboundEncoding;
     private static Charset inboundEncoding;
@@ -79,10 +80,13 @@ public class SmppClientOpsThread implements Runnable {
 
     private final ActorRef smppMessageHandler;
 
-    public SmppClientOpsThread(DefaultSmppClient clientBootstrap, int sipPort, final ActorRef smppMessageHandler) {
+    public SmppClientOpsThread(DefaultSmppClient clientBootstrap, int sipPort, final ActorRef smppMessageHandler,
+            final SmppSessionPool sessionPool, final SmppReassembler reassembler) {
         this.clientBootstrap = clientBootstrap;
         this.sipPort = sipPort;
         this.smppMessageHandler = smppMessageHandler;
+        SmppClientOpsThread.sessionPool = sessionPool;
+        this.reassembler = reassembler;
     }
 
 
@@ -276,12 +280,12 @@ public class SmppClientOpsThread implements Runnable {
             session0 = clientBootstrap.bind(config0, sessionHandler);
 
 
-            //getting session to be used to process SMS received from Restcomm
-            getSmppSession = session0;
-
             // Set in ESME
             esme.setSmppSession((DefaultSmppSession) session0);
 
+            //the bind can now be used to send SMS received from Restcomm
+            sessionPool.add(esme);
+
             // Finally set Enquire Link schedule
             this.scheduleEnquireLink(esme);
         } catch (Exception e) {
@@ -343,9 +347,13 @@ public class SmppClientOpsThread implements Runnable {
                 PduAsyncResponse pduAsyncResponse) {
             // TODO : SMPP Response received. Does RestComm need confirmation
             // for this?
-            logger.info("ExpectedPduResponseReceived received for Smpp "
-                    + this.esme.getName() + " PduAsyncResponse="
-                    + pduAsyncResponse);
+            if (logger.isInfoEnabled()) {
+                logger.info("ExpectedPduResponseReceived received for Smpp "
+                        + this.esme.getName() + " PduAsyncResponse="
+                        + pduAsyncResponse);
+            }
+
+            sessionPool.responseReceived(this.esme, pduAsyncResponse);
 
             //forward this to smppMessageHandle so we can potentially update the message status
             smppMessageHandler.tell(pduAsyncResponse, null);
@@ -357,6 +365,7 @@ public class SmppClientOpsThread implements Runnable {
             // about SMS failure
             logger.warn("PduRequestExpired for Smpp " + this.esme.getName()
                     + " PduRequest=" + pduRequest);
+            sessionPool.requestExpired(this.esme);
         }
 
         @Override
@@ -402,6 +411,15 @@ public class SmppClientOpsThread implements Runnable {
                             logger.error("incoming message has no message body nor message_payload");
                         }
                     }
+                    if (msgType == 0x0 && (esmClass & SmppSegmenter.ESM_CLASS_UDHI) != 0) {
+                        pduMessage = reassembler.reassemble(sourceSmppAddress, destSmppAddress, pduMessage);
+                        if (pduMessage == null) {
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("Buffered part of concatenated message from " + sourceSmppAddress + " to " + destSmppAddress);
+                            }
+                            return response;
+                        }
+                    }
                     String decodedPduMessage = CharsetUtil.decode(pduMessage, encoding);
                     //send received SMPP PDU message to restcomm only if not DLR
                     if (msgType == 0x0) {
@@ -469,11 +487,15 @@ public class SmppClientOpsThread implements Runnable {
 
     //smpp session to be used for sending SMS from Restcomm to smpp endpoint
     public static SmppSession getSmppSession() {
-        return getSmppSession;
+        return sessionPool == null ? null : sessionPool.getSession();
+    }
+
+    //binds used for sending SMS from Restcomm to smpp endpoint
+    public static SmppSessionPool getSessionPool() {
+        return sessionPool;
     }
 
     public void sendSmppMessageToRestcomm(String smppMessage, String smppTo, String smppFrom, Charset charset) throws IOException, ServletException {
-        SmppSession smppSession = SmppClientOpsThread.getSmppSession();
         String to = smppTo;
         String from = smppFrom;
         String inboundMessage = smppMessage;
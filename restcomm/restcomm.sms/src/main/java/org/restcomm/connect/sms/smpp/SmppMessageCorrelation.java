@@ -0,0 +1,118 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.dao.entities.SmsMessage;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded index from the message id the SMSC assigned in submit_sm_resp to the message it was assigned
+ * to, so that delivery receipts can be correlated without querying the database. Entries expire after
+ * the configured time to live, receipts arriving later are correlated through the database.
+ */
+@ThreadSafe
+public final class SmppMessageCorrelation implements StatisticsSource {
+    public static final int DEFAULT_SIZE = 100000;
+    public static final long DEFAULT_TTL = 86400;
+
+    private final Cache<String, SmsMessage> messages;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * @param size the maximum number of correlations kept, DEFAULT_SIZE when not positive.
+     * @param ttl seconds a correlation is kept, DEFAULT_TTL when not positive.
+     */
+    public SmppMessageCorrelation(final int size, final long ttl) {
+        super();
+        this.messages = CacheBuilder.newBuilder().maximumSize(size > 0 ? size : DEFAULT_SIZE)
+                .expireAfterWrite(ttl > 0 ? ttl : DEFAULT_TTL, TimeUnit.SECONDS).build();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Correlates the SMPP message id to the message.
+     *
+     * @return the message previously correlated to the same SMPP message id, null if none.
+     */
+    public SmsMessage correlate(final String smppMessageId, final SmsMessage message) {
+        return messages.asMap().put(smppMessageId, message);
+    }
+
+    /**
+     * Removes the correlation of an SMPP message id the SMSC assigned again, without counting it as a
+     * delivery receipt.
+     *
+     * @return the message previously correlated to the SMPP message id, null if unknown or expired.
+     */
+    public SmsMessage release(final String smppMessageId) {
+        return messages.asMap().remove(smppMessageId);
+    }
+
+    /**
+     * Removes the correlation of the SMPP message id, once its delivery receipt is received.
+     *
+     * @return the correlated message, null if unknown or expired.
+     */
+    public SmsMessage remove(final String smppMessageId) {
+        final SmsMessage message = messages.asMap().remove(smppMessageId);
+        if (message == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return message;
+    }
+
+    public long size() {
+        return messages.size();
+    }
+
+    /**
+     * @return the delivery receipts correlated in memory.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the delivery receipts that had to be correlated through the database.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_CORRELATIONS, MonitoringMetrics.counter(size()));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_RECEIPTS_CORRELATED_IN_MEMORY, MonitoringMetrics.counter(getHits()));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_RECEIPTS_CORRELATED_IN_DATABASE, MonitoringMetrics.counter(getMisses()));
+    }
+}
@@ -76,17 +76,21 @@ import javax.servlet.sip.SipURI;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.restcomm.connect.sms.SmsService;
 import org.restcomm.connect.sms.api.SmsSessionInfo;
 import org.restcomm.connect.sms.api.SmsStatusUpdated;
 
 public class SmppMessageHandler extends RestcommUntypedActor {
 
-    private static final int SEND_TIMEOUT = 10000;
+    static final int SEND_TIMEOUT = 10000;
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
     private final ServletContext servletContext;
     private final DaoManager storage;
@@ -95,6 +99,10 @@ public class SmppMessageHandler extends RestcommUntypedActor {
     private final ActorRef monitoringService;
     private final NumberSelectorService numberSelector;
     private final ActorRef smsService;
+    private final SmppMessageCorrelation correlation;
+    private final SmppSegmenter segmenter;
+    // Concatenated messages waiting for the submit responses of their parts.
+    private final Map<Sid, Multipart> multiparts;
     //List of extensions for SmsService
     List<RestcommExtensionGeneric> extensions;
 
@@ -113,6 +121,13 @@ public class SmppMessageHandler extends RestcommUntypedActor {
             logger.info("SmsService extensions: " + (extensions != null ? extensions.size() : "0"));
         }
         smsService = (ActorRef) servletContext.getAttribute(SmsService.class.getName());
+        correlation = new SmppMessageCorrelation(configuration.getInt("smpp.correlation-cache-size", SmppMessageCorrelation.DEFAULT_SIZE),
+                configuration.getLong("smpp.correlation-cache-ttl", SmppMessageCorrelation.DEFAULT_TTL));
+        if (monitoringService != null) {
+            monitoringService.tell(correlation, self());
+        }
+        segmenter = new SmppSegmenter(configuration.getInt("smpp.concatenation-reference", 8) == 16);
+        multiparts = new LinkedHashMap<Sid, Multipart>();
         uriUtils = RestcommConnectServiceProvider.getInstance().uriUtils();
     }
 
@@ -158,10 +173,22 @@ public class SmppMessageHandler extends RestcommUntypedActor {
 
         if (ref != null && ref instanceof Sid) {
             // BS-230: Ensure there is no other message sharing same SMPP Message ID
-            final List<SmsMessage> smsMessages = this.storage.getSmsMessagesDao().findBySmppMessageId(smppMessageId);
+            // Correlations are looked up in memory first. On a miss the database is checked through the
+            // smpp_message_id index, as duplicates may predate a restart, have outlived the cache or have
+            // been written by another node.
+            final SmsMessage previous = correlation.release(smppMessageId);
+            final List<SmsMessage> smsMessages;
+            if (previous != null) {
+                smsMessages = Arrays.asList(previous);
+            } else {
+                smsMessages = this.storage.getSmsMessagesDao().findBySmppMessageId(smppMessageId);
+            }
 
             // Delete correlation between messages and SMPP Message ID
             for (SmsMessage smsMessage : smsMessages) {
+                if (smsMessage.getSid().equals(ref)) {
+                    continue;
+                }
                 SmsMessage.Builder builder = SmsMessage.builder();
                 builder.copyMessage(smsMessage);
                 builder.setSmppMessageId(null);
@@ -169,21 +196,43 @@ public class SmppMessageHandler extends RestcommUntypedActor {
                 logger.warning("Correlation between SmsMessage " + smsMessage.getSid() + " and SMPP Message " + smppMessageId + " expired.");
             }
 
+            // Parts of a concatenated message update its status once, when every part was answered
+            int commandStatus = submitSmResp.getCommandStatus();
+            String resultMessage = submitSmResp.getResultMessage();
+            List<String> smppMessageIds = Arrays.asList(smppMessageId);
+            final Multipart multipart = multiparts.get(ref);
+            if (multipart != null) {
+                multipart.responseReceived(smppMessageId, commandStatus, resultMessage);
+                if (multipart.received < multipart.expected) {
+                    return;
+                }
+                multiparts.remove(ref);
+                commandStatus = multipart.commandStatus;
+                resultMessage = multipart.resultMessage;
+                smppMessageIds = multipart.smppMessageIds;
+            }
+
             // Update status of target message
             SmsMessage smsMessage = storage.getSmsMessagesDao().getSmsMessage((Sid) ref);
             SmsMessage.Builder builder = SmsMessage.builder();
             builder.copyMessage(smsMessage);
-            if (submitSmResp.getCommandStatus() == SmppConstants.STATUS_OK) {
+            if (commandStatus == SmppConstants.STATUS_OK) {
                 // Successful reponse: update smppMessageId as well as status to SENT and date sent
-                builder.setSmppMessageId(smppMessageId).setStatus(SmsMessage.Status.SENT).setDateSent(DateTime.now());
+                builder.setSmppMessageId(smppMessageIds.get(0)).setStatus(SmsMessage.Status.SENT).setDateSent(DateTime.now());
             } else {
                 // Failure response: set status to FAILED and do not correlate to any smppMessageId
-                logger.warning(String.format("SubmitSmResp Failure! Message could not be sent Status Code %s Result Messages: %s", submitSmResp.getCommandStatus(), submitSmResp.getResultMessage()));
+                logger.warning(String.format("SubmitSmResp Failure! Message could not be sent Status Code %s Result Messages: %s", commandStatus, resultMessage));
                 builder.setSmppMessageId(null).setStatus(SmsMessage.Status.FAILED);
-                org.restcomm.connect.commons.dao.MessageError err = ErrorCodeMapper.parseRestcommErrorCode(submitSmResp.getCommandStatus());
+                org.restcomm.connect.commons.dao.MessageError err = ErrorCodeMapper.parseRestcommErrorCode(commandStatus);
                 builder.setError(err);
             }
             SmsMessage msgUpdated = builder.build();
+            if (msgUpdated.getSmppMessageId() != null) {
+                // Receipts of every part are correlated with the message
+                for (final String id : smppMessageIds) {
+                    correlation.correlate(id, msgUpdated);
+                }
+            }
             HashMap<String,Object> hashMap = new HashMap();
             hashMap.put("record", msgUpdated);
             SmsSessionInfo info = new SmsSessionInfo(msgUpdated.getSender(),
@@ -205,7 +254,10 @@ public class SmppMessageHandler extends RestcommUntypedActor {
 
         // Find message bound to the SMPP Message ID
         // NOTE: We ensure there is only one message bound to any SmppMessageId at this point because uniqueness is enforced on submit_response event
-        final SmsMessage sms = this.storage.getSmsMessagesDao().getSmsMessageBySmppMessageId(smppMessageId);
+        SmsMessage sms = correlation.remove(smppMessageId);
+        if (sms == null) {
+            sms = this.storage.getSmsMessagesDao().getSmsMessageBySmppMessageId(smppMessageId);
+        }
 
         // Update status of message and remove correlation with SMPP Message ID
         if (sms == null) {
@@ -244,7 +296,7 @@ public class SmppMessageHandler extends RestcommUntypedActor {
 
     static final int ERROR_NOTIFICATION = 0;
     static final int WARNING_NOTIFICATION = 1;
-    private static final int CONTENT_LENGTH_MAX = 140;
+    private static final long MULTIPART_TIMEOUT = 6 * SEND_TIMEOUT;
     private static final int DATA_CODING_AUTODETECT = 0x80;
 
     // used for sending warning and error logs to notification engine and to the console
@@ -435,56 +487,150 @@ public class SmppMessageHandler extends RestcommUntypedActor {
         SmsMessage msg = smsDao.getSmsMessage(request.getMessageSid());
 
         byte[] textBytes;
+        byte dataCoding;
+        SmppSegmenter.Alphabet alphabet;
         int smppTonNpiValue = Integer.parseInt(SmppService.getSmppTonNpiValue());
         boolean autodetectdcs = SmppClientOpsThread.getAutoDetectDcsFlag();
-        // add delivery receipt
-        //submit0.setRegisteredDelivery(SmppConstants.REGISTERED_DELIVERY_SMSC_RECEIPT_REQUESTED);
-        SubmitSm submit0 = new SubmitSm();
-        submit0.setSourceAddress(new Address((byte) smppTonNpiValue, (byte) smppTonNpiValue, request.getSmppFrom()));
-        submit0.setDestAddress(new Address((byte) smppTonNpiValue, (byte) smppTonNpiValue, request.getSmppTo()));
         if (CharsetUtil.CHARSET_UCS_2 == request.getSmppEncoding()) {
-            submit0.setDataCoding(SmppConstants.DATA_CODING_UCS2);
+            dataCoding = SmppConstants.DATA_CODING_UCS2;
+            alphabet = SmppSegmenter.Alphabet.UCS2;
             textBytes = CharsetUtil.encode(request.getSmppContent(), CharsetUtil.CHARSET_UCS_2);
         } else {
-            submit0.setDataCoding(SmppConstants.DATA_CODING_DEFAULT);
+            dataCoding = SmppConstants.DATA_CODING_DEFAULT;
+            alphabet = CharsetUtil.CHARSET_GSM == SmppClientOpsThread.getOutboundDefaultEncoding() ? SmppSegmenter.Alphabet.GSM7 : SmppSegmenter.Alphabet.EIGHT_BIT;
             textBytes = CharsetUtil.encode(request.getSmppContent(), SmppClientOpsThread.getOutboundDefaultEncoding());
         }
         if (autodetectdcs) {
-            submit0.setDataCoding((byte) DATA_CODING_AUTODETECT);
+            dataCoding = (byte) DATA_CODING_AUTODETECT;
         }
 
         boolean payloadFlag = SmppClientOpsThread.getMessagePayloadFlag();
-        int contentLength = request.getSmppContent().length();
-        //set the delivery flag to true
-        submit0.setRegisteredDelivery((byte) 1);
-
         TlvSet tlvSet = request.getTlvSet();
 
         if (logger.isDebugEnabled()) {
-            logger.debug("msg.body=" + msg.getBody() + " msg.getStatus()=" + msg.getStatus() + " payloadFlag=" + payloadFlag + " contentLength=" + contentLength + " textBytes=" + Arrays.toString(textBytes));
+            logger.debug("msg.body=" + msg.getBody() + " msg.getStatus()=" + msg.getStatus() + " payloadFlag=" + payloadFlag + " contentLength=" + request.getSmppContent().length() + " textBytes=" + Arrays.toString(textBytes));
         }
-        if (payloadFlag || (contentLength > CONTENT_LENGTH_MAX)) {
-            tlvSet.addOptionalParameter(new Tlv(SmppConstants.TAG_MESSAGE_PAYLOAD, textBytes));
+        // Text too long for a short message is split in concatenated parts, unless the connection is
+        // configured to use message_payload or the text needs more parts than a UDH can reference
+        List<byte[]> parts = null;
+        if (!payloadFlag) {
+            try {
+                parts = segmenter.segment(textBytes, alphabet);
+            } catch (IllegalArgumentException e) {
+                logger.warning(e.getMessage() + ", sending it in message_payload");
+            }
+        }
+
+        final List<SubmitSm> submits = new ArrayList<SubmitSm>();
+        if (parts == null) {
+            SubmitSm submit0 = submitSm(request, smppTonNpiValue, dataCoding, tlvSet);
+            submit0.setOptionalParameter(new Tlv(SmppConstants.TAG_MESSAGE_PAYLOAD, textBytes));
+            submits.add(submit0);
         } else {
-            submit0.setShortMessage(textBytes);
+            for (final byte[] part : parts) {
+                SubmitSm submit0 = submitSm(request, smppTonNpiValue, dataCoding, tlvSet);
+                submit0.setShortMessage(part);
+                if (parts.size() > 1) {
+                    submit0.setEsmClass(SmppSegmenter.ESM_CLASS_UDHI);
+                }
+                submits.add(submit0);
+            }
+        }
+
+        Multipart multipart = null;
+        if (submits.size() > 1) {
+            expireMultiparts();
+            multipart = new Multipart(submits.size());
+            multiparts.put(request.getMessageSid(), multipart);
+        }
+        // Parts are submitted back to back, the session pool only waits when every send window is full
+        int submitted = 0;
+        try {
+            for (final SubmitSm submit0 : submits) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Sending SubmitSM " + (submitted + 1) + "/" + submits.size() + " for " + request + " messageSid=" + request.getMessageSid());
+                }
+                SmppClientOpsThread.getSessionPool().submit(submit0);
+                submitted++;
+            }
+        } catch (RecoverablePduException | UnrecoverablePduException | SmppTimeoutException | SmppChannelException | InterruptedException e) {
+            logger.error("SMPP message cannot be sent : " + e);
+            if (multipart != null) {
+                if (submitted == 0) {
+                    multiparts.remove(request.getMessageSid());
+                } else {
+                    // The parts already submitted still answer, the message fails once they did
+                    multipart.expected = submitted;
+                    multipart.failed(SmppConstants.STATUS_SYSERR, e.getMessage());
+                }
+            }
         }
+    }
 
+    private SubmitSm submitSm(final SmppOutboundMessageEntity request, final int smppTonNpiValue, final byte dataCoding,
+            final TlvSet tlvSet) throws SmppInvalidArgumentException {
+        SubmitSm submit0 = new SubmitSm();
+        submit0.setSourceAddress(new Address((byte) smppTonNpiValue, (byte) smppTonNpiValue, request.getSmppFrom()));
+        submit0.setDestAddress(new Address((byte) smppTonNpiValue, (byte) smppTonNpiValue, request.getSmppTo()));
+        submit0.setDataCoding(dataCoding);
+        //set the delivery flag to true
+        submit0.setRegisteredDelivery((byte) 1);
         if (tlvSet != null) {
             for (Tlv tlv : (Collection<Tlv>) tlvSet.getOptionalParameters()) {
                 submit0.setOptionalParameter(tlv);
             }
-        } else if (logger.isInfoEnabled()) {
-            logger.info("TlvSet is null");
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("TlvSet is null");
         }
-        try {
-            if (logger.isInfoEnabled()) {
-                logger.info("Sending SubmitSM for " + request + " messageSid=" + request.getMessageSid());
+        submit0.setReferenceObject(request.getMessageSid());
+        return submit0;
+    }
+
+    // Parts whose submit expired never answer, their messages are forgotten after a while.
+    private void expireMultiparts() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<Sid, Multipart>> iterator = multiparts.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Sid, Multipart> entry = iterator.next();
+            if (now - entry.getValue().created < MULTIPART_TIMEOUT) {
+                break;
             }
+            iterator.remove();
+            logger.warning("Parts of SmsMessage " + entry.getKey() + " were not answered, " + entry.getValue().received + " of " + entry.getValue().expected + " received");
+        }
+    }
 
-            submit0.setReferenceObject(request.getMessageSid());
-            SmppClientOpsThread.getSmppSession().sendRequestPdu(submit0, SEND_TIMEOUT, false);
-        } catch (RecoverablePduException | UnrecoverablePduException | SmppTimeoutException | SmppChannelException | InterruptedException e) {
-            logger.error("SMPP message cannot be sent : " + e);
+    // Submit responses received for the parts of a concatenated message.
+    private static final class Multipart {
+        private final long created;
+        private final List<String> smppMessageIds;
+        private int expected;
+        private int received;
+        private int commandStatus;
+        private String resultMessage;
+
+        private Multipart(final int expected) {
+            this.created = System.currentTimeMillis();
+            this.smppMessageIds = new ArrayList<String>(expected);
+            this.expected = expected;
+            this.commandStatus = SmppConstants.STATUS_OK;
+        }
+
+        private void responseReceived(final String smppMessageId, final int status, final String result) {
+            received++;
+            if (status == SmppConstants.STATUS_OK) {
+                smppMessageIds.add(smppMessageId);
+            } else {
+                failed(status, result);
+            }
+        }
+
+        private void failed(final int status, final String result) {
+            // The first failure is the one reported
+            if (commandStatus == SmppConstants.STATUS_OK) {
+                commandStatus = status;
+                resultMessage = result;
+            }
         }
     }
 }
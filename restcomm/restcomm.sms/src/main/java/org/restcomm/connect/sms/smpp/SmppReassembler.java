@@ -0,0 +1,219 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Buffers the parts of inbound concatenated messages until every part arrived. Parts are matched by
+ * source, destination and the reference of the concatenation information element of their user data
+ * header. Messages still missing parts after the timeout are dropped, and the oldest messages are
+ * dropped as well when more than the maximum number of messages or bytes are buffered.
+ */
+@ThreadSafe
+public final class SmppReassembler {
+    private static final Logger logger = Logger.getLogger(SmppReassembler.class);
+
+    public static final long DEFAULT_TIMEOUT = 60;
+    public static final int DEFAULT_MAX_MESSAGES = 10000;
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final long timeout;
+    private final int maxMessages;
+    private final long maxBytes;
+    // Guarded by 'this', in arrival order of the first part.
+    private final Map<String, Message> pending;
+    private long bytes;
+    private long completed;
+    private long expired;
+    private long evicted;
+
+    /**
+     * @param timeout seconds the parts of a message are kept waiting for the rest.
+     */
+    public SmppReassembler(final long timeout, final int maxMessages, final long maxBytes) {
+        super();
+        this.timeout = timeout * 1000;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.pending = new LinkedHashMap<String, Message>();
+    }
+
+    /**
+     * @param userData the short message of a PDU with the UDHI flag set in its esm_class.
+     * @return the text of the whole message once all its parts arrived, null while parts are missing.
+     *         User data without concatenation information element returns its text right away.
+     */
+    public byte[] reassemble(final String source, final String destination, final byte[] userData) {
+        return reassemble(source, destination, userData, System.currentTimeMillis());
+    }
+
+    synchronized byte[] reassemble(final String source, final String destination, final byte[] userData, final long now) {
+        expire(now);
+        if (userData == null || userData.length == 0) {
+            return userData;
+        }
+        final int headerLength = (userData[0] & 0xFF) + 1;
+        if (headerLength > userData.length) {
+            logger.warn("User data header length " + headerLength + " exceeds the " + userData.length + " bytes of the message");
+            return userData;
+        }
+        final byte[] text = Arrays.copyOfRange(userData, headerLength, userData.length);
+        int reference = -1;
+        int total = 0;
+        int sequence = 0;
+        int position = 1;
+        while (position + 1 < headerLength) {
+            final byte iei = userData[position];
+            final int length = userData[position + 1] & 0xFF;
+            final int value = position + 2;
+            if (value + length > headerLength) {
+                break;
+            }
+            if (iei == SmppSegmenter.IEI_CONCATENATED_8BIT && length == 3) {
+                reference = userData[value] & 0xFF;
+                total = userData[value + 1] & 0xFF;
+                sequence = userData[value + 2] & 0xFF;
+            } else if (iei == SmppSegmenter.IEI_CONCATENATED_16BIT && length == 4) {
+                reference = ((userData[value] & 0xFF) << 8) | (userData[value + 1] & 0xFF);
+                total = userData[value + 2] & 0xFF;
+                sequence = userData[value + 3] & 0xFF;
+            }
+            position = value + length;
+        }
+        if (reference < 0 || total < 2 || sequence < 1 || sequence > total) {
+            return text;
+        }
+        final String key = source + '/' + destination + '/' + reference + '/' + total;
+        Message message = pending.get(key);
+        if (message == null) {
+            message = new Message(total, now);
+            pending.put(key, message);
+        }
+        bytes += message.add(sequence, text);
+        if (message.isComplete()) {
+            pending.remove(key);
+            bytes -= message.size;
+            completed++;
+            return message.join();
+        }
+        evict();
+        return null;
+    }
+
+    public synchronized int getPendingMessages() {
+        return pending.size();
+    }
+
+    public synchronized long getPendingBytes() {
+        return bytes;
+    }
+
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the messages dropped because some part did not arrive before the timeout.
+     */
+    public synchronized long getExpired() {
+        return expired;
+    }
+
+    /**
+     * @return the messages dropped to stay within the maximum number of messages or bytes.
+     */
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+
+    private void expire(final long now) {
+        final Iterator<Map.Entry<String, Message>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Message> entry = iterator.next();
+            if (now - entry.getValue().created < timeout) {
+                break;
+            }
+            iterator.remove();
+            bytes -= entry.getValue().size;
+            expired++;
+            if (logger.isInfoEnabled()) {
+                logger.info("Dropping concatenated message " + entry.getKey() + ", " + entry.getValue().received + " of "
+                        + entry.getValue().parts.length + " parts received before the timeout");
+            }
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Message>> iterator = pending.entrySet().iterator();
+        while ((pending.size() > maxMessages || bytes > maxBytes) && iterator.hasNext()) {
+            final Map.Entry<String, Message> entry = iterator.next();
+            iterator.remove();
+            bytes -= entry.getValue().size;
+            evicted++;
+            logger.warn("Dropping concatenated message " + entry.getKey() + ", reassembly buffer is full");
+        }
+    }
+
+    private static final class Message {
+        private final byte[][] parts;
+        private final long created;
+        private int received;
+        private int size;
+
+        private Message(final int total, final long created) {
+            this.parts = new byte[total][];
+            this.created = created;
+        }
+
+        // Returns the bytes added to the message, a repeated part replaces the previous one.
+        private int add(final int sequence, final byte[] text) {
+            final byte[] previous = parts[sequence - 1];
+            parts[sequence - 1] = text;
+            if (previous == null) {
+                received++;
+                size += text.length;
+                return text.length;
+            }
+            size += text.length - previous.length;
+            return text.length - previous.length;
+        }
+
+        private boolean isComplete() {
+            return received == parts.length;
+        }
+
+        private byte[] join() {
+            final byte[] text = new byte[size];
+            int position = 0;
+            for (final byte[] part : parts) {
+                System.arraycopy(part, 0, text, position, part.length);
+                position += part.length;
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Splits encoded outbound text in concatenated short messages. Every part starts with a user data
+ * header carrying the concatenation information element, 8 bit reference (IEI 0x00) or 16 bit
+ * reference (IEI 0x08), and must be submitted with the UDHI flag set in the esm_class.
+ * <p>
+ * Parts never split a GSM 7 bit escape sequence, a UCS-2 surrogate pair or a UTF-8 sequence, so every
+ * part decodes on its own in handsets that show them before the whole message arrives.
+ */
+@ThreadSafe
+public final class SmppSegmenter {
+
+    public enum Alphabet {
+        // Unpacked septets, one byte each, up to 160 in a short message.
+        GSM7(160),
+        EIGHT_BIT(140),
+        UCS2(140);
+
+        private final int capacity;
+
+        private Alphabet(final int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        // Bytes of text that fit in a part after a user data header of the given length.
+        int getCapacity(final int headerLength) {
+            switch (this) {
+                case GSM7:
+                    // The header is counted in septets, padded to a septet boundary.
+                    return capacity - (headerLength * 8 + 6) / 7;
+                case UCS2:
+                    return (capacity - headerLength) & ~1;
+                default:
+                    return capacity - headerLength;
+            }
+        }
+    }
+
+    public static final byte ESM_CLASS_UDHI = 0x40;
+    public static final byte IEI_CONCATENATED_8BIT = 0x00;
+    public static final byte IEI_CONCATENATED_16BIT = 0x08;
+    public static final int MAX_PARTS = 255;
+
+    private static final byte GSM_ESCAPE = 0x1B;
+
+    private final boolean sixteenBitReference;
+    private final AtomicInteger reference;
+
+    public SmppSegmenter(final boolean sixteenBitReference) {
+        super();
+        this.sixteenBitReference = sixteenBitReference;
+        this.reference = new AtomicInteger();
+    }
+
+    /**
+     * @return the short messages carrying the text, the text itself when it fits in a single short message.
+     * @throws IllegalArgumentException if the text needs more than {@link #MAX_PARTS} parts.
+     */
+    public List<byte[]> segment(final byte[] text, final Alphabet alphabet) {
+        if (text.length <= alphabet.getCapacity()) {
+            return Collections.singletonList(text);
+        }
+        final int headerLength = sixteenBitReference ? 7 : 6;
+        final int capacity = alphabet.getCapacity(headerLength);
+        final List<Integer> ends = new ArrayList<Integer>(text.length / capacity + 1);
+        int start = 0;
+        while (start < text.length) {
+            int end = Math.min(start + capacity, text.length);
+            if (end < text.length) {
+                end = boundary(text, start, end, alphabet);
+            }
+            ends.add(end);
+            start = end;
+        }
+        final int total = ends.size();
+        if (total > MAX_PARTS) {
+            throw new IllegalArgumentException("Message needs " + total + " parts, at most " + MAX_PARTS + " are allowed");
+        }
+        final int ref = reference.getAndIncrement() & (sixteenBitReference ? 0xFFFF : 0xFF);
+        final List<byte[]> parts = new ArrayList<byte[]>(total);
+        start = 0;
+        for (int index = 0; index < total; index++) {
+            final int end = ends.get(index);
+            final byte[] part = new byte[headerLength + end - start];
+            int position = 0;
+            part[position++] = (byte) (headerLength - 1);
+            if (sixteenBitReference) {
+                part[position++] = IEI_CONCATENATED_16BIT;
+                part[position++] = 4;
+                part[position++] = (byte) (ref >> 8);
+            } else {
+                part[position++] = IEI_CONCATENATED_8BIT;
+                part[position++] = 3;
+            }
+            part[position++] = (byte) ref;
+            part[position++] = (byte) total;
+            part[position++] = (byte) (index + 1);
+            System.arraycopy(text, start, part, position, end - start);
+            parts.add(part);
+            start = end;
+        }
+        return parts;
+    }
+
+    // Moves the end of a part back so it does not split a character.
+    private static int boundary(final byte[] text, final int start, final int end, final Alphabet alphabet) {
+        int boundary = end;
+        switch (alphabet) {
+            case GSM7:
+                if (text[boundary - 1] == GSM_ESCAPE && !isEscaped(text, start, boundary - 1)) {
+                    boundary--;
+                }
+                break;
+            case UCS2:
+                final int high = text[boundary - 2] & 0xFF;
+                if (high >= 0xD8 && high <= 0xDB) {
+                    boundary -= 2;
+                }
+                break;
+            default:
+                // Continuation bytes of a UTF-8 sequence are 10xxxxxx.
+                while (boundary > start + 1 && (text[boundary] & 0xC0) == 0x80) {
+                    boundary--;
+                }
+                break;
+        }
+        return boundary > start ? boundary : end;
+    }
+
+    // Whether the escape at the index is itself the second byte of an escape sequence.
+    private static boolean isEscaped(final byte[] text, final int start, final int index) {
+        int escapes = 0;
+        for (int i = index - 1; i >= start && text[i] == GSM_ESCAPE; i--) {
+            escapes++;
+        }
+        return escapes % 2 == 1;
+    }
+}
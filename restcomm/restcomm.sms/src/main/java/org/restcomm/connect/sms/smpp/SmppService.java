@@ -29,6 +29,7 @@ import com.cloudhopper.smpp.type.Address;
 import org.apache.commons.configuration.Configuration;
 import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
 import org.restcomm.connect.dao.DaoManager;
+import org.restcomm.connect.monitoringservice.MonitoringService;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
@@ -75,6 +76,8 @@ public final class SmppService extends RestcommUntypedActor {
 
     private SmppClientOpsThread smppClientOpsThread = null;
 
+    private SmppSessionPool sessionPool = null;
+
     private ArrayList<Smpp> smppList = new ArrayList<Smpp>();
 
     public SmppService(final Configuration configuration, final SipFactory factory,
@@ -163,17 +166,27 @@ public final class SmppService extends RestcommUntypedActor {
             String outboundCharacterEncoding = smppConfiguration.getString("connections.connection(" + count + ").outboundencoding");
             boolean messagePayloadFlag = smppConfiguration.getBoolean("connections.connection(" + count + ").messagepayloadflag");
             boolean autoDetectDcsFlag = smppConfiguration.getBoolean("connections.connection(" + count + ").autodetectdcsflag");
+            int binds = smppConfiguration.getInt("connections.connection(" + count + ").binds", 1);
 
-            Smpp smpp = new Smpp(name, systemId, peerIp, peerPort, bindtype, password, systemType, interfaceVersion, address,
-                    connectTimeout, windowSize, windowWaitTimeout, requestExpiryTimeout, windowMonitorInterval,
-                    countersEnabled, logBytes, enquireLinkDelay, inboundCharacterEncoding, outboundCharacterEncoding, messagePayloadFlag, autoDetectDcsFlag);
+            for (int bind = 0; bind < binds; bind++) {
+                Smpp smpp = new Smpp(name, systemId, peerIp, peerPort, bindtype, password, systemType, interfaceVersion, address,
+                        connectTimeout, windowSize, windowWaitTimeout, requestExpiryTimeout, windowMonitorInterval,
+                        countersEnabled, logBytes, enquireLinkDelay, inboundCharacterEncoding, outboundCharacterEncoding, messagePayloadFlag, autoDetectDcsFlag);
+                smpp.setBindIndex(bind);
 
-            this.smppList.add(smpp);
+                this.smppList.add(smpp);
 
-            if(logger.isInfoEnabled()) {
-                logger.info("creating new SMPP connection " + smpp);
+                if(logger.isInfoEnabled()) {
+                    logger.info("creating new SMPP connection " + smpp);
+                }
             }
+        }
 
+        this.sessionPool = new SmppSessionPool(SmppSessionPool.Selection.fromString(smppConfiguration.getString("connections[@bindSelection]")),
+                SmppMessageHandler.SEND_TIMEOUT);
+        final ActorRef monitoringService = (ActorRef) servletContext.getAttribute(MonitoringService.class.getName());
+        if (monitoringService != null) {
+            monitoringService.tell(this.sessionPool, self());
         }
 
         // for monitoring thread use, it's preferable to create your own
@@ -210,11 +223,14 @@ public final class SmppService extends RestcommUntypedActor {
         // threads it will ever use, despite the "max pool size", etc. set on
         // the executor passed in here
 
-        // Setting expected session to be 25. May be this should be
-        // configurable?
-        this.clientBootstrap = new DefaultSmppClient(this.executor, 25, monitorExecutor);
+        // Setting expected session to be 25 or one per bind when more binds
+        // are configured. May be this should be configurable?
+        this.clientBootstrap = new DefaultSmppClient(this.executor, Math.max(25, this.smppList.size()), monitorExecutor);
 
-        this.smppClientOpsThread = new SmppClientOpsThread(this.clientBootstrap, outboundInterface("udp").getPort(), smppMessageHandler);
+        this.smppClientOpsThread = new SmppClientOpsThread(this.clientBootstrap, outboundInterface("udp").getPort(), smppMessageHandler,
+                this.sessionPool, new SmppReassembler(smppConfiguration.getLong("reassembly-timeout", SmppReassembler.DEFAULT_TIMEOUT),
+                        smppConfiguration.getInt("reassembly-max-messages", SmppReassembler.DEFAULT_MAX_MESSAGES),
+                        smppConfiguration.getLong("reassembly-max-bytes", SmppReassembler.DEFAULT_MAX_BYTES)));
 
         (new Thread(this.smppClientOpsThread)).start();
 
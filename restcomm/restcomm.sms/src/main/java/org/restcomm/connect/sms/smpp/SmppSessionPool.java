@@ -0,0 +1,278 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restcomm.connect.commons.StatisticsSource;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+import org.restcomm.connect.commons.util.LatencyHistogram;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
+
+import com.cloudhopper.commons.util.windowing.WindowFuture;
+import com.cloudhopper.smpp.PduAsyncResponse;
+import com.cloudhopper.smpp.impl.DefaultSmppSession;
+import com.cloudhopper.smpp.pdu.PduRequest;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.type.RecoverablePduException;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+import com.cloudhopper.smpp.type.UnrecoverablePduException;
+
+/**
+ * The SMPP binds outbound messages are submitted on. Every configured connection can open several
+ * binds, each one with its own send window, and every submit goes to the bound session picked by the
+ * configured {@link Selection}. Submits are asynchronous, the caller only blocks while every window is
+ * full, for at most the window wait timeout of the connection, capped at the pool's maximum wait.
+ * <p>
+ * The totals of the binds are published by the MonitoringService.
+ */
+@ThreadSafe
+public final class SmppSessionPool implements StatisticsSource {
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_OUTSTANDING;
+
+        public static Selection fromString(final String value) {
+            if (value == null || value.isEmpty()) {
+                return LEAST_OUTSTANDING;
+            }
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final Selection selection;
+    private final long maxWindowWaitTimeout;
+    private final List<Bind> binds;
+    private final ConcurrentMap<Smpp, Bind> bindsByEsme;
+    private final AtomicInteger next;
+
+    /**
+     * @param maxWindowWaitTimeout milliseconds a submit waits at most for a free window slot, whatever the
+     *        window wait timeout of the connection, so the actor submitting is never blocked longer.
+     */
+    public SmppSessionPool(final Selection selection, final long maxWindowWaitTimeout) {
+        super();
+        this.selection = selection;
+        this.maxWindowWaitTimeout = maxWindowWaitTimeout;
+        this.binds = new CopyOnWriteArrayList<Bind>();
+        this.bindsByEsme = new ConcurrentHashMap<Smpp, Bind>();
+        this.next = new AtomicInteger();
+    }
+
+    /**
+     * Adds a bind to the pool, its session is used as soon as it is bound.
+     */
+    public void add(final Smpp esme) {
+        final Bind bind = new Bind(esme);
+        if (bindsByEsme.putIfAbsent(esme, bind) == null) {
+            binds.add(bind);
+        }
+    }
+
+    public void remove(final Smpp esme) {
+        final Bind bind = bindsByEsme.remove(esme);
+        if (bind != null) {
+            binds.remove(bind);
+        }
+    }
+
+    /**
+     * @return true if at least one bind can be used to submit messages.
+     */
+    public boolean isBound() {
+        for (final Bind bind : binds) {
+            if (bind.isBound()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the session the next request would be submitted on, null if no bind is available. Does not
+     *         move the round robin on, so checking the session does not skip a bind.
+     */
+    public DefaultSmppSession getSession() {
+        final Bind bind = select(false);
+        return bind == null ? null : bind.esme.getSmppSession();
+    }
+
+    public WindowFuture<Integer, PduRequest, PduResponse> submit(final PduRequest request) throws RecoverablePduException,
+            UnrecoverablePduException, SmppTimeoutException, SmppChannelException, InterruptedException {
+        final Bind bind = select(true);
+        if (bind == null) {
+            throw new SmppChannelException("No SMPP bind available to submit " + request);
+        }
+        final long windowWaitTimeout = bind.esme.getWindowWaitTimeout() > 0
+                ? Math.min(bind.esme.getWindowWaitTimeout(), maxWindowWaitTimeout) : maxWindowWaitTimeout;
+        bind.submitted.incrementAndGet();
+        try {
+            return bind.esme.getSmppSession().sendRequestPdu(request, windowWaitTimeout, false);
+        } catch (final RecoverablePduException | UnrecoverablePduException | SmppTimeoutException | SmppChannelException
+                | InterruptedException exception) {
+            bind.failed.incrementAndGet();
+            throw exception;
+        }
+    }
+
+    /**
+     * Records the response to a request submitted on the given bind.
+     */
+    public void responseReceived(final Smpp esme, final PduAsyncResponse response) {
+        final Bind bind = bindsByEsme.get(esme);
+        if (bind != null) {
+            bind.responses.incrementAndGet();
+            bind.latency.record(response.getResponseTime());
+        }
+    }
+
+    public void requestExpired(final Smpp esme) {
+        final Bind bind = bindsByEsme.get(esme);
+        if (bind != null) {
+            bind.expired.incrementAndGet();
+        }
+    }
+
+    public List<SmppBindStatistics> getStatistics() {
+        final List<SmppBindStatistics> statistics = new ArrayList<SmppBindStatistics>(binds.size());
+        for (final Bind bind : binds) {
+            statistics.add(bind.statistics());
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * Puts the totals of every bind, along with the worst p99 latency and window usage among them.
+     */
+    @Override
+    public void putStatistics(final Map<String, Integer> countersMap, final Map<String, Double> durationMap) {
+        final List<SmppBindStatistics> statistics = getStatistics();
+        int bound = 0;
+        int outstanding = 0;
+        int windowSize = 0;
+        long submitted = 0;
+        long responses = 0;
+        long failed = 0;
+        long expired = 0;
+        long latency = 0;
+        long p99Latency = 0;
+        double windowUsage = 0;
+        for (final SmppBindStatistics bind : statistics) {
+            if (bind.isBound()) {
+                bound++;
+            }
+            outstanding += bind.getOutstanding();
+            windowSize += bind.getWindowSize();
+            submitted += bind.getSubmitted();
+            responses += bind.getResponses();
+            failed += bind.getFailed();
+            expired += bind.getExpired();
+            latency += bind.getAverageLatency() * bind.getResponses();
+            p99Latency = Math.max(p99Latency, bind.getP99Latency());
+            windowUsage = Math.max(windowUsage, bind.getWindowUsage());
+        }
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_BINDS, statistics.size());
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_BINDS_BOUND, bound);
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_SUBMITTED, MonitoringMetrics.counter(submitted));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_RESPONSES, MonitoringMetrics.counter(responses));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_FAILED, MonitoringMetrics.counter(failed));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_EXPIRED, MonitoringMetrics.counter(expired));
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_OUTSTANDING, outstanding);
+        countersMap.put(MonitoringMetrics.COUNTERS_MAP_SMPP_WINDOW_SIZE, windowSize);
+        durationMap.put(MonitoringMetrics.DURATION_MAP_SMPP_AVERAGE_LATENCY_IN_MILLIS, responses == 0 ? 0 : (double) latency / responses);
+        durationMap.put(MonitoringMetrics.DURATION_MAP_SMPP_MAX_LATENCY_IN_MILLIS_P99, (double) p99Latency);
+        durationMap.put(MonitoringMetrics.DURATION_MAP_SMPP_MAX_WINDOW_USAGE, windowUsage);
+    }
+
+    private Bind select(final boolean advance) {
+        final List<Bind> candidates = binds;
+        final int size = candidates.size();
+        if (size == 0) {
+            return null;
+        }
+        if (Selection.ROUND_ROBIN == selection) {
+            final int start = (advance ? next.getAndIncrement() : next.get()) & Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                final Bind bind = candidates.get((start + i) % size);
+                if (bind.isBound()) {
+                    return bind;
+                }
+            }
+            return null;
+        }
+        Bind selected = null;
+        int lowest = Integer.MAX_VALUE;
+        for (final Bind bind : candidates) {
+            if (bind.isBound()) {
+                final int outstanding = bind.outstanding();
+                if (outstanding < lowest) {
+                    selected = bind;
+                    lowest = outstanding;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private static final class Bind {
+        private final Smpp esme;
+        private final AtomicLong submitted;
+        private final AtomicLong responses;
+        private final AtomicLong failed;
+        private final AtomicLong expired;
+        private final LatencyHistogram latency;
+
+        private Bind(final Smpp esme) {
+            super();
+            this.esme = esme;
+            this.submitted = new AtomicLong();
+            this.responses = new AtomicLong();
+            this.failed = new AtomicLong();
+            this.expired = new AtomicLong();
+            this.latency = new LatencyHistogram();
+        }
+
+        private boolean isBound() {
+            final DefaultSmppSession session = esme.getSmppSession();
+            return session != null && session.isBound();
+        }
+
+        private int outstanding() {
+            final DefaultSmppSession session = esme.getSmppSession();
+            return session == null ? 0 : session.getSendWindow().getSize();
+        }
+
+        private SmppBindStatistics statistics() {
+            final DefaultSmppSession session = esme.getSmppSession();
+            final int windowSize = session == null ? esme.getWindowSize() : session.getSendWindow().getMaxSize();
+            return new SmppBindStatistics(esme.getName(), esme.getBindIndex(), isBound(), submitted.get(), responses.get(),
+                    failed.get(), expired.get(), outstanding(), windowSize, latency.getAverage(), latency.getPercentile(99));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
+
+public class SmsRateLimiterTest {
+    private static final String ACCOUNT = "ACae6e420f425248d6a26948c17a9e2acf";
+    private static final String ORGANIZATION = "ORafbe225ad37541eba518a74248f0ac4c";
+
+    private SmsRateLimiter limiter(final long limit) {
+        return new SmsRateLimiter(limit, Collections.<String, Long>emptyMap(), Collections.<String, Long>emptyMap());
+    }
+
+    @Test
+    public void testLimitWithinWindow() {
+        final SmsRateLimiter limiter = limiter(10);
+        final long now = 1000000000L;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(ACCOUNT, ORGANIZATION, now + i * 1000));
+        }
+        assertFalse(limiter.tryAcquire(ACCOUNT, ORGANIZATION, now + 10000));
+        assertEquals(10, limiter.getAccepted());
+        assertEquals(1, limiter.getRejected());
+        assertEquals(1, limiter.getRejected(ACCOUNT));
+        // other accounts have their own window
+        assertTrue(limiter.tryAcquire("AC00000000000000000000000000000000", ORGANIZATION, now + 10000));
+
+        final Map<String, Integer> countersMap = new HashMap<String, Integer>();
+        limiter.putStatistics(countersMap, new HashMap<String, Double>());
+        assertEquals(Integer.valueOf(11), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMS_RATE_LIMIT_ACCEPTED));
+        assertEquals(Integer.valueOf(1), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMS_RATE_LIMIT_REJECTED));
+    }
+
+    @Test
+    public void testWindowSlides() {
+        final SmsRateLimiter limiter = limiter(2);
+        final long now = 1000000000L;
+        assertTrue(limiter.tryAcquire(ACCOUNT, null, now));
+        assertTrue(limiter.tryAcquire(ACCOUNT, null, now + 30000));
+        assertFalse(limiter.tryAcquire(ACCOUNT, null, now + 59999));
+        // the first message left the window
+        assertTrue(limiter.tryAcquire(ACCOUNT, null, now + 60000));
+        assertFalse(limiter.tryAcquire(ACCOUNT, null, now + 60001));
+        // both the second and third left the window
+        assertTrue(limiter.tryAcquire(ACCOUNT, null, now + 120000));
+        assertTrue(limiter.tryAcquire(ACCOUNT, null, now + 120001));
+    }
+
+    @Test
+    public void testDisabledLimitStillCounts() {
+        final SmsRateLimiter limiter = limiter(0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(ACCOUNT, ORGANIZATION));
+        }
+        assertEquals(1000, limiter.getRate(ACCOUNT));
+        assertEquals(0, limiter.getRejected());
+    }
+
+    @Test
+    public void testAccountAndOrganizationOverrides() {
+        final Map<String, Long> accounts = new HashMap<String, Long>();
+        accounts.put(ACCOUNT, 5L);
+        final Map<String, Long> organizations = new HashMap<String, Long>();
+        organizations.put(ORGANIZATION, 3L);
+        final SmsRateLimiter limiter = new SmsRateLimiter(1, accounts, organizations);
+        assertEquals(5, limiter.getLimit(ACCOUNT, ORGANIZATION));
+        assertEquals(3, limiter.getLimit("AC00000000000000000000000000000000", ORGANIZATION));
+        assertEquals(1, limiter.getLimit("AC00000000000000000000000000000000", "OR00000000000000000000000000000000"));
+        assertEquals(1, limiter.getLimit("AC00000000000000000000000000000000", null));
+    }
+
+    @Test
+    public void testConcurrentSenders() throws Exception {
+        final int threads = 8;
+        final long limit = 10000;
+        final SmsRateLimiter limiter = limiter(limit);
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < limit; j++) {
+                            if (limiter.tryAcquire(ACCOUNT, null)) {
+                                accepted.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertTrue(accepted.get() >= limit);
+        assertTrue(accepted.get() <= limit + threads);
+        assertEquals(accepted.get(), limiter.getRate(ACCOUNT));
+        assertEquals(threads * limit - accepted.get(), limiter.getRejected());
+    }
+}
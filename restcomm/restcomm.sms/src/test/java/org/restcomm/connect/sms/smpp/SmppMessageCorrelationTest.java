@@ -0,0 +1,87 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.entities.SmsMessage;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
+
+public class SmppMessageCorrelationTest {
+    private static SmsMessage message() {
+        return SmsMessage.builder().setSid(Sid.generate(Sid.Type.SMS_MESSAGE)).setStatus(SmsMessage.Status.SENT).build();
+    }
+
+    @Test
+    public void testReceiptsAreCounted() {
+        final SmppMessageCorrelation correlation = new SmppMessageCorrelation(0, 0);
+        final SmsMessage message = message();
+        correlation.correlate("1", message);
+
+        assertSame(message, correlation.remove("1"));
+        assertNull(correlation.remove("1"));
+        assertNull(correlation.remove("2"));
+
+        assertEquals(1, correlation.getHits());
+        assertEquals(2, correlation.getMisses());
+        assertEquals(0, correlation.size());
+    }
+
+    @Test
+    public void testReleaseIsNotCountedAsReceipt() {
+        final SmppMessageCorrelation correlation = new SmppMessageCorrelation(0, 0);
+        final SmsMessage first = message();
+        final SmsMessage second = message();
+
+        // the SMSC assigns a fresh id, then the same id again to another message
+        assertNull(correlation.release("1"));
+        correlation.correlate("1", first);
+        assertSame(first, correlation.release("1"));
+        correlation.correlate("1", second);
+
+        assertEquals(0, correlation.getHits());
+        assertEquals(0, correlation.getMisses());
+        assertSame(second, correlation.remove("1"));
+        assertEquals(1, correlation.getHits());
+    }
+
+    @Test
+    public void testStatistics() {
+        final SmppMessageCorrelation correlation = new SmppMessageCorrelation(0, 0);
+        correlation.correlate("1", message());
+        correlation.correlate("2", message());
+        correlation.remove("1");
+        correlation.remove("3");
+        correlation.remove("4");
+
+        final Map<String, Integer> countersMap = new HashMap<String, Integer>();
+        correlation.putStatistics(countersMap, new HashMap<String, Double>());
+        assertEquals(Integer.valueOf(1), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMPP_CORRELATIONS));
+        assertEquals(Integer.valueOf(1), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMPP_RECEIPTS_CORRELATED_IN_MEMORY));
+        assertEquals(Integer.valueOf(2), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMPP_RECEIPTS_CORRELATED_IN_DATABASE));
+    }
+}
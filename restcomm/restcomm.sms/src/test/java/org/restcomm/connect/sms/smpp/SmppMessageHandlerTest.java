@@ -269,6 +269,134 @@ public class SmppMessageHandlerTest {
                 SmsMessage msg = (SmsMessage) expectMsgClass.getInfo().attributes().get("record");
                 assertEquals(SmsMessage.Status.SENT, msg.getStatus());
 
+                // nothing correlated in memory, the duplicates are found in the database and cleared
+                verify(smsMessagesDao).findBySmppMessageId(smppMessageId);
+                verify(smsMessagesDao, times(3)).updateSmsMessage(smsCaptor.capture());
+                final List<Sid> cleared = new ArrayList<Sid>();
+                for (SmsMessage updated : smsCaptor.getAllValues()) {
+                    assertNull(updated.getSmppMessageId());
+                    cleared.add(updated.getSid());
+                }
+                assertEquals(Arrays.asList(smsMessageWithSmppMessageId1.getSid(), smsMessageWithSmppMessageId2.getSid(),
+                        smsMessageWithSmppMessageId3.getSid()), cleared);
+            }
+        };
+    }
+
+    @Test
+    public void testOnReceivePduAsyncResponseReusingCorrelatedSmppMessageId() {
+        new JavaTestKit(system) {
+            {
+                // given
+                final ServletContext servletContext = mock(ServletContext.class);
+                final DaoManager daoManager = mock(DaoManager.class);
+                final SmsMessagesDao smsMessagesDao = mock(SmsMessagesDao.class);
+
+                when(servletContext.getAttribute(DaoManager.class.getName())).thenReturn(daoManager);
+                when(servletContext.getAttribute(Configuration.class.getName())).thenReturn(mock(Configuration.class));
+                when(servletContext.getAttribute(SipFactory.class.getName())).thenReturn(mock(SipFactory.class));
+                when(servletContext.getAttribute(MonitoringService.class.getName())).thenReturn(mock(ActorRef.class));
+                when(servletContext.getAttribute(NumberSelectorService.class.getName())).thenReturn(mock(NumberSelectorService.class));
+                when(servletContext.getAttribute(SmsService.class.getName())).thenReturn(getRef());
+                when(daoManager.getSmsMessagesDao()).thenReturn(smsMessagesDao);
+
+                final String smppMessageId = "24680";
+                final SmsMessage first = SmsMessage.builder().setSid(Sid.generate(Sid.Type.SMS_MESSAGE)).setStatus(SmsMessage.Status.SENDING).build();
+                final SmsMessage second = SmsMessage.builder().setSid(Sid.generate(Sid.Type.SMS_MESSAGE)).setStatus(SmsMessage.Status.SENDING).build();
+                when(smsMessagesDao.getSmsMessage(first.getSid())).thenReturn(first);
+                when(smsMessagesDao.getSmsMessage(second.getSid())).thenReturn(second);
+
+                final ActorRef messageHandler = system.actorOf(Props.apply(new Creator<Actor>() {
+                    @Override
+                    public Actor create() throws Exception {
+                        return new SmppMessageHandler(servletContext);
+                    }
+                }));
+
+                // when
+                messageHandler.tell(submitResponse(first.getSid(), smppMessageId), getRef());
+                expectMsgClass(FiniteDuration.create(100, TimeUnit.MILLISECONDS), SmsStatusUpdated.class);
+                messageHandler.tell(submitResponse(second.getSid(), smppMessageId), getRef());
+                expectMsgClass(FiniteDuration.create(100, TimeUnit.MILLISECONDS), SmsStatusUpdated.class);
+
+                // then
+                // only the first response missed the correlation and had to check the database
+                verify(smsMessagesDao, times(1)).findBySmppMessageId(smppMessageId);
+                final ArgumentCaptor<SmsMessage> smsCaptor = ArgumentCaptor.forClass(SmsMessage.class);
+                verify(smsMessagesDao).updateSmsMessage(smsCaptor.capture());
+                assertEquals(first.getSid(), smsCaptor.getValue().getSid());
+                assertNull(smsCaptor.getValue().getSmppMessageId());
+            }
+        };
+    }
+
+    private PduAsyncResponse submitResponse(Sid smsSid, String smppMessageId) {
+        final SubmitSmResp submitSmResp = mock(SubmitSmResp.class);
+        final PduRequest pduRequest = mock(PduRequest.class);
+        final PduAsyncResponse pduResponse = mock(DefaultPduAsyncResponse.class);
+        when(pduResponse.getRequest()).thenReturn(pduRequest);
+        when(pduResponse.getResponse()).thenReturn(submitSmResp);
+        when(pduRequest.getReferenceObject()).thenReturn(smsSid);
+        when(submitSmResp.getMessageId()).thenReturn(smppMessageId);
+        when(submitSmResp.getCommandStatus()).thenReturn(0);
+        return pduResponse;
+    }
+
+    @Test
+    public void testDlrCorrelatedInMemoryAfterSubmitResponse() {
+        new JavaTestKit(system) {
+            {
+                // given
+                final ServletContext servletContext = mock(ServletContext.class);
+                final DaoManager daoManager = mock(DaoManager.class);
+                final SmsMessagesDao smsMessagesDao = mock(SmsMessagesDao.class);
+
+                when(servletContext.getAttribute(DaoManager.class.getName())).thenReturn(daoManager);
+                when(servletContext.getAttribute(Configuration.class.getName())).thenReturn(mock(Configuration.class));
+                when(servletContext.getAttribute(SipFactory.class.getName())).thenReturn(mock(SipFactory.class));
+                when(servletContext.getAttribute(MonitoringService.class.getName())).thenReturn(mock(ActorRef.class));
+                when(servletContext.getAttribute(NumberSelectorService.class.getName())).thenReturn(mock(NumberSelectorService.class));
+                when(servletContext.getAttribute(SmsService.class.getName())).thenReturn(getRef());
+                when(daoManager.getSmsMessagesDao()).thenReturn(smsMessagesDao);
+
+                final String smppMessageId = "67890";
+                final SmsMessage smsMessage = SmsMessage.builder().setSid(Sid.generate(Sid.Type.SMS_MESSAGE)).setStatus(SmsMessage.Status.SENDING).build();
+                final SubmitSmResp submitSmResp = mock(SubmitSmResp.class);
+                final PduRequest pduRequest = mock(PduRequest.class);
+                final PduAsyncResponse pduResponse = mock(DefaultPduAsyncResponse.class);
+                when(pduResponse.getRequest()).thenReturn(pduRequest);
+                when(pduResponse.getResponse()).thenReturn(submitSmResp);
+                when(pduRequest.getReferenceObject()).thenReturn(smsMessage.getSid());
+                when(submitSmResp.getMessageId()).thenReturn(smppMessageId);
+                when(submitSmResp.getCommandStatus()).thenReturn(0);
+                when(smsMessagesDao.getSmsMessage(smsMessage.getSid())).thenReturn(smsMessage);
+
+                final ActorRef messageHandler = system.actorOf(Props.apply(new Creator<Actor>() {
+                    @Override
+                    public Actor create() throws Exception {
+                        return new SmppMessageHandler(servletContext);
+                    }
+                }));
+
+                // when
+                messageHandler.tell(pduResponse, getRef());
+                SmsStatusUpdated sent = expectMsgClass(FiniteDuration.create(100, TimeUnit.MILLISECONDS), SmsStatusUpdated.class);
+                assertEquals(SmsMessage.Status.SENT, ((SmsMessage) sent.getInfo().attributes().get("record")).getStatus());
+
+                final DLRPayload dlrPayload = new DLRPayload();
+                dlrPayload.setId(smppMessageId);
+                dlrPayload.setStat(SmsMessage.Status.DELIVERED);
+                messageHandler.tell(dlrPayload, getRef());
+
+                // then
+                SmsStatusUpdated delivered = expectMsgClass(FiniteDuration.create(100, TimeUnit.MILLISECONDS), SmsStatusUpdated.class);
+                SmsMessage msg = (SmsMessage) delivered.getInfo().attributes().get("record");
+                assertEquals(smsMessage.getSid(), msg.getSid());
+                assertEquals(SmsMessage.Status.DELIVERED, msg.getStatus());
+                assertNull(msg.getSmppMessageId());
+                verify(smsMessagesDao, never()).getSmsMessageBySmppMessageId(smppMessageId);
+                // the submit response checked the database for duplicates once, the receipt did not
+                verify(smsMessagesDao, times(1)).findBySmppMessageId(smppMessageId);
             }
         };
     }
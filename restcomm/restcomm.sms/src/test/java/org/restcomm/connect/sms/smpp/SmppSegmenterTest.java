@@ -0,0 +1,210 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SmppSegmenterTest {
+    private static final Charset UCS2 = Charset.forName("UTF-16BE");
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static byte[] repeat(final byte value, final int count) {
+        final byte[] bytes = new byte[count];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+
+    private static String repeat(final String value, final int count) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static byte[] text(final List<byte[]> parts) {
+        final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        for (final byte[] part : parts) {
+            final int headerLength = (part[0] & 0xFF) + 1;
+            text.write(part, headerLength, part.length - headerLength);
+        }
+        return text.toByteArray();
+    }
+
+    @Test
+    public void testSinglePartHasNoHeader() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        final byte[] gsm = repeat((byte) 'a', 160);
+        final List<byte[]> parts = segmenter.segment(gsm, SmppSegmenter.Alphabet.GSM7);
+        assertEquals(1, parts.size());
+        assertArrayEquals(gsm, parts.get(0));
+        assertEquals(1, segmenter.segment(repeat((byte) 0, 140), SmppSegmenter.Alphabet.UCS2).size());
+        assertEquals(2, segmenter.segment(repeat((byte) 0, 142), SmppSegmenter.Alphabet.UCS2).size());
+    }
+
+    @Test
+    public void testGsm7Parts() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        final byte[] gsm = repeat((byte) 'a', 161);
+        final List<byte[]> parts = segmenter.segment(gsm, SmppSegmenter.Alphabet.GSM7);
+        assertEquals(2, parts.size());
+        assertEquals(6 + 153, parts.get(0).length);
+        assertEquals(6 + 8, parts.get(1).length);
+        final byte[] header = Arrays.copyOf(parts.get(0), 6);
+        assertEquals(5, header[0]);
+        assertEquals(SmppSegmenter.IEI_CONCATENATED_8BIT, header[1]);
+        assertEquals(3, header[2]);
+        assertEquals(2, header[4]);
+        assertEquals(1, header[5]);
+        assertEquals(header[3], parts.get(1)[3]);
+        assertEquals(2, parts.get(1)[5]);
+        assertArrayEquals(gsm, text(parts));
+    }
+
+    @Test
+    public void testSixteenBitReference() {
+        final SmppSegmenter segmenter = new SmppSegmenter(true);
+        final List<byte[]> first = segmenter.segment(repeat((byte) 'a', 400), SmppSegmenter.Alphabet.GSM7);
+        final List<byte[]> second = segmenter.segment(repeat((byte) 'a', 400), SmppSegmenter.Alphabet.GSM7);
+        assertEquals(3, first.size());
+        assertEquals(7 + 152, first.get(0).length);
+        assertEquals(6, first.get(0)[0]);
+        assertEquals(SmppSegmenter.IEI_CONCATENATED_16BIT, first.get(0)[1]);
+        assertEquals(4, first.get(0)[2]);
+        assertTrue(first.get(0)[4] != second.get(0)[4]);
+    }
+
+    @Test
+    public void testGsm7EscapeNotSplit() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        final byte[] gsm = repeat((byte) 'a', 200);
+        // Euro sign is the escape sequence 0x1B 0x65, placed across the end of the first part
+        gsm[152] = 0x1B;
+        gsm[153] = 0x65;
+        final List<byte[]> parts = segmenter.segment(gsm, SmppSegmenter.Alphabet.GSM7);
+        assertEquals(6 + 152, parts.get(0).length);
+        assertEquals(0x1B, parts.get(1)[6]);
+        assertArrayEquals(gsm, text(parts));
+    }
+
+    @Test
+    public void testUcs2SurrogateNotSplit() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        // 66 characters then a surrogate pair crossing the 67 character boundary of a part
+        final String message = repeat("a", 66) + "\uD83D\uDE00" + repeat("b", 20);
+        final byte[] ucs2 = message.getBytes(UCS2);
+        final List<byte[]> parts = segmenter.segment(ucs2, SmppSegmenter.Alphabet.UCS2);
+        assertEquals(2, parts.size());
+        assertEquals(6 + 132, parts.get(0).length);
+        assertEquals(message, new String(text(parts), UCS2));
+        for (final byte[] part : parts) {
+            assertEquals(0, (part.length - 6) % 2);
+        }
+    }
+
+    @Test
+    public void testUtf8SequenceNotSplit() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        final String message = repeat("\u00e9", 100);
+        final List<byte[]> parts = segmenter.segment(message.getBytes(UTF8), SmppSegmenter.Alphabet.EIGHT_BIT);
+        for (final byte[] part : parts) {
+            assertEquals(repeat("\u00e9", (part.length - 6) / 2), new String(part, 6, part.length - 6, UTF8));
+        }
+        assertEquals(message, new String(text(parts), UTF8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyParts() {
+        new SmppSegmenter(false).segment(repeat((byte) 'a', 153 * 256), SmppSegmenter.Alphabet.GSM7);
+    }
+
+    @Test
+    public void testReassembledInAnyOrder() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        final SmppReassembler reassembler = new SmppReassembler(SmppReassembler.DEFAULT_TIMEOUT, SmppReassembler.DEFAULT_MAX_MESSAGES,
+                SmppReassembler.DEFAULT_MAX_BYTES);
+        final String message = repeat("0123456789", 40);
+        final List<byte[]> parts = segmenter.segment(message.getBytes(UCS2), SmppSegmenter.Alphabet.UCS2);
+        assertEquals(6, parts.size());
+        for (int i = parts.size() - 1; i > 0; i--) {
+            assertNull(reassembler.reassemble("1234", "5678", parts.get(i)));
+            // same reference from another sender is another message
+            assertNull(reassembler.reassemble("4321", "5678", parts.get(i)));
+        }
+        assertEquals(2, reassembler.getPendingMessages());
+        assertEquals(message, new String(reassembler.reassemble("1234", "5678", parts.get(0)), UCS2));
+        assertEquals(1, reassembler.getPendingMessages());
+        assertEquals(1, reassembler.getCompleted());
+    }
+
+    @Test
+    public void testHeaderWithoutConcatenation() {
+        final SmppReassembler reassembler = new SmppReassembler(60, 10, 1000);
+        // port addressing element only
+        final byte[] userData = {6, 0x05, 4, 0x0B, (byte) 0x84, 0x23, (byte) 0xF0, 'h', 'i'};
+        assertArrayEquals(new byte[] {'h', 'i'}, reassembler.reassemble("1234", "5678", userData));
+        assertEquals(0, reassembler.getPendingMessages());
+    }
+
+    @Test
+    public void testIncompleteMessagesExpire() {
+        final SmppReassembler reassembler = new SmppReassembler(60, 10, 100000);
+        final List<byte[]> parts = new SmppSegmenter(false).segment(repeat((byte) 'a', 400), SmppSegmenter.Alphabet.GSM7);
+        final long now = 1000000L;
+        assertNull(reassembler.reassemble("1234", "5678", parts.get(0), now));
+        assertNull(reassembler.reassemble("1234", "5678", parts.get(1), now + 59999));
+        assertEquals(1, reassembler.getPendingMessages());
+        assertEquals(306, reassembler.getPendingBytes());
+        // the last part arrives too late, it starts a new message
+        assertNull(reassembler.reassemble("1234", "5678", parts.get(2), now + 60000));
+        assertEquals(1, reassembler.getExpired());
+        assertEquals(1, reassembler.getPendingMessages());
+        assertEquals(94, reassembler.getPendingBytes());
+    }
+
+    @Test
+    public void testBufferBounded() {
+        final SmppSegmenter segmenter = new SmppSegmenter(false);
+        final SmppReassembler reassembler = new SmppReassembler(60, 3, 400);
+        final long now = 1000000L;
+        for (int i = 0; i < 5; i++) {
+            final List<byte[]> parts = segmenter.segment(repeat((byte) 'a', 200), SmppSegmenter.Alphabet.GSM7);
+            assertNull(reassembler.reassemble("1234", "5678", parts.get(0), now));
+        }
+        assertEquals(2, reassembler.getPendingMessages());
+        assertEquals(306, reassembler.getPendingBytes());
+        assertEquals(3, reassembler.getEvicted());
+        for (int i = 0; i < 5; i++) {
+            final List<byte[]> parts = segmenter.segment(repeat((byte) 'a', 200), SmppSegmenter.Alphabet.GSM7);
+            assertNull(reassembler.reassemble("1234", "5678", parts.get(0), now));
+        }
+        assertEquals(2, reassembler.getPendingMessages());
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.sms.smpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restcomm.connect.monitoringservice.MonitoringMetrics;
+
+import com.cloudhopper.smpp.PduAsyncResponse;
+import com.cloudhopper.smpp.SmppBindType;
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.SmppServerConfiguration;
+import com.cloudhopper.smpp.SmppServerHandler;
+import com.cloudhopper.smpp.SmppServerSession;
+import com.cloudhopper.smpp.SmppSessionConfiguration;
+import com.cloudhopper.smpp.impl.DefaultSmppClient;
+import com.cloudhopper.smpp.impl.DefaultSmppServer;
+import com.cloudhopper.smpp.impl.DefaultSmppSession;
+import com.cloudhopper.smpp.impl.DefaultSmppSessionHandler;
+import com.cloudhopper.smpp.pdu.BaseBind;
+import com.cloudhopper.smpp.pdu.BaseBindResp;
+import com.cloudhopper.smpp.pdu.PduRequest;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+import com.cloudhopper.smpp.type.Address;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppProcessingException;
+
+/**
+ * Submits a burst of messages through several binds to a local SMPP server answering every submit_sm.
+ */
+public class SmppSessionPoolTest {
+    private static final Logger logger = Logger.getLogger(SmppSessionPoolTest.class);
+    private static final int PORT = 2790;
+    private static final int BINDS = 4;
+    private static final int WINDOW = 10;
+    private static final int MESSAGES = 4000;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor monitorExecutor;
+    private DefaultSmppServer server;
+    private DefaultSmppClient client;
+    private List<Smpp> esmes;
+    private CountDownLatch responses;
+
+    @Before
+    public void before() throws Exception {
+        executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        monitorExecutor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
+        final SmppServerConfiguration configuration = new SmppServerConfiguration();
+        configuration.setHost("127.0.0.1");
+        configuration.setPort(PORT);
+        configuration.setMaxConnectionSize(BINDS);
+        configuration.setNonBlockingSocketsEnabled(true);
+        configuration.setDefaultWindowSize(WINDOW);
+        server = new DefaultSmppServer(configuration, new SimulatorHandler(), executor, monitorExecutor);
+        server.start();
+        client = new DefaultSmppClient(executor, BINDS, monitorExecutor);
+        esmes = new ArrayList<Smpp>();
+    }
+
+    @After
+    public void after() throws Exception {
+        for (final Smpp esme : esmes) {
+            esme.getSmppSession().unbind(1000);
+            esme.getSmppSession().destroy();
+        }
+        client.destroy();
+        server.stop();
+        server.destroy();
+        executor.shutdownNow();
+        monitorExecutor.shutdownNow();
+    }
+
+    private SmppSessionPool bind(final SmppSessionPool.Selection selection, final int messages) throws Exception {
+        return bind(selection, BINDS, messages);
+    }
+
+    private SmppSessionPool bind(final SmppSessionPool.Selection selection, final int binds, final int messages) throws Exception {
+        final SmppSessionPool pool = new SmppSessionPool(selection, 10000);
+        responses = new CountDownLatch(messages);
+        for (int i = 0; i < binds; i++) {
+            final Smpp esme = new Smpp("test", "test", "127.0.0.1", PORT, SmppBindType.TRANSCEIVER, "test", "sms", (byte) 0x34,
+                    null, 10000, WINDOW, 10000, 30000, 15000, true, false, 30000, null, null, false, false);
+            esme.setBindIndex(i);
+            final SmppSessionConfiguration configuration = new SmppSessionConfiguration();
+            configuration.setWindowSize(WINDOW);
+            configuration.setName("test-" + i);
+            configuration.setType(SmppBindType.TRANSCEIVER);
+            configuration.setHost("127.0.0.1");
+            configuration.setPort(PORT);
+            configuration.setSystemId("test");
+            configuration.setPassword("test");
+            configuration.setRequestExpiryTimeout(30000);
+            configuration.getLoggingOptions().setLogBytes(false);
+            configuration.getLoggingOptions().setLogPdu(false);
+            esme.setSmppSession((DefaultSmppSession) client.bind(configuration, new DefaultSmppSessionHandler() {
+                @Override
+                public void fireExpectedPduResponseReceived(final PduAsyncResponse response) {
+                    pool.responseReceived(esme, response);
+                    responses.countDown();
+                }
+            }));
+            pool.add(esme);
+            esmes.add(esme);
+        }
+        return pool;
+    }
+
+    private long submit(final SmppSessionPool pool, final int messages) throws Exception {
+        final long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            final SubmitSm submit = new SubmitSm();
+            submit.setSourceAddress(new Address((byte) 1, (byte) 1, "1234"));
+            submit.setDestAddress(new Address((byte) 1, (byte) 1, "5678"));
+            submit.setShortMessage(("message " + i).getBytes());
+            pool.submit(submit);
+        }
+        assertTrue(responses.await(30, TimeUnit.SECONDS));
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void testLeastOutstandingUsesEveryBind() throws Exception {
+        final SmppSessionPool pool = bind(SmppSessionPool.Selection.LEAST_OUTSTANDING, MESSAGES);
+        final long elapsed = submit(pool, MESSAGES);
+
+        long submitted = 0;
+        long received = 0;
+        for (final SmppBindStatistics statistics : pool.getStatistics()) {
+            logger.info(statistics);
+            assertTrue(statistics.isBound());
+            assertTrue(statistics.getSubmitted() > 0);
+            assertEquals(0, statistics.getFailed());
+            assertEquals(WINDOW, statistics.getWindowSize());
+            submitted += statistics.getSubmitted();
+            received += statistics.getResponses();
+        }
+        assertEquals(MESSAGES, submitted);
+        assertEquals(MESSAGES, received);
+        logger.info(MESSAGES + " submit_sm over " + BINDS + " binds in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+    }
+
+    @Test
+    public void testRoundRobinSpreadsEvenly() throws Exception {
+        final SmppSessionPool pool = bind(SmppSessionPool.Selection.ROUND_ROBIN, MESSAGES);
+        submit(pool, MESSAGES);
+
+        for (final SmppBindStatistics statistics : pool.getStatistics()) {
+            assertEquals(MESSAGES / BINDS, statistics.getSubmitted());
+            assertEquals(MESSAGES / BINDS, statistics.getResponses());
+        }
+        final Map<String, Integer> countersMap = new HashMap<String, Integer>();
+        pool.putStatistics(countersMap, new HashMap<String, Double>());
+        assertEquals(Integer.valueOf(BINDS), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMPP_BINDS_BOUND));
+        assertEquals(Integer.valueOf(MESSAGES), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMPP_SUBMITTED));
+        assertEquals(Integer.valueOf(MESSAGES), countersMap.get(MonitoringMetrics.COUNTERS_MAP_SMPP_RESPONSES));
+    }
+
+    @Test
+    public void testRoundRobinIsNotMovedByBoundCheck() throws Exception {
+        // SmsSession checks the pool before every message. If the checks moved the round robin on, the
+        // 3 steps per message would send every message through the same bind.
+        final int binds = 3;
+        final int messages = 3000;
+        final SmppSessionPool pool = bind(SmppSessionPool.Selection.ROUND_ROBIN, binds, messages);
+        for (int i = 0; i < messages; i++) {
+            assertTrue(pool.isBound());
+            assertNotNull(pool.getSession());
+            final SubmitSm submit = new SubmitSm();
+            submit.setSourceAddress(new Address((byte) 1, (byte) 1, "1234"));
+            submit.setDestAddress(new Address((byte) 1, (byte) 1, "5678"));
+            submit.setShortMessage(("message " + i).getBytes());
+            pool.submit(submit);
+        }
+        assertTrue(responses.await(30, TimeUnit.SECONDS));
+
+        assertEquals(binds, pool.getStatistics().size());
+        for (final SmppBindStatistics statistics : pool.getStatistics()) {
+            assertEquals(messages / binds, statistics.getSubmitted());
+        }
+    }
+
+    @Test
+    public void testUnboundBindsAreSkipped() throws Exception {
+        final SmppSessionPool pool = bind(SmppSessionPool.Selection.ROUND_ROBIN, MESSAGES / 2);
+        final Smpp closed = esmes.remove(0);
+        closed.getSmppSession().unbind(1000);
+        closed.getSmppSession().destroy();
+        submit(pool, MESSAGES / 2);
+
+        for (final SmppBindStatistics statistics : pool.getStatistics()) {
+            if (statistics.getBindIndex() == 0) {
+                assertFalse(statistics.isBound());
+                assertEquals(0, statistics.getSubmitted());
+            } else {
+                assertTrue(statistics.getSubmitted() > 0);
+            }
+        }
+    }
+
+    @Test(expected = SmppChannelException.class)
+    public void testNoBindAvailable() throws Exception {
+        final SmppSessionPool pool = new SmppSessionPool(SmppSessionPool.Selection.LEAST_OUTSTANDING, 10000);
+        assertFalse(pool.isBound());
+        pool.submit(new SubmitSm());
+    }
+
+    @Test
+    public void testSelectionFromConfiguration() {
+        assertEquals(SmppSessionPool.Selection.LEAST_OUTSTANDING, SmppSessionPool.Selection.fromString(null));
+        assertEquals(SmppSessionPool.Selection.ROUND_ROBIN, SmppSessionPool.Selection.fromString("round-robin"));
+        assertEquals(SmppSessionPool.Selection.LEAST_OUTSTANDING, SmppSessionPool.Selection.fromString("least-outstanding"));
+    }
+
+    // Local SMSC answering every submit_sm with a message id.
+    private static final class SimulatorHandler implements SmppServerHandler {
+        private final AtomicInteger messageIds = new AtomicInteger();
+
+        @Override
+        public void sessionBindRequested(final Long sessionId, final SmppSessionConfiguration sessionConfiguration,
+                final BaseBind bindRequest) throws SmppProcessingException {
+        }
+
+        @Override
+        public void sessionCreated(final Long sessionId, final SmppServerSession session, final BaseBindResp preparedBindResponse)
+                throws SmppProcessingException {
+            session.serverReady(new DefaultSmppSessionHandler() {
+                @Override
+                public PduResponse firePduRequestReceived(final PduRequest request) {
+                    final PduResponse response = request.createResponse();
+                    if (response instanceof SubmitSmResp) {
+                        ((SubmitSmResp) response).setMessageId(Integer.toString(messageIds.incrementAndGet()));
+                        response.setCommandStatus(SmppConstants.STATUS_OK);
+                    }
+                    return response;
+                }
+            });
+        }
+
+        @Override
+        public void sessionDestroyed(final Long sessionId, final SmppServerSession session) {
+            session.destroy();
+        }
+    }
+}
@@ -76,6 +76,7 @@ import org.restcomm.connect.commons.fsm.TransitionEndListener;
 import org.restcomm.connect.commons.fsm.TransitionFailedException;
 import org.restcomm.connect.commons.fsm.TransitionNotFoundException;
 import org.restcomm.connect.commons.fsm.TransitionRollbackException;
+import org.restcomm.connect.commons.fsm.TransitionTable;
 import org.restcomm.connect.commons.patterns.Observe;
 import org.restcomm.connect.commons.patterns.Observing;
 import org.restcomm.connect.commons.patterns.StopObserving;
@@ -172,6 +173,100 @@ public final class Call extends RestcommUntypedActor implements TransitionEndLis
     private static final String CALL_ON_HOLD_ACTION = "action=onHold";
     private static final String CALL_OFF_HOLD_ACTION = "action=offHold";
 
+    // State graph shared by every call, the states of each call carry its actions.
+    private static final TransitionTable TRANSITIONS;
+
+    static {
+        final State uninitialized = new State("uninitialized", null);
+        final State initializing = new State("initializing", null);
+        final State waitingForAnswer = new State("waiting for answer", null);
+        final State queued = new State("queued", null);
+        final State ringing = new State("ringing", null);
+        final State failingBusy = new State("failing busy", null);
+        final State busy = new State("busy", null);
+        final State notFound = new State("not found", null);
+        final State canceling = new State("canceling", null);
+        final State canceled = new State("canceled", null);
+        final State failingNoAnswer = new State("failing no answer", null);
+        final State noAnswer = new State("no answer", null);
+        final State dialing = new State("dialing", null);
+        final State updatingMediaSession = new State("updating media session", null);
+        final State inProgress = new State("in progress", null);
+        final State joining = new State("joining", null);
+        final State leaving = new State("leaving", null);
+        final State stopping = new State("stopping", null);
+        final State completed = new State("completed", null);
+        final State failed = new State("failed", null);
+        final State inDialogRequest = new State("InDialogRequest", null);
+
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(uninitialized, ringing));
+        transitions.add(new Transition(uninitialized, queued));
+        transitions.add(new Transition(uninitialized, canceled));
+        transitions.add(new Transition(uninitialized, completed));
+        transitions.add(new Transition(queued, canceled));
+        transitions.add(new Transition(queued, initializing));
+        transitions.add(new Transition(ringing, busy));
+        transitions.add(new Transition(ringing, notFound));
+        transitions.add(new Transition(ringing, canceling));
+        transitions.add(new Transition(ringing, canceled));
+        transitions.add(new Transition(ringing, failingNoAnswer));
+        transitions.add(new Transition(ringing, failingBusy));
+        transitions.add(new Transition(ringing, noAnswer));
+        transitions.add(new Transition(ringing, initializing));
+        transitions.add(new Transition(ringing, updatingMediaSession));
+        transitions.add(new Transition(ringing, completed));
+        transitions.add(new Transition(ringing, stopping));
+        transitions.add(new Transition(ringing, failed));
+        transitions.add(new Transition(initializing, canceling));
+        transitions.add(new Transition(initializing, dialing));
+        transitions.add(new Transition(initializing, failed));
+        transitions.add(new Transition(initializing, inProgress));
+        transitions.add(new Transition(initializing, waitingForAnswer));
+        transitions.add(new Transition(initializing, stopping));
+        transitions.add(new Transition(waitingForAnswer, inProgress));
+        transitions.add(new Transition(waitingForAnswer, joining));
+        transitions.add(new Transition(waitingForAnswer, canceling));
+        transitions.add(new Transition(waitingForAnswer, completed));
+        transitions.add(new Transition(waitingForAnswer, stopping));
+        transitions.add(new Transition(dialing, canceling));
+        transitions.add(new Transition(dialing, stopping));
+        transitions.add(new Transition(dialing, failingBusy));
+        transitions.add(new Transition(dialing, ringing));
+        transitions.add(new Transition(dialing, failed));
+        transitions.add(new Transition(dialing, failingNoAnswer));
+        transitions.add(new Transition(dialing, noAnswer));
+        transitions.add(new Transition(dialing, updatingMediaSession));
+        transitions.add(new Transition(inProgress, stopping));
+        transitions.add(new Transition(inProgress, joining));
+        transitions.add(new Transition(inProgress, leaving));
+        transitions.add(new Transition(inProgress, failed));
+        transitions.add(new Transition(inProgress, inDialogRequest));
+        transitions.add(new Transition(inProgress, completed));
+        transitions.add(new Transition(joining, inProgress));
+        transitions.add(new Transition(joining, stopping));
+        transitions.add(new Transition(joining, failed));
+        transitions.add(new Transition(leaving, inProgress));
+        transitions.add(new Transition(leaving, stopping));
+        transitions.add(new Transition(leaving, failed));
+        transitions.add(new Transition(leaving, completed));
+        transitions.add(new Transition(canceling, canceled));
+        transitions.add(new Transition(canceling, completed));
+        transitions.add(new Transition(failingBusy, busy));
+        transitions.add(new Transition(failingNoAnswer, noAnswer));
+        transitions.add(new Transition(failingNoAnswer, canceling));
+        transitions.add(new Transition(updatingMediaSession, inProgress));
+        transitions.add(new Transition(updatingMediaSession, failed));
+        transitions.add(new Transition(updatingMediaSession, stopping));
+        transitions.add(new Transition(stopping, completed));
+        transitions.add(new Transition(stopping, failed));
+        transitions.add(new Transition(failed, completed));
+        transitions.add(new Transition(failed, stopping));
+        transitions.add(new Transition(completed, stopping));
+        transitions.add(new Transition(completed, failed));
+        TRANSITIONS = new TransitionTable(transitions);
+    }
+
     // Finite State Machine
     private final FiniteStateMachine fsm;
     private final State uninitialized;
@@ -351,75 +446,8 @@ public final class Call extends RestcommUntypedActor implements TransitionEndLis
         this.failed = new State("failed", new Failed(source), null);
         this.inDialogRequest = new State("InDialogRequest", new InDialogRequest(source), null);
 
-        // Transitions for the FSM
-        final Set<Transition> transitions = new HashSet<Transition>();
-        transitions.add(new Transition(this.uninitialized, this.ringing));
-        transitions.add(new Transition(this.uninitialized, this.queued));
-        transitions.add(new Transition(this.uninitialized, this.canceled));
-        transitions.add(new Transition(this.uninitialized, this.completed));
-        transitions.add(new Transition(this.queued, this.canceled));
-        transitions.add(new Transition(this.queued, this.initializing));
-        transitions.add(new Transition(this.ringing, this.busy));
-        transitions.add(new Transition(this.ringing, this.notFound));
-        transitions.add(new Transition(this.ringing, this.canceling));
-        transitions.add(new Transition(this.ringing, this.canceled));
-        transitions.add(new Transition(this.ringing, this.failingNoAnswer));
-        transitions.add(new Transition(this.ringing, this.failingBusy));
-        transitions.add(new Transition(this.ringing, this.noAnswer));
-        transitions.add(new Transition(this.ringing, this.initializing));
-        transitions.add(new Transition(this.ringing, this.updatingMediaSession));
-        transitions.add(new Transition(this.ringing, this.completed));
-        transitions.add(new Transition(this.ringing, this.stopping));
-        transitions.add(new Transition(this.ringing, this.failed));
-        transitions.add(new Transition(this.initializing, this.canceling));
-        transitions.add(new Transition(this.initializing, this.dialing));
-        transitions.add(new Transition(this.initializing, this.failed));
-        transitions.add(new Transition(this.initializing, this.inProgress));
-        transitions.add(new Transition(this.initializing, this.waitingForAnswer));
-        transitions.add(new Transition(this.initializing, this.stopping));
-        transitions.add(new Transition(this.waitingForAnswer, this.inProgress));
-        transitions.add(new Transition(this.waitingForAnswer, this.joining));
-        transitions.add(new Transition(this.waitingForAnswer, this.canceling));
-        transitions.add(new Transition(this.waitingForAnswer, this.completed));
-        transitions.add(new Transition(this.waitingForAnswer, this.stopping));
-        transitions.add(new Transition(this.dialing, this.canceling));
-        transitions.add(new Transition(this.dialing, this.stopping));
-        transitions.add(new Transition(this.dialing, this.failingBusy));
-        transitions.add(new Transition(this.dialing, this.ringing));
-        transitions.add(new Transition(this.dialing, this.failed));
-        transitions.add(new Transition(this.dialing, this.failingNoAnswer));
-        transitions.add(new Transition(this.dialing, this.noAnswer));
-        transitions.add(new Transition(this.dialing, this.updatingMediaSession));
-        transitions.add(new Transition(this.inProgress, this.stopping));
-        transitions.add(new Transition(this.inProgress, this.joining));
-        transitions.add(new Transition(this.inProgress, this.leaving));
-        transitions.add(new Transition(this.inProgress, this.failed));
-        transitions.add(new Transition(this.inProgress, this.inDialogRequest));
-        transitions.add(new Transition(this.inProgress, this.completed));
-        transitions.add(new Transition(this.joining, this.inProgress));
-        transitions.add(new Transition(this.joining, this.stopping));
-        transitions.add(new Transition(this.joining, this.failed));
-        transitions.add(new Transition(this.leaving, this.inProgress));
-        transitions.add(new Transition(this.leaving, this.stopping));
-        transitions.add(new Transition(this.leaving, this.failed));
-        transitions.add(new Transition(this.leaving, this.completed));
-        transitions.add(new Transition(this.canceling, this.canceled));
-        transitions.add(new Transition(this.canceling, this.completed));
-        transitions.add(new Transition(this.failingBusy, this.busy));
-        transitions.add(new Transition(this.failingNoAnswer, this.noAnswer));
-        transitions.add(new Transition(this.failingNoAnswer, this.canceling));
-        transitions.add(new Transition(this.updatingMediaSession, this.inProgress));
-        transitions.add(new Transition(this.updatingMediaSession, this.failed));
-        transitions.add(new Transition(this.updatingMediaSession, this.stopping));
-        transitions.add(new Transition(this.stopping, this.completed));
-        transitions.add(new Transition(this.stopping, this.failed));
-        transitions.add(new Transition(this.failed, this.completed));
-        transitions.add(new Transition(this.failed, this.stopping));
-        transitions.add(new Transition(this.completed, this.stopping));
-        transitions.add(new Transition(this.completed, this.failed));
-
         // FSM
-        this.fsm = new FiniteStateMachine(this.uninitialized, transitions);
+        this.fsm = new FiniteStateMachine(this.uninitialized, TRANSITIONS);
         this.fsm.addTransitionEndListener(this);
 
         // SIP runtime stuff.
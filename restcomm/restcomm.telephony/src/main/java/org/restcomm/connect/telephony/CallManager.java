@@ -131,8 +131,6 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static akka.pattern.Patterns.ask;
@@ -183,18 +181,8 @@ public final class CallManager extends RestcommUntypedActor {
     private boolean useTo;
     private boolean authenticateUsers;
 
-    private AtomicInteger numberOfFailedCalls;
-    private AtomicBoolean useFallbackProxy;
-    private boolean allowFallback;
-    private boolean allowFallbackToPrimary;
-    private int maxNumberOfFailedCalls;
-
-    private String primaryProxyUri;
-    private String primaryProxyUsername, primaryProxyPassword;
-    private String fallBackProxyUri;
-    private String fallBackProxyUsername, fallBackProxyPassword;
-    private String activeProxy;
-    private String activeProxyUsername, activeProxyPassword;
+    // shared with the other workers when the CallManager is partitioned
+    private final OutboundProxies outboundProxies;
     private String mediaExternalIp;
     private String myHostIp;
     private String proxyIp;
@@ -264,6 +252,18 @@ public final class CallManager extends RestcommUntypedActor {
     public CallManager(final Configuration configuration, final ServletContext context,
                        final MediaServerControllerFactory msControllerFactory, final ActorRef conferences, final ActorRef bridges,
                        final ActorRef sms, final SipFactory factory, final DaoManager storage) {
+        this(configuration, context, msControllerFactory, conferences, bridges, sms, factory, storage,
+                new OutboundProxies(configuration.subset("runtime-settings").subset("outbound-proxy")), true);
+    }
+
+    /**
+     * @param outboundProxies the outbound proxy failover state, shared by every worker of a partitioned CallManager.
+     * @param cleanup whether the calls left incomplete by a previous run are cleaned up, done by the first worker only.
+     */
+    public CallManager(final Configuration configuration, final ServletContext context,
+                       final MediaServerControllerFactory msControllerFactory, final ActorRef conferences, final ActorRef bridges,
+                       final ActorRef sms, final SipFactory factory, final DaoManager storage,
+                       final OutboundProxies outboundProxies, final boolean cleanup) {
         super();
         this.system = context().system();
         this.configuration = configuration;
@@ -275,8 +275,8 @@ public final class CallManager extends RestcommUntypedActor {
         this.sipFactory = factory;
         this.storage = storage;
         numberSelector = (NumberSelectorService)context.getAttribute(NumberSelectorService.class.getName());
+        this.outboundProxies = outboundProxies;
         final Configuration runtime = configuration.subset("runtime-settings");
-        final Configuration outboundProxyConfig = runtime.subset("outbound-proxy");
         SipURI outboundIntf = outboundInterface("udp");
         if (outboundIntf != null) {
             myHostIp = ((SipURI) outboundIntf).getHost().toString();
@@ -301,29 +301,6 @@ public final class CallManager extends RestcommUntypedActor {
         this.useTo = runtime.getBoolean("use-to");
         this.authenticateUsers = runtime.getBoolean("authenticate");
 
-        this.primaryProxyUri = outboundProxyConfig.getString("outbound-proxy-uri");
-        this.primaryProxyUsername = outboundProxyConfig.getString("outbound-proxy-user");
-        this.primaryProxyPassword = outboundProxyConfig.getString("outbound-proxy-password");
-
-        this.fallBackProxyUri = outboundProxyConfig.getString("fallback-outbound-proxy-uri");
-        this.fallBackProxyUsername = outboundProxyConfig.getString("fallback-outbound-proxy-user");
-        this.fallBackProxyPassword = outboundProxyConfig.getString("fallback-outbound-proxy-password");
-
-        this.activeProxy = primaryProxyUri;
-        this.activeProxyUsername = primaryProxyUsername;
-        this.activeProxyPassword = primaryProxyPassword;
-
-        numberOfFailedCalls = new AtomicInteger();
-        numberOfFailedCalls.set(0);
-        useFallbackProxy = new AtomicBoolean();
-        useFallbackProxy.set(false);
-
-        allowFallback = outboundProxyConfig.getBoolean("allow-fallback", false);
-
-        maxNumberOfFailedCalls = outboundProxyConfig.getInt("max-failed-calls", 20);
-
-        allowFallbackToPrimary = outboundProxyConfig.getBoolean("allow-fallback-to-primary", false);
-
         patchForNatB2BUASessions = runtime.getBoolean("patch-for-nat-b2bua-sessions", true);
         useSbc = runtime.getBoolean("use-sbc", false);
         if(useSbc) {
@@ -393,7 +370,9 @@ public final class CallManager extends RestcommUntypedActor {
         // Push notification server
         this.pushNotificationServerHelper = new PushNotificationServerHelper(system, configuration);
 
-        firstTimeCleanup();
+        if (cleanup) {
+            firstTimeCleanup();
+        }
     }
 
     private void firstTimeCleanup() {
@@ -724,9 +703,10 @@ public final class CallManager extends RestcommUntypedActor {
                         proxyThroughMediaServerAsNumber(request, client, toUser);
                     } else {
                         // https://telestax.atlassian.net/browse/RESTCOMM-335
-                        String proxyURI = activeProxy;
-                        String proxyUsername = activeProxyUsername;
-                        String proxyPassword = activeProxyPassword;
+                        final OutboundProxies.Proxy activeProxy = outboundProxies.getActive();
+                        String proxyURI = activeProxy.getUri();
+                        String proxyUsername = activeProxy.getUsername();
+                        String proxyPassword = activeProxy.getPassword();
                         SipURI from = null;
                         SipURI to = null;
                         boolean callToSipUri = false;
@@ -2066,7 +2046,8 @@ public final class CallManager extends RestcommUntypedActor {
     }
 
     private void outboundToPstn(final CreateCall request, final ActorRef sender) throws ServletParseException {
-        final String uri = (request.getOutboundProxy() != null && (!request.getOutboundProxy().isEmpty())) ? request.getOutboundProxy() : activeProxy;
+        final OutboundProxies.Proxy activeProxy = outboundProxies.getActive();
+        final String uri = (request.getOutboundProxy() != null && (!request.getOutboundProxy().isEmpty())) ? request.getOutboundProxy() : activeProxy.getUri();
         SipURI outboundIntf = null;
         SipURI from = null;
         SipURI to = null;
@@ -2075,7 +2056,7 @@ public final class CallManager extends RestcommUntypedActor {
         final Configuration runtime = configuration.subset("runtime-settings");
         final boolean useLocalAddressAtFromHeader = runtime.getBoolean("use-local-address", false);
 
-        final String proxyUsername = (request.username() != null) ? request.username() : activeProxyUsername;
+        final String proxyUsername = (request.username() != null) ? request.username() : activeProxy.getUsername();
 
         if (uri != null) {
             try {
@@ -2194,8 +2175,9 @@ public final class CallManager extends RestcommUntypedActor {
 
     private ActorRef createOutbound(final CreateCall request, final SipURI from, final SipURI to, final boolean webRTC) {
         final Configuration runtime = configuration.subset("runtime-settings");
-        final String proxyUsername = (request.username() != null) ? request.username() : activeProxyUsername;
-        final String proxyPassword = (request.password() != null) ? request.password() : activeProxyPassword;
+        final OutboundProxies.Proxy activeProxy = outboundProxies.getActive();
+        final String proxyUsername = (request.username() != null) ? request.username() : activeProxy.getUsername();
+        final String proxyPassword = (request.password() != null) ? request.password() : activeProxy.getPassword();
 
         final ActorRef call = call(null, request);
         final ActorRef self = self();
@@ -2376,7 +2358,7 @@ public final class CallManager extends RestcommUntypedActor {
         final SipServletResponse response = (SipServletResponse) message;
 
         // If Allow-Falback is true, check for error reponses and switch proxy if needed
-        if (allowFallback)
+        if (outboundProxies.isAllowFallback())
             checkErrorResponse(response);
 
         final SipApplicationSession application = response.getApplicationSession();
@@ -2394,7 +2376,8 @@ public final class CallManager extends RestcommUntypedActor {
                 }
                 String tempRealm = authHeader.substring(authHeader.indexOf("realm=\"") + "realm=\"".length());
                 String realm = tempRealm.substring(0, tempRealm.indexOf("\""));
-                authInfo.addAuthInfo(response.getStatus(), realm, activeProxyUsername, activeProxyPassword);
+                final OutboundProxies.Proxy activeProxy = outboundProxies.getActive();
+                authInfo.addAuthInfo(response.getStatus(), realm, activeProxy.getUsername(), activeProxy.getPassword());
                 SipServletRequest challengeRequest = response.getSession().createRequest(response.getRequest().getMethod());
                 response.getSession().setAttribute(B2BUAHelper.B2BUA_LAST_FINAL_RESPONSE, response);
                 challengeRequest.addAuthHeader(response, authInfo);
@@ -2466,12 +2449,12 @@ public final class CallManager extends RestcommUntypedActor {
             if (status != SipServletResponse.SC_UNAUTHORIZED && status != SipServletResponse.SC_PROXY_AUTHENTICATION_REQUIRED
                     && status != SipServletResponse.SC_NOT_FOUND && status > 400) {
 
-                int failures = numberOfFailedCalls.incrementAndGet();
-                if (logger.isInfoEnabled()) {
-                    logger.info("A total number of " + failures + " failures have now been counted.");
+                final boolean switchProxy = outboundProxies.failedCall();
+                if (logger.isInfoEnabled() && !switchProxy) {
+                    logger.info("A total number of " + outboundProxies.getNumberOfFailedCalls() + " failures have now been counted.");
                 }
 
-                if (failures >= maxNumberOfFailedCalls) {
+                if (switchProxy) {
                     if (logger.isInfoEnabled()) {
                         logger.info("Max number of failed calls has been reached trying to switch over proxy.");
                         logger.info("Current proxy: " + getActiveProxy().get("ActiveProxy"));
@@ -2480,7 +2463,6 @@ public final class CallManager extends RestcommUntypedActor {
                     if (logger.isInfoEnabled()) {
                         logger.info("Switched to proxy: " + getActiveProxy().get("ActiveProxy"));
                     }
-                    numberOfFailedCalls.set(0);
                 }
             }
         }
@@ -2488,22 +2470,12 @@ public final class CallManager extends RestcommUntypedActor {
 
     public Map<String, String> getActiveProxy() {
         Map<String, String> activeProxyMap = new ConcurrentHashMap<String, String>();
-        activeProxyMap.put("ActiveProxy", this.activeProxy);
+        activeProxyMap.put("ActiveProxy", outboundProxies.getActive().getUri());
         return activeProxyMap;
     }
 
     public Map<String, String> switchProxy() {
-        if (activeProxy.equalsIgnoreCase(primaryProxyUri)) {
-            activeProxy = fallBackProxyUri;
-            activeProxyUsername = fallBackProxyUsername;
-            activeProxyPassword = fallBackProxyPassword;
-            useFallbackProxy.set(true);
-        } else if (allowFallbackToPrimary) {
-            activeProxy = primaryProxyUri;
-            activeProxyUsername = primaryProxyUsername;
-            activeProxyPassword = primaryProxyPassword;
-            useFallbackProxy.set(false);
-        }
+        outboundProxies.switchProxy();
         final Notification notification = notification(null, WARNING_NOTIFICATION, 14110,
                 "Max number of failed calls has been reached! Outbound proxy switched");
         final NotificationsDao notifications = storage.getNotificationsDao();
@@ -2514,11 +2486,11 @@ public final class CallManager extends RestcommUntypedActor {
     public Map<String, String> getProxies(final Object message) {
         Map<String, String> proxies = new ConcurrentHashMap<String, String>();
 
-        proxies.put("ActiveProxy", activeProxy);
-        proxies.put("UsingFallBackProxy", useFallbackProxy.toString());
-        proxies.put("AllowFallbackToPrimary", String.valueOf(allowFallbackToPrimary));
-        proxies.put("PrimaryProxy", primaryProxyUri);
-        proxies.put("FallbackProxy", fallBackProxyUri);
+        proxies.put("ActiveProxy", outboundProxies.getActive().getUri());
+        proxies.put("UsingFallBackProxy", String.valueOf(outboundProxies.isUsingFallbackProxy()));
+        proxies.put("AllowFallbackToPrimary", String.valueOf(outboundProxies.isAllowFallbackToPrimary()));
+        proxies.put("PrimaryProxy", outboundProxies.getPrimary().getUri());
+        proxies.put("FallbackProxy", outboundProxies.getFallback().getUri());
 
         return proxies;
     }
@@ -2717,8 +2689,9 @@ public final class CallManager extends RestcommUntypedActor {
             if (logger.isInfoEnabled()) {
                 logger.info("outboundToIms: from: " + from + ", to: " + to);
             }
-            final String proxyUsername = (request.username() != null) ? request.username() : activeProxyUsername;
-            final String proxyPassword = (request.password() != null) ? request.password() : activeProxyPassword;
+            final OutboundProxies.Proxy activeProxy = outboundProxies.getActive();
+            final String proxyUsername = (request.username() != null) ? request.username() : activeProxy.getUsername();
+            final String proxyPassword = (request.password() != null) ? request.password() : activeProxy.getPassword();
             boolean isToWebRTC = false;
             Registration toReg = findRegistration(to);
             if (toReg != null) {
@@ -46,6 +46,8 @@ import javax.servlet.sip.SipSession;
 import javax.sip.message.Request;
 import javax.sip.message.Response;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.servlet.sip.SipApplicationSessionEvent;
 import javax.servlet.sip.SipApplicationSessionListener;
 
@@ -62,6 +64,8 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
 
     private ActorSystem system;
     private ActorRef manager;
+    // CallManager workers SIP messages are partitioned across, only the manager itself when not partitioned
+    private ActorRef[] workers;
     private ActorRef ussdManager;
     private ServletContext context;
 
@@ -88,7 +92,7 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
                 SipServletResponse resp = request.createResponse(Response.TRYING);
                 resp.send();
             }
-            manager.tell(request, null);
+            worker(request).tell(request, null);
         }
     }
 
@@ -108,7 +112,7 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
         if (isUssdMessage(response)) {
             ussdManager.tell(response, null);
         } else {
-            manager.tell(response, null);
+            worker(response).tell(response, null);
         }
     }
 
@@ -117,14 +121,38 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
         super.init(config);
     }
 
+    private ActorRef worker(final SipServletMessage message) {
+        return worker(message.getApplicationSession());
+    }
+
+    private ActorRef worker(final SipApplicationSession application) {
+        if (workers.length == 1) {
+            return workers[0];
+        }
+        return workers[CallManagerRouter.partition(application.getId(), workers.length)];
+    }
+
     private ActorRef manager(final Configuration configuration, final ServletContext context,
             final MediaServerControllerFactory msControllerfactory, final ActorRef conferences, final ActorRef bridges,
-            final ActorRef sms, final SipFactory factory, final DaoManager storage) {
+            final ActorRef sms, final SipFactory factory, final DaoManager storage, final OutboundProxies outboundProxies,
+            final boolean cleanup) {
+        final Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            public UntypedActor create() throws Exception {
+                return new CallManager(configuration, context, msControllerfactory, conferences, bridges, sms, factory, storage,
+                        outboundProxies, cleanup);
+            }
+        });
+        return system.actorOf(props);
+    }
+
+    private ActorRef router(final List<ActorRef> workers) {
         final Props props = new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
             @Override
             public UntypedActor create() throws Exception {
-                return new CallManager(configuration, context, msControllerfactory, conferences, bridges, sms, factory, storage);
+                return new CallManagerRouter(workers);
             }
         });
         return system.actorOf(props);
@@ -200,7 +228,18 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
             final ActorRef conferences = conferences(mscontrolFactory, storage);
             final ActorRef bridges = bridges(mscontrolFactory);
             final ActorRef sms = (ActorRef) context.getAttribute(SmsService.class.getName());
-            manager = manager(configuration, context, mscontrolFactory, conferences, bridges, sms, factory, storage);
+            final OutboundProxies outboundProxies = new OutboundProxies(configuration.subset("runtime-settings").subset("outbound-proxy"));
+            final int partitions = Math.max(1, configuration.subset("runtime-settings").getInt("call-manager-workers", 1));
+            final List<ActorRef> managers = new ArrayList<ActorRef>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                managers.add(manager(configuration, context, mscontrolFactory, conferences, bridges, sms, factory, storage,
+                        outboundProxies, i == 0));
+            }
+            workers = managers.toArray(new ActorRef[partitions]);
+            manager = partitions == 1 ? workers[0] : router(managers);
+            if (logger.isInfoEnabled()) {
+                logger.info("CallManager created with " + partitions + " worker(s)");
+            }
             ussdManager = ussdManager(configuration, context, factory, storage);
             context.setAttribute(CallManager.class.getName(), manager);
             context.setAttribute(UssdCallManager.class.getName(), ussdManager);
@@ -231,7 +270,8 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
             logger.debug("Session expired still not processed");
             //extend expiration a bit,to let sessions be properly disconnected
             sase.getApplicationSession().setExpires(EXPIRATION_GRACE_PERIOD);
-            manager.tell(sase, manager);
+            final ActorRef worker = worker(sase.getApplicationSession());
+            worker.tell(sase, worker);
         }
 
     }
@@ -0,0 +1,99 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.telephony;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.sip.SipApplicationSessionEvent;
+import javax.servlet.sip.SipServletMessage;
+
+import org.restcomm.connect.commons.faulttolerance.RestcommUntypedActor;
+import org.restcomm.connect.telephony.api.DestroyCall;
+import org.restcomm.connect.telephony.api.ExecuteCallScript;
+import org.restcomm.connect.telephony.api.UpdateCallScript;
+
+import akka.actor.ActorPath;
+import akka.actor.ActorRef;
+
+/**
+ * Front of a partitioned CallManager. SIP messages and application session events are forwarded to
+ * the worker selected by a stable hash of their application session id, so every message of a dialog
+ * is handled by the same worker while independent dialogs are handled in parallel. Messages about an
+ * existing call go to the worker that created it, every other message is spread round robin.
+ */
+public final class CallManagerRouter extends RestcommUntypedActor {
+    private final List<ActorRef> workers;
+    private int next;
+
+    public CallManagerRouter(final List<ActorRef> workers) {
+        super();
+        this.workers = new ArrayList<ActorRef>(workers);
+        this.next = 0;
+    }
+
+    /**
+     * @return the index of the worker in charge of the given application session.
+     */
+    public static int partition(final String applicationSessionId, final int workers) {
+        return (applicationSessionId.hashCode() & Integer.MAX_VALUE) % workers;
+    }
+
+    private ActorRef worker(final String applicationSessionId) {
+        return workers.get(partition(applicationSessionId, workers.size()));
+    }
+
+    private ActorRef owner(final ActorRef call) {
+        if (call != null) {
+            final ActorPath parent = call.path().parent();
+            for (final ActorRef worker : workers) {
+                if (worker.path().equals(parent)) {
+                    return worker;
+                }
+            }
+        }
+        return any();
+    }
+
+    private ActorRef any() {
+        final ActorRef worker = workers.get(next);
+        next = (next + 1) % workers.size();
+        return worker;
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final ActorRef worker;
+        if (message instanceof SipServletMessage) {
+            worker = worker(((SipServletMessage) message).getApplicationSession().getId());
+        } else if (message instanceof SipApplicationSessionEvent) {
+            worker = worker(((SipApplicationSessionEvent) message).getApplicationSession().getId());
+        } else if (message instanceof DestroyCall) {
+            worker = owner(((DestroyCall) message).call());
+        } else if (message instanceof ExecuteCallScript) {
+            worker = owner(((ExecuteCallScript) message).call());
+        } else if (message instanceof UpdateCallScript) {
+            worker = owner(((UpdateCallScript) message).call());
+        } else {
+            worker = any();
+        }
+        worker.forward(message, getContext());
+    }
+}
@@ -39,7 +39,8 @@ import org.restcomm.connect.commons.fsm.Transition;
 import org.restcomm.connect.commons.patterns.Observe;
 import org.restcomm.connect.commons.patterns.Observing;
 import org.restcomm.connect.commons.patterns.StopObserving;
-import org.restcomm.connect.dao.CallDetailRecordsDao;
+import org.restcomm.connect.core.service.RestcommConnectServiceProvider;
+import org.restcomm.connect.core.service.api.ConferenceParticipantsService;
 import org.restcomm.connect.dao.ConferenceDetailRecordsDao;
 import org.restcomm.connect.dao.DaoManager;
 import org.restcomm.connect.dao.entities.CallDetailRecord;
@@ -115,6 +116,7 @@ public final class Conference extends RestcommUntypedActor {
     private final ActorRef mscontroller;
 
     private final DaoManager storage;
+    private final ConferenceParticipantsService participants;
     private int globalNoOfParticipants;
 
     private ConferenceStateChanged.State waitingState;
@@ -163,6 +165,7 @@ public final class Conference extends RestcommUntypedActor {
         friendlyName = cnfNameAndAccount[1];
 
         this.storage = storage;
+        this.participants = RestcommConnectServiceProvider.getInstance().conferenceParticipantsService();
 
         this.conferenceCenter = conferenceCenter;
         //generate it later at MRB level, by watching if same conference is running on another RC instance.
@@ -369,6 +372,9 @@ public final class Conference extends RestcommUntypedActor {
 
         @Override
         public void execute(Object message) throws Exception {
+            if (sid != null) {
+                participants.conferenceStopped(sid);
+            }
             // Notify the observers.
             broadcast(new ConferenceStateChanged(name, this.finalState));
             observers.clear();
@@ -484,6 +490,8 @@ public final class Conference extends RestcommUntypedActor {
             boolean removed = calls.remove(sender);
             if(!removed)
                 logger.error("Call was not in conference participant list. Call: "+sender.path());
+            else if (sid != null)
+                participants.participantLeft(sid);
 
             int participantsNr = calls.size();
             if(logger.isInfoEnabled()) {
@@ -533,6 +541,9 @@ public final class Conference extends RestcommUntypedActor {
     private void onJoinComplete(JoinComplete message, ActorRef self, ActorRef sender) throws Exception {
         this.mscontroller.tell(message, sender);
         this.calls.add(sender);
+        if (sid != null) {
+            participants.participantJoined(sid);
+        }
         if (logger.isInfoEnabled()) {
             logger.info("Conference name: "+name+", path: "+self().path()+", received JoinComplete from Call: "+sender.path()+", number of participants currently: "+calls.size()+", will send conference info to observers");
         }
@@ -598,15 +609,14 @@ public final class Conference extends RestcommUntypedActor {
     }
 
     /**
-     * get global total no of participants from db
+     * get global total no of participants, counted in memory
      * @throws Exception
      */
     private int getGlobalNoOfParticipants() throws Exception{
         if(sid == null){
             globalNoOfParticipants = calls.size();
         }else{
-            CallDetailRecordsDao dao = storage.getCallDetailRecordsDao();
-            globalNoOfParticipants = dao.getTotalRunningCallDetailRecordsByConferenceSid(sid);
+            globalNoOfParticipants = participants.getParticipants(sid);
         }
         if(logger.isDebugEnabled())
             logger.debug("sid: "+sid+"globalNoOfParticipants: "+globalNoOfParticipants);
@@ -0,0 +1,146 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.telephony;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.configuration.Configuration;
+import org.restcomm.connect.commons.annotations.concurrency.Immutable;
+import org.restcomm.connect.commons.annotations.concurrency.ThreadSafe;
+
+/**
+ * Outbound proxy failover state shared by every CallManager worker. Failed calls are counted across
+ * workers and, once max-failed-calls is reached, exactly one of them switches the active proxy.
+ */
+@ThreadSafe
+public final class OutboundProxies {
+    private final Proxy primary;
+    private final Proxy fallback;
+    private final boolean allowFallback;
+    private final boolean allowFallbackToPrimary;
+    private final int maxNumberOfFailedCalls;
+
+    private final AtomicReference<Proxy> active;
+    private final AtomicInteger numberOfFailedCalls;
+
+    /**
+     * @param configuration the runtime-settings.outbound-proxy configuration.
+     */
+    public OutboundProxies(final Configuration configuration) {
+        super();
+        this.primary = new Proxy(configuration.getString("outbound-proxy-uri"), configuration.getString("outbound-proxy-user"),
+                configuration.getString("outbound-proxy-password"));
+        this.fallback = new Proxy(configuration.getString("fallback-outbound-proxy-uri"),
+                configuration.getString("fallback-outbound-proxy-user"), configuration.getString("fallback-outbound-proxy-password"));
+        this.allowFallback = configuration.getBoolean("allow-fallback", false);
+        this.allowFallbackToPrimary = configuration.getBoolean("allow-fallback-to-primary", false);
+        this.maxNumberOfFailedCalls = configuration.getInt("max-failed-calls", 20);
+        this.active = new AtomicReference<Proxy>(primary);
+        this.numberOfFailedCalls = new AtomicInteger();
+    }
+
+    public Proxy getActive() {
+        return active.get();
+    }
+
+    public Proxy getPrimary() {
+        return primary;
+    }
+
+    public Proxy getFallback() {
+        return fallback;
+    }
+
+    public boolean isAllowFallback() {
+        return allowFallback;
+    }
+
+    public boolean isAllowFallbackToPrimary() {
+        return allowFallbackToPrimary;
+    }
+
+    public boolean isUsingFallbackProxy() {
+        return active.get() == fallback;
+    }
+
+    public int getNumberOfFailedCalls() {
+        return numberOfFailedCalls.get();
+    }
+
+    /**
+     * Counts a failed call.
+     *
+     * @return true for the single caller whose failure reached max-failed-calls, the count starts over
+     * and that caller is expected to switch the proxy.
+     */
+    public boolean failedCall() {
+        final int failures = numberOfFailedCalls.incrementAndGet();
+        return failures >= maxNumberOfFailedCalls && numberOfFailedCalls.compareAndSet(failures, 0);
+    }
+
+    /**
+     * Switches from the primary to the fallback proxy, or back to the primary one when allow-fallback-to-primary is set.
+     *
+     * @return the proxy active once the switch is done.
+     */
+    public Proxy switchProxy() {
+        while (true) {
+            final Proxy current = active.get();
+            final Proxy next;
+            if (current.getUri() != null && current.getUri().equalsIgnoreCase(primary.getUri())) {
+                next = fallback;
+            } else if (allowFallbackToPrimary) {
+                next = primary;
+            } else {
+                return current;
+            }
+            if (active.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @Immutable
+    public static final class Proxy {
+        private final String uri;
+        private final String username;
+        private final String password;
+
+        public Proxy(final String uri, final String username, final String password) {
+            super();
+            this.uri = uri;
+            this.username = username;
+            this.password = password;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.telephony.ua;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.restcomm.connect.commons.annotations.concurrency.NotThreadSafe;
+import org.restcomm.connect.dao.entities.Registration;
+import org.restcomm.connect.telephony.api.KeepAliveStatistics;
+
+/**
+ * Hashed timer wheel of the registrations kept alive with OPTIONS pings. The wheel has one slot per
+ * tick of the ping interval and every registration is placed in a random slot when it is added, so
+ * each registration is returned by {@link #tick()} once per revolution while the registrations as a
+ * whole are spread evenly over the interval.
+ * <p>
+ * Registrations are keyed by their location, updating a registration keeps its slot. The wheel also
+ * counts the pings sent, so that the rate of a whole revolution and the pings still unanswered can be
+ * published.
+ */
+@NotThreadSafe
+public final class KeepAliveWheel {
+    private final List<Map<String, Registration>> slots;
+    private final Map<String, Integer> slotsByLocation;
+    private final Random random;
+    private int cursor;
+    private int pings;
+    private int pingsPerSecond;
+    private int outstandingPings;
+
+    public KeepAliveWheel(final int size) {
+        this(size, new Random());
+    }
+
+    public KeepAliveWheel(final int size, final Random random) {
+        super();
+        if (size < 1) {
+            throw new IllegalArgumentException("The wheel needs at least one slot");
+        }
+        this.slots = new ArrayList<Map<String, Registration>>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new LinkedHashMap<String, Registration>());
+        }
+        this.slotsByLocation = new HashMap<String, Integer>();
+        this.random = random;
+        this.cursor = 0;
+    }
+
+    public void add(final Registration registration) {
+        final String location = registration.getLocation();
+        Integer slot = slotsByLocation.get(location);
+        if (slot == null) {
+            slot = random.nextInt(slots.size());
+            slotsByLocation.put(location, slot);
+        }
+        slots.get(slot).put(location, registration);
+    }
+
+    public Registration remove(final String location) {
+        final Integer slot = slotsByLocation.remove(location);
+        if (slot == null) {
+            return null;
+        }
+        return slots.get(slot).remove(location);
+    }
+
+    public boolean contains(final String location) {
+        return slotsByLocation.containsKey(location);
+    }
+
+    public void clear() {
+        for (final Map<String, Registration> slot : slots) {
+            slot.clear();
+        }
+        slotsByLocation.clear();
+    }
+
+    /**
+     * Advances the wheel by one slot.
+     *
+     * @return the registrations due in that slot.
+     */
+    public List<Registration> tick() {
+        if (cursor == 0) {
+            // The pings sent since the first slot was last due cover a whole revolution
+            pingsPerSecond = pings / slots.size();
+            pings = 0;
+        }
+        cursor = (cursor + 1) % slots.size();
+        return new ArrayList<Registration>(slots.get(cursor).values());
+    }
+
+    /**
+     * @return true if the last tick completed a revolution of the wheel.
+     */
+    public boolean isRevolutionComplete() {
+        return cursor == 0;
+    }
+
+    /**
+     * @return every registration in the wheel.
+     */
+    public List<Registration> getRegistrations() {
+        final List<Registration> registrations = new ArrayList<Registration>(slotsByLocation.size());
+        for (final Map<String, Registration> slot : slots) {
+            registrations.addAll(slot.values());
+        }
+        return registrations;
+    }
+
+    public int size() {
+        return slotsByLocation.size();
+    }
+
+    public int getSlots() {
+        return slots.size();
+    }
+
+    public void pingSent() {
+        pings++;
+        outstandingPings++;
+    }
+
+    /**
+     * Counts the final response to a ping, a timeout included.
+     */
+    public void pingAnswered() {
+        if (outstandingPings > 0) {
+            outstandingPings--;
+        }
+    }
+
+    /**
+     * @return the registrations, the pings per second sent during the last complete revolution and the
+     *         pings not answered yet.
+     */
+    public KeepAliveStatistics getStatistics() {
+        return new KeepAliveStatistics(size(), pingsPerSecond, outstandingPings);
+    }
+}
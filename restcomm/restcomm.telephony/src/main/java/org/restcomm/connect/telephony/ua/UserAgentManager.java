@@ -53,9 +53,11 @@ import javax.servlet.sip.SipURI;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static java.lang.Integer.parseInt;
@@ -75,6 +77,8 @@ public final class UserAgentManager extends RestcommUntypedActor {
     private static final int DEFAUL_IMS_PROXY_PORT = -1;
     private static final String REGISTER = "REGISTER";
     private static final String REQ_PARAMETER = "Req";
+    // Ticks between two KeepAliveStatistics published to the monitoring service.
+    private static final int STATISTICS_TICKS = 10;
 
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
     private boolean authenticateUsers = true;
@@ -84,6 +88,11 @@ public final class UserAgentManager extends RestcommUntypedActor {
     private ActorRef monitoringService;
     private final int pingInterval;
     private final String instanceId;
+    // Registrations of this instance, one slot per second of the ping interval.
+    private final KeepAliveWheel keepAliveWheel;
+    private final int resyncInterval;
+    private int revolutions;
+    private int ticks;
     private boolean useSbc;
 
     // IMS authentication
@@ -107,6 +116,8 @@ public final class UserAgentManager extends RestcommUntypedActor {
         this.factory = factory;
         this.storage = storage;
         pingInterval = runtime.getInt("ping-interval", 60);
+        resyncInterval = runtime.getInt("ping-resync-interval", 10);
+        keepAliveWheel = new KeepAliveWheel(Math.max(pingInterval, 1));
         logger.info("About to run firstTimeCleanup()");
         instanceId = RestcommConfiguration.getInstance().getMain().getInstanceId();
         if(!runtime.subset("ims-authentication").isEmpty()){
@@ -169,52 +180,32 @@ public final class UserAgentManager extends RestcommUntypedActor {
             }
         }
         results = registrations.getRegistrationsByInstanceId(instanceId);
+        for (final Registration result : results) {
+            keepAliveWheel.add(result);
+        }
         if (logger.isInfoEnabled())
             logger.info("Initial registration cleanup finished, starting Restcomm with "+results.size()+" registrations");
     }
 
-    private void clean() throws ServletException {
-        final RegistrationsDao registrations = storage.getRegistrationsDao();
-        final List<Registration> results = registrations.getRegistrationsByInstanceId(instanceId);
+    /**
+     * Rebuilds the keepalive wheel from the database, to pick up registrations changed behind the
+     * back of this UserAgentManager. Registrations keep their slot.
+     */
+    private void resync() {
+        final List<Registration> results = storage.getRegistrationsDao().getRegistrationsByInstanceId(instanceId);
+        final Set<String> locations = new HashSet<String>();
         for (final Registration result : results) {
-            final DateTime expires = result.getDateExpires();
-            if (expires.isBeforeNow() || expires.isEqualNow()) {
-                if(logger.isInfoEnabled()) {
-                    logger.info("Registration: "+result.getAddressOfRecord()+" expired. Will ping again.");
-                }
-                //Instead of removing registrations we ping the client one last time to ensure it was not a temporary loss
-                // of connectivity. We don't need to remove the registration here. It will be handled only if the OPTIONS ping
-                // times out and the related calls from the client cleaned up as well
-                try{
-                    ping(result.getLocation(),result.getAddressOfRecord());
-                }catch(ServletParseException spe){
-                    logger.warning("Bad Parameters: "+result.getLocation() + "," + result.getAddressOfRecord());
-                    registrations.removeRegistration(result);
-                }
-                //registrations.removeRegistration(result);
-                //monitoringService.tell(new UserRegistration(result.getUserName(), result.getLocation(), false), self());
-            } else {
-                final DateTime updated = result.getDateUpdated();
-                Long pingIntervalMillis = new Long(pingInterval * 1000 * 3);
-                if ((DateTime.now().getMillis() - updated.getMillis()) > pingIntervalMillis) {
-                    //Last time this registration updated was older than (pingInterval * 3), looks like it doesn't respond to OPTIONS
-                    if (logger.isInfoEnabled()) {
-                        logger.info("Registration: " + result.getAddressOfRecord() + " didn't respond to OPTIONS. Will ping again.");
-                    }
-                    // Instead of removing registrations we ping the client one last time to ensure it was not a temporary loss
-                    // of connectivity. We don't need to remove the registration here. It will be handled only if the OPTIONS ping
-                    // times out and the related calls from the client cleaned up as well
-                    try{
-                        ping(result.getLocation(),result.getAddressOfRecord());
-                    }catch(ServletParseException spe){
-                        logger.warning("Bad Parameters: "+result.getLocation() + "," + result.getAddressOfRecord());
-                        registrations.removeRegistration(result);
-                    }
-                    // registrations.removeRegistration(result);
-                    // monitoringService.tell(new UserRegistration(result.getUserName(), result.getLocation(), false), self());
-                }
+            keepAliveWheel.add(result);
+            locations.add(result.getLocation());
+        }
+        for (final Registration registration : keepAliveWheel.getRegistrations()) {
+            if (!locations.contains(registration.getLocation())) {
+                keepAliveWheel.remove(registration.getLocation());
             }
         }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Keepalive wheel resynchronized, " + keepAliveWheel.size() + " registrations");
+        }
     }
 
     private void disconnectActiveCalls(ActorRef call) {
@@ -251,28 +242,48 @@ public final class UserAgentManager extends RestcommUntypedActor {
         response.send();
     }
 
+    /**
+     * Pings the registrations due in the next slot of the keepalive wheel, so every registration is
+     * pinged once per ping interval without sending all the OPTIONS at once.
+     */
     private void keepAlive() throws Exception {
         final RegistrationsDao registrations = storage.getRegistrationsDao();
-        final List<Registration> results = registrations.getRegistrationsByInstanceId(instanceId);
-        if (results != null && results.size() > 0) {
-            if (logger.isDebugEnabled()) {
-                logger.debug("Registrations for InstanceId: "+ instanceId +" , returned "+results.size()+" registrations");
-            }
-            for (final Registration result : results) {
-                final String location = result.getLocation();
-                final String aor = result.getAddressOfRecord();
-                try{
-                    ping(location,aor);
-                }catch(ServletParseException spe){
-                    logger.warning("Bad Parameters: aor:" + aor + ", location:"+ location);
-                    registrations.removeRegistration(result);
+        final List<Registration> results = keepAliveWheel.tick();
+        for (final Registration result : results) {
+            final String location = result.getLocation();
+            final String aor = result.getAddressOfRecord();
+            final DateTime expires = result.getDateExpires();
+            if (expires != null && (expires.isBeforeNow() || expires.isEqualNow())) {
+                //Instead of removing registrations we ping the client one last time to ensure it was not a temporary loss
+                // of connectivity. It will be removed only if the OPTIONS ping times out.
+                if(logger.isInfoEnabled()) {
+                    logger.info("Registration: "+aor+" expired. Will ping again.");
+                }
+            } else if (result.getDateUpdated() != null
+                    && (DateTime.now().getMillis() - result.getDateUpdated().getMillis()) > pingInterval * 1000L * 3) {
+                //Last time this registration updated was older than (pingInterval * 3), looks like it doesn't respond to OPTIONS
+                if (logger.isInfoEnabled()) {
+                    logger.info("Registration: " + aor + " didn't respond to OPTIONS. Will ping again.");
                 }
             }
-        } else {
-            if (logger.isDebugEnabled()) {
-                logger.debug("Registrations for InstanceId: "+ instanceId +" , returned no registrations");
+            try{
+                ping(location,aor);
+            }catch(ServletParseException spe){
+                logger.warning("Bad Parameters: aor:" + aor + ", location:"+ location);
+                registrations.removeRegistration(result);
+                keepAliveWheel.remove(location);
             }
         }
+        ticks++;
+        if (keepAliveWheel.isRevolutionComplete()) {
+            revolutions++;
+            if (resyncInterval > 0 && revolutions % resyncInterval == 0) {
+                resync();
+            }
+        }
+        if (ticks % STATISTICS_TICKS == 0) {
+            monitoringService.tell(keepAliveWheel.getStatistics(), self());
+        }
     }
 
     private String nonce() {
@@ -285,14 +296,14 @@ public final class UserAgentManager extends RestcommUntypedActor {
     public void onReceive(final Object message) throws Exception {
         final Class<?> klass = message.getClass();
         final ActorRef sender = sender();
-        if (logger.isInfoEnabled()) {
+        // Keepalive ticks arrive every second, do not log them.
+        if (logger.isInfoEnabled() && !(message instanceof ReceiveTimeout)) {
             logger.info("UserAgentManager Processing Message: \"" + klass.getName() + " sender : "+ sender.getClass()+" self is terminated: "+self().isTerminated());
         }
         if (message instanceof ReceiveTimeout) {
             if (logger.isDebugEnabled()) {
-                logger.debug("Timeout received, ping interval: "+pingInterval+" , will clean up registrations and send keep alive");
+                logger.debug("Timeout received, ping interval: "+pingInterval+" , will send keep alive to the next slot");
             }
-            clean();
             keepAlive();
         } else if (message instanceof SipServletRequest) {
             final SipServletRequest request = (SipServletRequest) message;
@@ -322,6 +333,9 @@ public final class UserAgentManager extends RestcommUntypedActor {
         } else if (message instanceof SipServletResponse) {
             SipServletResponse response = (SipServletResponse) message;
             int responseStatusCode = response.getStatus();
+            if (response.getMethod().equalsIgnoreCase("OPTIONS") && responseStatusCode >= 200) {
+                keepAliveWheel.pingAnswered();
+            }
             if (responseStatusCode > 400
                     // https://telestax.atlassian.net/browse/RESTCOMM-1582: Fix for User Agent that reply with BUSY when they are in a call
                     && (responseStatusCode != SC_BUSY_HERE && responseStatusCode != SC_BUSY_EVERYWHERE)
@@ -428,6 +442,7 @@ public final class UserAgentManager extends RestcommUntypedActor {
                     }
 
                     regDao.removeRegistration(reg);
+                    keepAliveWheel.remove(reg.getLocation());
                     monitoringService.tell(new UserRegistration(reg.getUserName(), reg.getLocation(), false, reg.getOrganizationSid()), self());
                     monitoringService.tell(new GetCall(reg.getLocation()), self());
                 } else {
@@ -489,6 +504,7 @@ public final class UserAgentManager extends RestcommUntypedActor {
         }
         try {
             ping.send();
+            keepAliveWheel.pingSent();
         } catch (IOException e) {
             if (logger.isInfoEnabled()) {
                 logger.info("There was a problem while trying to ping client: "+uri+" , will remove registration. " + e.getMessage());
@@ -516,6 +532,9 @@ public final class UserAgentManager extends RestcommUntypedActor {
         if(registrationList != null && !registrationList.isEmpty()){
             Registration registration = registrationList.get(0).updated();
             registrations.updateRegistration(registration);
+            if (keepAliveWheel.contains(registration.getLocation())) {
+                keepAliveWheel.add(registration);
+            }
         }else{
             if (logger.isDebugEnabled()) {
                 logger.debug(String.format("UAM pong: Could not find any registration for %s Location %s", toUri.getUser(), location));
@@ -620,6 +639,7 @@ public final class UserAgentManager extends RestcommUntypedActor {
         if (ttl == 0) {
             // Remove Registration if ttl=0
             registrations.removeRegistration(registration);
+            keepAliveWheel.remove(registration.getLocation());
             response.setHeader("Expires", "0");
             monitoringService.tell(new UserRegistration(user, address, false, organizationSid), self());
             if(logger.isInfoEnabled()) {
@@ -627,6 +647,7 @@ public final class UserAgentManager extends RestcommUntypedActor {
             }
         } else {
             monitoringService.tell(new UserRegistration(user, address, true, organizationSid), self());
+            keepAliveWheel.add(registration);
             if (registrations.hasRegistration(registration)) {
                 // Update Registration if exists
                 registrations.updateRegistration(registration);
@@ -860,6 +881,7 @@ public final class UserAgentManager extends RestcommUntypedActor {
             if (ttl == 0) {
                 // Remove Registration if ttl=0
                 registrations.removeRegistration(registration);
+                keepAliveWheel.remove(registration.getLocation());
                 incomingLegResponse.setHeader("Expires", "0");
                 monitoringService.tell(new UserRegistration(user, address, false, organizationSid), self());
                 if(logger.isInfoEnabled()) {
@@ -867,6 +889,7 @@ public final class UserAgentManager extends RestcommUntypedActor {
                 }
             } else {
                 monitoringService.tell(new UserRegistration(user, address, true, organizationSid), self());
+                keepAliveWheel.add(registration);
                 if (registrations.hasRegistration(registration)) {
                     // Update Registration if exists
                     registrations.updateRegistration(registration);
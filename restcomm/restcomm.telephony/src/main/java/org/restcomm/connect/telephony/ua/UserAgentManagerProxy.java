@@ -52,7 +52,6 @@ public final class UserAgentManagerProxy extends SipServlet implements SipServle
     private ActorSystem system;
     private ActorRef manager;
     private ServletContext servletContext;
-    private int pingInterval;
 
     private Configuration configuration;
 
@@ -118,8 +117,8 @@ public final class UserAgentManagerProxy extends SipServlet implements SipServle
             system = (ActorSystem) servletContext.getAttribute(ActorSystem.class.getName());
             logger.info("About to create new UserAgentManager");
             manager = manager(configuration, factory, storage);
-            pingInterval = configuration.subset("runtime-settings").getInt("ping-interval", 60);
-            system.scheduler().schedule(Duration.create(5, TimeUnit.SECONDS), Duration.create(pingInterval, TimeUnit.SECONDS),
+            // The manager spreads the pings of every ping-interval over one second ticks.
+            system.scheduler().schedule(Duration.create(5, TimeUnit.SECONDS), Duration.create(1, TimeUnit.SECONDS),
                     manager, ReceiveTimeout.getInstance(), system.dispatcher());
         }
     }
@@ -0,0 +1,64 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.telephony;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.restcomm.connect.commons.dao.Sid;
+
+public class CallManagerRouterTest {
+
+    private static Logger logger = Logger.getLogger(CallManagerRouterTest.class);
+
+    @Test
+    public void testPartitionIsStable() {
+        final String id = Sid.generate(Sid.Type.CALL).toString();
+        final int partition = CallManagerRouter.partition(id, 8);
+        Assert.assertTrue(partition >= 0 && partition < 8);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(partition, CallManagerRouter.partition(new String(id), 8));
+        }
+        Assert.assertEquals(0, CallManagerRouter.partition(id, 1));
+    }
+
+    @Test
+    public void testNegativeHashCode() {
+        // "polygenelubricants".hashCode() is Integer.MIN_VALUE
+        Assert.assertEquals(0, CallManagerRouter.partition("polygenelubricants", 4));
+    }
+
+    /**
+     * Application sessions must spread evenly so that the workers share the load.
+     */
+    @Test
+    public void testPartitionsAreBalanced() {
+        final int workers = 8;
+        final int sessions = 80000;
+        final int[] counts = new int[workers];
+        for (int i = 0; i < sessions; i++) {
+            counts[CallManagerRouter.partition(Sid.generate(Sid.Type.CALL).toString() + ";" + i, workers)]++;
+        }
+        for (int i = 0; i < workers; i++) {
+            logger.info("Worker " + i + " got " + counts[i] + " application sessions");
+            Assert.assertTrue(Math.abs(counts[i] - sessions / workers) < sessions / workers / 10);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.telephony;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OutboundProxiesTest {
+
+    private Configuration configuration(final boolean allowFallbackToPrimary) {
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty("outbound-proxy-uri", "primary:5060");
+        configuration.setProperty("outbound-proxy-user", "alice");
+        configuration.setProperty("outbound-proxy-password", "1234");
+        configuration.setProperty("fallback-outbound-proxy-uri", "fallback:5060");
+        configuration.setProperty("fallback-outbound-proxy-user", "bob");
+        configuration.setProperty("fallback-outbound-proxy-password", "5678");
+        configuration.setProperty("allow-fallback", "true");
+        configuration.setProperty("allow-fallback-to-primary", String.valueOf(allowFallbackToPrimary));
+        configuration.setProperty("max-failed-calls", "20");
+        return configuration;
+    }
+
+    @Test
+    public void testSwitchProxy() {
+        final OutboundProxies proxies = new OutboundProxies(configuration(false));
+        Assert.assertEquals("primary:5060", proxies.getActive().getUri());
+        Assert.assertFalse(proxies.isUsingFallbackProxy());
+
+        final OutboundProxies.Proxy active = proxies.switchProxy();
+        Assert.assertEquals("fallback:5060", active.getUri());
+        Assert.assertEquals("bob", active.getUsername());
+        Assert.assertEquals("5678", active.getPassword());
+        Assert.assertTrue(proxies.isUsingFallbackProxy());
+        // not allowed to fall back to the primary proxy
+        Assert.assertEquals("fallback:5060", proxies.switchProxy().getUri());
+    }
+
+    @Test
+    public void testSwitchBackToPrimary() {
+        final OutboundProxies proxies = new OutboundProxies(configuration(true));
+        proxies.switchProxy();
+        Assert.assertEquals("primary:5060", proxies.switchProxy().getUri());
+        Assert.assertFalse(proxies.isUsingFallbackProxy());
+    }
+
+    @Test
+    public void testFailedCallsCountedAcrossWorkers() throws Exception {
+        final OutboundProxies proxies = new OutboundProxies(configuration(true));
+        final int workers = 8;
+        final int failuresPerWorker = 500;
+        final AtomicInteger switches = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(workers);
+        final ExecutorService executor = Executors.newFixedThreadPool(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < failuresPerWorker; j++) {
+                        if (proxies.failedCall()) {
+                            switches.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        // every 20 failures exactly one caller is told to switch
+        Assert.assertEquals(workers * failuresPerWorker / 20, switches.get());
+        Assert.assertEquals(0, proxies.getNumberOfFailedCalls());
+    }
+}
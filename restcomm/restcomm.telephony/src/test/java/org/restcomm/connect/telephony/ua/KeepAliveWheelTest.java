@@ -0,0 +1,219 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.restcomm.connect.telephony.ua;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.restcomm.connect.commons.dao.Sid;
+import org.restcomm.connect.dao.entities.Registration;
+import org.restcomm.connect.telephony.api.KeepAliveStatistics;
+
+public class KeepAliveWheelTest {
+    private static Registration registration(final String location) {
+        final DateTime now = DateTime.now();
+        return new Registration(Sid.generate(Sid.Type.REGISTRATION), "instance", now, now, "sip:alice@127.0.0.1", "alice",
+                "alice", "test", 3600, location, false, false, null);
+    }
+
+    // Places registrations in the given slots, in order
+    private static Random slots(final Integer... slots) {
+        final Queue<Integer> queue = new LinkedList<Integer>();
+        for (final Integer slot : slots) {
+            queue.add(slot);
+        }
+        return new Random() {
+            @Override
+            public int nextInt(final int bound) {
+                return queue.remove();
+            }
+        };
+    }
+
+    // Ticks a whole revolution and returns the tick, from 1, each location was due at
+    private static Map<String, Integer> revolution(final KeepAliveWheel wheel) {
+        final Map<String, Integer> due = new HashMap<String, Integer>();
+        for (int tick = 1; tick <= wheel.getSlots(); tick++) {
+            for (final Registration registration : wheel.tick()) {
+                assertNull(due.put(registration.getLocation(), tick));
+            }
+        }
+        assertTrue(wheel.isRevolutionComplete());
+        return due;
+    }
+
+    @Test
+    public void testEveryRegistrationIsDueOncePerRevolution() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(10);
+        for (int i = 0; i < 100; i++) {
+            wheel.add(registration("sip:alice@127.0.0." + i));
+        }
+        assertEquals(100, wheel.size());
+        final Map<String, Integer> first = revolution(wheel);
+        assertEquals(100, first.size());
+        // the next revolution pings them in the same ticks
+        assertEquals(first, revolution(wheel));
+    }
+
+    @Test
+    public void testRegistrationsAreSpreadOverTheInterval() {
+        final int slots = 60;
+        final int registrations = 6000;
+        final KeepAliveWheel wheel = new KeepAliveWheel(slots, new Random(7));
+        for (int i = 0; i < registrations; i++) {
+            wheel.add(registration("sip:alice@127.0.0.1:" + i));
+        }
+        int total = 0;
+        for (int tick = 0; tick < slots; tick++) {
+            final int due = wheel.tick().size();
+            // 100 per tick on average, never a burst of the whole set
+            assertTrue("tick " + tick + " pings " + due, due > 60 && due < 140);
+            total += due;
+        }
+        assertEquals(registrations, total);
+    }
+
+    @Test
+    public void testTickOrder() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(4, slots(2, 0, 1));
+        wheel.add(registration("a"));
+        wheel.add(registration("b"));
+        wheel.add(registration("c"));
+
+        assertEquals("c", wheel.tick().get(0).getLocation());
+        assertEquals("a", wheel.tick().get(0).getLocation());
+        assertTrue(wheel.tick().isEmpty());
+        assertFalse(wheel.isRevolutionComplete());
+        assertEquals("b", wheel.tick().get(0).getLocation());
+        assertTrue(wheel.isRevolutionComplete());
+    }
+
+    @Test
+    public void testUpdateKeepsTheSlot() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(4, slots(1));
+        wheel.add(registration("a"));
+        final Registration updated = registration("a");
+        // a second slot would be drawn from an empty queue
+        wheel.add(updated);
+
+        assertEquals(1, wheel.size());
+        final List<Registration> due = wheel.tick();
+        assertEquals(1, due.size());
+        assertSame(updated, due.get(0));
+    }
+
+    @Test
+    public void testRemove() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(4, slots(1, 2));
+        final Registration a = registration("a");
+        wheel.add(a);
+        wheel.add(registration("b"));
+
+        assertSame(a, wheel.remove("a"));
+        assertNull(wheel.remove("a"));
+        assertNull(wheel.remove("unknown"));
+        assertFalse(wheel.contains("a"));
+        assertTrue(wheel.contains("b"));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.getRegistrations().size());
+        assertEquals(1, revolution(wheel).size());
+    }
+
+    @Test
+    public void testRescheduleAfterRemove() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(4, slots(0, 2));
+        wheel.add(registration("a"));
+        assertEquals(Integer.valueOf(4), revolution(wheel).get("a"));
+
+        // registered again after it was removed, the registration gets a new slot
+        wheel.remove("a");
+        wheel.add(registration("a"));
+        assertEquals(Integer.valueOf(2), revolution(wheel).get("a"));
+    }
+
+    @Test
+    public void testClear() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(4, slots(0, 1));
+        wheel.add(registration("a"));
+        wheel.add(registration("b"));
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertFalse(wheel.contains("a"));
+        assertTrue(revolution(wheel).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSlot() {
+        new KeepAliveWheel(0);
+    }
+
+    @Test
+    public void testStatistics() {
+        final KeepAliveWheel wheel = new KeepAliveWheel(5, slots(0, 1, 2));
+        wheel.add(registration("a"));
+        wheel.add(registration("b"));
+        wheel.add(registration("c"));
+
+        // one revolution pinging 2 registrations per tick
+        for (int tick = 0; tick < 5; tick++) {
+            wheel.tick();
+            wheel.pingSent();
+            wheel.pingSent();
+        }
+        KeepAliveStatistics statistics = wheel.getStatistics();
+        assertEquals(3, statistics.getRegistrations());
+        // the rate is known once the revolution is over
+        assertEquals(0, statistics.getPingsPerSecond());
+        assertEquals(10, statistics.getOutstandingPings());
+
+        for (int i = 0; i < 4; i++) {
+            wheel.pingAnswered();
+        }
+        wheel.tick();
+        statistics = wheel.getStatistics();
+        assertEquals(2, statistics.getPingsPerSecond());
+        assertEquals(6, statistics.getOutstandingPings());
+
+        // responses to pings sent before a restart never go below zero
+        for (int i = 0; i < 10; i++) {
+            wheel.pingAnswered();
+        }
+        assertEquals(0, wheel.getStatistics().getOutstandingPings());
+
+        // a revolution without pings
+        for (int tick = 0; tick < 5; tick++) {
+            wheel.tick();
+        }
+        assertEquals(0, wheel.getStatistics().getPingsPerSecond());
+    }
+}